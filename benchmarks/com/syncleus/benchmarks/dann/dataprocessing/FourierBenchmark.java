@@ -0,0 +1,54 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.benchmarks.dann.dataprocessing;
+
+import com.syncleus.dann.dataprocessing.signal.transform.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FourierBenchmark
+{
+	private static final int BITRATE = 44100;
+
+	@Param({"256", "4096", "65536"})
+	public int blockSize;
+
+	private CooleyTukeyFastFourierTransformer transformer;
+	private double[] signal;
+
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(0);
+		this.transformer = new CooleyTukeyFastFourierTransformer(this.blockSize, BITRATE);
+		this.signal = new double[this.blockSize];
+		for(int index = 0; index < this.signal.length; index++)
+			this.signal[index] = random.nextDouble() * 2.0 - 1.0;
+	}
+
+	@Benchmark
+	public DiscreteFourierTransform transform()
+	{
+		return this.transformer.transform(this.signal);
+	}
+}
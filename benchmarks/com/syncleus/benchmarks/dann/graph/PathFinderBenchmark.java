@@ -0,0 +1,101 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.benchmarks.dann.graph;
+
+import com.syncleus.dann.graph.*;
+import com.syncleus.dann.graph.search.pathfinding.*;
+import com.syncleus.tests.dann.graph.search.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathFinderBenchmark
+{
+	@Param({"8", "16", "32"})
+	public int gridSize;
+
+	private WeightedDirectedGrid grid;
+	private GridNode begin;
+	private GridNode end;
+
+	private static class DistanceHeuristic implements HeuristicPathCost<GridNode>
+	{
+		public double getHeuristicPathCost(final GridNode begin, final GridNode end)
+		{
+			return begin.calculateRelativeTo(end).getDistance();
+		}
+
+		public boolean isOptimistic()
+		{
+			return true;
+		}
+
+		public boolean isConsistent()
+		{
+			return true;
+		}
+	}
+
+	@Setup
+	public void setup()
+	{
+		//every node costs atleast 1 so the distance heuristic is optimistic
+		final Random random = new Random(0);
+		final double[][] weights = new double[this.gridSize][this.gridSize];
+		for(int y = 0; y < this.gridSize; y++)
+			for(int x = 0; x < this.gridSize; x++)
+				weights[y][x] = 1.0 + random.nextInt(10);
+		this.grid = new WeightedDirectedGrid(weights);
+		this.begin = this.grid.getNode(0, 0);
+		this.end = this.grid.getNode(this.gridSize - 1, this.gridSize - 1);
+	}
+
+	@Benchmark
+	public Walk<GridNode, WeightedDirectedEdge<GridNode>> dijkstra()
+	{
+		return new DijkstraPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(this.grid).getBestPath(this.begin, this.end);
+	}
+
+	@Benchmark
+	public Walk<GridNode, WeightedDirectedEdge<GridNode>> astar()
+	{
+		return new AstarPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(this.grid, new DistanceHeuristic()).getBestPath(this.begin, this.end);
+	}
+
+	@Benchmark
+	public Walk<GridNode, WeightedDirectedEdge<GridNode>> bellmanFord()
+	{
+		return new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(this.grid).getBestPath(this.begin, this.end);
+	}
+
+	@Benchmark
+	public Walk<GridNode, WeightedDirectedEdge<GridNode>> floydWarshall()
+	{
+		return new FloydWarshallPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(this.grid).getBestPath(this.begin, this.end);
+	}
+
+	@Benchmark
+	public Walk<GridNode, WeightedDirectedEdge<GridNode>> johnson()
+	{
+		return new JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(this.grid).getBestPath(this.begin, this.end);
+	}
+}
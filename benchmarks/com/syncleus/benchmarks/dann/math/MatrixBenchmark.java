@@ -0,0 +1,59 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.benchmarks.dann.math;
+
+import com.syncleus.dann.math.linear.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MatrixBenchmark
+{
+	@Param({"16", "64", "256"})
+	public int size;
+
+	private SimpleRealMatrix left;
+	private SimpleRealMatrix right;
+
+	private static SimpleRealMatrix randomMatrix(final Random random, final int size)
+	{
+		final double[][] elements = new double[size][size];
+		for(int row = 0; row < size; row++)
+			for(int column = 0; column < size; column++)
+				elements[row][column] = random.nextDouble();
+		return new SimpleRealMatrix(elements);
+	}
+
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(0);
+		this.left = randomMatrix(random, this.size);
+		this.right = randomMatrix(random, this.size);
+	}
+
+	@Benchmark
+	public RealMatrix multiply()
+	{
+		return this.left.multiply(this.right);
+	}
+}
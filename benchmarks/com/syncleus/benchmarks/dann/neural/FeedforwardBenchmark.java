@@ -0,0 +1,67 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.benchmarks.dann.neural;
+
+import com.syncleus.dann.neural.InputNeuron;
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FeedforwardBenchmark
+{
+	@Param({"8", "64", "256"})
+	public int layerSize;
+
+	private FullyConnectedFeedforwardBrain brain;
+	private CompiledFeedforwardNetwork network;
+	private double[] inputs;
+
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(0);
+		this.brain = new FullyConnectedFeedforwardBrain(new int[]{this.layerSize, this.layerSize, this.layerSize}, 0.01, new HyperbolicTangentActivationFunction());
+		this.inputs = new double[this.layerSize];
+		for(int index = 0; index < this.inputs.length; index++)
+			this.inputs[index] = random.nextDouble();
+		for(InputNeuron input : this.brain.getInputNeurons())
+			input.setInput(random.nextDouble());
+
+		//a detached copy so the graph benchmark is not redirected to it
+		this.network = this.brain.compile().snapshot();
+		this.brain.decompile();
+	}
+
+	@Benchmark
+	public void propagate()
+	{
+		this.brain.propagate();
+	}
+
+	@Benchmark
+	public double[] compiledPropagate()
+	{
+		return this.network.propagate(this.inputs);
+	}
+}
@@ -0,0 +1,61 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.benchmarks.dann.neural;
+
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.som.brain.ExponentialDecaySomBrain;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SomBenchmark
+{
+	private static final int INPUT_COUNT = 3;
+
+	@Param({"10", "40", "100"})
+	public int latticeWidth;
+
+	@Param({"false", "true"})
+	public boolean compiled;
+
+	private ExponentialDecaySomBrain brain;
+
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(0);
+		this.brain = new ExponentialDecaySomBrain(INPUT_COUNT, 2, 1000, 0.1);
+		for(double x = 0; x < this.latticeWidth; x++)
+			for(double y = 0; y < this.latticeWidth; y++)
+				this.brain.createOutput(new Vector(new double[]{x, y}));
+		for(int input = 0; input < INPUT_COUNT; input++)
+			this.brain.setInput(input, random.nextDouble());
+		if( this.compiled )
+			this.brain.compile();
+	}
+
+	@Benchmark
+	public Vector getBestMatchingUnit()
+	{
+		return this.brain.getBestMatchingUnit(false);
+	}
+}
@@ -0,0 +1,293 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.dataprocessing.sample;
+
+import com.syncleus.dann.*;
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the rows of a sample file a block at a time. While the rows of one
+ * block are being read the next block is copied out of the file on a
+ * background thread, so reading the file overlaps with training on it. Only
+ * two blocks are ever held on the heap, and every row is handed out through
+ * the same view.
+ *
+ * When created with a random number generator every epoch visits the blocks
+ * in a new random order and the rows within each block in a new random order.
+ * This is not a full shuffle of the file, but rows from distant parts of the
+ * file are mixed without ever reading the file out of order within a block.
+ * Without a random number generator the rows are read in the order they were
+ * written.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class BlockSampleSource implements SampleSource
+{
+	/**
+	 * The default number of rows in each block.
+	 *
+	 * @since 2.0
+	 */
+	public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+	private final SampleFile file;
+	private final int blockRows;
+	private final int blockCount;
+	private final Random random;
+	private final int[] blockOrder;
+	private final int[] rowOrder;
+	private final Block[] blocks;
+	private final SampleRow row;
+	private final ExecutorService prefetcher;
+	private Future<Block> pending = null;
+	private Block current = null;
+	private int nextBlock = 0;
+	private int rowPosition = 0;
+	private final static Logger LOGGER = Logger.getLogger(BlockSampleSource.class);
+
+	private static class Block
+	{
+		private final double[] values;
+		private int rowCount = 0;
+
+		public Block(final int size)
+		{
+			this.values = new double[size];
+		}
+	}
+
+	private static class LoadBlock implements Callable<Block>
+	{
+		private final SampleFile file;
+		private final Block block;
+		private final long firstRow;
+		private final int rowCount;
+
+		public LoadBlock(final SampleFile file, final Block block, final long firstRow, final int rowCount)
+		{
+			this.file = file;
+			this.block = block;
+			this.firstRow = firstRow;
+			this.rowCount = rowCount;
+		}
+
+		public Block call() throws IOException
+		{
+			this.file.readRows(this.firstRow, this.rowCount, this.block.values);
+			this.block.rowCount = this.rowCount;
+			return this.block;
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory
+	{
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "BlockSampleSource prefetch");
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Creates a source reading the rows of a sample file in order, a default
+	 * sized block at a time.
+	 *
+	 * @param file the sample file to read.
+	 * @throws IOException if the first block can not be read.
+	 * @since 2.0
+	 */
+	public BlockSampleSource(final SampleFile file) throws IOException
+	{
+		this(file, DEFAULT_BLOCK_ROWS, null);
+	}
+
+	/**
+	 * Creates a source reading the rows of a sample file a block at a time.
+	 *
+	 * @param file the sample file to read.
+	 * @param blockRows the number of rows in each block.
+	 * @param random the random number generator used to shuffle the blocks
+	 * and the rows within them, or null to read the rows in order.
+	 * @throws IOException if the first block can not be read.
+	 * @since 2.0
+	 */
+	public BlockSampleSource(final SampleFile file, final int blockRows, final Random random) throws IOException
+	{
+		if( file == null )
+			throw new IllegalArgumentException("file can not be null");
+		if( blockRows <= 0 )
+			throw new IllegalArgumentException("blockRows must be greater than 0");
+		if( ((long) blockRows * file.getRowSize()) > Integer.MAX_VALUE )
+			throw new IllegalArgumentException("blockRows is too large for the rows of this file");
+
+		this.file = file;
+		this.blockRows = (int) Math.max(1L, Math.min(blockRows, file.getRowCount()));
+		final long blocks = (file.getRowCount() + this.blockRows - 1) / this.blockRows;
+		if( blocks > Integer.MAX_VALUE )
+			throw new IllegalArgumentException("blockRows is too small for the rows of this file");
+		this.blockCount = (int) blocks;
+		this.random = random;
+
+		this.blockOrder = new int[this.blockCount];
+		this.rowOrder = new int[this.blockRows];
+		this.blocks = new Block[]{new Block(this.blockRows * file.getRowSize()), new Block(this.blockRows * file.getRowSize())};
+		this.row = new SampleRow(file.getFeatureCount());
+		this.prefetcher = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+
+		this.rewind();
+	}
+
+	/**
+	 * Gets the sample file this source reads.
+	 *
+	 * @return the sample file this source reads.
+	 * @since 2.0
+	 */
+	public final SampleFile getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Gets the number of rows in each block.
+	 *
+	 * @return the number of rows in each block.
+	 * @since 2.0
+	 */
+	public final int getBlockRows()
+	{
+		return this.blockRows;
+	}
+
+	public final int getFeatureCount()
+	{
+		return this.file.getFeatureCount();
+	}
+
+	public final long getRowCount()
+	{
+		return this.file.getRowCount();
+	}
+
+	public final SampleRow getRow()
+	{
+		return this.row;
+	}
+
+	public final boolean next() throws IOException
+	{
+		while( (this.current == null) || (this.rowPosition >= this.current.rowCount) )
+		{
+			if( this.pending == null )
+				return false;
+
+			//the block which was just read becomes the buffer for the next load
+			final Block loaded = this.awaitPending();
+			this.current = loaded;
+			this.prefetch( loaded == this.blocks[0] ? this.blocks[1] : this.blocks[0] );
+
+			for(int rowIndex = 0; rowIndex < loaded.rowCount; rowIndex++)
+				this.rowOrder[rowIndex] = rowIndex;
+			this.shuffle(this.rowOrder, loaded.rowCount);
+			this.rowPosition = 0;
+		}
+
+		this.row.setRow(this.current.values, this.rowOrder[this.rowPosition++] * this.file.getRowSize());
+		return true;
+	}
+
+	public final void rewind() throws IOException
+	{
+		//the block being loaded must not be written to while it is reused
+		if( this.pending != null )
+			this.awaitPending();
+
+		for(int blockIndex = 0; blockIndex < this.blockCount; blockIndex++)
+			this.blockOrder[blockIndex] = blockIndex;
+		this.shuffle(this.blockOrder, this.blockCount);
+
+		this.current = null;
+		this.nextBlock = 0;
+		this.rowPosition = 0;
+		this.prefetch(this.blocks[0]);
+	}
+
+	/**
+	 * Stops the background thread prefetching blocks. The file itself is only
+	 * held open while a block is being read.
+	 *
+	 * @since 2.0
+	 */
+	public final void close()
+	{
+		this.prefetcher.shutdown();
+	}
+
+	private void prefetch(final Block block)
+	{
+		if( this.nextBlock >= this.blockCount )
+			return;
+
+		final long firstRow = (long) this.blockOrder[this.nextBlock++] * this.blockRows;
+		final int rowCount = (int) Math.min(this.blockRows, this.file.getRowCount() - firstRow);
+		this.pending = this.prefetcher.submit(new LoadBlock(this.file, block, firstRow, rowCount));
+	}
+
+	private Block awaitPending() throws IOException
+	{
+		try
+		{
+			return this.pending.get();
+		}
+		catch(InterruptedException caught)
+		{
+			LOGGER.error("LoadBlock was unexpectidy interupted", caught);
+			throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+		}
+		catch(ExecutionException caught)
+		{
+			if( caught.getCause() instanceof IOException )
+				throw new IOException("could not read block", caught.getCause());
+			LOGGER.error("LoadBlock had an unexcepted problem executing.", caught);
+			throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+		}
+		finally
+		{
+			this.pending = null;
+		}
+	}
+
+	private void shuffle(final int[] order, final int count)
+	{
+		if( this.random == null )
+			return;
+		for(int index = count - 1; index > 0; index--)
+		{
+			final int swapIndex = this.random.nextInt(index + 1);
+			final int swap = order[index];
+			order[index] = order[swapIndex];
+			order[swapIndex] = swap;
+		}
+	}
+}
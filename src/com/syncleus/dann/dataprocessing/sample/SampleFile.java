@@ -0,0 +1,321 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.dataprocessing.sample;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * A binary file of samples, each stored as a row of a fixed number of feature
+ * values followed by a label. The file starts with a 24 byte header:
+ * <ul>
+ * <li>the magic number 0x44534D50 ("DSMP") as an int,</li>
+ * <li>the format version as an int,</li>
+ * <li>the number of features in each row as an int,</li>
+ * <li>an int of padding,</li>
+ * <li>the number of rows as a long,</li>
+ * </ul>
+ * followed by the rows as packed big endian doubles. Rows are read through
+ * memory mapped regions of the file so a sample file may be much larger than
+ * the heap; only the rows being read are ever copied into it.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.dataprocessing.sample.BlockSampleSource
+ */
+public final class SampleFile
+{
+	/**
+	 * The magic number every sample file starts with.
+	 *
+	 * @since 2.0
+	 */
+	public static final int MAGIC = 0x44534D50;
+	/**
+	 * The version of the format written by this class.
+	 *
+	 * @since 2.0
+	 */
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 24;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final int featureCount;
+	private final long rowCount;
+
+	/**
+	 * Opens an existing sample file and reads its header.
+	 *
+	 * @param file the sample file.
+	 * @throws IOException if the file can not be read or is not a valid
+	 * sample file.
+	 * @since 2.0
+	 */
+	public SampleFile(final File file) throws IOException
+	{
+		final FileInputStream input = new FileInputStream(file);
+		try
+		{
+			final FileChannel channel = input.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			while( header.hasRemaining() )
+				if( channel.read(header) < 0 )
+					throw new IOException("sample file is truncated");
+			header.flip();
+
+			if( header.getInt() != MAGIC )
+				throw new IOException("not a sample file");
+			final int version = header.getInt();
+			if( version != VERSION )
+				throw new IOException("unsupported sample file version " + version);
+			this.featureCount = header.getInt();
+			header.getInt();
+			this.rowCount = header.getLong();
+			if( (this.featureCount < 0) || (this.rowCount < 0) )
+				throw new IOException("sample file is corrupt");
+			if( channel.size() < (HEADER_SIZE + (this.rowCount * this.getRowSize() * 8)) )
+				throw new IOException("sample file is truncated");
+		}
+		finally
+		{
+			input.close();
+		}
+		this.file = file;
+	}
+
+	/**
+	 * Writes every sample in the given arrays to a new sample file.
+	 *
+	 * @param file the sample file to create or replace.
+	 * @param features the feature values of each sample.
+	 * @param labels the label of each sample.
+	 * @return the sample file written.
+	 * @throws IOException if the file can not be written.
+	 * @since 2.0
+	 */
+	public static SampleFile write(final File file, final double[][] features, final double[] labels) throws IOException
+	{
+		if( features.length != labels.length )
+			throw new IllegalArgumentException("features and labels must have the same number of samples");
+		if( features.length <= 0 )
+			throw new IllegalArgumentException("there must be atleast one sample");
+
+		final Writer writer = new Writer(file, features[0].length);
+		try
+		{
+			for(int sampleIndex = 0; sampleIndex < features.length; sampleIndex++)
+				writer.write(features[sampleIndex], labels[sampleIndex]);
+		}
+		finally
+		{
+			writer.close();
+		}
+		return new SampleFile(file);
+	}
+
+	/**
+	 * Gets the file the samples are stored in.
+	 *
+	 * @return the file the samples are stored in.
+	 * @since 2.0
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Gets the number of feature values in each row.
+	 *
+	 * @return the number of feature values in each row.
+	 * @since 2.0
+	 */
+	public int getFeatureCount()
+	{
+		return this.featureCount;
+	}
+
+	/**
+	 * Gets the number of rows in the file.
+	 *
+	 * @return the number of rows in the file.
+	 * @since 2.0
+	 */
+	public long getRowCount()
+	{
+		return this.rowCount;
+	}
+
+	/**
+	 * Gets the number of doubles each row is stored as, the features plus the
+	 * label.
+	 *
+	 * @return the number of doubles in each row.
+	 * @since 2.0
+	 */
+	public int getRowSize()
+	{
+		return this.featureCount + 1;
+	}
+
+	/**
+	 * Copies a range of rows into an array. Only the region of the file
+	 * holding the rows is mapped.
+	 *
+	 * @param firstRow the index of the first row to read.
+	 * @param count the number of rows to read.
+	 * @param destination the array to copy the rows into, one after another,
+	 * each as its features followed by its label.
+	 * @throws IOException if the file can not be read.
+	 * @since 2.0
+	 */
+	public void readRows(final long firstRow, final int count, final double[] destination) throws IOException
+	{
+		if( (firstRow < 0) || (count < 0) || ((firstRow + count) > this.rowCount) )
+			throw new IllegalArgumentException("rows are out of bounds");
+		if( ((long) count * this.getRowSize()) > destination.length )
+			throw new IllegalArgumentException("destination is too small");
+
+		final FileInputStream input = new FileInputStream(this.file);
+		try
+		{
+			final long rowBytes = this.getRowSize() * 8L;
+			final MappedByteBuffer buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (firstRow * rowBytes), count * rowBytes);
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			buffer.asDoubleBuffer().get(destination, 0, count * this.getRowSize());
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes a sample file one row at a time through a fixed size buffer. The
+	 * number of rows is written into the header when the writer is closed.
+	 *
+	 * @since 2.0
+	 */
+	public static final class Writer implements Closeable
+	{
+		private final RandomAccessFile output;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		private final int featureCount;
+		private long rowCount = 0;
+
+		/**
+		 * Creates or replaces a sample file.
+		 *
+		 * @param file the sample file.
+		 * @param featureCount the number of feature values in each row.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public Writer(final File file, final int featureCount) throws IOException
+		{
+			if( featureCount < 0 )
+				throw new IllegalArgumentException("featureCount can not be negative");
+
+			this.featureCount = featureCount;
+			this.output = new RandomAccessFile(file, "rw");
+			this.output.setLength(0);
+			this.channel = this.output.getChannel();
+			this.putHeader();
+		}
+
+		private void putHeader()
+		{
+			this.buffer.putInt(MAGIC);
+			this.buffer.putInt(VERSION);
+			this.buffer.putInt(this.featureCount);
+			this.buffer.putInt(0);
+			this.buffer.putLong(this.rowCount);
+		}
+
+		private void flush() throws IOException
+		{
+			this.buffer.flip();
+			while( this.buffer.hasRemaining() )
+				this.channel.write(this.buffer);
+			this.buffer.clear();
+		}
+
+		/**
+		 * Writes a single row.
+		 *
+		 * @param features the feature values of the row.
+		 * @param label the label of the row.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void write(final double[] features, final double label) throws IOException
+		{
+			if( features.length != this.featureCount )
+				throw new IllegalArgumentException("features must have " + this.featureCount + " values");
+
+			for(double feature : features)
+			{
+				if( this.buffer.remaining() < 8 )
+					this.flush();
+				this.buffer.putDouble(feature);
+			}
+			if( this.buffer.remaining() < 8 )
+				this.flush();
+			this.buffer.putDouble(label);
+			this.rowCount++;
+		}
+
+		/**
+		 * Gets the number of rows written so far.
+		 *
+		 * @return the number of rows written so far.
+		 * @since 2.0
+		 */
+		public long getRowCount()
+		{
+			return this.rowCount;
+		}
+
+		/**
+		 * Writes any buffered rows, records the number of rows in the header
+		 * and closes the file.
+		 *
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void close() throws IOException
+		{
+			try
+			{
+				this.flush();
+				this.channel.position(0);
+				this.putHeader();
+				this.flush();
+			}
+			finally
+			{
+				this.output.close();
+			}
+		}
+	}
+}
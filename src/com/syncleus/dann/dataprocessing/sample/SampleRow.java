@@ -0,0 +1,120 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.dataprocessing.sample;
+
+/**
+ * A view of a single row of a sample source. A source hands out the same view
+ * for every row it moves to, so the values of a row must be read, or copied
+ * with copyFeatures, before the source moves on.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.dataprocessing.sample.SampleSource
+ */
+public final class SampleRow
+{
+	private final int featureCount;
+	private double[] values = null;
+	private int offset = 0;
+
+	/**
+	 * Creates a view of rows with the given number of feature values.
+	 *
+	 * @param featureCount the number of feature values in each row.
+	 * @since 2.0
+	 */
+	public SampleRow(final int featureCount)
+	{
+		if( featureCount < 0 )
+			throw new IllegalArgumentException("featureCount can not be negative");
+		this.featureCount = featureCount;
+	}
+
+	/**
+	 * Points this view at a row stored as its features followed by its label.
+	 *
+	 * @param values the array holding the row.
+	 * @param offset the index of the first feature of the row.
+	 * @since 2.0
+	 */
+	public void setRow(final double[] values, final int offset)
+	{
+		if( (offset < 0) || ((offset + this.featureCount) >= values.length) )
+			throw new IllegalArgumentException("offset is out of bounds");
+		this.values = values;
+		this.offset = offset;
+	}
+
+	private void checkRow()
+	{
+		if( this.values == null )
+			throw new IllegalStateException("the view is not pointing at a row");
+	}
+
+	/**
+	 * Gets the number of feature values in the row.
+	 *
+	 * @return the number of feature values in the row.
+	 * @since 2.0
+	 */
+	public int getFeatureCount()
+	{
+		return this.featureCount;
+	}
+
+	/**
+	 * Gets a single feature value of the row.
+	 *
+	 * @param index the index of the feature.
+	 * @return the value of the feature.
+	 * @since 2.0
+	 */
+	public double getFeature(final int index)
+	{
+		this.checkRow();
+		if( (index < 0) || (index >= this.featureCount) )
+			throw new IllegalArgumentException("index is out of bounds");
+		return this.values[this.offset + index];
+	}
+
+	/**
+	 * Gets the label of the row.
+	 *
+	 * @return the label of the row.
+	 * @since 2.0
+	 */
+	public double getLabel()
+	{
+		this.checkRow();
+		return this.values[this.offset + this.featureCount];
+	}
+
+	/**
+	 * Copies the feature values of the row into an array.
+	 *
+	 * @param destination the array to copy into, atleast as long as the
+	 * number of features.
+	 * @since 2.0
+	 */
+	public void copyFeatures(final double[] destination)
+	{
+		this.checkRow();
+		System.arraycopy(this.values, this.offset, destination, 0, this.featureCount);
+	}
+}
@@ -0,0 +1,76 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.dataprocessing.sample;
+
+import java.io.*;
+
+/**
+ * A source of samples which is read one row at a time. A pass over every row
+ * of the source is an epoch; rewind starts the next one. Rows are handed out
+ * through a single reusable view so reading a source does not create an
+ * object per sample.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public interface SampleSource extends Closeable
+{
+	/**
+	 * Gets the number of feature values in each row.
+	 *
+	 * @return the number of feature values in each row.
+	 * @since 2.0
+	 */
+	int getFeatureCount();
+
+	/**
+	 * Gets the number of rows in each epoch.
+	 *
+	 * @return the number of rows in each epoch.
+	 * @since 2.0
+	 */
+	long getRowCount();
+
+	/**
+	 * Moves to the next row of the current epoch.
+	 *
+	 * @return true if the view now points at the next row, false if every row
+	 * of the epoch has been read.
+	 * @throws IOException if the row can not be read.
+	 * @since 2.0
+	 */
+	boolean next() throws IOException;
+
+	/**
+	 * Gets the view of the current row. The same view is returned for every
+	 * row.
+	 *
+	 * @return the view of the current row.
+	 * @since 2.0
+	 */
+	SampleRow getRow();
+
+	/**
+	 * Starts a new epoch over every row of the source.
+	 *
+	 * @throws IOException if the first rows can not be read.
+	 * @since 2.0
+	 */
+	void rewind() throws IOException;
+}
@@ -0,0 +1,62 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.dataprocessing.sample;
+
+import com.syncleus.dann.classify.Trainable;
+import java.io.*;
+
+/**
+ * Feeds the rows of sample sources to trainers which take one item at a time.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.backprop.brain.AbstractFeedforwardBrain#trainBatches(SampleSource, int)
+ * @see com.syncleus.dann.neural.som.brain.AbstractSomBrain#train(SampleSource)
+ */
+public final class SampleSources
+{
+	private SampleSources()
+	{
+	}
+
+	/**
+	 * Trains a classifier against every remaining row of the current epoch
+	 * of a source, using the label of each row, truncated to an int, as its
+	 * category. The classifier is handed the reusable view of the source so it
+	 * must extract everything it needs from a row before train returns, as
+	 * the naive classifiers do with their feature extractor.
+	 *
+	 * @param classifier the classifier to train.
+	 * @param source the source of the rows.
+	 * @return the number of rows trained.
+	 * @throws IOException if a row can not be read.
+	 * @since 2.0
+	 */
+	public static long train(final Trainable<SampleRow, Integer> classifier, final SampleSource source) throws IOException
+	{
+		long rowCount = 0;
+		while( source.next() )
+		{
+			final SampleRow row = source.getRow();
+			classifier.train(row, Integer.valueOf((int) row.getLabel()));
+			rowCount++;
+		}
+		return rowCount;
+	}
+}
@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import com.syncleus.dann.DannRuntimeException;
 import com.syncleus.dann.InterruptedDannRuntimeException;
 import com.syncleus.dann.UnexpectedDannError;
+import com.syncleus.dann.metrics.*;
 
 /**
  * Rerpesents a population governed by Genetic Algorithm parameters. This class
@@ -43,6 +44,7 @@ public abstract class AbstractGeneticAlgorithmPopulation
 	private final double dieOffPercentage;
 	private int generations;
 	private final ThreadPoolExecutor threadExecutor;
+	private volatile MetricsListener metricsListener = null;
 	//private final static Logger LOGGER = Logger.getLogger(AbstractGeneticAlgorithmPopulation.class);
 
 	private static class Process implements Runnable
@@ -90,7 +92,7 @@ public abstract class AbstractGeneticAlgorithmPopulation
 	 */
 	public AbstractGeneticAlgorithmPopulation(double mutationDeviation, double crossoverPercentage, double dieOffPercentage)
 	{
-		this(mutationDeviation, crossoverPercentage, dieOffPercentage, new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors()*5, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+		this(mutationDeviation, crossoverPercentage, dieOffPercentage, new MeteredThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors()*5, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), null));
 	}
 
 	/**
@@ -124,6 +126,20 @@ public abstract class AbstractGeneticAlgorithmPopulation
 
 	public final void addAll(final Collection<GeneticAlgorithmChromosome> chromosomes)
 	{
+		this.evaluate(chromosomes);
+	}
+
+	/**
+	 * Evaluates the fitness of the chromosomes in parallel and adds them to
+	 * the population.
+	 *
+	 * @return the time the evaluation took, or 0 if no listener is set.
+	 */
+	private long evaluate(final Collection<GeneticAlgorithmChromosome> chromosomes)
+	{
+		final MetricsListener listener = this.metricsListener;
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
 		//create all the fitness functions and then process them in parallel
 		final ArrayList<AbstractGeneticAlgorithmFitnessFunction> initialPopulation = new ArrayList<AbstractGeneticAlgorithmFitnessFunction>();
 		final ArrayList<Future> futures = new ArrayList<Future>();
@@ -153,6 +169,12 @@ public abstract class AbstractGeneticAlgorithmPopulation
 
 		//add to thetree set and sort
 		this.population.addAll(initialPopulation);
+
+		if( listener == null )
+			return 0L;
+		final long elapsed = System.nanoTime() - startTime;
+		listener.phaseCompleted(this, TrainingPhase.FITNESS, elapsed);
+		return elapsed;
 	}
 
 	/**
@@ -198,6 +220,36 @@ public abstract class AbstractGeneticAlgorithmPopulation
 		return this.generations;
 	}
 
+	/**
+	 * Sets the listener the timings of each generation are reported to.
+	 * Nothing is timed while no listener is set, and nothing is published
+	 * over JMX unless the listener is a JmxMetrics such as
+	 * JmxMetrics.getDefault(). When the threadExecutor is a
+	 * MeteredThreadPoolExecutor, as the default one is, its queue waits are
+	 * reported to the same listener.
+	 *
+	 * @param metricsListener the listener, or null to report nothing.
+	 * @since 2.0
+	 * @see com.syncleus.dann.metrics.JmxMetrics#getDefault
+	 */
+	public final void setMetricsListener(final MetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+		if( this.threadExecutor instanceof MeteredThreadPoolExecutor )
+			((MeteredThreadPoolExecutor) this.threadExecutor).setMetricsListener(metricsListener);
+	}
+
+	/**
+	 * Gets the listener the timings of each generation are reported to.
+	 *
+	 * @return the listener, or null if nothing is reported.
+	 * @since 2.0
+	 */
+	public final MetricsListener getMetricsListener()
+	{
+		return this.metricsListener;
+	}
+
 	private final GeneticAlgorithmChromosome getRandomMember()
 	{
 		final int randomIndex = RANDOM.nextInt(this.population.size());
@@ -225,6 +277,11 @@ public abstract class AbstractGeneticAlgorithmPopulation
 		if(this.population.size() < 4)
 			throw new IllegalStateException("Must have a population of atleast 4. Currently: " + this.population.size());
 
+		final MetricsListener listener = this.metricsListener;
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+		long fitnessTime = 0L;
+		long evaluated = 0L;
+
 		this.generations++;
 
 		//calculate population sizes
@@ -272,7 +329,15 @@ public abstract class AbstractGeneticAlgorithmPopulation
 			}
 
 			//add children to the population
-			this.addAll(children);
+			fitnessTime += this.evaluate(children);
+			evaluated += children.size();
+		}
+
+		if( listener != null )
+		{
+			final long elapsed = System.nanoTime() - startTime;
+			listener.phaseCompleted(this, TrainingPhase.BREEDING, elapsed - fitnessTime);
+			listener.epochCompleted(this, evaluated, Double.NaN, elapsed);
 		}
 	}
 
@@ -0,0 +1,289 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.graph;
+
+import java.util.*;
+
+/**
+ * Presents a CompactGraph through the BidirectedGraph interface. The lists
+ * of traversable, out and in edges and traversable neighbors are read only
+ * views of the arrays of the compact graph rather than copies, so walking a
+ * node's edges does not allocate beyond the view itself.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.graph.CompactGraph
+ */
+public class CompactBidirectedGraph<N, E extends BidirectedEdge<N>, W extends BidirectedWalk<N, E>> extends AbstractBidirectedGraph<N,E,W>
+{
+	private final CompactGraph<N, E> compactGraph;
+	private final Set<N> nodes;
+	private final List<E> edges;
+
+	private final class OutEdges extends AbstractList<E> implements RandomAccess
+	{
+		private final int start;
+		private final int end;
+
+		public OutEdges(final int id)
+		{
+			this.start = compactGraph.getOutStart(id);
+			this.end = compactGraph.getOutEnd(id);
+		}
+
+		@Override
+		public E get(final int index)
+		{
+			if( (index < 0) || (index >= this.size()) )
+				throw new IndexOutOfBoundsException("index " + index + " is out of bounds");
+			return compactGraph.getEdge(this.start + index);
+		}
+
+		@Override
+		public int size()
+		{
+			return this.end - this.start;
+		}
+	}
+
+	private final class InEdges extends AbstractList<E> implements RandomAccess
+	{
+		private final int start;
+		private final int end;
+
+		public InEdges(final int id)
+		{
+			this.start = compactGraph.getInStart(id);
+			this.end = compactGraph.getInEnd(id);
+		}
+
+		@Override
+		public E get(final int index)
+		{
+			if( (index < 0) || (index >= this.size()) )
+				throw new IndexOutOfBoundsException("index " + index + " is out of bounds");
+			return compactGraph.getEdge(compactGraph.getInEntry(this.start + index));
+		}
+
+		@Override
+		public int size()
+		{
+			return this.end - this.start;
+		}
+	}
+
+	private final class OutNeighbors extends AbstractList<N> implements RandomAccess
+	{
+		private final int start;
+		private final int end;
+
+		public OutNeighbors(final int id)
+		{
+			this.start = compactGraph.getOutStart(id);
+			this.end = compactGraph.getOutEnd(id);
+		}
+
+		@Override
+		public N get(final int index)
+		{
+			if( (index < 0) || (index >= this.size()) )
+				throw new IndexOutOfBoundsException("index " + index + " is out of bounds");
+			return compactGraph.getNode(compactGraph.getTarget(this.start + index));
+		}
+
+		@Override
+		public int size()
+		{
+			return this.end - this.start;
+		}
+	}
+
+	/**
+	 * Compacts a graph and presents the copy.
+	 *
+	 * @param graph the graph to compact.
+	 * @since 2.0
+	 */
+	public CompactBidirectedGraph(final BidirectedGraph<N, E, ?> graph)
+	{
+		this(new CompactGraph<N, E>(graph), graph.getEdges());
+	}
+
+	/**
+	 * Presents an existing compact graph.
+	 *
+	 * @param compactGraph the compact graph to present.
+	 * @since 2.0
+	 */
+	public CompactBidirectedGraph(final CompactGraph<N, E> compactGraph)
+	{
+		this(compactGraph, null);
+	}
+
+	private CompactBidirectedGraph(final CompactGraph<N, E> compactGraph, final List<E> allEdges)
+	{
+		if( compactGraph == null )
+			throw new IllegalArgumentException("compactGraph can not be null");
+		this.compactGraph = compactGraph;
+		this.nodes = Collections.unmodifiableSet(new LinkedHashSet<N>(compactGraph.getNodes()));
+
+		if( allEdges != null )
+			this.edges = Collections.unmodifiableList(new ArrayList<E>(allEdges));
+		else
+		{
+			//an edge appears once for every node it can be traversed from
+			final Set<E> uniqueEdges = new LinkedHashSet<E>();
+			for(int entry = 0; entry < compactGraph.getEntryCount(); entry++)
+				uniqueEdges.add(compactGraph.getEdge(entry));
+			this.edges = Collections.unmodifiableList(new ArrayList<E>(uniqueEdges));
+		}
+	}
+
+	/**
+	 * Gets the compact graph this graph presents.
+	 *
+	 * @return the compact graph.
+	 * @since 2.0
+	 */
+	public final CompactGraph<N, E> getCompactGraph()
+	{
+		return this.compactGraph;
+	}
+
+	private int requireId(final N node)
+	{
+		final int id = this.compactGraph.getId(node);
+		if( id < 0 )
+			throw new IllegalArgumentException("node is not a member of this graph");
+		return id;
+	}
+
+	public Set<N> getNodes()
+	{
+		return this.nodes;
+	}
+
+	@Override
+	public List<E> getEdges()
+	{
+		return this.edges;
+	}
+
+	/**
+	 * Determines if the edge of an entry into a node can also be traversed
+	 * out of that node, as an undirected edge can. Such an edge is stored in
+	 * both the in and out ranges of the node but must only be counted once.
+	 */
+	private boolean isAlsoOut(final int id, final int inEntry)
+	{
+		final int source = this.compactGraph.getSource(inEntry);
+		final E edge = this.compactGraph.getEdge(inEntry);
+		for(int entry = this.compactGraph.getOutStart(id); entry < this.compactGraph.getOutEnd(id); entry++)
+			if( (this.compactGraph.getTarget(entry) == source) && this.compactGraph.getEdge(entry).equals(edge) )
+				return true;
+		return false;
+	}
+
+	public List<E> getEdges(final N node)
+	{
+		final int id = this.requireId(node);
+		final List<E> nodeEdges = new ArrayList<E>(this.getOutdegree(node) + this.getIndegree(node));
+		for(int position = this.compactGraph.getInStart(id); position < this.compactGraph.getInEnd(id); position++)
+		{
+			final int entry = this.compactGraph.getInEntry(position);
+			if( !this.isAlsoOut(id, entry) )
+				nodeEdges.add(this.compactGraph.getEdge(entry));
+		}
+		nodeEdges.addAll(new OutEdges(id));
+		return Collections.unmodifiableList(nodeEdges);
+	}
+
+	public List<E> getTraversableEdges(final N node)
+	{
+		return new OutEdges(this.requireId(node));
+	}
+
+	public List<E> getOutEdges(final N node)
+	{
+		return new OutEdges(this.requireId(node));
+	}
+
+	public List<E> getInEdges(final N node)
+	{
+		return new InEdges(this.requireId(node));
+	}
+
+	public int getIndegree(final N node)
+	{
+		final int id = this.requireId(node);
+		return this.compactGraph.getInEnd(id) - this.compactGraph.getInStart(id);
+	}
+
+	public int getOutdegree(final N node)
+	{
+		final int id = this.requireId(node);
+		return this.compactGraph.getOutEnd(id) - this.compactGraph.getOutStart(id);
+	}
+
+	@Override
+	public int getDegree(final N node)
+	{
+		final int id = this.requireId(node);
+		int degree = this.compactGraph.getOutEnd(id) - this.compactGraph.getOutStart(id);
+		for(int position = this.compactGraph.getInStart(id); position < this.compactGraph.getInEnd(id); position++)
+			if( !this.isAlsoOut(id, this.compactGraph.getInEntry(position)) )
+				degree++;
+		return degree;
+	}
+
+	@Override
+	public int getOrder()
+	{
+		return this.compactGraph.getNodeCount();
+	}
+
+	public boolean isConnected(final N leftNode, final N rightNode)
+	{
+		final int leftId = this.requireId(leftNode);
+		final int rightId = this.requireId(rightNode);
+		for(int entry = this.compactGraph.getOutStart(leftId); entry < this.compactGraph.getOutEnd(leftId); entry++)
+			if( this.compactGraph.getTarget(entry) == rightId )
+				return true;
+		return false;
+	}
+
+	public List<N> getNeighbors(final N node)
+	{
+		final int id = this.requireId(node);
+		final List<N> neighbors = new ArrayList<N>(this.getDegree(node));
+		for(int position = this.compactGraph.getInStart(id); position < this.compactGraph.getInEnd(id); position++)
+		{
+			final int entry = this.compactGraph.getInEntry(position);
+			if( !this.isAlsoOut(id, entry) )
+				neighbors.add(this.compactGraph.getNode(this.compactGraph.getSource(entry)));
+		}
+		neighbors.addAll(new OutNeighbors(id));
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	public List<N> getTraversableNeighbors(final N node)
+	{
+		return new OutNeighbors(this.requireId(node));
+	}
+}
@@ -0,0 +1,324 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.graph;
+
+import java.util.*;
+
+/**
+ * An immutable copy of the traversable structure of a graph laid out in flat
+ * arrays. Every node is given a dense int id in the order the graph iterates
+ * its nodes, and every way of stepping from one node to a neighbor through
+ * a traversable edge is stored as an entry in compressed sparse row form:
+ * the entries leaving each node are contiguous, and each entry records its
+ * source id, target id, edge and edge weight as primitives. A second index
+ * lists the entries arriving at each node so searches can also run
+ * backwards.<br/>
+ * <br/>
+ * Edges of more than two nodes produce one entry for every node other than
+ * the one they are traversed from, and loops produce no entries, matching
+ * how the path finders step through edges. Changes to the original graph are
+ * not reflected; compact it again after changing it.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.graph.CompactBidirectedGraph
+ */
+public final class CompactGraph<N, E extends Edge<N>>
+{
+	private final List<N> nodes;
+	private final Map<N, Integer> ids;
+	private final double[] nodeWeights;
+
+	private final int[] outOffsets;
+	private final int[] sources;
+	private final int[] targets;
+	private final double[] edgeWeights;
+	private final Object[] edges;
+
+	private final int[] inOffsets;
+	private final int[] inEntries;
+
+	/**
+	 * Copies the nodes and traversable edges of a graph.
+	 *
+	 * @param graph the graph to copy.
+	 * @throws IllegalArgumentException if an edge connects to a node which is
+	 * not in the graph.
+	 * @since 2.0
+	 */
+	public CompactGraph(final Graph<N, E, ?> graph)
+	{
+		if( graph == null )
+			throw new IllegalArgumentException("graph can not be null");
+
+		final Set<N> graphNodes = graph.getNodes();
+		final int nodeCount = graphNodes.size();
+		final List<N> nodeList = new ArrayList<N>(nodeCount);
+		this.ids = new HashMap<N, Integer>(nodeCount * 2);
+		this.nodeWeights = new double[nodeCount];
+		for(N node : graphNodes)
+		{
+			this.ids.put(node, Integer.valueOf(nodeList.size()));
+			this.nodeWeights[nodeList.size()] = ( node instanceof Weighted ? ((Weighted) node).getWeight() : Double.NaN );
+			nodeList.add(node);
+		}
+		this.nodes = Collections.unmodifiableList(nodeList);
+
+		//gather the entries leaving each node in node order so they are
+		//already grouped by source
+		this.outOffsets = new int[nodeCount + 1];
+		int[] entrySources = new int[Math.max(16, nodeCount)];
+		int[] entryTargets = new int[entrySources.length];
+		Object[] entryEdges = new Object[entrySources.length];
+		int entryCount = 0;
+		for(int sourceId = 0; sourceId < nodeCount; sourceId++)
+		{
+			final N source = nodeList.get(sourceId);
+			this.outOffsets[sourceId] = entryCount;
+			for(E edge : graph.getTraversableEdges(source))
+				for(N target : edge.getNodes())
+				{
+					if( target.equals(source) )
+						continue;
+					final Integer targetId = this.ids.get(target);
+					if( targetId == null )
+						throw new IllegalArgumentException("edge " + edge + " connects to a node which is not in the graph");
+
+					if( entryCount == entrySources.length )
+					{
+						entrySources = Arrays.copyOf(entrySources, entryCount * 2);
+						entryTargets = Arrays.copyOf(entryTargets, entryCount * 2);
+						entryEdges = Arrays.copyOf(entryEdges, entryCount * 2);
+					}
+					entrySources[entryCount] = sourceId;
+					entryTargets[entryCount] = targetId.intValue();
+					entryEdges[entryCount] = edge;
+					entryCount++;
+				}
+		}
+		this.outOffsets[nodeCount] = entryCount;
+		this.sources = Arrays.copyOf(entrySources, entryCount);
+		this.targets = Arrays.copyOf(entryTargets, entryCount);
+		this.edges = Arrays.copyOf(entryEdges, entryCount);
+		this.edgeWeights = new double[entryCount];
+		for(int entry = 0; entry < entryCount; entry++)
+			this.edgeWeights[entry] = ( this.edges[entry] instanceof Weighted ? ((Weighted) this.edges[entry]).getWeight() : Double.NaN );
+
+		//counting sort the entries by target for the reverse index
+		this.inOffsets = new int[nodeCount + 1];
+		for(int entry = 0; entry < entryCount; entry++)
+			this.inOffsets[this.targets[entry] + 1]++;
+		for(int nodeId = 0; nodeId < nodeCount; nodeId++)
+			this.inOffsets[nodeId + 1] += this.inOffsets[nodeId];
+		this.inEntries = new int[entryCount];
+		final int[] fill = new int[nodeCount];
+		for(int entry = 0; entry < entryCount; entry++)
+		{
+			final int target = this.targets[entry];
+			this.inEntries[this.inOffsets[target] + fill[target]++] = entry;
+		}
+	}
+
+	/**
+	 * Gets the number of nodes.
+	 *
+	 * @return the number of nodes.
+	 * @since 2.0
+	 */
+	public int getNodeCount()
+	{
+		return this.nodes.size();
+	}
+
+	/**
+	 * Gets the number of entries, one for every way of stepping from a node to
+	 * a neighbor.
+	 *
+	 * @return the number of entries.
+	 * @since 2.0
+	 */
+	public int getEntryCount()
+	{
+		return this.targets.length;
+	}
+
+	/**
+	 * Gets the nodes in the order of their ids.
+	 *
+	 * @return an unmodifiable list of the nodes.
+	 * @since 2.0
+	 */
+	public List<N> getNodes()
+	{
+		return this.nodes;
+	}
+
+	/**
+	 * Gets the node with the given id.
+	 *
+	 * @param id the id of the node.
+	 * @return the node.
+	 * @since 2.0
+	 */
+	public N getNode(final int id)
+	{
+		return this.nodes.get(id);
+	}
+
+	/**
+	 * Gets the id of a node.
+	 *
+	 * @param node the node.
+	 * @return the id of the node, or -1 if the node is not in the graph.
+	 * @since 2.0
+	 */
+	public int getId(final N node)
+	{
+		final Integer id = this.ids.get(node);
+		return ( id == null ? -1 : id.intValue() );
+	}
+
+	/**
+	 * Gets the weight of a node.
+	 *
+	 * @param id the id of the node.
+	 * @param unweighted the weight of nodes which are not Weighted.
+	 * @return the weight of the node.
+	 * @since 2.0
+	 */
+	public double getNodeWeight(final int id, final double unweighted)
+	{
+		final double weight = this.nodeWeights[id];
+		return ( Double.isNaN(weight) ? unweighted : weight );
+	}
+
+	/**
+	 * Gets the first of the entries leaving a node.
+	 *
+	 * @param id the id of the node.
+	 * @return the index of the first entry leaving the node.
+	 * @since 2.0
+	 */
+	public int getOutStart(final int id)
+	{
+		return this.outOffsets[id];
+	}
+
+	/**
+	 * Gets the end of the entries leaving a node.
+	 *
+	 * @param id the id of the node.
+	 * @return one past the index of the last entry leaving the node.
+	 * @since 2.0
+	 */
+	public int getOutEnd(final int id)
+	{
+		return this.outOffsets[id + 1];
+	}
+
+	/**
+	 * Gets the first position of the entries arriving at a node in the
+	 * reverse index.
+	 *
+	 * @param id the id of the node.
+	 * @return the first position of the node in the reverse index.
+	 * @since 2.0
+	 * @see #getInEntry
+	 */
+	public int getInStart(final int id)
+	{
+		return this.inOffsets[id];
+	}
+
+	/**
+	 * Gets the end of the entries arriving at a node in the reverse index.
+	 *
+	 * @param id the id of the node.
+	 * @return one past the last position of the node in the reverse index.
+	 * @since 2.0
+	 * @see #getInEntry
+	 */
+	public int getInEnd(final int id)
+	{
+		return this.inOffsets[id + 1];
+	}
+
+	/**
+	 * Gets the entry at a position in the reverse index.
+	 *
+	 * @param position the position in the reverse index.
+	 * @return the index of the entry.
+	 * @since 2.0
+	 */
+	public int getInEntry(final int position)
+	{
+		return this.inEntries[position];
+	}
+
+	/**
+	 * Gets the id of the node an entry steps from.
+	 *
+	 * @param entry the index of the entry.
+	 * @return the id of the source node.
+	 * @since 2.0
+	 */
+	public int getSource(final int entry)
+	{
+		return this.sources[entry];
+	}
+
+	/**
+	 * Gets the id of the node an entry steps to.
+	 *
+	 * @param entry the index of the entry.
+	 * @return the id of the target node.
+	 * @since 2.0
+	 */
+	public int getTarget(final int entry)
+	{
+		return this.targets[entry];
+	}
+
+	/**
+	 * Gets the edge an entry steps through.
+	 *
+	 * @param entry the index of the entry.
+	 * @return the edge.
+	 * @since 2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public E getEdge(final int entry)
+	{
+		return (E) this.edges[entry];
+	}
+
+	/**
+	 * Gets the weight of the edge an entry steps through.
+	 *
+	 * @param entry the index of the entry.
+	 * @param unweighted the weight of edges which are not Weighted.
+	 * @return the weight of the edge.
+	 * @since 2.0
+	 */
+	public double getEdgeWeight(final int entry, final double unweighted)
+	{
+		final double weight = this.edgeWeights[entry];
+		return ( Double.isNaN(weight) ? unweighted : weight );
+	}
+}
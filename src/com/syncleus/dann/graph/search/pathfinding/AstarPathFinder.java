@@ -18,21 +18,50 @@
  ******************************************************************************/
 package com.syncleus.dann.graph.search.pathfinding;
 
+import com.syncleus.dann.graph.CompactBidirectedGraph;
+import com.syncleus.dann.graph.CompactGraph;
 import com.syncleus.dann.graph.Edge;
 import com.syncleus.dann.graph.Graph;
 import com.syncleus.dann.graph.SimpleWalk;
 import com.syncleus.dann.graph.Weighted;
 import com.syncleus.dann.graph.WeightedWalk;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
 
+/**
+ * Finds the best path between two nodes with A*. Open nodes are kept in an
+ * indexed binary heap keyed by their cached estimated overall cost, so a node
+ * whose path improves is moved within the heap rather than removed and added
+ * again, and the heuristic is evaluated once per node. Path weights and
+ * parents are stored in arrays indexed by node id. When the graph is a
+ * CompactBidirectedGraph its compact arrays are searched directly, otherwise
+ * ids are handed out as nodes are discovered.
+ *
+ * The weight of a step is the weight of the edge, or 0 if the edge is not
+ * Weighted, plus the weight of the node stepped to, or 1 if the node is not
+ * Weighted.
+ *
+ * Paths to or from a set of nodes are found with a single search which stops
+ * once every node in the set is settled, estimating the remaining cost as the
+ * smallest heuristic to any node in the set. Searching backwards, as
+ * getBestPathsTo and the bidirectional mode do, needs the edges entering
+ * each node, so unless the graph is a CompactBidirectedGraph it is compacted
+ * for every such query.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
 public class AstarPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>> implements PathFinder<N,E,WeightedWalk<N,E>>
 {
+	private static final int INITIAL_CAPACITY = 64;
+
 	private final class AstarWeightedWalk extends SimpleWalk<N,E> implements WeightedWalk<N,E>
 	{
 		private final double totalWeight;
@@ -50,132 +79,84 @@ public class AstarPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>> imp
 		}
 	}
 
-	private final class PathedStep implements Comparable<PathedStep>
+	/**
+	 * The per node state of a single search, indexed by node id. A backward
+	 * search follows edges against their direction, so its parents lead
+	 * towards the node it started from.
+	 */
+	private final class SearchState
 	{
-		private N node;
-		private N goalNode;
-		private PathedStep parent;
-		private E parentEdge;
-		private double cachedPathWeight;
-
-		public PathedStep(N node, N goalNode)
-		{
-			if( node == null )
-				throw new IllegalArgumentException("node can not be null");
-			if( goalNode == null )
-				throw new IllegalArgumentException("goalNode can not be null");
-
-			this.goalNode = goalNode;
-			this.node = node;
-		}
-
-		public boolean updateParent(PathedStep newParent, E newParentEdge)
-		{
-			if( newParent == null )
-				throw new IllegalArgumentException("newParent can not be null");
-			if( newParent.equals(this))
-				throw new IllegalArgumentException("newParent can not be this node");
-			if( newParentEdge == null)
-				throw new IllegalArgumentException("newParentEdge can not be null");
-			if( ! newParentEdge.getNodes().contains(newParent.getNode()))
-				throw new IllegalArgumentException("newParentEdge must connect to new Parent");
-			if( (newParentEdge instanceof Weighted)&&( ((Weighted)newParentEdge).getWeight() < 0.0) )
-				throw new IllegalArgumentException("edge weight can not be negative");
-			if( (this.node instanceof Weighted)&&( ((Weighted)this.node).getWeight() < 0.0) )
-				throw new IllegalArgumentException("this.node weight can not be negative");
-
-			boolean parentHasEdge = false;
-			for( Edge<N> edge : graph.getTraversableEdges(this.node) )
-				if(edge.getNodes().contains(newParent.getNode()))
-				{
-					parentHasEdge = true;
-					break;
-				}
-
-			if(!parentHasEdge)
-				throw new IllegalArgumentException("newParent is not connected to this node");
-
-			double newWeight = (newParentEdge instanceof Weighted ? ((Weighted)newParentEdge).getWeight() : 0.0);
-			if(this.node instanceof Weighted)
-				newWeight += ((Weighted)this.node).getWeight();
-			else
-				newWeight += 1.0;
-			if((this.parent == null) || ( newParent.getCachedPathWeight() + newWeight < this.getCachedPathWeight()))
-			{
-				this.parent = newParent;
-				this.parentEdge = newParentEdge;
-				this.cachedPathWeight = newParent.getCachedPathWeight() + newWeight;
-				return true;
-			}
-			else
-				return false;
-		}
-
-		public N getNode()
-		{
-			return node;
-		}
-
-		public PathedStep getParent()
-		{
-			return parent;
-		}
-
-		public double getCachedPathWeight()
-		{
-			return cachedPathWeight;
-		}
-
-		public double getHeuristicCostToGoal()
-		{
-			return heuristicPathCost.getHeuristicPathCost(this.node, this.goalNode);
-		}
-
-		public double getHeuristicOverallCost()
-		{
-			return this.getCachedPathWeight() + this.getHeuristicCostToGoal();
-		}
-
-		@Override
-		public boolean equals(Object compareToObj)
-		{
-			if(!(compareToObj.getClass().isInstance(this)))
-				return false;
-
-			PathedStep compareTo = (PathedStep) compareToObj;
-			return ((this.node.equals(compareTo))||(this.node.equals(compareTo.node)));
-		}
-
-		@Override
-		public int hashCode()
+		private final boolean backward;
+		private final N origin;
+		private final List<N> goals;
+		private final boolean balanced;
+
+		private double[] pathWeights;
+		private double[] heuristics;
+		private int[] parents;
+		private Object[] parentEdges;
+		private boolean[] discovered;
+		private final IndexedMinHeap open;
+
+		private int meeting = -1;
+		private double meetingWeight = Double.POSITIVE_INFINITY;
+
+		public SearchState(final int capacity, final boolean backward, final N origin, final List<N> goals, final boolean balanced)
 		{
-			return this.node.hashCode();
-		}
-
-		public int compareTo(PathedStep compareWith)
-		{
-			//the natural ordering is inverse cause the smallest path weight is
-			//the best weight.
-			if(this.getHeuristicOverallCost() < compareWith.getHeuristicOverallCost())
-				return -1;
-			else if(this.getHeuristicOverallCost() > compareWith.getHeuristicOverallCost())
-				return 1;
-			else
-				return 0;
+			this.backward = backward;
+			this.origin = origin;
+			this.goals = goals;
+			this.balanced = balanced;
+
+			final int initialCapacity = Math.max(1, capacity);
+			this.pathWeights = new double[initialCapacity];
+			this.heuristics = new double[initialCapacity];
+			this.parents = new int[initialCapacity];
+			this.parentEdges = new Object[initialCapacity];
+			this.discovered = new boolean[initialCapacity];
+			this.open = new IndexedMinHeap(initialCapacity);
 		}
 
-		public E getParentEdge()
+		public void ensureCapacity(final int capacity)
 		{
-			return parentEdge;
+			if( capacity <= this.parents.length )
+				return;
+			final int newCapacity = Math.max(capacity, this.parents.length * 2);
+			this.pathWeights = Arrays.copyOf(this.pathWeights, newCapacity);
+			this.heuristics = Arrays.copyOf(this.heuristics, newCapacity);
+			this.parents = Arrays.copyOf(this.parents, newCapacity);
+			this.parentEdges = Arrays.copyOf(this.parentEdges, newCapacity);
+			this.discovered = Arrays.copyOf(this.discovered, newCapacity);
+			this.open.ensureCapacity(newCapacity);
 		}
 	}
 
-
-
-	private G graph;
-	private HeuristicPathCost<N> heuristicPathCost;
+	private final G graph;
+	private final HeuristicPathCost<N> heuristicPathCost;
+	private final boolean zeroHeuristic;
+	private final boolean bidirectional;
+	private final CompactGraph<N,E> compactGraph;
 
 	public AstarPathFinder(G graph, HeuristicPathCost<N> heuristicPathCost)
+	{
+		this(graph, heuristicPathCost, false);
+	}
+
+	/**
+	 * Creates a path finder which optionally searches for single paths from
+	 * both ends at once. Searching from both ends balances the heuristic
+	 * between the two searches, which is only correct for a consistent
+	 * heuristic.
+	 *
+	 * @param graph the graph to search.
+	 * @param heuristicPathCost the admissible heuristic to guide the search.
+	 * @param bidirectional true to search for single paths from both ends.
+	 * @throws IllegalArgumentException if the heuristic is not admissible, or
+	 * the search is bidirectional and the heuristic is not consistent.
+	 * @since 2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public AstarPathFinder(G graph, HeuristicPathCost<N> heuristicPathCost, boolean bidirectional)
 	{
 		if( graph == null )
 			throw new IllegalArgumentException("graph can not be null");
@@ -186,9 +167,22 @@ public class AstarPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>> imp
 //		Does the heuristic need to be consistent?
 //		if( !heuristicPathCost.isConsistent() )
 //			throw new IllegalArgumentException("This implementation requires a consistent heuristic");
+		if( bidirectional && !heuristicPathCost.isConsistent() )
+			throw new IllegalArgumentException("a bidirectional search requires a consistent heuristicPathCost");
 
 		this.graph = graph;
 		this.heuristicPathCost = heuristicPathCost;
+		this.zeroHeuristic = (heuristicPathCost instanceof DijkstraPathFinder.ZeroHeuristicPathCost);
+		this.bidirectional = bidirectional;
+		if( graph instanceof CompactBidirectedGraph )
+			this.compactGraph = (CompactGraph<N,E>) ((CompactBidirectedGraph<?,?,?>) graph).getCompactGraph();
+		else
+			this.compactGraph = null;
+	}
+
+	public boolean isBidirectional()
+	{
+		return this.bidirectional;
 	}
 
 	public WeightedWalk<N,E> getBestPath(N begin, N end)
@@ -200,84 +194,357 @@ public class AstarPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>> imp
 		if(begin.equals(end))
 			throw new IllegalArgumentException("begin can not be equal to end");
 
-		//initalize candidate nodes queue containing potential edges as a
-		//solution
-		Map<N, PathedStep> nodeStepMapping = new HashMap<N, PathedStep>();
-		PriorityQueue<PathedStep> candidateSteps = new PriorityQueue<PathedStep>();
-		PathedStep beginStep = new PathedStep(begin, end);
-		nodeStepMapping.put(begin, beginStep);
-		candidateSteps.add(beginStep);
+		if( this.bidirectional )
+			return this.searchBidirectional(this.getCompactGraph(), begin, end);
+		return this.searchForward(begin, Collections.singleton(end)).get(end);
+	}
+
+	/**
+	 * Finds the best paths from one node to each of several nodes with a
+	 * single search. The paths are returned in the order their ends were
+	 * settled, so the first path leads to the nearest end.
+	 *
+	 * @param begin the node every path starts at.
+	 * @param ends the nodes to find paths to.
+	 * @return the best path to each reachable end, keyed by end.
+	 * @since 2.0
+	 */
+	public Map<N, WeightedWalk<N,E>> getBestPathsFrom(N begin, Set<N> ends)
+	{
+		if(begin == null)
+			throw new IllegalArgumentException("begin can not be null");
+		if(ends == null)
+			throw new IllegalArgumentException("ends can not be null");
+
+		return this.searchForward(begin, ends);
+	}
+
+	/**
+	 * Finds the best paths from each of several nodes to one node with a
+	 * single backward search. The paths are returned in the order their
+	 * begins were settled, so the first path leads from the nearest begin.
+	 *
+	 * @param begins the nodes to find paths from.
+	 * @param end the node every path ends at.
+	 * @return the best path from each begin which can reach end, keyed by
+	 * begin.
+	 * @since 2.0
+	 */
+	public Map<N, WeightedWalk<N,E>> getBestPathsTo(Set<N> begins, N end)
+	{
+		if(begins == null)
+			throw new IllegalArgumentException("begins can not be null");
+		if(end == null)
+			throw new IllegalArgumentException("end can not be null");
 
-		//all nodes that have been closed can no longer be traversed
-		Set<PathedStep> closedSteps = new HashSet<PathedStep>();
+		return this.searchCompact(this.getCompactGraph(), end, begins, true);
+	}
+
+	public boolean isReachable(N begin, N end)
+	{
+		return (this.getBestPath(begin, end) != null);
+	}
+
+	public boolean isConnected(N begin, N end)
+	{
+		return (this.getBestPath(begin, end) != null);
+	}
+
+	private CompactGraph<N,E> getCompactGraph()
+	{
+		if( this.compactGraph != null )
+			return this.compactGraph;
+		return new CompactGraph<N,E>(this.graph);
+	}
 
-		//lets iterate through each step from the begining
-		while(!candidateSteps.isEmpty())
+	private Map<N, WeightedWalk<N,E>> searchForward(final N begin, final Set<N> ends)
+	{
+		if( this.compactGraph != null )
+			return this.searchCompact(this.compactGraph, begin, ends, false);
+		return this.searchGraph(begin, ends);
+	}
+
+	/**
+	 * Estimates the remaining cost from a node. Searches towards several goals
+	 * take the smallest estimate to any of them. A balanced estimate is the
+	 * average of the estimate to the goal and the negated estimate back to
+	 * the origin, which keeps the two halves of a bidirectional search
+	 * consistent with each other.
+	 */
+	private double estimate(final SearchState state, final N node)
+	{
+		if( this.zeroHeuristic )
+			return 0.0;
+
+		if( state.balanced )
+		{
+			final N goal = state.goals.get(0);
+			if( state.backward )
+				return (this.heuristicPathCost.getHeuristicPathCost(goal, node) - this.heuristicPathCost.getHeuristicPathCost(node, state.origin)) / 2.0;
+			return (this.heuristicPathCost.getHeuristicPathCost(node, goal) - this.heuristicPathCost.getHeuristicPathCost(state.origin, node)) / 2.0;
+		}
+
+		double best = Double.POSITIVE_INFINITY;
+		for(N goal : state.goals)
+		{
+			final double cost = ( state.backward ? this.heuristicPathCost.getHeuristicPathCost(goal, node) : this.heuristicPathCost.getHeuristicPathCost(node, goal) );
+			if( cost < best )
+				best = cost;
+		}
+		return best;
+	}
+
+	private void open(final SearchState state, final int node)
+	{
+		state.discovered[node] = true;
+		state.pathWeights[node] = 0.0;
+		state.parents[node] = -1;
+		state.heuristics[node] = this.estimate(state, state.origin);
+		state.open.put(node, state.heuristics[node]);
+	}
+
+	/**
+	 * Records a step to a node if it is the first or best path found so far,
+	 * and opens the node again if its path improved.
+	 */
+	private static boolean relax(final AstarPathFinder<?,?,?>.SearchState state, final int parent, final int node, final Object edge, final double stepWeight)
+	{
+		final double pathWeight = state.pathWeights[parent] + stepWeight;
+		if( state.discovered[node] && !(pathWeight < state.pathWeights[node]) )
+			return false;
+		state.discovered[node] = true;
+		state.pathWeights[node] = pathWeight;
+		state.parents[node] = parent;
+		state.parentEdges[node] = edge;
+		state.open.put(node, pathWeight + state.heuristics[node]);
+		return true;
+	}
+
+	private int requireId(final CompactGraph<N,E> compact, final N node)
+	{
+		final int id = compact.getId(node);
+		if( id < 0 )
+			throw new IllegalArgumentException("node is not a member of the graph");
+		return id;
+	}
+
+	/**
+	 * Expands a node of a search over a compact graph. When an opposite search
+	 * is given, any node both searches have discovered is checked as a place
+	 * for them to meet.
+	 */
+	private void expand(final CompactGraph<N,E> compact, final SearchState state, final int current, final int originId, final SearchState opposite)
+	{
+		final boolean backward = state.backward;
+		final int last = ( backward ? compact.getInEnd(current) : compact.getOutEnd(current) );
+		for(int position = ( backward ? compact.getInStart(current) : compact.getOutStart(current) ); position < last; position++)
 		{
-			PathedStep currentStep = candidateSteps.poll();
-			if( currentStep.getNode().equals(end) )
-				return pathedStepToWalk(currentStep);
+			final int entry = ( backward ? compact.getInEntry(position) : position );
+			final int neighbor = ( backward ? compact.getSource(entry) : compact.getTarget(entry) );
+			if( neighbor == originId )
+				continue;
+
+			//a step is weighted by the node stepped to, which is the current
+			//node when stepping against the edge
+			final double edgeWeight = compact.getEdgeWeight(entry, 0.0);
+			final double nodeWeight = compact.getNodeWeight(( backward ? current : neighbor ), 1.0);
+			if( edgeWeight < 0.0 )
+				throw new IllegalArgumentException("edge weight can not be negative");
+			if( nodeWeight < 0.0 )
+				throw new IllegalArgumentException("node weight can not be negative");
 
-			for(E edge : this.graph.getTraversableEdges(currentStep.node))
+			if( !state.discovered[neighbor] )
+				state.heuristics[neighbor] = this.estimate(state, compact.getNode(neighbor));
+			if( relax(state, current, neighbor, compact.getEdge(entry), edgeWeight + nodeWeight)
+					&& (opposite != null) && opposite.discovered[neighbor] )
+			{
+				final double meetingWeight = state.pathWeights[neighbor] + opposite.pathWeights[neighbor];
+				if( (state.meeting < 0) || (meetingWeight < state.meetingWeight) )
+				{
+					state.meeting = neighbor;
+					state.meetingWeight = meetingWeight;
+				}
+			}
+		}
+	}
+
+	private Map<N, WeightedWalk<N,E>> searchCompact(final CompactGraph<N,E> compact, final N origin, final Set<N> goals, final boolean backward)
+	{
+		final int originId = requireId(compact, origin);
+		final boolean[] isGoal = new boolean[compact.getNodeCount()];
+		final List<N> goalNodes = new ArrayList<N>(goals.size());
+		for(N goal : goals)
+		{
+			final int goalId = requireId(compact, goal);
+			if( (goalId != originId) && !isGoal[goalId] )
+			{
+				isGoal[goalId] = true;
+				goalNodes.add(goal);
+			}
+		}
+
+		final Map<N, WeightedWalk<N,E>> paths = new LinkedHashMap<N, WeightedWalk<N,E>>();
+		int remaining = goalNodes.size();
+		if( remaining == 0 )
+			return paths;
+
+		final SearchState state = new SearchState(compact.getNodeCount(), backward, origin, goalNodes, false);
+		this.open(state, originId);
+		while( !state.open.isEmpty() )
+		{
+			final int current = state.open.poll();
+			if( isGoal[current] )
 			{
+				isGoal[current] = false;
+				final WeightedWalk<N,E> path;
+				if( backward )
+					path = this.toBackwardWalk(compact.getNodes(), state, current);
+				else
+					path = this.toWalk(compact.getNodes(), state, current);
+				paths.put(compact.getNode(current), path);
+				remaining--;
+				if( remaining == 0 )
+					break;
+			}
+
+			this.expand(compact, state, current, originId, null);
+		}
+
+		return paths;
+	}
+
+	private Map<N, WeightedWalk<N,E>> searchGraph(final N begin, final Set<N> ends)
+	{
+		final List<N> goalNodes = new ArrayList<N>(ends.size());
+		for(N end : ends)
+			if( !end.equals(begin) )
+				goalNodes.add(end);
+		final Set<N> unsettled = new HashSet<N>(goalNodes);
+
+		final Map<N, WeightedWalk<N,E>> paths = new LinkedHashMap<N, WeightedWalk<N,E>>();
+		if( unsettled.isEmpty() )
+			return paths;
+
+		final Map<N, Integer> ids = new HashMap<N, Integer>();
+		final List<N> nodes = new ArrayList<N>();
+		final SearchState state = new SearchState(INITIAL_CAPACITY, false, begin, goalNodes, false);
+		ids.put(begin, Integer.valueOf(0));
+		nodes.add(begin);
+		this.open(state, 0);
+
+		while( !state.open.isEmpty() )
+		{
+			final int current = state.open.poll();
+			final N currentNode = nodes.get(current);
+			if( unsettled.remove(currentNode) )
+			{
+				paths.put(currentNode, this.toWalk(nodes, state, current));
+				if( unsettled.isEmpty() )
+					break;
+			}
+
+			for(E edge : this.graph.getTraversableEdges(currentNode))
+			{
+				final double edgeWeight = ( edge instanceof Weighted ? ((Weighted)edge).getWeight() : 0.0 );
 				for(N neighborNode : edge.getNodes())
 				{
-					if(neighborNode.equals(currentStep.node))
+					if( neighborNode.equals(currentNode) )
 						continue;
 
-					PathedStep neighborStep;
-					if(nodeStepMapping.containsKey(neighborNode))
-						neighborStep = nodeStepMapping.get(neighborNode);
-					else
+					final int neighbor;
+					final Integer neighborId = ids.get(neighborNode);
+					if( neighborId == null )
 					{
-						neighborStep = new PathedStep(neighborNode, end);
-						nodeStepMapping.put(neighborNode, neighborStep);
+						neighbor = nodes.size();
+						ids.put(neighborNode, Integer.valueOf(neighbor));
+						nodes.add(neighborNode);
+						state.ensureCapacity(neighbor + 1);
+						state.heuristics[neighbor] = this.estimate(state, neighborNode);
 					}
+					else
+						neighbor = neighborId.intValue();
+					if( neighbor == 0 )
+						continue;
 
-					if(!neighborNode.equals(begin))
-						neighborStep.updateParent(currentStep, edge);
+					final double nodeWeight = ( neighborNode instanceof Weighted ? ((Weighted)neighborNode).getWeight() : 1.0 );
+					if( edgeWeight < 0.0 )
+						throw new IllegalArgumentException("edge weight can not be negative");
+					if( nodeWeight < 0.0 )
+						throw new IllegalArgumentException("node weight can not be negative");
 
-					if(!closedSteps.contains(neighborStep))
-					{
-						candidateSteps.remove(neighborStep);
-						candidateSteps.add(neighborStep);
-					}
+					relax(state, current, neighbor, edge, edgeWeight + nodeWeight);
 				}
 			}
-
-			closedSteps.add(currentStep);
 		}
 
-		return null;
+		return paths;
 	}
 
-	public boolean isReachable(N begin, N end)
+	/**
+	 * Searches forwards from begin and backwards from end, always expanding
+	 * the side with the smaller key, until the smallest keys of both sides
+	 * together can no longer improve on the best meeting found.
+	 */
+	private WeightedWalk<N,E> searchBidirectional(final CompactGraph<N,E> compact, final N begin, final N end)
 	{
-		return (this.getBestPath(begin, end) != null);
-	}
+		final int beginId = requireId(compact, begin);
+		final int endId = requireId(compact, end);
 
-	public boolean isConnected(N begin, N end)
-	{
-		return (this.getBestPath(begin, end) != null);
+		final SearchState forward = new SearchState(compact.getNodeCount(), false, begin, Collections.singletonList(end), true);
+		final SearchState backward = new SearchState(compact.getNodeCount(), true, end, Collections.singletonList(begin), true);
+		this.open(forward, beginId);
+		this.open(backward, endId);
+
+		while( !forward.open.isEmpty() && !backward.open.isEmpty() )
+		{
+			final double forwardKey = forward.open.peekKey();
+			final double backwardKey = backward.open.peekKey();
+			if( ((forward.meeting >= 0) || (backward.meeting >= 0))
+					&& (forwardKey + backwardKey >= Math.min(forward.meetingWeight, backward.meetingWeight)) )
+				break;
+
+			if( forwardKey <= backwardKey )
+				this.expand(compact, forward, forward.open.poll(), beginId, backward);
+			else
+				this.expand(compact, backward, backward.open.poll(), endId, forward);
+		}
+
+		final int meeting;
+		if( (backward.meeting >= 0) && ((forward.meeting < 0) || (backward.meetingWeight < forward.meetingWeight)) )
+			meeting = backward.meeting;
+		else
+			meeting = forward.meeting;
+		if( meeting < 0 )
+			return null;
+
+		final List<E> edges = this.collectEdges(forward, meeting);
+		Collections.reverse(edges);
+		edges.addAll(this.collectEdges(backward, meeting));
+		return new AstarWeightedWalk(begin, end, edges, forward.pathWeights[meeting] + backward.pathWeights[meeting]);
 	}
 
-	private WeightedWalk<N,E> pathedStepToWalk(PathedStep endPathedStep)
+	@SuppressWarnings("unchecked")
+	private List<E> collectEdges(final SearchState state, final int node)
 	{
-		List<E> edges = new ArrayList<E>();
-		List<PathedStep> steps = new ArrayList<PathedStep>();
-		N lastNode = endPathedStep.getNode();
-		N firstNode = endPathedStep.getNode();
-
-		PathedStep currentStep = endPathedStep;
-		while(currentStep != null)
+		final List<E> edges = new ArrayList<E>();
+		int current = node;
+		while( state.parents[current] >= 0 )
 		{
-			firstNode = currentStep.getNode();
-			if(currentStep.getParentEdge() != null)
-				edges.add(0, currentStep.getParentEdge());
-			steps.add(currentStep);
-			currentStep = currentStep.getParent();
+			edges.add((E) state.parentEdges[current]);
+			current = state.parents[current];
 		}
+		return edges;
+	}
 
-		return new AstarWeightedWalk(firstNode, lastNode, edges, endPathedStep.getCachedPathWeight());
+	private WeightedWalk<N,E> toWalk(final List<N> nodes, final SearchState state, final int endId)
+	{
+		final List<E> edges = this.collectEdges(state, endId);
+		Collections.reverse(edges);
+		return new AstarWeightedWalk(state.origin, nodes.get(endId), edges, state.pathWeights[endId]);
+	}
+
+	private WeightedWalk<N,E> toBackwardWalk(final List<N> nodes, final SearchState state, final int beginId)
+	{
+		return new AstarWeightedWalk(nodes.get(beginId), state.origin, this.collectEdges(state, beginId), state.pathWeights[beginId]);
 	}
 }
@@ -18,20 +18,65 @@
  ******************************************************************************/
 package com.syncleus.dann.graph.search.pathfinding;
 
+import com.syncleus.dann.DannRuntimeException;
+import com.syncleus.dann.InterruptedDannRuntimeException;
+import com.syncleus.dann.UnexpectedDannError;
 import com.syncleus.dann.graph.BidirectedGraph;
 import com.syncleus.dann.graph.DirectedEdge;
-import com.syncleus.dann.graph.Edge;
 import com.syncleus.dann.graph.SimpleBidirectedWalk;
 import com.syncleus.dann.graph.Weighted;
 import com.syncleus.dann.graph.WeightedBidirectedWalk;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Logger;
+
+/**
+ * Finds the best paths from a single node with Bellman-Ford, which allows
+ * negative edge weights. Every search flattens the graph's edges into arrays
+ * along with the weight of stepping across each of them, the weight of the
+ * edge, or 1 if it is not Weighted, plus the weight of the destination node if
+ * it is Weighted. Three strategies are available:
+ * <ul>
+ * <li>PASSES: relaxes every edge in turn, updating weights in place, and
+ * stops as soon as a pass changes nothing.</li>
+ * <li>QUEUE: only relaxes the edges leaving nodes whose weight changed, kept
+ * in a first in first out queue. Usually far fewer relaxations on sparse
+ * graphs.</li>
+ * <li>PARALLEL: splits the nodes into one range per worker, balanced by the
+ * number of edges entering them, and relaxes the edges entering each range
+ * in parallel against the weights of the previous pass. Stops as soon as a
+ * pass changes nothing.</li>
+ * </ul>
+ * All strategies throw a NegativeWeightCycleException when a negative-weight
+ * cycle can be reached.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
 public class BellmanFordPathFinder<G extends BidirectedGraph<N, E, ?>, N, E extends DirectedEdge<N>> implements PathFinder<N,E,WeightedBidirectedWalk<N,E>>
 {
+	/**
+	 * How a path finder relaxes the edges of a graph.
+	 *
+	 * @since 2.0
+	 */
+	public enum Strategy
+	{
+		PASSES, QUEUE, PARALLEL
+	}
+
+	private final static Logger LOGGER = Logger.getLogger(BellmanFordPathFinder.class);
+
 	private final class DumbWeightedWalk extends SimpleBidirectedWalk<N,E> implements WeightedBidirectedWalk<N,E>
 	{
 		private final double totalWeight;
@@ -49,127 +94,246 @@ public class BellmanFordPathFinder<G extends BidirectedGraph<N, E, ?>, N, E exte
 		}
 	}
 
-	private final class PathedStep implements Comparable<PathedStep>
+	/**
+	 * The nodes and edges of the graph flattened into arrays indexed by node
+	 * and edge id. Edges keep the order of graph.getEdges().
+	 */
+	private final class EdgeArrays
 	{
-		private N node;
-		private PathedStep parent;
-		private E parentEdge;
-		private double cachedPathWeight;
-
-		public PathedStep(N node, double initialWeight)
+		private final List<N> nodes;
+		private final Map<N, Integer> ids;
+		private final List<E> edges;
+		private final int[] sources;
+		private final int[] destinations;
+		private final double[] stepWeights;
+
+		public EdgeArrays()
 		{
-			if( node == null )
-				throw new IllegalArgumentException("node can not be null");
-
-			this.node = node;
-			this.cachedPathWeight = initialWeight;
-		}
-
-		public boolean updateParent(PathedStep newParent, E newParentEdge)
-		{
-			if( newParent == null )
-				throw new IllegalArgumentException("newParent can not be null");
-			if( newParent.equals(this))
-				throw new IllegalArgumentException("newParent can not be this node");
-			if( newParentEdge == null)
-				throw new IllegalArgumentException("newParentEdge can not be null");
-			if( ! newParentEdge.getNodes().contains(newParent.getNode()))
-				throw new IllegalArgumentException("newParentEdge must connect to new Parent");
-
-			boolean parentHasEdge = false;
-			for( Edge<N> edge : graph.getEdges(this.node) )
-			{
-				if(edge.getNodes().contains(newParent.getNode()))
-				{
-					parentHasEdge = true;
-					break;
-				}
-			}
-
-			if(!parentHasEdge)
-				throw new IllegalArgumentException("newParent is not connected to this node");
-
-			double newWeight = (newParentEdge instanceof Weighted ? ((Weighted)newParentEdge).getWeight() : 1.0);
-			if(this.node instanceof Weighted)
-				newWeight += ((Weighted)this.node).getWeight();
-			if((this.parent == null) || ( newParent.getCachedPathWeight() + newWeight < this.getCachedPathWeight()))
+			final Set<N> graphNodes = graph.getNodes();
+			this.nodes = new ArrayList<N>(graphNodes);
+			this.ids = new HashMap<N, Integer>(this.nodes.size() * 2);
+			for(int id = 0; id < this.nodes.size(); id++)
+				this.ids.put(this.nodes.get(id), Integer.valueOf(id));
+
+			this.edges = graph.getEdges();
+			this.sources = new int[this.edges.size()];
+			this.destinations = new int[this.edges.size()];
+			this.stepWeights = new double[this.edges.size()];
+			for(int edgeId = 0; edgeId < this.edges.size(); edgeId++)
 			{
-				this.parent = newParent;
-				this.parentEdge = newParentEdge;
-				this.cachedPathWeight = newParent.getCachedPathWeight() + newWeight;
-				return true;
+				final E edge = this.edges.get(edgeId);
+				final N destination = edge.getDestinationNode();
+				this.sources[edgeId] = this.requireId(edge.getSourceNode());
+				this.destinations[edgeId] = this.requireId(destination);
+
+				double stepWeight = (edge instanceof Weighted ? ((Weighted)edge).getWeight() : 1.0);
+				if(destination instanceof Weighted)
+					stepWeight += ((Weighted)destination).getWeight();
+				this.stepWeights[edgeId] = stepWeight;
 			}
-			else
-				return false;
 		}
 
-		public N getNode()
+		public int requireId(final N node)
 		{
-			return node;
+			final Integer id = this.ids.get(node);
+			if( id == null )
+				throw new IllegalArgumentException("node is not a member of the graph");
+			return id.intValue();
 		}
 
-		public PathedStep getParent()
+		/**
+		 * Groups the edge ids by one of their ends, returning the offsets of
+		 * each node's group followed by the grouped edge ids.
+		 */
+		public int[][] groupBy(final int[] ends)
 		{
-			return parent;
+			final int nodeCount = this.nodes.size();
+			final int[] offsets = new int[nodeCount + 1];
+			for(int end : ends)
+				offsets[end + 1]++;
+			for(int nodeId = 0; nodeId < nodeCount; nodeId++)
+				offsets[nodeId + 1] += offsets[nodeId];
+			final int[] grouped = new int[ends.length];
+			final int[] fill = new int[nodeCount];
+			for(int edgeId = 0; edgeId < ends.length; edgeId++)
+				grouped[offsets[ends[edgeId]] + fill[ends[edgeId]]++] = edgeId;
+			return new int[][]{offsets, grouped};
 		}
+	}
 
-		public double getCachedPathWeight()
-		{
-			return cachedPathWeight;
-		}
+	/**
+	 * The best paths from, or when searching backwards to, a single node. The
+	 * parent edge of a node is the first step on its path when searching
+	 * backwards and the last otherwise.
+	 */
+	private final class PathedSteps
+	{
+		private final EdgeArrays arrays;
+		private final int origin;
+		private final boolean backward;
+		private final double[] weights;
+		private final int[] parentEdges;
 
-		@Override
-		public boolean equals(Object compareToObj)
+		public PathedSteps(final EdgeArrays arrays, final int origin, final boolean backward)
 		{
-			if(!(compareToObj.getClass().isInstance(this)))
-				return false;
-
-			PathedStep compareTo = (PathedStep) compareToObj;
-			return ((this.node.equals(compareTo))||(this.node.equals(compareTo.node)));
+			this.arrays = arrays;
+			this.origin = origin;
+			this.backward = backward;
+			this.weights = new double[arrays.nodes.size()];
+			this.parentEdges = new int[arrays.nodes.size()];
+			Arrays.fill(this.weights, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.parentEdges, -1);
+			this.weights[origin] = 0.0;
 		}
 
-		@Override
-		public int hashCode()
+		public WeightedBidirectedWalk<N,E> toWalk(final int nodeId)
 		{
-			return this.node.hashCode();
-		}
+			if( Double.isInfinite(this.weights[nodeId]) )
+				return null;
 
-		public int compareTo(PathedStep compareWith)
-		{
-			//the natural ordering is inverse cause the smallest path weight is
-			//the best weight.
-			if(this.getCachedPathWeight() < compareWith.getCachedPathWeight())
-				return -1;
-			else if(this.getCachedPathWeight() > compareWith.getCachedPathWeight())
-				return 1;
-			else
-				return 0;
+			final int[] towardsOrigin = ( this.backward ? this.arrays.destinations : this.arrays.sources );
+			final List<E> edges = new ArrayList<E>();
+			int currentId = nodeId;
+			while( currentId != this.origin )
+			{
+				//a path can not have more steps than there are nodes unless it
+				//is caught in a cycle of zero weight
+				if( edges.size() >= this.arrays.nodes.size() )
+					return null;
+				final int edgeId = this.parentEdges[currentId];
+				edges.add(this.arrays.edges.get(edgeId));
+				currentId = towardsOrigin[edgeId];
+			}
+
+			final N node = this.arrays.nodes.get(nodeId);
+			final N originNode = this.arrays.nodes.get(this.origin);
+			if( this.backward )
+				return new DumbWeightedWalk(node, originNode, edges, this.weights[nodeId]);
+			Collections.reverse(edges);
+			return new DumbWeightedWalk(originNode, node, edges, this.weights[nodeId]);
 		}
+	}
 
-		public E getParentEdge()
+	/**
+	 * Relaxes the edges entering a range of nodes against the weights of the
+	 * previous pass.
+	 */
+	private static class RelaxRange implements Callable<Boolean>
+	{
+		private final int[] offsets;
+		private final int[] enteringEdges;
+		private final int[] from;
+		private final double[] stepWeights;
+		private final double[] previousWeights;
+		private final double[] weights;
+		private final int[] parentEdges;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(RelaxRange.class);
+
+		public RelaxRange(final int[] offsets, final int[] enteringEdges, final int[] from, final double[] stepWeights, final double[] previousWeights, final double[] weights, final int[] parentEdges, final int start, final int end)
 		{
-			return parentEdge;
+			this.offsets = offsets;
+			this.enteringEdges = enteringEdges;
+			this.from = from;
+			this.stepWeights = stepWeights;
+			this.previousWeights = previousWeights;
+			this.weights = weights;
+			this.parentEdges = parentEdges;
+			this.start = start;
+			this.end = end;
 		}
 
-		@Override
-		public String toString()
+		public Boolean call()
 		{
-			return this.node.toString();
+			try
+			{
+				boolean changed = false;
+				for(int nodeId = this.start; nodeId < this.end; nodeId++)
+				{
+					double best = this.weights[nodeId];
+					for(int position = this.offsets[nodeId]; position < this.offsets[nodeId + 1]; position++)
+					{
+						final int edgeId = this.enteringEdges[position];
+						final double weight = this.previousWeights[this.from[edgeId]] + this.stepWeights[edgeId];
+						if( weight < best )
+						{
+							best = weight;
+							this.parentEdges[nodeId] = edgeId;
+							changed = true;
+						}
+					}
+					this.weights[nodeId] = best;
+				}
+				return Boolean.valueOf(changed);
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in RelaxRange", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in RelaxRange", caught);
+			}
 		}
 	}
 
-	private G graph;
-	Map<N,PathedStep> pathedSteps;
-	N begin;
+	private final G graph;
+	private final Strategy strategy;
+	private final int workerCount;
+	private PathedSteps pathedSteps;
+	private N begin;
 
 	public BellmanFordPathFinder(G graph)
+	{
+		this(graph, Strategy.PASSES, 1);
+	}
+
+	/**
+	 * Creates a path finder with the given strategy, using one worker per
+	 * processor for the PARALLEL strategy.
+	 *
+	 * @param graph the graph to search.
+	 * @param strategy how to relax the edges of the graph.
+	 * @since 2.0
+	 */
+	public BellmanFordPathFinder(G graph, Strategy strategy)
+	{
+		this(graph, strategy, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a path finder with the given strategy.
+	 *
+	 * @param graph the graph to search.
+	 * @param strategy how to relax the edges of the graph.
+	 * @param workerCount the number of threads relaxing edges at once with the
+	 * PARALLEL strategy.
+	 * @throws IllegalArgumentException if the graph is null or a multigraph,
+	 * the strategy is null or workerCount is less than 1.
+	 * @since 2.0
+	 */
+	public BellmanFordPathFinder(G graph, Strategy strategy, int workerCount)
 	{
 		if( graph == null )
 			throw new IllegalArgumentException("graph can not be null");
 		if( graph.isMultigraph() )
 			throw new IllegalArgumentException("graph can not be a multigraph");
+		if( strategy == null )
+			throw new IllegalArgumentException("strategy can not be null");
+		if( workerCount < 1 )
+			throw new IllegalArgumentException("workerCount must be greater than 0");
 
 		this.graph = graph;
+		this.strategy = strategy;
+		this.workerCount = workerCount;
+	}
+
+	public Strategy getStrategy()
+	{
+		return this.strategy;
 	}
 
 	public WeightedBidirectedWalk<N,E> getBestPath(N begin, N end)
@@ -182,58 +346,202 @@ public class BellmanFordPathFinder<G extends BidirectedGraph<N, E, ?>, N, E exte
 		if((refresh)||(this.pathedSteps == null)||(!begin.equals(this.begin)))
 			this.calculateSteps(begin);
 
-		//construct a walk from the end node
-		PathedStep endPathedStep = pathedSteps.get(end);
-		PathedStep beginPathedStep = pathedSteps.get(begin);
-		assert ((endPathedStep != null)&&(beginPathedStep != null));
+		return this.pathedSteps.toWalk(this.pathedSteps.arrays.requireId(end));
+	}
 
-		return this.pathedStepToWalk(endPathedStep);
+	public Map<N, WeightedBidirectedWalk<N,E>> getBestPathsFrom(N begin, Set<N> ends)
+	{
+		//a single search already finds the best path to every node
+		this.calculateSteps(begin);
+
+		Map<N, WeightedBidirectedWalk<N,E>> paths = new HashMap<N, WeightedBidirectedWalk<N,E>>(ends.size() * 2);
+		for(N end : ends)
+		{
+			if(end.equals(begin))
+				continue;
+			WeightedBidirectedWalk<N,E> path = this.pathedSteps.toWalk(this.pathedSteps.arrays.requireId(end));
+			if(path != null)
+				paths.put(end, path);
+		}
+		return paths;
+	}
+
+	public Map<N, WeightedBidirectedWalk<N,E>> getBestPathsTo(Set<N> begins, N end)
+	{
+		//a single search against the direction of the edges finds the best
+		//path from every node
+		final EdgeArrays arrays = new EdgeArrays();
+		final PathedSteps backwardSteps = new PathedSteps(arrays, arrays.requireId(end), true);
+		this.relax(backwardSteps);
+
+		Map<N, WeightedBidirectedWalk<N,E>> paths = new HashMap<N, WeightedBidirectedWalk<N,E>>(begins.size() * 2);
+		for(N begin : begins)
+		{
+			if(begin.equals(end))
+				continue;
+			WeightedBidirectedWalk<N,E> path = backwardSteps.toWalk(arrays.requireId(begin));
+			if(path != null)
+				paths.put(begin, path);
+		}
+		return paths;
 	}
 
 	public void calculateSteps(N begin)
 	{
-		Set<N> nodes = this.graph.getNodes();
-		List<E> edges = this.graph.getEdges();
+		final EdgeArrays arrays = new EdgeArrays();
+		final PathedSteps steps = new PathedSteps(arrays, arrays.requireId(begin), false);
+		this.relax(steps);
 
-		pathedSteps = new HashMap<N,PathedStep>(nodes.size());
+		this.pathedSteps = steps;
+		this.begin = begin;
+	}
 
-		//relax edges
-		for(int lcv = 0; lcv < (nodes.size() - 1); lcv++)
+	private void relax(final PathedSteps steps)
+	{
+		final EdgeArrays arrays = steps.arrays;
+		final int[] from = ( steps.backward ? arrays.destinations : arrays.sources );
+		final int[] to = ( steps.backward ? arrays.sources : arrays.destinations );
+
+		if( this.strategy == Strategy.QUEUE )
+			this.relaxQueued(steps, from, arrays.groupBy(from));
+		else if( (this.strategy == Strategy.PARALLEL) && (this.workerCount > 1) )
+			this.relaxParallel(steps, from, arrays.groupBy(to));
+		else
+			this.relaxPasses(steps, from, to);
+	}
+
+	private void relaxPasses(final PathedSteps steps, final int[] from, final int[] to)
+	{
+		final double[] stepWeights = steps.arrays.stepWeights;
+		final double[] weights = steps.weights;
+		final int[] parentEdges = steps.parentEdges;
+
+		//without a negative-weight cycle no best path has more steps than
+		//there are nodes, so the last pass can only change something if
+		//there is one
+		final int nodeCount = weights.length;
+		for(int pass = 0; pass < nodeCount; pass++)
 		{
-			for(E edge : edges)
+			boolean changed = false;
+			for(int edgeId = 0; edgeId < from.length; edgeId++)
 			{
-				if( edge.getDestinationNode() == begin )
-					continue;
-
-				PathedStep sourcePathedStep = pathedSteps.get(edge.getSourceNode());
-				if( sourcePathedStep == null )
+				final double weight = weights[from[edgeId]] + stepWeights[edgeId];
+				if( weight < weights[to[edgeId]] )
 				{
-					sourcePathedStep = new PathedStep(edge.getSourceNode(), (edge.getSourceNode().equals(begin) ? 0.0 : Double.POSITIVE_INFINITY));
-					pathedSteps.put(edge.getSourceNode(), sourcePathedStep);
+					weights[to[edgeId]] = weight;
+					parentEdges[to[edgeId]] = edgeId;
+					changed = true;
 				}
-				PathedStep destinationPathedStep = pathedSteps.get(edge.getDestinationNode());
-				if( destinationPathedStep == null )
+			}
+			if( !changed )
+				return;
+		}
+		throw new NegativeWeightCycleException("negative-weight cycle found in graph");
+	}
+
+	private void relaxQueued(final PathedSteps steps, final int[] from, final int[][] leaving)
+	{
+		final int[] offsets = leaving[0];
+		final int[] leavingEdges = leaving[1];
+		final int[] to = ( steps.backward ? steps.arrays.sources : steps.arrays.destinations );
+		final double[] stepWeights = steps.arrays.stepWeights;
+		final double[] weights = steps.weights;
+		final int[] parentEdges = steps.parentEdges;
+		final int nodeCount = weights.length;
+
+		//every node is queued at most once at a time, so a ring of one slot
+		//per node is enough
+		final int[] queue = new int[nodeCount];
+		final boolean[] queued = new boolean[nodeCount];
+		final int[] pathLengths = new int[nodeCount];
+		int head = 0;
+		int size = 1;
+		queue[0] = steps.origin;
+		queued[steps.origin] = true;
+		while( size > 0 )
+		{
+			final int nodeId = queue[head];
+			head = (head + 1 == nodeCount ? 0 : head + 1);
+			size--;
+			queued[nodeId] = false;
+
+			for(int position = offsets[nodeId]; position < offsets[nodeId + 1]; position++)
+			{
+				final int edgeId = leavingEdges[position];
+				final int toId = to[edgeId];
+				final double weight = weights[nodeId] + stepWeights[edgeId];
+				if( weight < weights[toId] )
 				{
-					destinationPathedStep = new PathedStep(edge.getDestinationNode(), Double.POSITIVE_INFINITY);
-					pathedSteps.put(edge.getDestinationNode(), destinationPathedStep);
+					weights[toId] = weight;
+					parentEdges[toId] = edgeId;
+					pathLengths[toId] = pathLengths[nodeId] + 1;
+					if( pathLengths[toId] >= nodeCount )
+						throw new NegativeWeightCycleException("negative-weight cycle found in graph");
+					if( !queued[toId] )
+					{
+						final int tail = head + size;
+						queue[tail >= nodeCount ? tail - nodeCount : tail] = toId;
+						queued[toId] = true;
+						size++;
+					}
 				}
-
-				destinationPathedStep.updateParent(sourcePathedStep, edge);
 			}
 		}
+	}
 
-		//check for negative cycles
-		for(E edge : edges)
+	private void relaxParallel(final PathedSteps steps, final int[] from, final int[][] entering)
+	{
+		final int[] offsets = entering[0];
+		final int[] enteringEdges = entering[1];
+		final double[] weights = steps.weights;
+		final double[] previousWeights = new double[weights.length];
+		final int nodeCount = weights.length;
+
+		//split the nodes into ranges entered by about the same number of edges
+		final int rangeCount = Math.max(1, Math.min(this.workerCount, nodeCount));
+		final int[] rangeStarts = new int[rangeCount + 1];
+		int nodeId = 0;
+		for(int range = 1; range < rangeCount; range++)
 		{
-			if( edge.getDestinationNode() == begin )
-				continue;
-			
-			PathedStep sourcePathedStep = pathedSteps.get(edge.getSourceNode());
-			PathedStep destinationPathedStep = pathedSteps.get(edge.getDestinationNode());
-			assert (( sourcePathedStep != null )&&( destinationPathedStep != null ));
+			final long target = ((long) enteringEdges.length * range) / rangeCount;
+			while( (nodeId < nodeCount) && (offsets[nodeId] < target) )
+				nodeId++;
+			rangeStarts[range] = nodeId;
+		}
+		rangeStarts[rangeCount] = nodeCount;
 
-			if(destinationPathedStep.updateParent(sourcePathedStep, edge))
-				throw new NegativeWeightCycleException("negative-weight cycle found in graph");
+		final List<RelaxRange> ranges = new ArrayList<RelaxRange>(rangeCount);
+		for(int range = 0; range < rangeCount; range++)
+			if( rangeStarts[range] < rangeStarts[range + 1] )
+				ranges.add(new RelaxRange(offsets, enteringEdges, from, steps.arrays.stepWeights, previousWeights, weights, steps.parentEdges, rangeStarts[range], rangeStarts[range + 1]));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+		try
+		{
+			for(int pass = 0; pass < nodeCount; pass++)
+			{
+				System.arraycopy(weights, 0, previousWeights, 0, nodeCount);
+				boolean changed = false;
+				for(Future<Boolean> future : executor.invokeAll(ranges))
+					changed |= future.get().booleanValue();
+				if( !changed )
+					return;
+			}
+			throw new NegativeWeightCycleException("negative-weight cycle found in graph");
+		}
+		catch(InterruptedException caught)
+		{
+			LOGGER.error("RelaxRange was unexpectidy interupted", caught);
+			throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+		}
+		catch(ExecutionException caught)
+		{
+			LOGGER.error("RelaxRange had an unexcepted problem executing.", caught);
+			throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+		}
+		finally
+		{
+			executor.shutdown();
 		}
 	}
 
@@ -246,24 +554,4 @@ public class BellmanFordPathFinder<G extends BidirectedGraph<N, E, ?>, N, E exte
 	{
 		return ( this.getBestPath(begin, end) != null);
 	}
-
-	private WeightedBidirectedWalk<N,E> pathedStepToWalk(PathedStep endPathedStep)
-	{
-		List<E> edges = new ArrayList<E>();
-		List<PathedStep> steps = new ArrayList<PathedStep>();
-		N lastNode = endPathedStep.getNode();
-		N firstNode = endPathedStep.getNode();
-
-		PathedStep currentStep = endPathedStep;
-		while(currentStep != null)
-		{
-			firstNode = currentStep.getNode();
-			if(currentStep.getParentEdge() != null)
-				edges.add(0, currentStep.getParentEdge());
-			steps.add(currentStep);
-			currentStep = currentStep.getParent();
-		}
-
-		return new DumbWeightedWalk(firstNode, lastNode, edges, endPathedStep.getCachedPathWeight());
-	}
 }
@@ -45,4 +45,9 @@ public class DijkstraPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>>
 	{
 		super(graph, new ZeroHeuristicPathCost<N>());
 	}
+
+	public DijkstraPathFinder(G graph, boolean bidirectional)
+	{
+		super(graph, new ZeroHeuristicPathCost<N>(), bidirectional);
+	}
 }
@@ -18,6 +18,9 @@
  ******************************************************************************/
 package com.syncleus.dann.graph.search.pathfinding;
 
+import com.syncleus.dann.DannRuntimeException;
+import com.syncleus.dann.InterruptedDannRuntimeException;
+import com.syncleus.dann.UnexpectedDannError;
 import com.syncleus.dann.graph.Edge;
 import com.syncleus.dann.graph.Graph;
 import com.syncleus.dann.graph.SimpleWalk;
@@ -25,12 +28,39 @@ import com.syncleus.dann.graph.Weighted;
 import com.syncleus.dann.graph.WeightedEdge;
 import com.syncleus.dann.graph.WeightedWalk;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Logger;
 
+/**
+ * Finds the best paths between all pairs of nodes with Floyd-Warshall. The
+ * weights of the best walks are kept in a dense row major matrix of doubles
+ * along with a matrix holding the first node to step to on each walk, both
+ * indexed by the position of the nodes in the graph's node set. The matrices
+ * are computed in square tiles: each round first relaxes the tile on the
+ * diagonal, then the tiles sharing its row or column, then all remaining
+ * tiles, with the tiles of the last two phases relaxed in parallel. Walks are
+ * only built when they are asked for.
+ *
+ * The weight of a step is the weight of the edge, or 1 if the edge is not a
+ * WeightedEdge, plus the weight of the node stepped to if it is Weighted.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
 public class FloydWarshallPathFinder<G extends Graph<N, E, ?>, N, E extends Edge<N>> implements PathFinder<N,E,WeightedWalk<N,E>>
 {
+	private static final int BLOCK_SIZE = 64;
+	private final static Logger LOGGER = Logger.getLogger(FloydWarshallPathFinder.class);
+
 	private final class DumbWeightedWalk extends SimpleWalk<N,E> implements WeightedWalk<N,E>
 	{
 		private final double totalWeight;
@@ -48,130 +78,302 @@ public class FloydWarshallPathFinder<G extends Graph<N, E, ?>, N, E extends Edge
 		}
 	}
 
-	private G graph;
-	private Map<N, Map<N, Double>> walkWeight;
-	private Map<N, Map<N, N>> nextNode;
+	/**
+	 * Relaxes one tile, or when jBlock is negative every tile in the row of
+	 * iBlock except the one in the column of kBlock, through the nodes of
+	 * kBlock.
+	 */
+	private final class RelaxBlocks implements Callable<Void>
+	{
+		private final int iBlock;
+		private final int jBlock;
+		private final int kBlock;
+
+		public RelaxBlocks(final int iBlock, final int jBlock, final int kBlock)
+		{
+			this.iBlock = iBlock;
+			this.jBlock = jBlock;
+			this.kBlock = kBlock;
+		}
+
+		public Void call()
+		{
+			try
+			{
+				if( this.jBlock >= 0 )
+					FloydWarshallPathFinder.this.relaxBlock(this.iBlock, this.jBlock, this.kBlock);
+				else
+					for(int block = 0; block < FloydWarshallPathFinder.this.blockCount; block++)
+						if( block != this.kBlock )
+							FloydWarshallPathFinder.this.relaxBlock(this.iBlock, block, this.kBlock);
+				return null;
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in RelaxBlocks", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in RelaxBlocks", caught);
+			}
+		}
+	}
+
+	private final G graph;
+	private final List<N> nodes;
+	private final Map<N, Integer> ids;
+	private final int nodeCount;
+	private final int blockCount;
+	private final double[] walkWeights;
+	private final int[] nextNodes;
 
 	public FloydWarshallPathFinder(G graph)
 	{
+		this(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes the best paths between all pairs of nodes in a graph.
+	 *
+	 * @param graph the graph to search.
+	 * @param workerCount the number of threads relaxing tiles at once.
+	 * @throws IllegalArgumentException if the graph is null or workerCount is
+	 * less than 1.
+	 * @since 2.0
+	 */
+	public FloydWarshallPathFinder(G graph, int workerCount)
+	{
+		if( graph == null )
+			throw new IllegalArgumentException("graph can not be null");
+		if( workerCount < 1 )
+			throw new IllegalArgumentException("workerCount must be greater than 0");
+
 		this.graph = graph;
 
-		//initialize
-		this.walkWeight = new HashMap<N, Map<N, Double>>(this.graph.getNodes().size());
-		this.nextNode = new HashMap<N, Map<N, N>>(this.graph.getNodes().size());
-		for(N nodeX : this.graph.getNodes())
+		final Set<N> graphNodes = this.graph.getNodes();
+		this.nodeCount = graphNodes.size();
+		this.blockCount = (this.nodeCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		this.nodes = new ArrayList<N>(graphNodes);
+		this.ids = new HashMap<N, Integer>(this.nodeCount * 2);
+		for(int id = 0; id < this.nodeCount; id++)
+			this.ids.put(this.nodes.get(id), Integer.valueOf(id));
+
+		//initialize with the single steps, keeping the lightest of several
+		//edges between the same nodes
+		this.walkWeights = new double[this.nodeCount * this.nodeCount];
+		this.nextNodes = new int[this.nodeCount * this.nodeCount];
+		Arrays.fill(this.walkWeights, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.nextNodes, -1);
+		for(int fromId = 0; fromId < this.nodeCount; fromId++)
 		{
-			Map<N, Double> weightMapX = new HashMap<N, Double>(this.graph.getNodes().size());
-			this.walkWeight.put(nodeX, weightMapX);
+			final N fromNode = this.nodes.get(fromId);
+			final int row = fromId * this.nodeCount;
+			this.walkWeights[row + fromId] = 0.0;
+			for(E edge : this.graph.getTraversableEdges(fromNode))
+				for(N toNode : edge.getNodes())
+				{
+					if( toNode.equals(fromNode) )
+						continue;
+					final Integer toId = this.ids.get(toNode);
+					if( toId == null )
+						throw new IllegalArgumentException("edge " + edge + " connects to a node which is not in the graph");
+
+					final double stepWeight = stepWeight(edge, toNode);
+					if( stepWeight < this.walkWeights[row + toId.intValue()] )
+					{
+						this.walkWeights[row + toId.intValue()] = stepWeight;
+						this.nextNodes[row + toId.intValue()] = toId.intValue();
+					}
+				}
+		}
 
-			Map<N, N> nodeMapX = new HashMap<N, N>(this.graph.getNodes().size());
-			this.nextNode.put(nodeX, nodeMapX);
+		this.calculatePaths(Math.min(workerCount, Math.max(1, this.blockCount - 1)));
+	}
 
-			for(N nodeY : this.graph.getNodes())
+	private static double stepWeight(final Edge<?> edge, final Object toNode)
+	{
+		double weight = (edge instanceof WeightedEdge ? ((WeightedEdge)edge).getWeight() : 1.0);
+		if( toNode instanceof Weighted )
+			weight += ((Weighted)toNode).getWeight();
+		return weight;
+	}
+
+	private void calculatePaths(final int workerCount)
+	{
+		final ExecutorService executor = ( workerCount > 1 ? Executors.newFixedThreadPool(workerCount) : null );
+		try
+		{
+			for(int kBlock = 0; kBlock < this.blockCount; kBlock++)
 			{
-				double initialWeight = Double.POSITIVE_INFINITY;
+				this.relaxBlock(kBlock, kBlock, kBlock);
 
-				if( nodeX.equals(nodeY) )
-					initialWeight = 0.0;
-				else if(this.graph.getTraversableNeighbors(nodeX).contains(nodeY))
-				{
-					E connectedEdge = null;
-					for(E edge : this.graph.getTraversableEdges(nodeX))
-						if(edge.getNodes().contains(nodeY))
-							connectedEdge = edge;
-					assert connectedEdge != null;
-					initialWeight = (connectedEdge instanceof WeightedEdge ? ((WeightedEdge)connectedEdge).getWeight() : 1.0);
-					if( nodeY instanceof Weighted)
-						initialWeight += ((Weighted)nodeY).getWeight();
-				}
+				final List<RelaxBlocks> crossBlocks = new ArrayList<RelaxBlocks>(2 * this.blockCount);
+				for(int block = 0; block < this.blockCount; block++)
+					if( block != kBlock )
+					{
+						crossBlocks.add(new RelaxBlocks(kBlock, block, kBlock));
+						crossBlocks.add(new RelaxBlocks(block, kBlock, kBlock));
+					}
+				this.invokeAll(executor, crossBlocks);
 
-				weightMapX.put(nodeY, initialWeight);
-				nodeMapX.put(nodeY, null);
+				final List<RelaxBlocks> remainingRows = new ArrayList<RelaxBlocks>(this.blockCount);
+				for(int block = 0; block < this.blockCount; block++)
+					if( block != kBlock )
+						remainingRows.add(new RelaxBlocks(block, -1, kBlock));
+				this.invokeAll(executor, remainingRows);
 			}
 		}
+		finally
+		{
+			if( executor != null )
+				executor.shutdown();
+		}
+	}
+
+	private void invokeAll(final ExecutorService executor, final List<RelaxBlocks> tasks)
+	{
+		if( executor == null )
+		{
+			for(RelaxBlocks task : tasks)
+				task.call();
+			return;
+		}
 
-		this.calculatePaths();
+		try
+		{
+			for(Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		}
+		catch(InterruptedException caught)
+		{
+			LOGGER.error("RelaxBlocks was unexpectidy interupted", caught);
+			throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+		}
+		catch(ExecutionException caught)
+		{
+			LOGGER.error("RelaxBlocks had an unexcepted problem executing.", caught);
+			throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+		}
 	}
 
-	private void calculatePaths()
+	private void relaxBlock(final int iBlock, final int jBlock, final int kBlock)
 	{
-		for(N nodeK : this.graph.getNodes())
-			for(N nodeX : this.graph.getNodes())
-				for(N nodeY : this.graph.getNodes())
+		final int size = this.nodeCount;
+		final double[] weights = this.walkWeights;
+		final int[] next = this.nextNodes;
+		final int iStart = iBlock * BLOCK_SIZE;
+		final int iEnd = Math.min(size, iStart + BLOCK_SIZE);
+		final int jStart = jBlock * BLOCK_SIZE;
+		final int jEnd = Math.min(size, jStart + BLOCK_SIZE);
+		final int kStart = kBlock * BLOCK_SIZE;
+		final int kEnd = Math.min(size, kStart + BLOCK_SIZE);
+
+		for(int k = kStart; k < kEnd; k++)
+		{
+			final int kRow = k * size;
+			for(int i = iStart; i < iEnd; i++)
+			{
+				final int iRow = i * size;
+				final double toK = weights[iRow + k];
+				if( toK == Double.POSITIVE_INFINITY )
+					continue;
+				final int hop = next[iRow + k];
+				for(int j = jStart; j < jEnd; j++)
 				{
-					if(!Double.isInfinite(this.walkWeight.get(nodeX).get(nodeK)) &&
-					   !Double.isInfinite(this.walkWeight.get(nodeK).get(nodeY)) &&
-					   this.walkWeight.get(nodeX).get(nodeK) + this.walkWeight.get(nodeK).get(nodeY) < this.walkWeight.get(nodeX).get(nodeY)
-					  )
+					final double throughK = toK + weights[kRow + j];
+					if( throughK < weights[iRow + j] )
 					{
-						double newWeight = this.walkWeight.get(nodeX).get(nodeK) + this.walkWeight.get(nodeK).get(nodeY);
-						this.walkWeight.get(nodeX).put(nodeY, newWeight);
-						this.nextNode.get(nodeX).put(nodeY, nodeK);
+						weights[iRow + j] = throughK;
+						next[iRow + j] = hop;
 					}
 				}
+			}
+		}
+	}
+
+	private int requireId(final N node)
+	{
+		final Integer id = this.ids.get(node);
+		if( id == null )
+			throw new IllegalArgumentException("node is not a member of the graph");
+		return id.intValue();
 	}
 
 	public WeightedWalk<N,E> getBestPath(N begin, N end)
 	{
-		List<N> nodePath = getIntermediatePath(begin, end);
-		if(nodePath.size() < 2)
+		final int beginId = this.requireId(begin);
+		final int endId = this.requireId(end);
+		if( (beginId == endId) || (this.nextNodes[beginId * this.nodeCount + endId] < 0) )
 			return null;
-		List<E> edgePath = new ArrayList<E>(nodePath.size() - 1);
-		double overallWeight = 0.0;
-		for(int nodeIndex = 0; nodeIndex < nodePath.size() - 1; nodeIndex++)
+
+		final List<E> edgePath = new ArrayList<E>();
+		int currentId = beginId;
+		while( currentId != endId )
 		{
-			N fromNode = nodePath.get(nodeIndex);
-			N toNode = nodePath.get(nodeIndex + 1);
+			final int nextId = this.nextNodes[currentId * this.nodeCount + endId];
+			//a walk can never have more steps than there are nodes, unless it
+			//is caught in a cycle of zero or negative weight
+			if( (nextId < 0) || (edgePath.size() >= this.nodeCount) )
+				return null;
+
+			final N fromNode = this.nodes.get(currentId);
+			final N toNode = this.nodes.get(nextId);
 			E stepEdge = null;
-			double stepEdgeWeight = Double.MAX_VALUE;
+			double stepEdgeWeight = Double.POSITIVE_INFINITY;
 			for(E edge : this.graph.getTraversableEdges(fromNode))
-			{
-				if(edge.getNodes().contains(toNode))
+				if( edge.getNodes().contains(toNode) )
 				{
-					if( stepEdge == null )
-						stepEdge = edge;
-					else if(edge instanceof WeightedEdge)
+					final double weight = stepWeight(edge, toNode);
+					if( (stepEdge == null) || (weight < stepEdgeWeight) )
 					{
-						if(((WeightedEdge)edge).getWeight() < stepEdgeWeight)
-						{
-							stepEdge = edge;
-							stepEdgeWeight = ((WeightedEdge)edge).getWeight();
-						}
-					}
-					else
 						stepEdge = edge;
+						stepEdgeWeight = weight;
+					}
 				}
-			}
 
 			assert stepEdge != null;
 			edgePath.add(stepEdge);
-
-			if( stepEdge instanceof WeightedEdge )
-				overallWeight += ((WeightedEdge)stepEdge).getWeight();
-			if( toNode instanceof Weighted )
-				overallWeight += ((Weighted)toNode).getWeight();
+			currentId = nextId;
 		}
 
-		return new DumbWeightedWalk(begin, end, edgePath, overallWeight);
+		return new DumbWeightedWalk(begin, end, edgePath, this.walkWeights[beginId * this.nodeCount + endId]);
 	}
 
-	private List<N> getIntermediatePath(N begin, N end)
+	public Map<N, WeightedWalk<N,E>> getBestPathsFrom(N begin, Set<N> ends)
 	{
-		if(this.nextNode.get(begin).get(end) == null)
-			return new ArrayList<N>();
-		
-		List<N> nodePath = new ArrayList<N>();
-		nodePath.addAll(getIntermediatePath(begin, this.nextNode.get(begin).get(end)));
-		nodePath.add(this.nextNode.get(begin).get(end));
-		nodePath.addAll(getIntermediatePath(this.nextNode.get(begin).get(end), end));
-		return nodePath;
+		Map<N, WeightedWalk<N,E>> paths = new HashMap<N, WeightedWalk<N,E>>(ends.size() * 2);
+		for(N end : ends)
+		{
+			if(end.equals(begin))
+				continue;
+			WeightedWalk<N,E> path = this.getBestPath(begin, end);
+			if(path != null)
+				paths.put(end, path);
+		}
+		return paths;
 	}
-	
+
+	public Map<N, WeightedWalk<N,E>> getBestPathsTo(Set<N> begins, N end)
+	{
+		Map<N, WeightedWalk<N,E>> paths = new HashMap<N, WeightedWalk<N,E>>(begins.size() * 2);
+		for(N begin : begins)
+		{
+			if(begin.equals(end))
+				continue;
+			WeightedWalk<N,E> path = this.getBestPath(begin, end);
+			if(path != null)
+				paths.put(begin, path);
+		}
+		return paths;
+	}
+
 	public boolean isReachable(N begin, N end)
 	{
 		return (this.getBestPath(begin, end) != null);
 	}
-	
+
 	public boolean isConnected(N begin, N end)
 	{
 		return (this.getBestPath(begin, end) != null);
@@ -0,0 +1,200 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.graph.search.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of int ids keyed by doubles which supports changing the
+ * key of an id already in the heap in O(log n). The position of every id in
+ * the heap is tracked in an array indexed by id, so ids should be dense.
+ * Ids with equal keys are polled in the order they were first inserted.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+final class IndexedMinHeap
+{
+	private int[] heap;
+	private int[] positions;
+	private double[] keys;
+	private long[] sequences;
+	private long nextSequence = 0;
+	private int size = 0;
+
+	IndexedMinHeap(final int capacity)
+	{
+		final int initialCapacity = Math.max(1, capacity);
+		this.heap = new int[initialCapacity];
+		this.positions = new int[initialCapacity];
+		Arrays.fill(this.positions, -1);
+		this.keys = new double[initialCapacity];
+		this.sequences = new long[initialCapacity];
+	}
+
+	/**
+	 * Grows the heap so it can hold ids up to but not including the given
+	 * capacity.
+	 */
+	void ensureCapacity(final int capacity)
+	{
+		if( capacity <= this.positions.length )
+			return;
+		final int newCapacity = Math.max(capacity, this.positions.length * 2);
+		final int oldCapacity = this.positions.length;
+		this.heap = Arrays.copyOf(this.heap, newCapacity);
+		this.positions = Arrays.copyOf(this.positions, newCapacity);
+		Arrays.fill(this.positions, oldCapacity, newCapacity, -1);
+		this.keys = Arrays.copyOf(this.keys, newCapacity);
+		this.sequences = Arrays.copyOf(this.sequences, newCapacity);
+	}
+
+	boolean isEmpty()
+	{
+		return (this.size == 0);
+	}
+
+	int size()
+	{
+		return this.size;
+	}
+
+	boolean contains(final int id)
+	{
+		return (this.positions[id] >= 0);
+	}
+
+	double getKey(final int id)
+	{
+		return this.keys[id];
+	}
+
+	/**
+	 * Inserts an id, or changes its key if it is already in the heap.
+	 */
+	void put(final int id, final double key)
+	{
+		final int position = this.positions[id];
+		if( position < 0 )
+		{
+			this.keys[id] = key;
+			this.sequences[id] = this.nextSequence++;
+			this.heap[this.size] = id;
+			this.positions[id] = this.size;
+			this.size++;
+			this.siftUp(this.size - 1);
+		}
+		else
+		{
+			final double oldKey = this.keys[id];
+			this.keys[id] = key;
+			if( key < oldKey )
+				this.siftUp(position);
+			else
+				this.siftDown(position);
+		}
+	}
+
+	/**
+	 * Removes and returns the id with the smallest key.
+	 */
+	int poll()
+	{
+		if( this.size == 0 )
+			throw new IllegalStateException("heap is empty");
+		final int top = this.heap[0];
+		this.positions[top] = -1;
+		this.size--;
+		if( this.size > 0 )
+		{
+			final int last = this.heap[this.size];
+			this.heap[0] = last;
+			this.positions[last] = 0;
+			this.siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Gets the smallest key without removing its id.
+	 */
+	double peekKey()
+	{
+		if( this.size == 0 )
+			throw new IllegalStateException("heap is empty");
+		return this.keys[this.heap[0]];
+	}
+
+	void clear()
+	{
+		for(int position = 0; position < this.size; position++)
+			this.positions[this.heap[position]] = -1;
+		this.size = 0;
+	}
+
+	private boolean less(final int leftId, final int rightId)
+	{
+		final double leftKey = this.keys[leftId];
+		final double rightKey = this.keys[rightId];
+		if( leftKey != rightKey )
+			return (leftKey < rightKey);
+		return (this.sequences[leftId] < this.sequences[rightId]);
+	}
+
+	private void siftUp(int position)
+	{
+		final int id = this.heap[position];
+		while( position > 0 )
+		{
+			final int parentPosition = (position - 1) >>> 1;
+			final int parent = this.heap[parentPosition];
+			if( !this.less(id, parent) )
+				break;
+			this.heap[position] = parent;
+			this.positions[parent] = position;
+			position = parentPosition;
+		}
+		this.heap[position] = id;
+		this.positions[id] = position;
+	}
+
+	private void siftDown(int position)
+	{
+		final int id = this.heap[position];
+		final int half = this.size >>> 1;
+		while( position < half )
+		{
+			int childPosition = (position << 1) + 1;
+			int child = this.heap[childPosition];
+			final int rightPosition = childPosition + 1;
+			if( (rightPosition < this.size) && this.less(this.heap[rightPosition], child) )
+			{
+				childPosition = rightPosition;
+				child = this.heap[childPosition];
+			}
+			if( !this.less(child, id) )
+				break;
+			this.heap[position] = child;
+			this.positions[child] = position;
+			position = childPosition;
+		}
+		this.heap[position] = id;
+		this.positions[id] = position;
+	}
+}
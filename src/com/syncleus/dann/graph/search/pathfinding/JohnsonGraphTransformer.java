@@ -69,6 +69,12 @@ public class JohnsonGraphTransformer<N> implements GraphTransformer<BidirectedGr
 			}
 		}
 
+		public SimpleGraph(Set<N> nodes)
+		{
+			for(N node : nodes)
+				this.add(node);
+		}
+
 		public boolean add(WeightedDirectedEdge<N> newEdge)
 		{
 			if( newEdge == null )
@@ -275,13 +281,18 @@ public class JohnsonGraphTransformer<N> implements GraphTransformer<BidirectedGr
 			copyGraph.connect(blankNode, originalNode, 0.0);
 
 		BellmanFordPathFinder<SimpleGraph, N, WeightedDirectedEdge<N>> pathFinder = new BellmanFordPathFinder<SimpleGraph, N, WeightedDirectedEdge<N>>(copyGraph);
+		pathFinder.calculateSteps(blankNode);
 
-		SimpleGraph johnsonGraph = new SimpleGraph(original);
-		List<WeightedDirectedEdge<N>> edges = new ArrayList<WeightedDirectedEdge<N>>(johnsonGraph.getEdges());
-		for(WeightedDirectedEdge<N> edge : edges)
+		//look up the weight of each node's path once rather than twice per
+		//edge
+		Map<N, Double> potentials = new HashMap<N, Double>(originalNodes.size() * 2);
+		for(N originalNode : original.getNodes())
+			potentials.put(originalNode, pathFinder.getBestPath(blankNode, originalNode, false).getWeight());
+
+		SimpleGraph johnsonGraph = new SimpleGraph(original.getNodes());
+		for(WeightedDirectedEdge<N> edge : original.getEdges())
 		{
-			double newWeight = edge.getWeight() + pathFinder.getBestPath(blankNode, edge.getSourceNode(), false).getWeight() - pathFinder.getBestPath(blankNode, edge.getDestinationNode(), false).getWeight();
-			johnsonGraph.remove(edge);
+			double newWeight = edge.getWeight() + potentials.get(edge.getSourceNode()) - potentials.get(edge.getDestinationNode());
 			johnsonGraph.add(new SimpleWeightedDirectedEdge<N>(edge.getSourceNode(), edge.getDestinationNode(), newWeight));
 		}
 
@@ -20,10 +20,36 @@ package com.syncleus.dann.graph.search.pathfinding;
 
 import com.syncleus.dann.graph.Edge;
 import com.syncleus.dann.graph.Walk;
+import java.util.Map;
+import java.util.Set;
 
 public interface PathFinder<N, E extends Edge<N>, W extends Walk<N,E>>
 {
 	W getBestPath(N begin, N end);
 	boolean isReachable(N begin, N end);
 	boolean isConnected(N begin, N end);
+
+	/**
+	 * Finds the best paths from one node to each of several nodes. Ends equal
+	 * to begin and ends which can not be reached are left out of the result.
+	 *
+	 * @param begin the node every path starts at.
+	 * @param ends the nodes to find paths to.
+	 * @return the best path to each reachable end, keyed by end.
+	 * @since 2.0
+	 */
+	Map<N,W> getBestPathsFrom(N begin, Set<N> ends);
+
+	/**
+	 * Finds the best paths from each of several nodes to one node. Begins
+	 * equal to end and begins which can not reach end are left out of the
+	 * result.
+	 *
+	 * @param begins the nodes to find paths from.
+	 * @param end the node every path ends at.
+	 * @return the best path from each begin which can reach end, keyed by
+	 * begin.
+	 * @since 2.0
+	 */
+	Map<N,W> getBestPathsTo(Set<N> begins, N end);
 }
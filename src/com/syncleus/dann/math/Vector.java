@@ -521,7 +521,7 @@ public class Vector implements Serializable
 		if(currentCoords.length != otherCoords.length)
 			return false;
 
-		for( int dimension = 0; dimension <= currentCoords.length; dimension++)
+		for( int dimension = 0; dimension < currentCoords.length; dimension++)
 			if( currentCoords[dimension]!= otherCoords[dimension])
 				return false;
 
@@ -0,0 +1,146 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A lock free histogram of non negative values, such as durations in
+ * nanoseconds. Values are counted in buckets whose bounds are powers of two,
+ * so recording a value is a handful of atomic increments and percentiles are
+ * accurate to within a factor of two.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public final class Histogram
+{
+	private static final int BUCKET_COUNT = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong maximum = new AtomicLong();
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value the value to record.
+	 * @since 2.0
+	 */
+	public void record(final long value)
+	{
+		final long recorded = Math.max(0L, value);
+		//bucket i holds the values below 2^i and atleast 2^(i-1)
+		this.buckets.incrementAndGet(Math.min(BUCKET_COUNT - 1, BUCKET_COUNT - Long.numberOfLeadingZeros(recorded)));
+		this.count.incrementAndGet();
+		this.total.addAndGet(recorded);
+
+		long currentMaximum = this.maximum.get();
+		while( (recorded > currentMaximum) && !this.maximum.compareAndSet(currentMaximum, recorded) )
+			currentMaximum = this.maximum.get();
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return the number of values recorded.
+	 * @since 2.0
+	 */
+	public long getCount()
+	{
+		return this.count.get();
+	}
+
+	/**
+	 * Gets the sum of the values recorded.
+	 *
+	 * @return the sum of the values recorded.
+	 * @since 2.0
+	 */
+	public long getTotal()
+	{
+		return this.total.get();
+	}
+
+	/**
+	 * Gets the largest value recorded.
+	 *
+	 * @return the largest value recorded, or 0 if none have been.
+	 * @since 2.0
+	 */
+	public long getMaximum()
+	{
+		return this.maximum.get();
+	}
+
+	/**
+	 * Gets the mean of the values recorded.
+	 *
+	 * @return the mean of the values recorded, or 0 if none have been.
+	 * @since 2.0
+	 */
+	public double getMean()
+	{
+		final long currentCount = this.count.get();
+		return ( currentCount == 0 ? 0.0 : ((double) this.total.get()) / currentCount );
+	}
+
+	/**
+	 * Gets an upper bound of a percentile of the values recorded. The bound
+	 * is atmost twice the actual percentile.
+	 *
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the upper bound of the percentile, or 0 if no values have been
+	 * recorded.
+	 * @since 2.0
+	 */
+	public long getPercentile(final double percentile)
+	{
+		if( (percentile < 0.0) || (percentile > 100.0) )
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+
+		final long currentCount = this.count.get();
+		if( currentCount == 0 )
+			return 0L;
+		final long rank = Math.max(1L, (long) Math.ceil((percentile / 100.0) * currentCount));
+		long seen = 0;
+		for(int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+		{
+			seen += this.buckets.get(bucket);
+			if( seen >= rank )
+				return Math.min(this.maximum.get(), ( bucket == (BUCKET_COUNT - 1) ? Long.MAX_VALUE : (1L << bucket) - 1 ));
+		}
+		return this.maximum.get();
+	}
+
+	/**
+	 * Discards every value recorded.
+	 *
+	 * @since 2.0
+	 */
+	public void reset()
+	{
+		for(int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+			this.buckets.set(bucket, 0L);
+		this.count.set(0L);
+		this.total.set(0L);
+		this.maximum.set(0L);
+	}
+}
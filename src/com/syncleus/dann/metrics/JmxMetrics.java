@@ -0,0 +1,190 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import javax.management.*;
+import org.apache.log4j.Logger;
+
+/**
+ * A SimpleMetrics which can be registered with the platform MBean server so
+ * training can be watched from any JMX console. Metrics are registered under
+ * the name com.syncleus.dann:type=Metrics,name=&lt;name&gt;.<br/>
+ * <br/>
+ * Publishing is opt-in: nothing is registered until getDefault or register is
+ * called, and a brain or population only reports to these metrics once they
+ * are passed to its setMetricsListener. This keeps training untimed, and the
+ * platform MBean server untouched, for callers which do not want metrics.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class JmxMetrics extends SimpleMetrics implements JmxMetricsMXBean
+{
+	/**
+	 * The JMX domain metrics are registered under.
+	 *
+	 * @since 2.0
+	 */
+	public static final String DOMAIN = "com.syncleus.dann";
+
+	private static JmxMetrics defaultMetrics = null;
+	private ObjectName objectName = null;
+	private final static Logger LOGGER = Logger.getLogger(JmxMetrics.class);
+
+	/**
+	 * Gets the metrics registered under the name "default", registering them
+	 * the first time this is called.
+	 *
+	 * @return the default metrics.
+	 * @since 2.0
+	 */
+	public static synchronized JmxMetrics getDefault()
+	{
+		if( defaultMetrics == null )
+		{
+			final JmxMetrics metrics = new JmxMetrics();
+			metrics.register("default");
+			defaultMetrics = metrics;
+		}
+		return defaultMetrics;
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server.
+	 *
+	 * @param name the name to register the metrics under.
+	 * @return the object name the metrics were registered as.
+	 * @throws IllegalStateException if these metrics are already registered
+	 * or the name is already in use.
+	 * @since 2.0
+	 */
+	public final synchronized ObjectName register(final String name)
+	{
+		if( this.objectName != null )
+			throw new IllegalStateException("metrics are already registered as " + this.objectName);
+
+		try
+		{
+			final ObjectName newName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+			this.objectName = newName;
+			return newName;
+		}
+		catch(MalformedObjectNameException caught)
+		{
+			throw new IllegalArgumentException("name can not be used in an object name", caught);
+		}
+		catch(InstanceAlreadyExistsException caught)
+		{
+			throw new IllegalStateException("metrics named " + name + " are already registered", caught);
+		}
+		catch(JMException caught)
+		{
+			LOGGER.error("metrics could not be registered", caught);
+			throw new IllegalStateException("metrics could not be registered", caught);
+		}
+	}
+
+	/**
+	 * Removes these metrics from the platform MBean server. Does nothing if
+	 * they are not registered.
+	 *
+	 * @since 2.0
+	 */
+	public final synchronized void unregister()
+	{
+		if( this.objectName == null )
+			return;
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+		}
+		catch(JMException caught)
+		{
+			LOGGER.warn("metrics could not be unregistered", caught);
+		}
+		this.objectName = null;
+	}
+
+	/**
+	 * Gets the object name these metrics are registered as.
+	 *
+	 * @return the object name, or null if the metrics are not registered.
+	 * @since 2.0
+	 */
+	public final synchronized ObjectName getObjectName()
+	{
+		return this.objectName;
+	}
+
+	public final long getQueueWaitCount()
+	{
+		return this.getQueueWait().getCount();
+	}
+
+	public final double getQueueWaitMean()
+	{
+		return this.getQueueWait().getMean();
+	}
+
+	public final long getQueueWaitMaximum()
+	{
+		return this.getQueueWait().getMaximum();
+	}
+
+	public final long getQueueWait99thPercentile()
+	{
+		return this.getQueueWait().getPercentile(99.0);
+	}
+
+	public final Map<String, Long> getPhaseCounts()
+	{
+		final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for(TrainingPhase phase : TrainingPhase.values())
+			counts.put(phase.name(), Long.valueOf(this.getPhase(phase).getCount()));
+		return counts;
+	}
+
+	public final Map<String, Long> getPhaseTotals()
+	{
+		final Map<String, Long> totals = new LinkedHashMap<String, Long>();
+		for(TrainingPhase phase : TrainingPhase.values())
+			totals.put(phase.name(), Long.valueOf(this.getPhase(phase).getTotal()));
+		return totals;
+	}
+
+	public final Map<String, Double> getPhaseMeans()
+	{
+		final Map<String, Double> means = new LinkedHashMap<String, Double>();
+		for(TrainingPhase phase : TrainingPhase.values())
+			means.put(phase.name(), Double.valueOf(this.getPhase(phase).getMean()));
+		return means;
+	}
+
+	public final Map<String, Long> getPhaseMaximums()
+	{
+		final Map<String, Long> maximums = new LinkedHashMap<String, Long>();
+		for(TrainingPhase phase : TrainingPhase.values())
+			maximums.put(phase.name(), Long.valueOf(this.getPhase(phase).getMaximum()));
+		return maximums;
+	}
+}
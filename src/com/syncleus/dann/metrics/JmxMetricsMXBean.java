@@ -0,0 +1,46 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface JmxMetrics is exposed through. Durations are in
+ * nanoseconds, and the phase maps are keyed by the name of each
+ * TrainingPhase.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public interface JmxMetricsMXBean
+{
+	long getEpochCount();
+	long getSampleCount();
+	double getLastLoss();
+	double getSamplesPerSecond();
+	long getQueueWaitCount();
+	double getQueueWaitMean();
+	long getQueueWaitMaximum();
+	long getQueueWait99thPercentile();
+	Map<String, Long> getPhaseCounts();
+	Map<String, Long> getPhaseTotals();
+	Map<String, Double> getPhaseMeans();
+	Map<String, Long> getPhaseMaximums();
+	void reset();
+}
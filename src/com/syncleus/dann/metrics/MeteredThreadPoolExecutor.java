@@ -0,0 +1,104 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+import java.util.concurrent.*;
+
+/**
+ * A ThreadPoolExecutor which reports how long each task waits in its queue
+ * before a thread starts executing it, which shows whether training is
+ * starved for threads. Brains and populations created without an executor
+ * use one of these, and setting their metrics listener also sets the
+ * listener of a metered executor passed to their constructor.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class MeteredThreadPoolExecutor extends ThreadPoolExecutor
+{
+	private volatile MetricsListener metricsListener;
+
+	private class TimedTask implements Runnable
+	{
+		private final Runnable task;
+		private final long queuedTime = System.nanoTime();
+
+		public TimedTask(final Runnable task)
+		{
+			this.task = task;
+		}
+
+		public void run()
+		{
+			final MetricsListener listener = metricsListener;
+			if( listener != null )
+				listener.queueWaited(MeteredThreadPoolExecutor.this, System.nanoTime() - this.queuedTime);
+			this.task.run();
+		}
+	}
+
+	/**
+	 * Creates an executor with the same parameters as a ThreadPoolExecutor.
+	 *
+	 * @param corePoolSize the number of threads to keep in the pool.
+	 * @param maximumPoolSize the maximum number of threads in the pool.
+	 * @param keepAliveTime how long idle threads above the core size are
+	 * kept.
+	 * @param unit the unit of keepAliveTime.
+	 * @param workQueue the queue tasks wait in.
+	 * @param metricsListener the listener queue waits are reported to, or
+	 * null to report nothing.
+	 * @since 2.0
+	 */
+	public MeteredThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> workQueue, final MetricsListener metricsListener)
+	{
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Sets the listener queue waits are reported to.
+	 *
+	 * @param metricsListener the listener, or null to report nothing.
+	 * @since 2.0
+	 */
+	public final void setMetricsListener(final MetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Gets the listener queue waits are reported to.
+	 *
+	 * @return the listener, or null if nothing is reported.
+	 * @since 2.0
+	 */
+	public final MetricsListener getMetricsListener()
+	{
+		return this.metricsListener;
+	}
+
+	@Override
+	public void execute(final Runnable command)
+	{
+		if( command == null )
+			throw new NullPointerException("command can not be null");
+		super.execute(new TimedTask(command));
+	}
+}
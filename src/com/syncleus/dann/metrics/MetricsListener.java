@@ -0,0 +1,67 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+/**
+ * Receives timings and progress from trainers as they train. Listeners are
+ * called on the training thread, or for queue waits on a pool thread, so
+ * implementations must be thread safe and should return quickly.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.metrics.SimpleMetrics
+ * @see com.syncleus.dann.metrics.JmxMetrics
+ */
+public interface MetricsListener
+{
+	/**
+	 * Called each time a phase of training completes.
+	 *
+	 * @param source the trainer which completed the phase.
+	 * @param phase the phase which completed.
+	 * @param nanoseconds the time the phase took.
+	 * @since 2.0
+	 */
+	void phaseCompleted(Object source, TrainingPhase phase, long nanoseconds);
+
+	/**
+	 * Called when a task starts executing with the time it waited in the
+	 * queue of an executor.
+	 *
+	 * @param source the executor the task waited in.
+	 * @param nanoseconds the time the task waited.
+	 * @since 2.0
+	 * @see com.syncleus.dann.metrics.MeteredThreadPoolExecutor
+	 */
+	void queueWaited(Object source, long nanoseconds);
+
+	/**
+	 * Called each time a trainer completes an epoch: a pass over a set of
+	 * samples, or a generation of a population.
+	 *
+	 * @param source the trainer which completed the epoch.
+	 * @param samples the number of samples trained, or members evaluated,
+	 * during the epoch.
+	 * @param loss the error of the epoch as measured by the trainer, or NaN
+	 * if the trainer does not measure one.
+	 * @param nanoseconds the time the epoch took.
+	 * @since 2.0
+	 */
+	void epochCompleted(Object source, long samples, double loss, long nanoseconds);
+}
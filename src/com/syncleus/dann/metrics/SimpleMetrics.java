@@ -0,0 +1,167 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A MetricsListener which keeps a histogram of the duration of each training
+ * phase and of the time tasks wait in executor queues, along with counters of
+ * the epochs and samples trained. Every source reporting to the listener is
+ * combined into the same figures.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class SimpleMetrics implements MetricsListener
+{
+	private final Map<TrainingPhase, Histogram> phases = new EnumMap<TrainingPhase, Histogram>(TrainingPhase.class);
+	private final Histogram queueWait = new Histogram();
+	private final Histogram epochs = new Histogram();
+	private final AtomicLong samples = new AtomicLong();
+	private volatile double lastLoss = Double.NaN;
+	private volatile double lastSamplesPerSecond = 0.0;
+
+	/**
+	 * Creates a listener with no values recorded.
+	 *
+	 * @since 2.0
+	 */
+	public SimpleMetrics()
+	{
+		for(TrainingPhase phase : TrainingPhase.values())
+			this.phases.put(phase, new Histogram());
+	}
+
+	public void phaseCompleted(final Object source, final TrainingPhase phase, final long nanoseconds)
+	{
+		this.phases.get(phase).record(nanoseconds);
+	}
+
+	public void queueWaited(final Object source, final long nanoseconds)
+	{
+		this.queueWait.record(nanoseconds);
+	}
+
+	public void epochCompleted(final Object source, final long samples, final double loss, final long nanoseconds)
+	{
+		this.epochs.record(nanoseconds);
+		this.samples.addAndGet(samples);
+		this.lastLoss = loss;
+		this.lastSamplesPerSecond = samples / (Math.max(1L, nanoseconds) / 1000000000.0);
+	}
+
+	/**
+	 * Gets the histogram of the durations of a phase in nanoseconds.
+	 *
+	 * @param phase the phase.
+	 * @return the histogram of the durations of the phase.
+	 * @since 2.0
+	 */
+	public final Histogram getPhase(final TrainingPhase phase)
+	{
+		return this.phases.get(phase);
+	}
+
+	/**
+	 * Gets the histogram of the time tasks waited in executor queues in
+	 * nanoseconds.
+	 *
+	 * @return the histogram of queue waits.
+	 * @since 2.0
+	 */
+	public final Histogram getQueueWait()
+	{
+		return this.queueWait;
+	}
+
+	/**
+	 * Gets the histogram of the durations of epochs in nanoseconds.
+	 *
+	 * @return the histogram of the durations of epochs.
+	 * @since 2.0
+	 */
+	public final Histogram getEpochs()
+	{
+		return this.epochs;
+	}
+
+	/**
+	 * Gets the number of epochs completed.
+	 *
+	 * @return the number of epochs completed.
+	 * @since 2.0
+	 */
+	public final long getEpochCount()
+	{
+		return this.epochs.getCount();
+	}
+
+	/**
+	 * Gets the total number of samples trained over every epoch.
+	 *
+	 * @return the number of samples trained.
+	 * @since 2.0
+	 */
+	public final long getSampleCount()
+	{
+		return this.samples.get();
+	}
+
+	/**
+	 * Gets the loss reported with the last epoch.
+	 *
+	 * @return the loss of the last epoch, or NaN if none has completed or
+	 * its trainer does not measure a loss.
+	 * @since 2.0
+	 */
+	public final double getLastLoss()
+	{
+		return this.lastLoss;
+	}
+
+	/**
+	 * Gets the throughput of the last epoch.
+	 *
+	 * @return the samples per second of the last epoch, or 0 if none has
+	 * completed.
+	 * @since 2.0
+	 */
+	public final double getSamplesPerSecond()
+	{
+		return this.lastSamplesPerSecond;
+	}
+
+	/**
+	 * Discards every value recorded.
+	 *
+	 * @since 2.0
+	 */
+	public void reset()
+	{
+		for(Histogram phase : this.phases.values())
+			phase.reset();
+		this.queueWait.reset();
+		this.epochs.reset();
+		this.samples.set(0L);
+		this.lastLoss = Double.NaN;
+		this.lastSamplesPerSecond = 0.0;
+	}
+}
@@ -0,0 +1,59 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.metrics;
+
+/**
+ * The phases of training which are timed and reported to a MetricsListener.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public enum TrainingPhase
+{
+	/**
+	 * Propagating the inputs of a feedforward brain to its outputs.
+	 */
+	PROPAGATE,
+	/**
+	 * Back propagating the error of a feedforward brain and updating its
+	 * weights.
+	 */
+	BACKPROPAGATE,
+	/**
+	 * Training a compiled feedforward network against a batch of samples.
+	 */
+	BATCH,
+	/**
+	 * Searching a SOM for the best matching unit of the current input.
+	 */
+	BEST_MATCHING_UNIT,
+	/**
+	 * Training the units of a SOM in the neighborhood of the best matching
+	 * unit.
+	 */
+	NEIGHBORHOOD,
+	/**
+	 * Evaluating the fitness of the new members of a population.
+	 */
+	FITNESS,
+	/**
+	 * Killing off, mutating and crossing over the members of a population.
+	 */
+	BREEDING
+}
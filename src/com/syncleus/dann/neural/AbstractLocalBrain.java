@@ -20,6 +20,8 @@ package com.syncleus.dann.neural;
 
 import com.syncleus.dann.graph.AbstractBidirectedGraph;
 import com.syncleus.dann.graph.WeightedBidirectedWalk;
+import com.syncleus.dann.metrics.MeteredThreadPoolExecutor;
+import com.syncleus.dann.metrics.MetricsListener;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -39,22 +41,57 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron, Synapse, WeightedBidirectedWalk<Neuron,Synapse>> implements Brain, Serializable
 {
-	protected static class NodeConnectivity extends HashMap<Neuron,Set<Synapse>>
+	/**
+	 * The synapses entering or leaving a single neuron, kept in the order
+	 * they were connected. Readers share an unmodifiable view of the synapses
+	 * which is only rebuilt after the list changes, so reading the list never
+	 * allocates or copies while the topology is stable.
+	 */
+	private static final class SynapseList implements Serializable
 	{
-		@Override
-		public Set<Synapse> get(Object keyObject)
+		private static final long serialVersionUID = 1L;
+
+		private Synapse[] synapses = new Synapse[4];
+		private int size = 0;
+		private transient volatile List<Synapse> view = null;
+
+		public void add(Synapse synapse)
+		{
+			if( this.size == this.synapses.length )
+				this.synapses = Arrays.copyOf(this.synapses, this.size * 2);
+			this.synapses[this.size++] = synapse;
+			this.view = null;
+		}
+
+		public boolean remove(Synapse synapse)
 		{
-			Set<Synapse> edges = super.get(keyObject);
-			if(keyObject instanceof Neuron)
+			for(int index = 0; index < this.size; index++)
 			{
-				if(edges == null)
+				if( this.synapses[index].equals(synapse) )
 				{
-					edges = new HashSet<Synapse>();
-					Neuron key = (Neuron) keyObject;
-					super.put(key, edges);
+					System.arraycopy(this.synapses, index + 1, this.synapses, index, this.size - index - 1);
+					this.synapses[--this.size] = null;
+					this.view = null;
+					return true;
 				}
 			}
-			return edges;
+			return false;
+		}
+
+		public int size()
+		{
+			return this.size;
+		}
+
+		public List<Synapse> view()
+		{
+			List<Synapse> currentView = this.view;
+			if( currentView == null )
+			{
+				currentView = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(this.synapses, this.size)));
+				this.view = currentView;
+			}
+			return currentView;
 		}
 	}
 
@@ -63,12 +100,14 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
     private Set<InputNeuron> inputNeurons = new HashSet<InputNeuron>();
 
 	private final Set<Synapse> synapses = new HashSet<Synapse>();
-	private final Map<Neuron,Set<Synapse>> outMap = new NodeConnectivity();
-	private final Map<Neuron,Set<Synapse>> inMap = new NodeConnectivity();
+	private final Map<Neuron,SynapseList> outMap = new HashMap<Neuron,SynapseList>();
+	private final Map<Neuron,SynapseList> inMap = new HashMap<Neuron,SynapseList>();
+	private transient volatile List<Synapse> synapsesView = null;
 
 	private static final Random RANDOM = new Random();
 
 	private ThreadPoolExecutor threadExecutor;
+	private transient volatile MetricsListener metricsListener = null;
 
 
 	/**
@@ -84,13 +123,14 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 
 	/**
 	 * Default constructor initializes a default threadExecutor based on the
-	 * number of processors.
+	 * number of processors. The default threadExecutor is metered so queue
+	 * waits are reported once a metrics listener is set.
 	 *
 	 * @since 2.0
 	 */
 	public AbstractLocalBrain()
 	{
-		this.threadExecutor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors()*5, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		this.threadExecutor = new MeteredThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors()*5, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), null);
 	}
 
 	protected boolean add(Synapse newSynapse)
@@ -104,6 +144,7 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 		{
 			this.outMap.get(newSynapse.getSourceNode()).add(newSynapse);
 			this.inMap.get(newSynapse.getDestinationNode()).add(newSynapse);
+			this.synapsesView = null;
 			return true;
 		}
 
@@ -126,8 +167,8 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 
 		if( this.neurons.add(newNeuron) )
 		{
-			this.outMap.put(newNeuron, new HashSet<Synapse>());
-			this.inMap.put(newNeuron, new HashSet<Synapse>());
+			this.outMap.put(newNeuron, new SynapseList());
+			this.inMap.put(newNeuron, new SynapseList());
 			if (newNeuron instanceof OutputNeuron)
 				this.outputNeurons.add((OutputNeuron) newNeuron);
 			if (newNeuron instanceof InputNeuron)
@@ -154,17 +195,9 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 		if( newNeurons.size() <= 0 )
 			return false;
 
-		boolean added = this.neurons.addAll(newNeurons);
-
+		boolean added = false;
 		for(Neuron newNeuron : newNeurons)
-		{
-			this.outMap.put(newNeuron, new HashSet<Synapse>());
-			this.inMap.put(newNeuron, new HashSet<Synapse>());
-			if (newNeuron instanceof OutputNeuron)
-				this.outputNeurons.add((OutputNeuron) newNeuron);
-			if (newNeuron instanceof InputNeuron)
-				this.inputNeurons.add((InputNeuron) newNeuron);
-		}
+			added |= this.add(newNeuron);
 
 		return added;
 	}
@@ -209,10 +242,13 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 
 		if( this.synapses.remove(removeSynapse) )
 		{
-			if( this.outMap.containsKey(removeSynapse.getSourceNode()) )
-				this.outMap.get(removeSynapse.getSourceNode()).remove(removeSynapse);
-			if( this.inMap.containsKey(removeSynapse.getDestinationNode()) )
-				this.inMap.get(removeSynapse.getDestinationNode()).remove(removeSynapse);
+			final SynapseList outSynapses = this.outMap.get(removeSynapse.getSourceNode());
+			if( outSynapses != null )
+				outSynapses.remove(removeSynapse);
+			final SynapseList inSynapses = this.inMap.get(removeSynapse.getDestinationNode());
+			if( inSynapses != null )
+				inSynapses.remove(removeSynapse);
+			this.synapsesView = null;
 			return true;
 		}
 		return false;
@@ -221,8 +257,8 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 
 
 	/**
-	 * Removes the specified neuron from the brain. This only removes it from
-	 * the collection of neurons it does not disconnect it from other neurons.
+	 * Removes the specified neuron from the brain. Every synapse entering or
+	 * leaving the neuron is removed as well, from both of its ends.
 	 *
 	 * 
 	 * @param remove The neuron to remove.
@@ -233,14 +269,14 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 		if( removeNeuron == null )
 			throw new IllegalArgumentException("node can not be null");
 
-		if( this.neurons.remove(removeNeuron) )
+		if( this.neurons.contains(removeNeuron) )
 		{
-			Set<Synapse> removeEdges = new HashSet<Synapse>();
-			if( this.outMap.containsKey(removeNeuron) )
-				removeEdges.addAll(this.outMap.remove(removeNeuron));
-			if( this.inMap.containsKey(removeNeuron) )
-				removeEdges.addAll(this.inMap.remove(removeNeuron));
-			this.synapses.removeAll(removeEdges);
+			//disconnect the neuron from its neighbors before forgetting it
+			for(Synapse removeSynapse : this.getEdges(removeNeuron))
+				this.remove(removeSynapse);
+			this.neurons.remove(removeNeuron);
+			this.outMap.remove(removeNeuron);
+			this.inMap.remove(removeNeuron);
 
 			if (removeNeuron instanceof OutputNeuron)
 				this.outputNeurons.remove((OutputNeuron) removeNeuron);
@@ -298,16 +334,27 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 	@Override
 	public List<Synapse> getEdges()
 	{
-		return Collections.unmodifiableList(new ArrayList<Synapse>(this.synapses));
+		List<Synapse> currentView = this.synapsesView;
+		if( currentView == null )
+		{
+			currentView = Collections.unmodifiableList(new ArrayList<Synapse>(this.synapses));
+			this.synapsesView = currentView;
+		}
+		return currentView;
 	}
 
 	public List<Synapse> getEdges(Neuron node)
 	{
-		List<Synapse> nodeSynapses = new ArrayList<Synapse>();
-		if( this.outMap.containsKey(node) )
-			nodeSynapses.addAll( this.outMap.get(node) );
-		if( this.inMap.containsKey(node) )
-			nodeSynapses.addAll( this.inMap.get(node) );
+		final List<Synapse> outSynapses = this.getOutEdges(node);
+		final List<Synapse> inSynapses = this.getInEdges(node);
+		if( inSynapses.isEmpty() )
+			return outSynapses;
+		if( outSynapses.isEmpty() )
+			return inSynapses;
+
+		final List<Synapse> nodeSynapses = new ArrayList<Synapse>(outSynapses.size() + inSynapses.size());
+		nodeSynapses.addAll(outSynapses);
+		nodeSynapses.addAll(inSynapses);
 		return Collections.unmodifiableList(nodeSynapses);
 	}
 
@@ -316,39 +363,59 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 		return this.getOutEdges(node);
 	}
 
+	/**
+	 * Obtains the synapses leaving the specified neuron in the order they
+	 * were connected. The returned list is an unmodifiable snapshot which is
+	 * shared between calls until the synapses of the neuron change.
+	 *
+	 * @param node The neuron whose outgoing synapses are returned.
+	 * @return An unmodifiable list of the outgoing synapses.
+	 * @since 2.0
+	 */
 	public List<Synapse> getOutEdges(Neuron node)
 	{
-		if( this.outMap.containsKey(node) )
-			 return Collections.unmodifiableList( new ArrayList<Synapse>(this.outMap.get(node)) );
+		final SynapseList outSynapses = this.outMap.get(node);
+		if( outSynapses != null )
+			return outSynapses.view();
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Obtains the synapses entering the specified neuron in the order they
+	 * were connected. The returned list is an unmodifiable snapshot which is
+	 * shared between calls until the synapses of the neuron change.
+	 *
+	 * @param node The neuron whose incomming synapses are returned.
+	 * @return An unmodifiable list of the incomming synapses.
+	 * @since 2.0
+	 */
 	public List<Synapse> getInEdges(Neuron node)
 	{
-		if( this.inMap.containsKey(node) )
-			 return Collections.unmodifiableList( new ArrayList<Synapse>(this.inMap.get(node)) );
+		final SynapseList inSynapses = this.inMap.get(node);
+		if( inSynapses != null )
+			return inSynapses.view();
 		return Collections.emptyList();
 	}
 
 	public int getIndegree(Neuron node)
 	{
-		return this.inMap.get(node).size();
+		final SynapseList inSynapses = this.inMap.get(node);
+		return ( inSynapses == null ? 0 : inSynapses.size() );
 	}
 
 	public int getOutdegree(Neuron node)
 	{
-		return this.outMap.get(node).size();
+		final SynapseList outSynapses = this.outMap.get(node);
+		return ( outSynapses == null ? 0 : outSynapses.size() );
 	}
 
 
 	public boolean isConnected(Neuron leftNode, Neuron rightNode)
 	{
-		List<Synapse> outSet = this.getOutEdges(leftNode);
-		List<Synapse> inSet = this.getInEdges(rightNode);
-		Set<Synapse> jointSet = new HashSet<Synapse>(outSet);
-		jointSet.retainAll(inSet);
-
-		return ( !jointSet.isEmpty() );
+		for(Synapse outSynapse : this.getOutEdges(leftNode))
+			if( outSynapse.getDestinationNode().equals(rightNode) )
+				return true;
+		return false;
 	}
 
 	public List<Neuron> getNeighbors(Neuron node)
@@ -380,4 +447,35 @@ public abstract class AbstractLocalBrain extends AbstractBidirectedGraph<Neuron,
 	{
 		return threadExecutor;
 	}
+
+	/**
+	 * Sets the listener the timings and progress of training are reported
+	 * to. Nothing is timed while no listener is set, and nothing is published
+	 * over JMX unless the listener is a JmxMetrics such as
+	 * JmxMetrics.getDefault(). When the threadExecutor is a
+	 * MeteredThreadPoolExecutor, as the default one is, its queue waits are
+	 * reported to the same listener.
+	 *
+	 * @param metricsListener the listener, or null to report nothing.
+	 * @since 2.0
+	 * @see com.syncleus.dann.metrics.JmxMetrics#getDefault
+	 */
+	public final void setMetricsListener(final MetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+		if( this.threadExecutor instanceof MeteredThreadPoolExecutor )
+			((MeteredThreadPoolExecutor) this.threadExecutor).setMetricsListener(metricsListener);
+	}
+
+	/**
+	 * Gets the listener the timings and progress of training are reported
+	 * to.
+	 *
+	 * @return the listener, or null if nothing is reported.
+	 * @since 2.0
+	 */
+	public final MetricsListener getMetricsListener()
+	{
+		return this.metricsListener;
+	}
 }
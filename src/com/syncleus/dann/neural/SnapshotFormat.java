@@ -0,0 +1,434 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural;
+
+import com.syncleus.dann.neural.activation.*;
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * The shared layout of the binary snapshots of trained brains. Every snapshot
+ * starts with a 16 byte header:
+ * <ul>
+ * <li>the magic number 0x44414E4E ("DANN") as an int,</li>
+ * <li>the format version as an int,</li>
+ * <li>the kind of brain the snapshot holds as an int,</li>
+ * <li>an int of padding,</li>
+ * </ul>
+ * followed by a body specific to the kind of brain. All values are big
+ * endian, and bodies keep their arrays of doubles aligned to 8 bytes so a
+ * snapshot can be read straight out of a memory mapped file.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.backprop.brain.FeedforwardSnapshot
+ * @see com.syncleus.dann.neural.som.brain.SomSnapshot
+ */
+public final class SnapshotFormat
+{
+	/**
+	 * The magic number every snapshot starts with.
+	 *
+	 * @since 2.0
+	 */
+	public static final int MAGIC = 0x44414E4E;
+	/**
+	 * The version of the format written by this class.
+	 *
+	 * @since 2.0
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * The kind of a snapshot holding a compiled feedforward network.
+	 *
+	 * @since 2.0
+	 */
+	public static final int KIND_FEEDFORWARD = 1;
+	/**
+	 * The kind of a snapshot holding a SOM codebook.
+	 *
+	 * @since 2.0
+	 */
+	public static final int KIND_SOM = 2;
+	/**
+	 * The kind of a snapshot holding the checkpoint of an early stopping
+	 * trainer.
+	 *
+	 * @since 2.0
+	 */
+	public static final int KIND_FEEDFORWARD_CHECKPOINT = 3;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The activation functions which can be stored in a snapshot. The id of
+	 * an activation function is its index in this array, so new functions
+	 * must only ever be appended.
+	 */
+	private static final Class<?>[] ACTIVATION_FUNCTIONS = {
+		IdentityActivationFunction.class,
+		HyperbolicTangentActivationFunction.class,
+		HyperbolicSecantActivationFunction.class,
+		SineActivationFunction.class,
+		GausianActivationFunction.class,
+		SqrtActivationFunction.class,
+		FastHyperbolicTangentActivationFunction.class
+	};
+
+	private SnapshotFormat()
+	{
+	}
+
+	/**
+	 * Gets the id an activation function is stored as.
+	 *
+	 * @param activationFunction the activation function.
+	 * @return the id of the activation function.
+	 * @throws IllegalArgumentException if the activation function can not be
+	 * stored in a snapshot.
+	 * @since 2.0
+	 */
+	public static int getActivationFunctionId(final ActivationFunction activationFunction)
+	{
+		for(int id = 0; id < ACTIVATION_FUNCTIONS.length; id++)
+			if( ACTIVATION_FUNCTIONS[id] == activationFunction.getClass() )
+				return id;
+		throw new IllegalArgumentException(activationFunction.getClass().getName() + " can not be stored in a snapshot");
+	}
+
+	/**
+	 * Creates the activation function stored with the given id.
+	 *
+	 * @param id the id of the activation function.
+	 * @return a new instance of the activation function.
+	 * @throws IOException if the id is not known.
+	 * @since 2.0
+	 */
+	public static ActivationFunction createActivationFunction(final int id) throws IOException
+	{
+		if( (id < 0) || (id >= ACTIVATION_FUNCTIONS.length) )
+			throw new IOException("unknown activation function id " + id);
+		try
+		{
+			return (ActivationFunction) ACTIVATION_FUNCTIONS[id].getDeclaredConstructor().newInstance();
+		}
+		catch(NoSuchMethodException caught)
+		{
+			throw new IOException("could not create activation function " + ACTIVATION_FUNCTIONS[id].getName(), caught);
+		}
+		catch(InvocationTargetException caught)
+		{
+			throw new IOException("could not create activation function " + ACTIVATION_FUNCTIONS[id].getName(), caught);
+		}
+		catch(InstantiationException caught)
+		{
+			throw new IOException("could not create activation function " + ACTIVATION_FUNCTIONS[id].getName(), caught);
+		}
+		catch(IllegalAccessException caught)
+		{
+			throw new IOException("could not create activation function " + ACTIVATION_FUNCTIONS[id].getName(), caught);
+		}
+	}
+
+	/**
+	 * Memory maps a snapshot file and checks its header.
+	 *
+	 * @param file the snapshot file.
+	 * @param kind the kind of brain the snapshot must hold.
+	 * @return a read only buffer positioned at the start of the body.
+	 * @throws IOException if the file can not be read or is not a snapshot of
+	 * the given kind in a supported version.
+	 * @since 2.0
+	 */
+	public static ByteBuffer map(final File file, final int kind) throws IOException
+	{
+		final FileInputStream input = new FileInputStream(file);
+		try
+		{
+			final FileChannel channel = input.getChannel();
+			final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			readHeader(buffer, kind);
+			return buffer;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * Checks the header at the current position of the buffer and moves past
+	 * it.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @param kind the kind of brain the snapshot must hold.
+	 * @throws IOException if the buffer does not hold a snapshot of the given
+	 * kind in a supported version.
+	 * @since 2.0
+	 */
+	public static void readHeader(final ByteBuffer buffer, final int kind) throws IOException
+	{
+		try
+		{
+			if( buffer.getInt() != MAGIC )
+				throw new IOException("not a snapshot");
+			final int version = buffer.getInt();
+			if( version != VERSION )
+				throw new IOException("unsupported snapshot version " + version);
+			final int actualKind = buffer.getInt();
+			if( actualKind != kind )
+				throw new IOException("snapshot holds kind " + actualKind + " but kind " + kind + " was expected");
+			buffer.getInt();
+		}
+		catch(BufferUnderflowException caught)
+		{
+			throw new IOException("snapshot is truncated", caught);
+		}
+	}
+
+	/**
+	 * Reads a number of doubles from the current position of the buffer.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @param count the number of doubles to read.
+	 * @return the doubles read.
+	 * @throws IOException if the buffer does not hold enough doubles.
+	 * @since 2.0
+	 */
+	public static double[] readDoubles(final ByteBuffer buffer, final int count) throws IOException
+	{
+		if( (count < 0) || (((long) count * 8) > buffer.remaining()) )
+			throw new IOException("snapshot is truncated");
+		final double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + (count * 8));
+		return values;
+	}
+
+	/**
+	 * Skips the padding written by Writer.align so the buffer is positioned at
+	 * a multiple of 8 bytes.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @since 2.0
+	 */
+	public static void align(final ByteBuffer buffer)
+	{
+		buffer.position((buffer.position() + 7) & ~7);
+	}
+
+	/**
+	 * Reads a non negative int from the current position of the buffer.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @return the int read.
+	 * @throws IOException if the buffer is exhausted or the int is negative.
+	 * @since 2.0
+	 */
+	public static int readCount(final ByteBuffer buffer) throws IOException
+	{
+		try
+		{
+			final int count = buffer.getInt();
+			if( count < 0 )
+				throw new IOException("snapshot is corrupt");
+			return count;
+		}
+		catch(BufferUnderflowException caught)
+		{
+			throw new IOException("snapshot is truncated", caught);
+		}
+	}
+
+	/**
+	 * Reads a long from the current position of the buffer.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @return the long read.
+	 * @throws IOException if the buffer is exhausted.
+	 * @since 2.0
+	 */
+	public static long readLong(final ByteBuffer buffer) throws IOException
+	{
+		try
+		{
+			return buffer.getLong();
+		}
+		catch(BufferUnderflowException caught)
+		{
+			throw new IOException("snapshot is truncated", caught);
+		}
+	}
+
+	/**
+	 * Reads a double from the current position of the buffer.
+	 *
+	 * @param buffer the buffer holding the snapshot.
+	 * @return the double read.
+	 * @throws IOException if the buffer is exhausted.
+	 * @since 2.0
+	 */
+	public static double readDouble(final ByteBuffer buffer) throws IOException
+	{
+		try
+		{
+			return buffer.getDouble();
+		}
+		catch(BufferUnderflowException caught)
+		{
+			throw new IOException("snapshot is truncated", caught);
+		}
+	}
+
+	/**
+	 * Writes a snapshot through a fixed size buffer. The header is written
+	 * when the writer is created.
+	 *
+	 * @since 2.0
+	 */
+	public static final class Writer implements Closeable
+	{
+		private final FileOutputStream output;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		private long written = 0;
+
+		/**
+		 * Creates or replaces a snapshot file.
+		 *
+		 * @param file the snapshot file.
+		 * @param kind the kind of brain the snapshot holds.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public Writer(final File file, final int kind) throws IOException
+		{
+			this.output = new FileOutputStream(file);
+			this.channel = this.output.getChannel();
+			this.putInt(MAGIC);
+			this.putInt(VERSION);
+			this.putInt(kind);
+			this.putInt(0);
+		}
+
+		private void reserve(final int bytes) throws IOException
+		{
+			if( this.buffer.remaining() < bytes )
+				this.flush();
+		}
+
+		private void flush() throws IOException
+		{
+			this.written += this.buffer.position();
+			this.buffer.flip();
+			while( this.buffer.hasRemaining() )
+				this.channel.write(this.buffer);
+			this.buffer.clear();
+		}
+
+		/**
+		 * Writes a single int.
+		 *
+		 * @param value the int to write.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void putInt(final int value) throws IOException
+		{
+			this.reserve(4);
+			this.buffer.putInt(value);
+		}
+
+		/**
+		 * Writes a single long.
+		 *
+		 * @param value the long to write.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void putLong(final long value) throws IOException
+		{
+			this.reserve(8);
+			this.buffer.putLong(value);
+		}
+
+		/**
+		 * Writes a single double.
+		 *
+		 * @param value the double to write.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void putDouble(final double value) throws IOException
+		{
+			this.reserve(8);
+			this.buffer.putDouble(value);
+		}
+
+		/**
+		 * Pads the snapshot with zeros up to the next multiple of 8 bytes.
+		 * Must be called before writing doubles after an odd number of ints.
+		 *
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void align() throws IOException
+		{
+			while( ((this.written + this.buffer.position()) & 7) != 0 )
+			{
+				this.reserve(1);
+				this.buffer.put((byte) 0);
+			}
+		}
+
+		/**
+		 * Writes an array of doubles.
+		 *
+		 * @param values the doubles to write.
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void putDoubles(final double[] values) throws IOException
+		{
+			for(double value : values)
+				this.putDouble(value);
+		}
+
+		/**
+		 * Writes any buffered values and closes the file.
+		 *
+		 * @throws IOException if the file can not be written.
+		 * @since 2.0
+		 */
+		public void close() throws IOException
+		{
+			try
+			{
+				this.flush();
+			}
+			finally
+			{
+				this.output.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.activation;
+
+/**
+ * An activation function which can also be evaluated over a whole layer at a
+ * time. Implementations calculate the outputs, and optionally the
+ * derivatives, of every element of an array of activities in a single pass,
+ * which lets functions such as the hyperbolic tangent reuse the output when
+ * calculating the derivative.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public interface BulkActivationFunction extends ActivationFunction
+{
+	/**
+	 * Calculates the activation function of every activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function for each
+	 * activity. Must be atleast as long as activities.
+	 * @since 2.0
+	 */
+	public void activate(double[] activities, double[] outputs);
+
+	/**
+	 * Calculates both the activation function and its derivative of every
+	 * activity in a single pass.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function for each
+	 * activity. Must be atleast as long as activities.
+	 * @param derivatives receives the derivative of the activation function
+	 * for each activity. Must be atleast as long as activities.
+	 * @since 2.0
+	 */
+	public void activateWithDerivative(double[] activities, double[] outputs, double[] derivatives);
+}
@@ -0,0 +1,129 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.activation;
+
+/**
+ * A fast approximation of the hyperbolic tangent activation function. The
+ * hyperbolic tangent is tabulated at intervals of 1/256 over [-8, 8] and
+ * linearly interpolated between the entries; beyond that range the output
+ * saturates at -1 or 1. The absolute error of the output is below 2E-6 and
+ * the absolute error of the derivative, calculated as 1 - output<sup>2</sup>,
+ * is below 4E-6 everywhere.<br/>
+ * <br/>
+ * This function is not used unless explicitly chosen, since training with it
+ * gives results which differ slightly from HyperbolicTangentActivationFunction.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction
+ */
+public class FastHyperbolicTangentActivationFunction implements BulkActivationFunction
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final double RANGE = 8.0;
+	private static final double RESOLUTION = 256.0;
+	private static final double[] TABLE = createTable();
+
+	private static double[] createTable()
+	{
+		final int entries = (int) (2.0 * RANGE * RESOLUTION) + 1;
+		final double[] table = new double[entries + 1];
+		for(int index = 0; index < entries; index++)
+			table[index] = Math.tanh((index / RESOLUTION) - RANGE);
+		//activities just below RANGE can round onto the last entry, so repeat it
+		table[entries] = table[entries - 1];
+		return table;
+	}
+
+	/**
+	 * The approximated hyperbolic tangent activation function.
+	 *
+	 *
+	 * @param activity the neuron's current activity.
+	 * @return The approximate result of the hyperbolic tangent activation
+	 * function bound between -1 and 1.
+	 * @since 2.0
+	 */
+	public double activate(double activity)
+	{
+		if( activity >= RANGE )
+			return 1.0;
+		if( activity <= -RANGE )
+			return -1.0;
+		if( activity != activity )
+			return activity;
+
+		final double position = (activity + RANGE) * RESOLUTION;
+		final int index = (int) position;
+		final double fraction = position - index;
+		return TABLE[index] + (fraction * (TABLE[index + 1] - TABLE[index]));
+	}
+
+	/**
+	 * The derivative of the approximated hyperbolic tangent activation
+	 * function.
+	 *
+	 *
+	 * @param activity The neuron's current activity.
+	 * @return The approximate result of the derivative of the hyperbolic
+	 * tangent activation function.
+	 * @since 2.0
+	 */
+	public double activateDerivative(double activity)
+	{
+		final double output = this.activate(activity);
+		return 1.0 - (output * output);
+	}
+
+	/**
+	 * The approximated hyperbolic tangent activation function of every
+	 * activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @since 2.0
+	 */
+	public void activate(double[] activities, double[] outputs)
+	{
+		for(int index = 0; index < activities.length; index++)
+			outputs[index] = this.activate(activities[index]);
+	}
+
+	/**
+	 * The approximated hyperbolic tangent activation function and its
+	 * derivative of every activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @param derivatives receives the derivative of the activation function.
+	 * @since 2.0
+	 */
+	public void activateWithDerivative(double[] activities, double[] outputs, double[] derivatives)
+	{
+		for(int index = 0; index < activities.length; index++)
+		{
+			final double output = this.activate(activities[index]);
+			outputs[index] = output;
+			derivatives[index] = 1.0 - (output * output);
+		}
+	}
+}
@@ -27,7 +27,7 @@ package com.syncleus.dann.neural.activation;
  * @since 1.0
  *
  */
-public class HyperbolicTangentActivationFunction implements ActivationFunction
+public class HyperbolicTangentActivationFunction implements BulkActivationFunction
 {
 	/**
 	 * The hyperbolic tangent activation function.
@@ -54,6 +54,41 @@ public class HyperbolicTangentActivationFunction implements ActivationFunction
 	 */
     public double activateDerivative(double activity)
     {
-        return 1.0 - Math.pow(this.activate(activity), 2.0);
+        final double output = this.activate(activity);
+        return 1.0 - (output * output);
     }
+
+	/**
+	 * The hyperbolic tangent activation function of every activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @since 2.0
+	 */
+	public void activate(double[] activities, double[] outputs)
+	{
+		for(int index = 0; index < activities.length; index++)
+			outputs[index] = Math.tanh(activities[index]);
+	}
+
+	/**
+	 * The hyperbolic tangent activation function and its derivative of every
+	 * activity, evaluating the hyperbolic tangent only once per activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @param derivatives receives the derivative of the activation function.
+	 * @since 2.0
+	 */
+	public void activateWithDerivative(double[] activities, double[] outputs, double[] derivatives)
+	{
+		for(int index = 0; index < activities.length; index++)
+		{
+			final double output = Math.tanh(activities[index]);
+			outputs[index] = output;
+			derivatives[index] = 1.0 - (output * output);
+		}
+	}
 }
@@ -18,13 +18,15 @@
  ******************************************************************************/
 package com.syncleus.dann.neural.activation;
 
+import java.util.Arrays;
+
 /**
  * This activation function always returns the current activity.
  *
  * @since 2.0
  * @author Syncleus, Inc.
  */
-public class IdentityActivationFunction implements ActivationFunction
+public class IdentityActivationFunction implements BulkActivationFunction
 {
 	/**
 	 * The activation function.
@@ -52,4 +54,32 @@ public class IdentityActivationFunction implements ActivationFunction
 	{
 		return 1.0;
 	}
+
+	/**
+	 * The activation function of every activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @since 2.0
+	 */
+	public void activate(double[] activities, double[] outputs)
+	{
+		System.arraycopy(activities, 0, outputs, 0, activities.length);
+	}
+
+	/**
+	 * The activation function and its derivative of every activity.
+	 *
+	 *
+	 * @param activities the current activity of each neuron.
+	 * @param outputs receives the result of the activation function.
+	 * @param derivatives receives the derivative of the activation function.
+	 * @since 2.0
+	 */
+	public void activateWithDerivative(double[] activities, double[] outputs, double[] derivatives)
+	{
+		System.arraycopy(activities, 0, outputs, 0, activities.length);
+		Arrays.fill(derivatives, 0, activities.length, 1.0);
+	}
 }
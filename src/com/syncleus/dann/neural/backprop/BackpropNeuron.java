@@ -20,7 +20,6 @@ package com.syncleus.dann.neural.backprop;
 
 import com.syncleus.dann.neural.*;
 import com.syncleus.dann.neural.activation.ActivationFunction;
-import java.util.Hashtable;
 
 
 /**
@@ -50,15 +49,6 @@ public class BackpropNeuron extends AbstractNeuron//<AbstractNeuron, BackpropNeu
 
 	private double learningRate = 0.001;
 
-	/**
-	 * A hashtable which contains the current delta train for each of the
-	 * destination synapses.
-	 *
-	 *
-	 * @since 1.0
-	 */
-	protected Hashtable<Synapse, Double> deltaTrainDestinations = new Hashtable<Synapse, Double>();
-
     // </editor-fold>
 
     // <editor-fold defaultstate="collapsed" desc="Constructors">
@@ -120,60 +110,6 @@ public class BackpropNeuron extends AbstractNeuron//<AbstractNeuron, BackpropNeu
 
     // </editor-fold>
 
-    // <editor-fold defaultstate="collapsed" desc="Topology Manipulation">
-
-    /**
-     * This method is called externally to connect to another BackpropNeuron.
-	 *
-     *
-     * @since 1.0
-     * @param outUnit The BackpropNeuron to connect to.
-	 * @throws com.syncleus.dann.InvalidConnectionTypeDannException Not
-	 * thrown, but children are allowed to throw this exception.
-     * @see com.syncleus.dann.neural.NeuronImpl#connectFrom
-     *
-	@Override
-    public SimpleSynapse connectTo(BackpropNeuron outUnit) throws InvalidConnectionTypeDannException
-    {
-		SimpleSynapse outSynapse = super.connectTo(outUnit);
-		this.deltaTrainDestinations.put(outSynapse, Double.valueOf(0.0));
-		return outSynapse;
-    }
-
-    /**
-     * Called internally to facilitate the removal of a connection.
-	 *
-     *
-     * @since 1.0
-     * @param outSynapse The incomming synapse to remove from memory.
-     * @see com.syncleus.dann.neural.Neuron#disconnectSource
-     *
-	@Override
-	protected void removeDestination(SimpleSynapse outSynapse) throws SynapseDoesNotExistDannException
-	{
-		super.removeDestination(outSynapse);
-		this.deltaTrainDestinations.remove(outSynapse);
-	}
-
-    /**
-     * Disconnects from a perticular outgoing connection.
-	 *
-     *
-     * @since 1.0
-     * @param outSynapse The outgoing synapse to disconnect from.
-     * @see com.syncleus.dann.neural.NeuronImpl#removeSource
-	 * @throws SynapseNotConnectedException Thrown if the specified synapse isnt
-	 * currently connected.
-     *
-	@Override
-	public void disconnectDestination(SimpleSynapse outSynapse) throws SynapseNotConnectedDannException
-	{
-		super.disconnectDestination(outSynapse);
-		this.deltaTrainDestinations.remove(outSynapse);
-	}*/
-
-	// </editor-fold>
-
     // <editor-fold defaultstate="collapsed" desc="Propogation">
 
     /**
@@ -191,13 +127,7 @@ public class BackpropNeuron extends AbstractNeuron//<AbstractNeuron, BackpropNeu
 		{
 			Neuron sourceNeuron = currentSynapse.getSourceNode();
 			if(sourceNeuron instanceof BackpropNeuron)
-			{
-				BackpropNeuron sourceBackpropNeuron = (BackpropNeuron) sourceNeuron;
-
-				sourceBackpropNeuron.deltaTrainDestinations.put(currentSynapse, Double.valueOf(this.deltaTrain));
-
 				currentSynapse.setWeight(currentSynapse.getWeight() + (this.deltaTrain * this.learningRate * currentSynapse.getInput()));
-			}
 		}
 
         //learn the biases new weight
@@ -215,12 +145,32 @@ public class BackpropNeuron extends AbstractNeuron//<AbstractNeuron, BackpropNeu
      */
     protected void calculateDeltaTrain()
     {
-        this.deltaTrain = 0;
-        for (Synapse currentSynapse : this.getBrain().getOutEdges(this))
-            this.deltaTrain += (currentSynapse.getWeight() * this.deltaTrainDestinations.get(currentSynapse).doubleValue());
+        this.deltaTrain = this.calculateDestinationDeltaTrain();
         this.deltaTrain *= this.activateDerivitive();
     }
 
+	/**
+	 * Sums the delta train of every destination neuron weighted by the synapse
+	 * connecting to it. Destination neurons are always back propagated before
+	 * their sources, so their delta train is read directly from the neuron
+	 * rather than being copied into this neuron first.
+	 *
+	 *
+	 * @return The weighted sum of the destination delta trains.
+	 * @since 2.0
+	 */
+	protected double calculateDestinationDeltaTrain()
+	{
+		double destinationDeltaTrain = 0.0;
+		for (Synapse currentSynapse : this.getBrain().getOutEdges(this))
+		{
+			final Neuron destinationNeuron = currentSynapse.getDestinationNode();
+			if( destinationNeuron instanceof BackpropNeuron )
+				destinationDeltaTrain += (currentSynapse.getWeight() * ((BackpropNeuron)destinationNeuron).deltaTrain);
+		}
+		return destinationDeltaTrain;
+	}
+
 
 
 	/**
@@ -235,4 +185,73 @@ public class BackpropNeuron extends AbstractNeuron//<AbstractNeuron, BackpropNeu
         return deltaTrain;
     }
     // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Compiled State">
+
+	/**
+	 * Gets the current weight of the bias input.
+	 *
+	 *
+	 * @return The current bias weight.
+	 * @since 2.0
+	 */
+	public double getBiasWeight()
+	{
+		return this.biasWeight;
+	}
+
+	/**
+	 * Sets the weight of the bias input.
+	 *
+	 *
+	 * @param biasWeight The new bias weight.
+	 * @since 2.0
+	 */
+	public void setBiasWeight(double biasWeight)
+	{
+		this.biasWeight = biasWeight;
+	}
+
+	/**
+	 * Gets the learning rate of this neuron.
+	 *
+	 *
+	 * @return The learning rate of this neuron.
+	 * @since 2.0
+	 */
+	public double getLearningRate()
+	{
+		return this.learningRate;
+	}
+
+	/**
+	 * Gets the activation function used by this neuron.
+	 *
+	 *
+	 * @return The activation function used by this neuron.
+	 * @since 2.0
+	 */
+	public ActivationFunction getActivationFunction()
+	{
+		return this.activationFunction;
+	}
+
+	/**
+	 * Restores the state of this neuron from a pass which was calculated
+	 * outside of the neuron, such as by a compiled network. The output is
+	 * also set on all outgoing synapses as it would be by propagate.
+	 *
+	 *
+	 * @param activity The activity calculated for this neuron.
+	 * @param output The output calculated for this neuron.
+	 * @param deltaTrain The delta train calculated for this neuron.
+	 * @since 2.0
+	 */
+	public void setPropagationState(double activity, double output, double deltaTrain)
+	{
+		this.activity = activity;
+		this.deltaTrain = deltaTrain;
+		this.setOutput(output);
+	}
+    // </editor-fold>
 }
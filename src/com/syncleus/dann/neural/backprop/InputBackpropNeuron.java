@@ -107,6 +107,18 @@ public class InputBackpropNeuron extends BackpropNeuron implements InputNeuron
         this.input = inputToSet;
     }
 
+	/**
+	 * Gets the current input on the neuron.
+	 *
+	 *
+	 * @return The current input.
+	 * @since 2.0
+	 */
+	public double getInput()
+	{
+		return this.input;
+	}
+
 
 
     /**
@@ -104,6 +104,18 @@ public class OutputBackpropNeuron extends BackpropNeuron implements OutputNeuron
         this.desired = trainingToSet;
     }
 
+	/**
+	 * Gets the expected output this neuron is currently learning from.
+	 *
+	 *
+	 * @return The current desired output.
+	 * @since 2.0
+	 */
+	public double getDesired()
+	{
+		return this.desired;
+	}
+
 
 
     /**
@@ -116,9 +128,7 @@ public class OutputBackpropNeuron extends BackpropNeuron implements OutputNeuron
 	@Override
     protected void calculateDeltaTrain()
     {
-        this.deltaTrain = 0;
-        for (Synapse currentSynapse : super.getBrain().getOutEdges(this))
-			this.deltaTrain += (currentSynapse.getWeight() * this.deltaTrainDestinations.get(currentSynapse).doubleValue());
+        this.deltaTrain = this.calculateDestinationDeltaTrain();
 
         this.deltaTrain += (this.desired - this.getOutput());
 
@@ -18,7 +18,9 @@
  ******************************************************************************/
 package com.syncleus.dann.neural.backprop.brain;
 
-import com.syncleus.dann.neural.AbstractLocalBrain;
+import com.syncleus.dann.neural.*;
+import com.syncleus.dann.neural.backprop.OutputBackpropNeuron;
+import java.util.*;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public abstract class AbstractBackpropBrain extends AbstractLocalBrain
@@ -47,4 +49,62 @@ public abstract class AbstractBackpropBrain extends AbstractLocalBrain
 
 	public abstract void propagate();
 	public abstract void backPropagate();
+
+	/**
+	 * Trains the brain against an entire batch of samples. Implementations
+	 * which can should override this to apply a single weight update for the
+	 * batch rather than one per sample, and define the order of the values
+	 * within each sample.<br/>
+	 * <br/>
+	 * The default implementation propagates and back propagates each sample
+	 * in turn, so the weights are updated once per sample. The values of a
+	 * sample are ordered as the brain's input and output neurons are
+	 * iterated, and every output neuron must be an OutputBackpropNeuron.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @return the mean squared error of the batch, each sample measured
+	 * before its own update.
+	 * @since 2.0
+	 */
+	public double trainBatch(final double[][] inputs, final double[][] desired)
+	{
+		if( inputs.length != desired.length )
+			throw new IllegalArgumentException("inputs and desired must have the same number of samples");
+		if( inputs.length <= 0 )
+			throw new IllegalArgumentException("batch must contain atleast one sample");
+
+		final List<InputNeuron> inputNeurons = new ArrayList<InputNeuron>(this.getInputNeurons());
+		final List<OutputBackpropNeuron> outputNeurons = new ArrayList<OutputBackpropNeuron>(this.getOutputNeurons().size());
+		for(OutputNeuron outputNeuron : this.getOutputNeurons())
+		{
+			if( !(outputNeuron instanceof OutputBackpropNeuron) )
+				throw new IllegalStateException("all output neurons must be OutputBackpropNeurons");
+			outputNeurons.add((OutputBackpropNeuron) outputNeuron);
+		}
+
+		double squaredError = 0.0;
+		for(int sampleIndex = 0; sampleIndex < inputs.length; sampleIndex++)
+		{
+			if( inputs[sampleIndex].length != inputNeurons.size() )
+				throw new IllegalArgumentException("inputs must have one value for each input neuron");
+			if( desired[sampleIndex].length != outputNeurons.size() )
+				throw new IllegalArgumentException("desired must have one value for each output neuron");
+
+			for(int inputIndex = 0; inputIndex < inputNeurons.size(); inputIndex++)
+				inputNeurons.get(inputIndex).setInput(inputs[sampleIndex][inputIndex]);
+			this.propagate();
+
+			for(int outputIndex = 0; outputIndex < outputNeurons.size(); outputIndex++)
+			{
+				final OutputBackpropNeuron outputNeuron = outputNeurons.get(outputIndex);
+				final double error = desired[sampleIndex][outputIndex] - outputNeuron.getOutput();
+				squaredError += error * error;
+				outputNeuron.setDesired(desired[sampleIndex][outputIndex]);
+			}
+			this.backPropagate();
+		}
+
+		return squaredError / inputs.length;
+	}
 }
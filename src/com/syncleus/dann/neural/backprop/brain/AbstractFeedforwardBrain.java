@@ -19,8 +19,11 @@
 package com.syncleus.dann.neural.backprop.brain;
 
 import com.syncleus.dann.*;
+import com.syncleus.dann.dataprocessing.sample.*;
+import com.syncleus.dann.metrics.*;
 import com.syncleus.dann.neural.NeuronGroup;
 import com.syncleus.dann.neural.backprop.*;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import org.apache.log4j.Logger;
@@ -29,71 +32,120 @@ public abstract class AbstractFeedforwardBrain extends AbstractBackpropBrain
 {
 	private boolean initialized = false;
 	private final List<NeuronGroup<BackpropNeuron>> neuronLayers = new ArrayList<NeuronGroup<BackpropNeuron>>();
+	private final List<List<BackpropNeuron>> createdLayers = new ArrayList<List<BackpropNeuron>>();
 	private int layerCount;
+	private CompiledFeedforwardNetwork compiledNetwork = null;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int grainSize = DEFAULT_GRAIN_SIZE;
+	private int inlineThreshold = DEFAULT_GRAIN_SIZE;
+	private transient volatile BackpropNeuron[][] scheduledLayers = null;
+	private transient int[] scheduledNeuronWork = null;
+	private final Object scheduleLock = new Object();
+	private volatile long weightVersion = 0;
+	private transient volatile InferenceSnapshot inferenceSnapshot = null;
+	private final Object inferenceLock = new Object();
+
+	/**
+	 * The default number of synapses processed by a single task.
+	 *
+	 * @since 2.0
+	 */
+	public static final int DEFAULT_GRAIN_SIZE = 4096;
 	private final static Logger LOGGER = Logger.getLogger(AbstractFeedforwardBrain.class);
 
+	//brains with the same thread count share a pool so creating a brain
+	//does not leave behind a pool which is never shut down
+	private final static ConcurrentMap<Integer, ForkJoinPool> FORK_JOIN_POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
 
 
-	private static class Propagate implements Runnable
-	{
-		private final BackpropNeuron neuron;
-		private final static Logger LOGGER = Logger.getLogger(Propagate.class);
 
-		public Propagate(BackpropNeuron neuron)
-		{
-			this.neuron = neuron;
-		}
+	/**
+	 * A read-only copy of the weights together with the weight version it was
+	 * copied at, published as one reference so the two are always seen
+	 * together.
+	 */
+	private static final class InferenceSnapshot
+	{
+		private final CompiledFeedforwardNetwork network;
+		private final long version;
 
-		public void run()
+		public InferenceSnapshot(CompiledFeedforwardNetwork network, long version)
 		{
-			try
-			{
-				this.neuron.propagate();
-			}
-			catch(Exception caught)
-			{
-				LOGGER.error("Throwable caught!", caught);
-				throw new DannRuntimeException("Throwable exception caught in Propagate", caught);
-			}
-			catch(Error caught)
-			{
-				LOGGER.error("Throwable caught!", caught);
-				throw new Error("Throwable exception caught in Propagate", caught);
-			}
+			this.network = network;
+			this.version = version;
 		}
 	}
 
-	private static class BackPropagate implements Runnable
+	/**
+	 * Processes a contiguous chunk of the neurons in a layer. Chunks larger
+	 * than the grain are split in half and forked until each chunk is small
+	 * enough to be processed directly.
+	 */
+	private static class LayerTask extends RecursiveAction
 	{
-		private final BackpropNeuron neuron;
-		private final static Logger LOGGER = Logger.getLogger(BackPropagate.class);
+		private static final long serialVersionUID = 1L;
+
+		private final BackpropNeuron[] neurons;
+		private final int start;
+		private final int end;
+		private final int neuronsPerChunk;
+		private final boolean backward;
+		private final static Logger LOGGER = Logger.getLogger(LayerTask.class);
+
+		public LayerTask(BackpropNeuron[] neurons, int start, int end, int neuronsPerChunk, boolean backward)
+		{
+			this.neurons = neurons;
+			this.start = start;
+			this.end = end;
+			this.neuronsPerChunk = neuronsPerChunk;
+			this.backward = backward;
+		}
 
-		public BackPropagate(BackpropNeuron neuron)
+		@Override
+		protected void compute()
 		{
-			this.neuron = neuron;
+			if( (this.end - this.start) <= this.neuronsPerChunk )
+			{
+				processLayer(this.neurons, this.start, this.end, this.backward);
+				return;
+			}
+
+			final int middle = (this.start + this.end) >>> 1;
+			invokeAll(new LayerTask(this.neurons, this.start, middle, this.neuronsPerChunk, this.backward),
+					  new LayerTask(this.neurons, middle, this.end, this.neuronsPerChunk, this.backward));
 		}
 
-		public void run()
+		static void processLayer(BackpropNeuron[] neurons, int start, int end, boolean backward)
 		{
 			try
 			{
-				this.neuron.backPropagate();
+				for(int neuronIndex = start; neuronIndex < end; neuronIndex++)
+				{
+					if( backward )
+						neurons[neuronIndex].backPropagate();
+					else
+						neurons[neuronIndex].propagate();
+				}
 			}
 			catch(Exception caught)
 			{
 				LOGGER.error("Throwable caught!", caught);
-				throw new DannRuntimeException("Throwable exception caught in Propagate", caught);
+				throw new DannRuntimeException("Throwable exception caught in LayerTask", caught);
 			}
 			catch(Error caught)
 			{
 				LOGGER.error("Throwable caught!", caught);
-				throw new DannRuntimeException("Throwable exception caught in Propagate", caught);
+				throw new Error("Throwable exception caught in LayerTask", caught);
 			}
 		}
 	}
 
 	/**
-	 * Uses the given threadExecutor for executing tasks.
+	 * Uses the given threadExecutor for executing batch training tasks. Layers
+	 * are propagated on a shared ForkJoinPool rather than on the executor, so
+	 * the executor only sizes propagation: the thread count starts at the
+	 * maximum pool size of the executor, capped at the number of processors,
+	 * and a single threaded executor keeps propagation on the calling thread.
 	 *
 	 * @param neuronsPerLayer an array of the count of neurons in each layer.
 	 * Each element of the array represents the count of neurons for that
@@ -101,10 +153,13 @@ public abstract class AbstractFeedforwardBrain extends AbstractBackpropBrain
 	 * layer (length - 1) is the output layer.
 	 * @param threadExecutor executor to use for executing tasks.
 	 * @since 2.0
+	 * @see #setThreadCount
 	 */
 	public AbstractFeedforwardBrain(ThreadPoolExecutor threadExecutor)
 	{
 		super(threadExecutor);
+		if( threadExecutor != null )
+			this.threadCount = Math.min(threadExecutor.getMaximumPoolSize(), Runtime.getRuntime().availableProcessors());
 	}
 
 	/**
@@ -134,15 +189,18 @@ public abstract class AbstractFeedforwardBrain extends AbstractBackpropBrain
 		for(int neuronCount : neuronsPerLayer)
 		{
 			final NeuronGroup<BackpropNeuron> currentGroup = new NeuronGroup<BackpropNeuron>();
+			final List<BackpropNeuron> currentLayer = new ArrayList<BackpropNeuron>(neuronCount);
 			for(int neuronIndex = 0; neuronIndex < neuronCount; neuronIndex++)
 			{
 				final BackpropNeuron currentNeuron = this.createNeuron(currentLayerCount, neuronIndex);
 
 				currentGroup.add(currentNeuron);
+				currentLayer.add(currentNeuron);
 				this.add(currentNeuron);
 			}
 
 			this.getNeuronLayers().add(currentGroup);
+			this.createdLayers.add(currentLayer);
 
 			currentLayerCount++;
 		}
@@ -151,7 +209,9 @@ public abstract class AbstractFeedforwardBrain extends AbstractBackpropBrain
 	}
 
 	/**
-	 * Gets the neuronLayers for children to use for connection.
+	 * Gets the neuronLayers for children to use for connection. The neurons
+	 * of each layer are captured the first time the brain is propagated or
+	 * compiled, so the layers should not be changed after that.
 	 *
 	 * @return the neuronLayers for children to use for connection.
 	 * @since 2.0
@@ -169,75 +229,494 @@ public abstract class AbstractFeedforwardBrain extends AbstractBackpropBrain
 		return layerCount;
 	}
 
-	public final void propagate()
+	/**
+	 * Freezes the topology of this brain into a CompiledFeedforwardNetwork.
+	 * While compiled, propagate and backPropagate are executed by the compiled
+	 * network against dense arrays. Only the output neurons are kept up to
+	 * date during compiled passes; the weights and state of every other neuron
+	 * and synapse are written back when synchronize or decompile is called.
+	 * The topology must not change while the brain is compiled.
+	 *
+	 * @return the compiled network now backing this brain.
+	 * @throws IllegalStateException if the brain is not made up of fully
+	 * connected layers which each share a single activation function.
+	 * @since 2.0
+	 */
+	public final CompiledFeedforwardNetwork compile()
 	{
 		if(!this.initialized)
 			throw new IllegalStateException("An implementation of AbstractFeedforwardBrain did not initialize network");
 
-		//step forward through all the layers, except the last (output)
-		for(int layerIndex = 0; layerIndex < (this.neuronLayers.size()); layerIndex++)
+		if( this.compiledNetwork == null )
 		{
-			final NeuronGroup<BackpropNeuron> layer = this.neuronLayers.get(layerIndex);
-			final Set<BackpropNeuron> layerNeurons = layer.getChildrenNeuronsRecursivly();
+			this.compiledNetwork = new CompiledFeedforwardNetwork(this, this.getLayerLists());
+		}
+		return this.compiledNetwork;
+	}
 
-			//begin processing all neurons in one layer simultaniously
-			final ArrayList<Future> futures = new ArrayList<Future>();
-			for(BackpropNeuron neuron : layerNeurons)
-				futures.add(this.getThreadExecutor().submit(new Propagate(neuron)));
+	/**
+	 * Determines if this brain is currently backed by a compiled network.
+	 *
+	 * @return true if the brain is compiled, false otherwise.
+	 * @since 2.0
+	 */
+	public final boolean isCompiled()
+	{
+		return (this.compiledNetwork != null);
+	}
 
-			//wait until all neurons have propogated
-			try
-			{
-				for(Future future : futures)
-					future.get();
-			}
-			catch(InterruptedException caught)
-			{
-				LOGGER.error("Propagate was unexpectidy interupted", caught);
-				throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
-			}
-			catch(ExecutionException caught)
-			{
-				LOGGER.error("Propagate had an unexcepted problem executing.", caught);
-				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
-			}
+	/**
+	 * Writes the weights and state of the compiled network back into the
+	 * neurons and synapses of this brain. The brain remains compiled.
+	 *
+	 * @throws IllegalStateException if the brain is not compiled.
+	 * @since 2.0
+	 */
+	public final void synchronize()
+	{
+		if( this.compiledNetwork == null )
+			throw new IllegalStateException("brain is not compiled");
+		this.beginWeightUpdate();
+		try
+		{
+			this.compiledNetwork.synchronize();
+		}
+		finally
+		{
+			this.endWeightUpdate();
+		}
+	}
 
+	/**
+	 * Synchronizes the compiled network back into this brain and returns to
+	 * propagating through the neurons themselves. Does nothing if the brain is
+	 * not compiled.
+	 *
+	 * @since 2.0
+	 */
+	public final void decompile()
+	{
+		if( this.compiledNetwork == null )
+			return;
+		this.beginWeightUpdate();
+		try
+		{
+			this.compiledNetwork.synchronize();
+			this.compiledNetwork = null;
+		}
+		finally
+		{
+			this.endWeightUpdate();
 		}
 	}
 
+	/**
+	 * Marks the start of a change to the weights. The weight version is odd
+	 * for as long as the change is in progress so inference never caches a
+	 * snapshot copied from partially updated weights.
+	 */
+	private void beginWeightUpdate()
+	{
+		this.weightVersion++;
+	}
+
+	/**
+	 * Marks the end of a change to the weights, making the version even
+	 * again.
+	 */
+	private void endWeightUpdate()
+	{
+		this.weightVersion++;
+	}
+
+	public final void propagate()
+	{
+		if(!this.initialized)
+			throw new IllegalStateException("An implementation of AbstractFeedforwardBrain did not initialize network");
+
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		if( this.compiledNetwork != null )
+			this.compiledNetwork.propagateNeurons();
+		else
+		{
+			//step forward through all the layers, each layer completes before
+			//the next begins
+			final BackpropNeuron[][] layers = this.getScheduledLayers();
+			for(int layerIndex = 0; layerIndex < layers.length; layerIndex++)
+				this.processLayer(layerIndex, false);
+		}
+
+		if( listener != null )
+			listener.phaseCompleted(this, TrainingPhase.PROPAGATE, System.nanoTime() - startTime);
+	}
+
 	public final void backPropagate()
 	{
 		if(!this.initialized)
 			throw new IllegalStateException("An implementation of AbstractFeedforwardBrain did not initialize network");
-		
-		//step backwards through all the layers, except the first.
-		for(int layerIndex = (this.neuronLayers.size()-1); layerIndex >= 0 ; layerIndex--)
+
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		this.beginWeightUpdate();
+		try
+		{
+			if( this.compiledNetwork != null )
+				this.compiledNetwork.backPropagateNeurons();
+			else
+			{
+				//step backwards through all the layers, each layer completes
+				//before the previous begins
+				final BackpropNeuron[][] layers = this.getScheduledLayers();
+				for(int layerIndex = (layers.length - 1); layerIndex >= 0 ; layerIndex--)
+					this.processLayer(layerIndex, true);
+			}
+		}
+		finally
 		{
-			final NeuronGroup<BackpropNeuron> layer = this.neuronLayers.get(layerIndex);
-			final Set<BackpropNeuron> layerNeurons = layer.getChildrenNeuronsRecursivly();
+			this.endWeightUpdate();
+		}
 
-			//begin processing all neurons in one layer simultaniously
-			final ArrayList<Future> futures = new ArrayList<Future>();
-			for(BackpropNeuron neuron : layerNeurons)
-				futures.add(this.getThreadExecutor().submit(new BackPropagate(neuron)));
+		if( listener != null )
+			listener.phaseCompleted(this, TrainingPhase.BACKPROPAGATE, System.nanoTime() - startTime);
+	}
 
-			//wait until all neurons have backPropogated
-			try
+	private void processLayer(final int layerIndex, final boolean backward)
+	{
+		final BackpropNeuron[] layer = this.scheduledLayers[layerIndex];
+		final int neuronWork = this.scheduledNeuronWork[layerIndex];
+
+		//small layers are not worth the overhead of scheduling
+		if( (this.threadCount <= 1) || (((long) neuronWork * layer.length) <= this.inlineThreshold) )
+		{
+			LayerTask.processLayer(layer, 0, layer.length, backward);
+			return;
+		}
+
+		final int neuronsPerChunk = Math.max(1, this.grainSize / neuronWork);
+		getForkJoinPool(this.threadCount).invoke(new LayerTask(layer, 0, layer.length, neuronsPerChunk, backward));
+	}
+
+	private BackpropNeuron[][] getScheduledLayers()
+	{
+		BackpropNeuron[][] layers = this.scheduledLayers;
+		if( layers != null )
+			return layers;
+
+		synchronized(this.scheduleLock)
+		{
+			if( this.scheduledLayers != null )
+				return this.scheduledLayers;
+
+			layers = new BackpropNeuron[this.neuronLayers.size()][];
+			final int[] neuronWork = new int[layers.length];
+			for(int layerIndex = 0; layerIndex < layers.length; layerIndex++)
 			{
-				for(Future future : futures)
-					future.get();
+				//neurons are ordered as they were created so chunks, and the
+				//order of any sums across them, are the same on every run
+				final Set<BackpropNeuron> groupNeurons = this.neuronLayers.get(layerIndex).getChildrenNeuronsRecursivly();
+				final Set<BackpropNeuron> orderedNeurons = new LinkedHashSet<BackpropNeuron>(groupNeurons.size());
+				if( layerIndex < this.createdLayers.size() )
+				{
+					orderedNeurons.addAll(this.createdLayers.get(layerIndex));
+					orderedNeurons.retainAll(groupNeurons);
+				}
+				orderedNeurons.addAll(groupNeurons);
+				layers[layerIndex] = orderedNeurons.toArray(new BackpropNeuron[orderedNeurons.size()]);
+
+				//estimate the work of a neuron as the synapses it must visit
+				long synapseCount = 0;
+				for(BackpropNeuron neuron : layers[layerIndex])
+					synapseCount += this.getIndegree(neuron) + this.getOutdegree(neuron);
+				neuronWork[layerIndex] = (int) Math.max(1L, synapseCount / Math.max(1, layers[layerIndex].length));
 			}
-			catch(InterruptedException caught)
+			this.scheduledNeuronWork = neuronWork;
+			this.scheduledLayers = layers;
+			return layers;
+		}
+	}
+
+	private List<List<BackpropNeuron>> getLayerLists()
+	{
+		final BackpropNeuron[][] layers = this.getScheduledLayers();
+		final List<List<BackpropNeuron>> layerLists = new ArrayList<List<BackpropNeuron>>(layers.length);
+		for(BackpropNeuron[] layer : layers)
+			layerLists.add(Arrays.asList(layer));
+		return layerLists;
+	}
+
+	private static ForkJoinPool getForkJoinPool(final int parallelism)
+	{
+		final Integer key = Integer.valueOf(parallelism);
+		final ForkJoinPool pool = FORK_JOIN_POOLS.get(key);
+		if( pool != null )
+			return pool;
+
+		final ForkJoinPool createdPool = new ForkJoinPool(parallelism);
+		final ForkJoinPool existingPool = FORK_JOIN_POOLS.putIfAbsent(key, createdPool);
+		if( existingPool == null )
+			return createdPool;
+		createdPool.shutdown();
+		return existingPool;
+	}
+
+	/**
+	 * Gets the number of threads used to process the neurons of a layer.
+	 *
+	 * @return the number of threads used to process a layer.
+	 * @since 2.0
+	 */
+	public final int getThreadCount()
+	{
+		return this.threadCount;
+	}
+
+	/**
+	 * Sets the number of threads used to process the neurons of a layer. A
+	 * thread count of 1 processes every layer on the calling thread. Brains
+	 * with the same thread count share one fork/join pool.
+	 *
+	 * @param threadCount the number of threads used to process a layer.
+	 * @since 2.0
+	 */
+	public final void setThreadCount(final int threadCount)
+	{
+		if( threadCount <= 0 )
+			throw new IllegalArgumentException("threadCount must be greater than 0");
+
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Gets the number of synapses a single task processes before a layer is
+	 * split into another task.
+	 *
+	 * @return the grain size in synapses.
+	 * @since 2.0
+	 */
+	public final int getGrainSize()
+	{
+		return this.grainSize;
+	}
+
+	/**
+	 * Sets the number of synapses a single task processes before a layer is
+	 * split into another task. Chunks should be small enough for their
+	 * synapses to stay in cache but large enough to outweigh the cost of
+	 * forking a task.
+	 *
+	 * @param grainSize the grain size in synapses.
+	 * @since 2.0
+	 */
+	public final void setGrainSize(final int grainSize)
+	{
+		if( grainSize <= 0 )
+			throw new IllegalArgumentException("grainSize must be greater than 0");
+		this.grainSize = grainSize;
+	}
+
+	/**
+	 * Gets the number of synapses below which a layer is processed on the
+	 * calling thread instead of being scheduled.
+	 *
+	 * @return the inline threshold in synapses.
+	 * @since 2.0
+	 */
+	public final int getInlineThreshold()
+	{
+		return this.inlineThreshold;
+	}
+
+	/**
+	 * Sets the number of synapses below which a layer is processed on the
+	 * calling thread instead of being scheduled.
+	 *
+	 * @param inlineThreshold the inline threshold in synapses.
+	 * @since 2.0
+	 */
+	public final void setInlineThreshold(final int inlineThreshold)
+	{
+		if( inlineThreshold < 0 )
+			throw new IllegalArgumentException("inlineThreshold can not be negative");
+		this.inlineThreshold = inlineThreshold;
+	}
+
+	/**
+	 * Propagates a batch of input vectors without touching the state of any
+	 * neuron. The inputs are evaluated against a read-only snapshot of the
+	 * weights which is refreshed the first time it is needed after the brain
+	 * is trained through propagate and backPropagate, trainBatch, synchronize
+	 * or decompile. Weights changed directly through a compiled network are
+	 * not seen until one of those happens.<br/>
+	 * <br/>
+	 * Any number of threads may infer at once, only refreshing the snapshot
+	 * is serialized. Inference concurrent with training may be evaluated
+	 * against weights which are partially updated, but such a snapshot is
+	 * only used for that call and is never cached.
+	 *
+	 * @param inputs the input values of each sample, ordered as the input
+	 * neurons of the compiled network.
+	 * @return the output values of each sample, ordered as the output neurons
+	 * of the compiled network.
+	 * @since 2.0
+	 */
+	public final double[][] infer(final double[][] inputs)
+	{
+		if(!this.initialized)
+			throw new IllegalStateException("An implementation of AbstractFeedforwardBrain did not initialize network");
+
+		final InferenceSnapshot cached = this.inferenceSnapshot;
+		if( (cached != null) && (cached.version == this.weightVersion) )
+			return cached.network.infer(inputs);
+
+		CompiledFeedforwardNetwork snapshot;
+		synchronized(this.inferenceLock)
+		{
+			final long version = this.weightVersion;
+			final InferenceSnapshot current = this.inferenceSnapshot;
+			if( (current != null) && (current.version == version) )
+				snapshot = current.network;
+			else
 			{
-				LOGGER.error("BackPropagate was unexpectidy interupted", caught);
-				throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+				final CompiledFeedforwardNetwork source = this.compiledNetwork;
+				if( source != null )
+					snapshot = source.snapshot();
+				else
+					snapshot = new CompiledFeedforwardNetwork(this, this.getLayerLists()).snapshot();
+
+				//only cache the snapshot if no update was in progress or
+				//started while the weights were copied
+				if( ((version & 1L) == 0L) && (version == this.weightVersion) )
+					this.inferenceSnapshot = new InferenceSnapshot(snapshot, version);
 			}
-			catch(ExecutionException caught)
+		}
+
+		return snapshot.infer(inputs);
+	}
+
+	/**
+	 * Trains the brain against an entire batch of samples using the compiled
+	 * form of the brain. The batch is split into one share per thread of the
+	 * brain and the shares are accumulated on this brain's thread executor.
+	 * If the brain is not already compiled it is compiled for the duration of
+	 * the batch and then decompiled.
+	 *
+	 * @param inputs the input values of each sample, ordered as the input
+	 * neurons of the compiled network.
+	 * @param desired the desired output values of each sample, ordered as the
+	 * output neurons of the compiled network.
+	 * @return the mean squared error of the batch before the update.
+	 * @since 2.0
+	 * @see com.syncleus.dann.neural.backprop.brain.CompiledFeedforwardNetwork#trainBatch(double[][], double[][], ExecutorService, int)
+	 */
+	public final double trainBatch(final double[][] inputs, final double[][] desired)
+	{
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		final boolean wasCompiled = this.isCompiled();
+		final double error;
+		this.beginWeightUpdate();
+		try
+		{
+			error = this.compile().trainBatch(inputs, desired, this.getThreadExecutor(), this.threadCount);
+		}
+		finally
+		{
+			this.endWeightUpdate();
+			if( !wasCompiled )
+				this.decompile();
+		}
+
+		if( listener != null )
+		{
+			final long elapsed = System.nanoTime() - startTime;
+			listener.phaseCompleted(this, TrainingPhase.BATCH, elapsed);
+			listener.epochCompleted(this, inputs.length, error, elapsed);
+		}
+		return error;
+	}
+
+	/**
+	 * Trains the brain against every remaining row of the current epoch of a
+	 * sample source, a batch of rows at a time. The features of each row are
+	 * the inputs and its label is the desired value of the single output
+	 * neuron. The rows are copied into arrays allocated once per call, so the
+	 * source may be far larger than the heap. If the brain is not already
+	 * compiled it is compiled for the duration of the call and then
+	 * decompiled.
+	 *
+	 * @param source the source of the rows.
+	 * @param batchSize the number of rows in each batch.
+	 * @return the mean squared error of the rows, each measured before the
+	 * update of its batch, or 0 if no rows remained.
+	 * @throws IOException if a row can not be read.
+	 * @since 2.0
+	 * @see com.syncleus.dann.dataprocessing.sample.BlockSampleSource
+	 */
+	public final double trainBatches(final SampleSource source, final int batchSize) throws IOException
+	{
+		if( batchSize <= 0 )
+			throw new IllegalArgumentException("batchSize must be greater than 0");
+
+		final boolean wasCompiled = this.isCompiled();
+		final CompiledFeedforwardNetwork network = this.compile();
+		try
+		{
+			if( network.getLayerSize(0) != source.getFeatureCount() )
+				throw new IllegalArgumentException("source must have one feature per input neuron");
+			if( network.getLayerSize(network.getLayerCount() - 1) != 1 )
+				throw new IllegalStateException("the brain must have a single output neuron");
+
+			final MetricsListener listener = this.getMetricsListener();
+			final long startTime = ( listener == null ? 0L : System.nanoTime() );
+			final double[][] inputs = new double[batchSize][source.getFeatureCount()];
+			final double[][] desired = new double[batchSize][1];
+			double squaredError = 0.0;
+			long rowCount = 0;
+			boolean remaining = true;
+			while( remaining )
 			{
-				LOGGER.error("BackPropagate had an unexcepted problem executing.", caught);
-				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+				int batchRows = 0;
+				while( (batchRows < batchSize) && (remaining = source.next()) )
+				{
+					final SampleRow row = source.getRow();
+					row.copyFeatures(inputs[batchRows]);
+					desired[batchRows][0] = row.getLabel();
+					batchRows++;
+				}
+				if( batchRows == 0 )
+					break;
+
+				//only the last batch of an epoch can be short
+				final double[][] batchInputs = ( batchRows == batchSize ? inputs : Arrays.copyOf(inputs, batchRows) );
+				final double[][] batchDesired = ( batchRows == batchSize ? desired : Arrays.copyOf(desired, batchRows) );
+				final long batchStartTime = ( listener == null ? 0L : System.nanoTime() );
+				this.beginWeightUpdate();
+				try
+				{
+					squaredError += network.trainBatch(batchInputs, batchDesired, this.getThreadExecutor(), this.threadCount) * batchRows;
+				}
+				finally
+				{
+					this.endWeightUpdate();
+				}
+				rowCount += batchRows;
+				if( listener != null )
+					listener.phaseCompleted(this, TrainingPhase.BATCH, System.nanoTime() - batchStartTime);
 			}
 
+			final double meanSquaredError = ( rowCount == 0 ? 0.0 : squaredError / rowCount );
+			if( listener != null )
+				listener.epochCompleted(this, rowCount, meanSquaredError, System.nanoTime() - startTime);
+			return meanSquaredError;
+		}
+		finally
+		{
+			if( !wasCompiled )
+				this.decompile();
 		}
 	}
 
@@ -0,0 +1,1030 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.*;
+import com.syncleus.dann.neural.*;
+import com.syncleus.dann.neural.activation.*;
+import com.syncleus.dann.neural.backprop.*;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * A layered feedforward network whose topology has been frozen into dense
+ * arrays. Each layer holds a row-major weight matrix (one row per neuron, one
+ * column per neuron of the previous layer), a bias vector and a learning rate
+ * vector. Propagation and back propagation are simple loops over these arrays
+ * and calculate the same values as the neurons of the brain the network was
+ * compiled from would.<br/>
+ * <br/>
+ * A compiled network remembers the neurons and synapses it was compiled from
+ * so its weights can be written back into the brain with synchronize. A
+ * snapshot of a compiled network is detached from the brain and only holds a
+ * copy of the weights.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.backprop.brain.AbstractFeedforwardBrain#compile
+ */
+public class CompiledFeedforwardNetwork implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The per pass buffers of a compiled network. Weights are shared, but each
+	 * concurrent pass must use its own workspace.
+	 *
+	 * @since 2.0
+	 */
+	static final class Workspace implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		final double[][] activities;
+		final double[][] outputs;
+		final double[][] derivatives;
+		final double[][] deltas;
+		boolean inputDerivativesCalculated = false;
+
+		Workspace(final int[] layerSizes)
+		{
+			this.activities = new double[layerSizes.length][];
+			this.outputs = new double[layerSizes.length][];
+			this.derivatives = new double[layerSizes.length][];
+			this.deltas = new double[layerSizes.length][];
+			for(int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++)
+			{
+				this.activities[layerIndex] = new double[layerSizes[layerIndex]];
+				this.outputs[layerIndex] = new double[layerSizes[layerIndex]];
+				this.derivatives[layerIndex] = new double[layerSizes[layerIndex]];
+				this.deltas[layerIndex] = new double[layerSizes[layerIndex]];
+			}
+		}
+	}
+
+	/**
+	 * Accumulates the gradient of a share of a batch. Each worker of a batch
+	 * uses its own gradient so no synchronization is needed until the
+	 * gradients are reduced.
+	 *
+	 * @since 2.0
+	 */
+	static final class Gradient
+	{
+		final double[][] weights;
+		final double[][] biases;
+		final Workspace workspace;
+		double squaredError;
+
+		Gradient(final int[] layerSizes)
+		{
+			this.weights = new double[layerSizes.length][];
+			this.biases = new double[layerSizes.length][];
+			this.weights[0] = new double[0];
+			this.biases[0] = new double[0];
+			for(int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++)
+			{
+				this.weights[layerIndex] = new double[layerSizes[layerIndex] * layerSizes[layerIndex - 1]];
+				this.biases[layerIndex] = new double[layerSizes[layerIndex]];
+			}
+			this.workspace = new Workspace(layerSizes);
+		}
+
+		void clear()
+		{
+			for(int layerIndex = 1; layerIndex < this.weights.length; layerIndex++)
+			{
+				Arrays.fill(this.weights[layerIndex], 0.0);
+				Arrays.fill(this.biases[layerIndex], 0.0);
+			}
+			this.squaredError = 0.0;
+		}
+	}
+
+	private final int[] layerSizes;
+	private final ActivationFunction[] activationFunctions;
+	private final double[][] weights;
+	private final double[][] biases;
+	private final double[][] learningRates;
+	private final Workspace workspace;
+
+	private final List<List<BackpropNeuron>> neurons;
+	private final Synapse[][] synapses;
+
+	private transient List<Gradient> gradients;
+	private final static Logger LOGGER = Logger.getLogger(CompiledFeedforwardNetwork.class);
+
+	private static class AccumulateGradient implements Callable<Gradient>
+	{
+		private final CompiledFeedforwardNetwork network;
+		private final Gradient gradient;
+		private final double[][] inputs;
+		private final double[][] desired;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(AccumulateGradient.class);
+
+		public AccumulateGradient(CompiledFeedforwardNetwork network, Gradient gradient, double[][] inputs, double[][] desired, int start, int end)
+		{
+			this.network = network;
+			this.gradient = gradient;
+			this.inputs = inputs;
+			this.desired = desired;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Gradient call()
+		{
+			try
+			{
+				this.gradient.clear();
+				for(int sampleIndex = this.start; sampleIndex < this.end; sampleIndex++)
+					this.network.accumulateGradient(this.gradient, this.inputs[sampleIndex], this.desired[sampleIndex]);
+				return this.gradient;
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in AccumulateGradient", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in AccumulateGradient", caught);
+			}
+		}
+	}
+
+	/**
+	 * Compiles the given layers of neurons. Each layer must be fully connected
+	 * to the layer before it, and only to that layer. All the neurons of a
+	 * layer must share the same activation function. The first layer must
+	 * consist of InputBackpropNeurons and the last layer of
+	 * OutputBackpropNeurons.
+	 *
+	 * @param brain The brain which contains the layers.
+	 * @param layers The neurons of each layer in the order they will be
+	 * indexed by the compiled network.
+	 * @since 2.0
+	 */
+	CompiledFeedforwardNetwork(final Brain brain, final List<List<BackpropNeuron>> layers)
+	{
+		if( layers.size() < 2 )
+			throw new IllegalArgumentException("layers must have atleast 2 elements");
+
+		final int layerCount = layers.size();
+		this.layerSizes = new int[layerCount];
+		this.activationFunctions = new ActivationFunction[layerCount];
+		this.weights = new double[layerCount][];
+		this.biases = new double[layerCount][];
+		this.learningRates = new double[layerCount][];
+		this.synapses = new Synapse[layerCount][];
+		this.neurons = new ArrayList<List<BackpropNeuron>>(layerCount);
+
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+		{
+			final List<BackpropNeuron> layer = new ArrayList<BackpropNeuron>(layers.get(layerIndex));
+			if( layer.isEmpty() )
+				throw new IllegalStateException("layer " + layerIndex + " does not contain any neurons");
+			this.neurons.add(Collections.unmodifiableList(layer));
+			this.layerSizes[layerIndex] = layer.size();
+			this.biases[layerIndex] = new double[layer.size()];
+			this.learningRates[layerIndex] = new double[layer.size()];
+
+			this.activationFunctions[layerIndex] = layer.get(0).getActivationFunction();
+			for(int neuronIndex = 0; neuronIndex < layer.size(); neuronIndex++)
+			{
+				final BackpropNeuron neuron = layer.get(neuronIndex);
+				if( !this.activationFunctions[layerIndex].equals(neuron.getActivationFunction()) )
+					throw new IllegalStateException("all neurons in layer " + layerIndex + " must share the same activation function");
+				if( (layerIndex == 0) && !(neuron instanceof InputBackpropNeuron) )
+					throw new IllegalStateException("the first layer must only contain InputBackpropNeurons");
+				if( (layerIndex == (layerCount - 1)) && !(neuron instanceof OutputBackpropNeuron) )
+					throw new IllegalStateException("the last layer must only contain OutputBackpropNeurons");
+
+				this.biases[layerIndex][neuronIndex] = neuron.getBiasWeight();
+				this.learningRates[layerIndex][neuronIndex] = neuron.getLearningRate();
+			}
+		}
+
+		//lay out the weight matrices, one row per destination neuron
+		this.weights[0] = new double[0];
+		this.synapses[0] = new Synapse[0];
+		for(int layerIndex = 1; layerIndex < layerCount; layerIndex++)
+		{
+			final List<BackpropNeuron> sourceLayer = this.neurons.get(layerIndex - 1);
+			final List<BackpropNeuron> destinationLayer = this.neurons.get(layerIndex);
+			final int sourceCount = sourceLayer.size();
+
+			final Map<Neuron, Integer> sourceIndexes = new HashMap<Neuron, Integer>();
+			for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+				sourceIndexes.put(sourceLayer.get(sourceIndex), Integer.valueOf(sourceIndex));
+
+			this.weights[layerIndex] = new double[destinationLayer.size() * sourceCount];
+			this.synapses[layerIndex] = new Synapse[destinationLayer.size() * sourceCount];
+			for(int destinationIndex = 0; destinationIndex < destinationLayer.size(); destinationIndex++)
+			{
+				final BackpropNeuron destination = destinationLayer.get(destinationIndex);
+				final List<Synapse> inSynapses = brain.getInEdges(destination);
+				if( inSynapses.size() != sourceCount )
+					throw new IllegalStateException("layer " + layerIndex + " is not fully connected to the previous layer");
+
+				for(Synapse inSynapse : inSynapses)
+				{
+					final Integer sourceIndex = sourceIndexes.get(inSynapse.getSourceNode());
+					if( sourceIndex == null )
+						throw new IllegalStateException("layer " + layerIndex + " is connected to a neuron outside of the previous layer");
+
+					final int weightIndex = (destinationIndex * sourceCount) + sourceIndex.intValue();
+					this.weights[layerIndex][weightIndex] = inSynapse.getWeight();
+					this.synapses[layerIndex][weightIndex] = inSynapse;
+				}
+			}
+		}
+
+		this.workspace = new Workspace(this.layerSizes);
+	}
+
+	/**
+	 * Creates a detached copy of the weights of the given network.
+	 *
+	 * @param copy the network to copy.
+	 * @since 2.0
+	 */
+	private CompiledFeedforwardNetwork(final CompiledFeedforwardNetwork copy)
+	{
+		this.layerSizes = copy.layerSizes.clone();
+		this.activationFunctions = copy.activationFunctions.clone();
+		this.weights = new double[copy.weights.length][];
+		this.biases = new double[copy.biases.length][];
+		this.learningRates = new double[copy.learningRates.length][];
+		for(int layerIndex = 0; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			this.weights[layerIndex] = copy.weights[layerIndex].clone();
+			this.biases[layerIndex] = copy.biases[layerIndex].clone();
+			this.learningRates[layerIndex] = copy.learningRates[layerIndex].clone();
+		}
+		this.workspace = new Workspace(this.layerSizes);
+		this.neurons = null;
+		this.synapses = null;
+	}
+
+	/**
+	 * Creates a detached network directly from its arrays, such as when it is
+	 * read from a snapshot. The arrays are used as is rather than copied.
+	 *
+	 * @param layerSizes the number of neurons in each layer.
+	 * @param activationFunctions the activation function of each layer.
+	 * @param weights the row-major weight matrix of each layer.
+	 * @param biases the bias weights of each layer.
+	 * @param learningRates the learning rates of each layer.
+	 * @since 2.0
+	 */
+	CompiledFeedforwardNetwork(final int[] layerSizes, final ActivationFunction[] activationFunctions, final double[][] weights, final double[][] biases, final double[][] learningRates)
+	{
+		if( layerSizes.length < 2 )
+			throw new IllegalArgumentException("layerSizes must have atleast 2 elements");
+		for(int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++)
+		{
+			final int expectedWeights = ( layerIndex == 0 ? 0 : layerSizes[layerIndex] * layerSizes[layerIndex - 1] );
+			if( (layerSizes[layerIndex] <= 0) || (weights[layerIndex].length != expectedWeights) || (biases[layerIndex].length != layerSizes[layerIndex]) || (learningRates[layerIndex].length != layerSizes[layerIndex]) )
+				throw new IllegalArgumentException("arrays of layer " + layerIndex + " do not match its size");
+		}
+
+		this.layerSizes = layerSizes;
+		this.activationFunctions = activationFunctions;
+		this.weights = weights;
+		this.biases = biases;
+		this.learningRates = learningRates;
+		this.workspace = new Workspace(this.layerSizes);
+		this.neurons = null;
+		this.synapses = null;
+	}
+
+	/**
+	 * Creates a copy of the current weights of this network which is detached
+	 * from the brain. The snapshot can not be synchronized and changes to
+	 * either network do not affect the other.
+	 *
+	 * @return a detached copy of this network.
+	 * @since 2.0
+	 */
+	public final CompiledFeedforwardNetwork snapshot()
+	{
+		return new CompiledFeedforwardNetwork(this);
+	}
+
+	/**
+	 * Creates a copy of the current weights of this network stored in single
+	 * precision, for inference which is limited by memory bandwidth. The copy
+	 * takes half the memory of the weights of this network and can only be
+	 * used to propagate.
+	 *
+	 * @return a single precision copy of this network.
+	 * @since 2.0
+	 * @see com.syncleus.dann.neural.backprop.brain.FloatFeedforwardNetwork
+	 */
+	public final FloatFeedforwardNetwork toFloat()
+	{
+		return new FloatFeedforwardNetwork(this.layerSizes.clone(), this.activationFunctions.clone(), this.weights, this.biases);
+	}
+
+	/**
+	 * Determines if this network is attached to the neurons of a brain.
+	 *
+	 * @return true if the network can be synchronized with a brain, false if
+	 * it is a detached snapshot.
+	 * @since 2.0
+	 */
+	public final boolean isAttached()
+	{
+		return (this.neurons != null);
+	}
+
+	private void checkAttached()
+	{
+		if( this.neurons == null )
+			throw new IllegalStateException("network is a snapshot which is not attached to a brain");
+	}
+
+	/**
+	 * Gets the number of layers, including the input and output layers.
+	 *
+	 * @return the number of layers.
+	 * @since 2.0
+	 */
+	public final int getLayerCount()
+	{
+		return this.layerSizes.length;
+	}
+
+	/**
+	 * Gets the number of neurons in the specified layer.
+	 *
+	 * @param layer index of the layer, 0 is the input layer.
+	 * @return the number of neurons in the layer.
+	 * @since 2.0
+	 */
+	public final int getLayerSize(final int layer)
+	{
+		return this.layerSizes[layer];
+	}
+
+	/**
+	 * Gets the neurons of the specified layer in the order they are indexed
+	 * by this network.
+	 *
+	 * @param layer index of the layer, 0 is the input layer.
+	 * @return an unmodifiable list of the neurons in the layer.
+	 * @since 2.0
+	 */
+	public final List<BackpropNeuron> getNeurons(final int layer)
+	{
+		this.checkAttached();
+		return this.neurons.get(layer);
+	}
+
+	/**
+	 * Gets the weight of the synapse connecting the specified source neuron
+	 * of the previous layer to the specified destination neuron.
+	 *
+	 * @param layer index of the destination layer, must be atleast 1.
+	 * @param destination index of the neuron in the destination layer.
+	 * @param source index of the neuron in the previous layer.
+	 * @return the weight of the synapse.
+	 * @since 2.0
+	 */
+	public final double getWeight(final int layer, final int destination, final int source)
+	{
+		return this.weights[layer][(destination * this.layerSizes[layer - 1]) + source];
+	}
+
+	/**
+	 * Sets the weight of the synapse connecting the specified source neuron
+	 * of the previous layer to the specified destination neuron.
+	 *
+	 * @param layer index of the destination layer, must be atleast 1.
+	 * @param destination index of the neuron in the destination layer.
+	 * @param source index of the neuron in the previous layer.
+	 * @param weight the new weight of the synapse.
+	 * @since 2.0
+	 */
+	public final void setWeight(final int layer, final int destination, final int source, final double weight)
+	{
+		this.weights[layer][(destination * this.layerSizes[layer - 1]) + source] = weight;
+	}
+
+	/**
+	 * Gets the bias weight of the specified neuron.
+	 *
+	 * @param layer index of the layer.
+	 * @param neuron index of the neuron within the layer.
+	 * @return the bias weight of the neuron.
+	 * @since 2.0
+	 */
+	public final double getBiasWeight(final int layer, final int neuron)
+	{
+		return this.biases[layer][neuron];
+	}
+
+	/**
+	 * Sets the bias weight of the specified neuron.
+	 *
+	 * @param layer index of the layer.
+	 * @param neuron index of the neuron within the layer.
+	 * @param biasWeight the new bias weight of the neuron.
+	 * @since 2.0
+	 */
+	public final void setBiasWeight(final int layer, final int neuron, final double biasWeight)
+	{
+		this.biases[layer][neuron] = biasWeight;
+	}
+
+	/**
+	 * Gets the current output of the specified neuron as of the last
+	 * propagation.
+	 *
+	 * @param layer index of the layer.
+	 * @param neuron index of the neuron within the layer.
+	 * @return the output of the neuron.
+	 * @since 2.0
+	 */
+	public final double getOutput(final int layer, final int neuron)
+	{
+		return this.workspace.outputs[layer][neuron];
+	}
+
+	/**
+	 * Propagates the given input values through the network.
+	 *
+	 * @param inputs one value for each neuron in the input layer.
+	 * @return a copy of the output of each neuron in the output layer.
+	 * @since 2.0
+	 */
+	public final double[] propagate(final double[] inputs)
+	{
+		this.propagate(this.workspace, inputs, true);
+		return this.workspace.outputs[this.layerSizes.length - 1].clone();
+	}
+
+	/**
+	 * Propagates a batch of input vectors through the network. Each call uses
+	 * its own buffers and only reads the weights, so any number of threads
+	 * may infer against the same network at once as long as none of them
+	 * changes its weights.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @return the output values of each sample.
+	 * @since 2.0
+	 */
+	public final double[][] infer(final double[][] inputs)
+	{
+		final int outputLayerIndex = this.layerSizes.length - 1;
+		final Workspace pass = new Workspace(this.layerSizes);
+		final double[][] outputs = new double[inputs.length][];
+		for(int sampleIndex = 0; sampleIndex < inputs.length; sampleIndex++)
+		{
+			this.propagate(pass, inputs[sampleIndex], false);
+			outputs[sampleIndex] = pass.outputs[outputLayerIndex].clone();
+		}
+		return outputs;
+	}
+
+	/**
+	 * Back propagates the given desired output values through the network
+	 * and adjusts the weights accordingly. This uses the state left by the
+	 * last call to propagate.
+	 *
+	 * @param desired one desired value for each neuron in the output layer.
+	 * @since 2.0
+	 */
+	public final void backPropagate(final double[] desired)
+	{
+		this.backPropagate(this.workspace, desired);
+	}
+
+	/**
+	 * Trains the network against a batch of samples on the calling thread.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @return the mean squared error of the batch before the update.
+	 * @since 2.0
+	 * @see #trainBatch(double[][], double[][], ExecutorService)
+	 */
+	public final double trainBatch(final double[][] inputs, final double[][] desired)
+	{
+		return this.trainBatch(inputs, desired, null);
+	}
+
+	/**
+	 * Trains the network against a batch of samples. The gradient of every
+	 * sample is calculated against the current weights and accumulated, then
+	 * the weights are adjusted once by the mean gradient scaled by each
+	 * neuron's learning rate. Unlike back propagating one sample at a time,
+	 * the delta train of a layer is therefore calculated from the weights as
+	 * they were before the batch.<br/>
+	 * <br/>
+	 * The batch is split into one contiguous share per available processor.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @param executor executor used to accumulate the shares of the batch, or
+	 * null to accumulate the entire batch on the calling thread.
+	 * @return the mean squared error of the batch before the update.
+	 * @since 2.0
+	 * @see #trainBatch(double[][], double[][], ExecutorService, int)
+	 */
+	public final double trainBatch(final double[][] inputs, final double[][] desired, final ExecutorService executor)
+	{
+		return this.trainBatch(inputs, desired, executor, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Trains the network against a batch of samples. The batch is split into
+	 * at most shareCount contiguous shares and each share is accumulated into
+	 * its own gradient buffer by the executor. The buffers are reduced in a
+	 * fixed order so the result does not depend on scheduling. Batches
+	 * trained concurrently against the same network are serialized since
+	 * they share the gradient buffers and the weights.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @param executor executor used to accumulate the shares of the batch, or
+	 * null to accumulate the entire batch on the calling thread.
+	 * @param shareCount the maximum number of shares to split the batch into,
+	 * usually the number of threads of the executor.
+	 * @return the mean squared error of the batch before the update.
+	 * @since 2.0
+	 */
+	public final double trainBatch(final double[][] inputs, final double[][] desired, final ExecutorService executor, final int shareCount)
+	{
+		if( inputs.length != desired.length )
+			throw new IllegalArgumentException("inputs and desired must have the same number of samples");
+		if( inputs.length <= 0 )
+			throw new IllegalArgumentException("batch must contain atleast one sample");
+		if( shareCount <= 0 )
+			throw new IllegalArgumentException("shareCount must be greater than 0");
+
+		synchronized(this)
+		{
+			return this.trainBatchShares(inputs, desired, executor, ( executor == null ? 1 : Math.min(inputs.length, shareCount) ));
+		}
+	}
+
+	private double trainBatchShares(final double[][] inputs, final double[][] desired, final ExecutorService executor, final int shareCount)
+	{
+		if( this.gradients == null )
+			this.gradients = new ArrayList<Gradient>();
+		while( this.gradients.size() < shareCount )
+			this.gradients.add(new Gradient(this.layerSizes));
+
+		final List<Gradient> shares = new ArrayList<Gradient>(shareCount);
+		if( shareCount == 1 )
+		{
+			shares.add(new AccumulateGradient(this, this.gradients.get(0), inputs, desired, 0, inputs.length).call());
+		}
+		else
+		{
+			final List<Future<Gradient>> futures = new ArrayList<Future<Gradient>>(shareCount);
+			for(int shareIndex = 0; shareIndex < shareCount; shareIndex++)
+			{
+				final int start = (int) (((long) inputs.length * shareIndex) / shareCount);
+				final int end = (int) (((long) inputs.length * (shareIndex + 1)) / shareCount);
+				futures.add(executor.submit(new AccumulateGradient(this, this.gradients.get(shareIndex), inputs, desired, start, end)));
+			}
+
+			try
+			{
+				for(Future<Gradient> future : futures)
+					shares.add(future.get());
+			}
+			catch(InterruptedException caught)
+			{
+				LOGGER.error("AccumulateGradient was unexpectidy interupted", caught);
+				throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+			}
+			catch(ExecutionException caught)
+			{
+				LOGGER.error("AccumulateGradient had an unexcepted problem executing.", caught);
+				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+			}
+		}
+
+		//reduce the shares into the first gradient
+		final Gradient total = shares.get(0);
+		for(int shareIndex = 1; shareIndex < shares.size(); shareIndex++)
+		{
+			final Gradient share = shares.get(shareIndex);
+			for(int layerIndex = 1; layerIndex < this.layerSizes.length; layerIndex++)
+			{
+				final double[] totalWeights = total.weights[layerIndex];
+				final double[] shareWeights = share.weights[layerIndex];
+				for(int weightIndex = 0; weightIndex < totalWeights.length; weightIndex++)
+					totalWeights[weightIndex] += shareWeights[weightIndex];
+
+				final double[] totalBiases = total.biases[layerIndex];
+				final double[] shareBiases = share.biases[layerIndex];
+				for(int neuronIndex = 0; neuronIndex < totalBiases.length; neuronIndex++)
+					totalBiases[neuronIndex] += shareBiases[neuronIndex];
+			}
+			total.squaredError += share.squaredError;
+		}
+
+		//apply the mean gradient
+		final double scale = 1.0 / inputs.length;
+		for(int layerIndex = 1; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			final double[] layerWeights = this.weights[layerIndex];
+			final double[] layerBiases = this.biases[layerIndex];
+			final double[] layerLearningRates = this.learningRates[layerIndex];
+			final double[] gradientWeights = total.weights[layerIndex];
+			final double[] gradientBiases = total.biases[layerIndex];
+			final int sourceCount = this.layerSizes[layerIndex - 1];
+			for(int neuronIndex = 0; neuronIndex < layerBiases.length; neuronIndex++)
+			{
+				final double step = layerLearningRates[neuronIndex] * scale;
+				final int rowOffset = neuronIndex * sourceCount;
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+					layerWeights[rowOffset + sourceIndex] += step * gradientWeights[rowOffset + sourceIndex];
+				layerBiases[neuronIndex] += step * gradientBiases[neuronIndex];
+			}
+		}
+
+		return total.squaredError * scale;
+	}
+
+	final Workspace createWorkspace()
+	{
+		return new Workspace(this.layerSizes);
+	}
+
+	/**
+	 * Propagates a range of samples without modifying any weights and sums
+	 * their squared errors.
+	 *
+	 * @since 2.0
+	 */
+	final double squaredError(final Workspace pass, final double[][] inputs, final double[][] desired, final int start, final int end)
+	{
+		final double[] outputs = pass.outputs[this.layerSizes.length - 1];
+		double squaredError = 0.0;
+		for(int sampleIndex = start; sampleIndex < end; sampleIndex++)
+		{
+			final double[] sampleDesired = desired[sampleIndex];
+			if( sampleDesired.length != outputs.length )
+				throw new IllegalArgumentException("desired must have one value for each output neuron");
+			this.propagate(pass, inputs[sampleIndex], false);
+			for(int outputIndex = 0; outputIndex < outputs.length; outputIndex++)
+			{
+				final double error = sampleDesired[outputIndex] - outputs[outputIndex];
+				squaredError += error * error;
+			}
+		}
+		return squaredError;
+	}
+
+	/**
+	 * Sets the weights and bias weights of this network to the mean of those
+	 * of the given networks, which must have the same layer sizes.
+	 *
+	 * @since 2.0
+	 */
+	final void average(final List<CompiledFeedforwardNetwork> networks)
+	{
+		if( networks.isEmpty() )
+			return;
+		final double scale = 1.0 / networks.size();
+		for(int layerIndex = 1; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			final double[] layerWeights = this.weights[layerIndex];
+			final double[] layerBiases = this.biases[layerIndex];
+			Arrays.fill(layerWeights, 0.0);
+			Arrays.fill(layerBiases, 0.0);
+			for(CompiledFeedforwardNetwork network : networks)
+			{
+				final double[] networkWeights = network.weights[layerIndex];
+				final double[] networkBiases = network.biases[layerIndex];
+				for(int weightIndex = 0; weightIndex < layerWeights.length; weightIndex++)
+					layerWeights[weightIndex] += networkWeights[weightIndex];
+				for(int neuronIndex = 0; neuronIndex < layerBiases.length; neuronIndex++)
+					layerBiases[neuronIndex] += networkBiases[neuronIndex];
+			}
+			for(int weightIndex = 0; weightIndex < layerWeights.length; weightIndex++)
+				layerWeights[weightIndex] *= scale;
+			for(int neuronIndex = 0; neuronIndex < layerBiases.length; neuronIndex++)
+				layerBiases[neuronIndex] *= scale;
+		}
+	}
+
+	/**
+	 * Copies the weights and bias weights of another network with the same
+	 * layer sizes into this network.
+	 *
+	 * @since 2.0
+	 */
+	final void copyParameters(final CompiledFeedforwardNetwork source)
+	{
+		for(int layerIndex = 0; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			System.arraycopy(source.weights[layerIndex], 0, this.weights[layerIndex], 0, this.weights[layerIndex].length);
+			System.arraycopy(source.biases[layerIndex], 0, this.biases[layerIndex], 0, this.biases[layerIndex].length);
+		}
+	}
+
+	final ActivationFunction getActivationFunction(final int layer)
+	{
+		return this.activationFunctions[layer];
+	}
+
+	final double[] getLayerWeights(final int layer)
+	{
+		return this.weights[layer];
+	}
+
+	final double[] getLayerBiases(final int layer)
+	{
+		return this.biases[layer];
+	}
+
+	final double[] getLayerLearningRates(final int layer)
+	{
+		return this.learningRates[layer];
+	}
+
+	/**
+	 * Propagates the current inputs of the input neurons this network was
+	 * compiled from, then sets the resulting state on the output neurons.
+	 *
+	 * @since 2.0
+	 */
+	final void propagateNeurons()
+	{
+		this.checkAttached();
+		final List<BackpropNeuron> inputLayer = this.neurons.get(0);
+		final double[] inputs = this.workspace.outputs[0];
+		for(int inputIndex = 0; inputIndex < inputs.length; inputIndex++)
+			inputs[inputIndex] = ((InputBackpropNeuron) inputLayer.get(inputIndex)).getInput();
+
+		this.propagate(this.workspace, inputs, true);
+		this.synchronizeLayer(this.layerSizes.length - 1);
+	}
+
+	/**
+	 * Back propagates the current desired values of the output neurons this
+	 * network was compiled from, then sets the resulting state on the output
+	 * neurons.
+	 *
+	 * @since 2.0
+	 */
+	final void backPropagateNeurons()
+	{
+		this.checkAttached();
+		final int outputLayerIndex = this.layerSizes.length - 1;
+		final List<BackpropNeuron> outputLayer = this.neurons.get(outputLayerIndex);
+		final double[] desired = new double[outputLayer.size()];
+		for(int outputIndex = 0; outputIndex < desired.length; outputIndex++)
+			desired[outputIndex] = ((OutputBackpropNeuron) outputLayer.get(outputIndex)).getDesired();
+
+		this.backPropagate(this.workspace, desired);
+		this.synchronizeLayer(outputLayerIndex);
+	}
+
+	/**
+	 * Writes the weights, bias weights and the state of the last pass back
+	 * into the neurons and synapses this network was compiled from.
+	 *
+	 * @since 2.0
+	 */
+	public final void synchronize()
+	{
+		this.checkAttached();
+		for(int layerIndex = 0; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			final double[] layerWeights = this.weights[layerIndex];
+			final Synapse[] layerSynapses = this.synapses[layerIndex];
+			for(int weightIndex = 0; weightIndex < layerWeights.length; weightIndex++)
+				layerSynapses[weightIndex].setWeight(layerWeights[weightIndex]);
+
+			this.synchronizeLayer(layerIndex);
+		}
+	}
+
+	private void synchronizeLayer(final int layerIndex)
+	{
+		final List<BackpropNeuron> layer = this.neurons.get(layerIndex);
+		for(int neuronIndex = 0; neuronIndex < layer.size(); neuronIndex++)
+		{
+			final BackpropNeuron neuron = layer.get(neuronIndex);
+			neuron.setBiasWeight(this.biases[layerIndex][neuronIndex]);
+			neuron.setPropagationState(this.workspace.activities[layerIndex][neuronIndex], this.workspace.outputs[layerIndex][neuronIndex], this.workspace.deltas[layerIndex][neuronIndex]);
+		}
+	}
+
+	/**
+	 * Propagates the inputs using the buffers of the given workspace. When
+	 * the pass will be back propagated the derivatives of the activation
+	 * functions are calculated along with the outputs.
+	 *
+	 * @since 2.0
+	 */
+	final void propagate(final Workspace pass, final double[] inputs, final boolean calculateDerivatives)
+	{
+		if( inputs.length != this.layerSizes[0] )
+			throw new IllegalArgumentException("inputs must have one value for each input neuron");
+
+		//input neurons pass their input through unchanged
+		if( inputs != pass.outputs[0] )
+			System.arraycopy(inputs, 0, pass.outputs[0], 0, inputs.length);
+
+		//the activity of input neurons is always zero so their derivatives
+		//never change
+		if( calculateDerivatives && !pass.inputDerivativesCalculated )
+		{
+			activateLayer(this.activationFunctions[0], pass.activities[0], new double[this.layerSizes[0]], pass.derivatives[0]);
+			pass.inputDerivativesCalculated = true;
+		}
+
+		for(int layerIndex = 1; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			final double[] sourceOutputs = pass.outputs[layerIndex - 1];
+			final double[] layerWeights = this.weights[layerIndex];
+			final double[] layerBiases = this.biases[layerIndex];
+			final double[] activities = pass.activities[layerIndex];
+			final double[] outputs = pass.outputs[layerIndex];
+			final int sourceCount = sourceOutputs.length;
+
+			for(int neuronIndex = 0; neuronIndex < outputs.length; neuronIndex++)
+			{
+				final int rowOffset = neuronIndex * sourceCount;
+				double activity = 0.0;
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+					activity += layerWeights[rowOffset + sourceIndex] * sourceOutputs[sourceIndex];
+				activity += layerBiases[neuronIndex];
+
+				activities[neuronIndex] = activity;
+			}
+
+			activateLayer(this.activationFunctions[layerIndex], activities, outputs, ( calculateDerivatives ? pass.derivatives[layerIndex] : null ));
+		}
+	}
+
+	/**
+	 * Calculates the outputs, and the derivatives when a buffer is given for
+	 * them, of an entire layer. Bulk activation functions evaluate the layer
+	 * in a single call.
+	 *
+	 * @since 2.0
+	 */
+	static void activateLayer(final ActivationFunction activationFunction, final double[] activities, final double[] outputs, final double[] derivatives)
+	{
+		if( activationFunction instanceof BulkActivationFunction )
+		{
+			final BulkActivationFunction bulkFunction = (BulkActivationFunction) activationFunction;
+			if( derivatives == null )
+				bulkFunction.activate(activities, outputs);
+			else
+				bulkFunction.activateWithDerivative(activities, outputs, derivatives);
+			return;
+		}
+
+		for(int neuronIndex = 0; neuronIndex < activities.length; neuronIndex++)
+		{
+			outputs[neuronIndex] = activationFunction.activate(activities[neuronIndex]);
+			if( derivatives != null )
+				derivatives[neuronIndex] = activationFunction.activateDerivative(activities[neuronIndex]);
+		}
+	}
+
+	/**
+	 * Propagates a single sample and adds its gradient to the given gradient
+	 * without modifying any weights.
+	 *
+	 * @since 2.0
+	 */
+	final void accumulateGradient(final Gradient gradient, final double[] inputs, final double[] desired)
+	{
+		final Workspace pass = gradient.workspace;
+		this.propagate(pass, inputs, true);
+
+		final int outputLayerIndex = this.layerSizes.length - 1;
+		if( desired.length != this.layerSizes[outputLayerIndex] )
+			throw new IllegalArgumentException("desired must have one value for each output neuron");
+
+		final double[] outputDerivatives = pass.derivatives[outputLayerIndex];
+		final double[] outputs = pass.outputs[outputLayerIndex];
+		final double[] outputDeltas = pass.deltas[outputLayerIndex];
+		for(int outputIndex = 0; outputIndex < outputDeltas.length; outputIndex++)
+		{
+			final double error = desired[outputIndex] - outputs[outputIndex];
+			gradient.squaredError += error * error;
+			outputDeltas[outputIndex] = error * outputDerivatives[outputIndex];
+		}
+
+		for(int layerIndex = outputLayerIndex; layerIndex > 0; layerIndex--)
+		{
+			final double[] deltas = pass.deltas[layerIndex];
+			final double[] layerWeights = this.weights[layerIndex];
+			final double[] gradientWeights = gradient.weights[layerIndex];
+			final double[] gradientBiases = gradient.biases[layerIndex];
+			final double[] sourceOutputs = pass.outputs[layerIndex - 1];
+			final double[] sourceDeltas = pass.deltas[layerIndex - 1];
+			final int sourceCount = sourceOutputs.length;
+
+			//the input layer has no weights to learn so its deltas are not needed
+			final boolean propagateDeltas = (layerIndex > 1);
+			if( propagateDeltas )
+				Arrays.fill(sourceDeltas, 0.0);
+			for(int neuronIndex = 0; neuronIndex < deltas.length; neuronIndex++)
+			{
+				final double delta = deltas[neuronIndex];
+				final int rowOffset = neuronIndex * sourceCount;
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+					gradientWeights[rowOffset + sourceIndex] += delta * sourceOutputs[sourceIndex];
+				if( propagateDeltas )
+					for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+						sourceDeltas[sourceIndex] += layerWeights[rowOffset + sourceIndex] * delta;
+				gradientBiases[neuronIndex] += delta;
+			}
+
+			if( propagateDeltas )
+			{
+				final double[] sourceDerivatives = pass.derivatives[layerIndex - 1];
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+					sourceDeltas[sourceIndex] *= sourceDerivatives[sourceIndex];
+			}
+		}
+	}
+
+	/**
+	 * Back propagates the desired outputs using the buffers of the given
+	 * workspace. Layers are processed from the output towards the input and
+	 * each layer's weights are adjusted before the delta train of the
+	 * previous layer is calculated from them, exactly as the neurons do.
+	 *
+	 * @since 2.0
+	 */
+	final void backPropagate(final Workspace pass, final double[] desired)
+	{
+		final int outputLayerIndex = this.layerSizes.length - 1;
+		if( desired.length != this.layerSizes[outputLayerIndex] )
+			throw new IllegalArgumentException("desired must have one value for each output neuron");
+
+		final double[] outputDerivatives = pass.derivatives[outputLayerIndex];
+		final double[] outputs = pass.outputs[outputLayerIndex];
+		final double[] outputDeltas = pass.deltas[outputLayerIndex];
+		for(int outputIndex = 0; outputIndex < outputDeltas.length; outputIndex++)
+			outputDeltas[outputIndex] = (desired[outputIndex] - outputs[outputIndex]) * outputDerivatives[outputIndex];
+
+		for(int layerIndex = outputLayerIndex; layerIndex > 0; layerIndex--)
+		{
+			final double[] deltas = pass.deltas[layerIndex];
+			final double[] layerWeights = this.weights[layerIndex];
+			final double[] layerBiases = this.biases[layerIndex];
+			final double[] layerLearningRates = this.learningRates[layerIndex];
+			final double[] sourceOutputs = pass.outputs[layerIndex - 1];
+			final double[] sourceDeltas = pass.deltas[layerIndex - 1];
+			final int sourceCount = sourceOutputs.length;
+
+			//learn the new weights while summing the weighted deltas for the
+			//previous layer using the weights just learned
+			Arrays.fill(sourceDeltas, 0.0);
+			for(int neuronIndex = 0; neuronIndex < deltas.length; neuronIndex++)
+			{
+				final double delta = deltas[neuronIndex];
+				final double step = delta * layerLearningRates[neuronIndex];
+				final int rowOffset = neuronIndex * sourceCount;
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+				{
+					final double weight = layerWeights[rowOffset + sourceIndex] + (step * sourceOutputs[sourceIndex]);
+					layerWeights[rowOffset + sourceIndex] = weight;
+					sourceDeltas[sourceIndex] += weight * delta;
+				}
+				layerBiases[neuronIndex] += step;
+			}
+
+			final double[] sourceDerivatives = pass.derivatives[layerIndex - 1];
+			for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+				sourceDeltas[sourceIndex] *= sourceDerivatives[sourceIndex];
+		}
+	}
+}
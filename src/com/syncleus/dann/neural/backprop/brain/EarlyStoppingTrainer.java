@@ -0,0 +1,456 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.*;
+import com.syncleus.dann.neural.SnapshotFormat;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * Trains a feedforward brain online against a set of training samples and
+ * stops once the error on a held out validation set stops improving. Every
+ * evaluation interval samples the validation set is propagated, split across
+ * worker threads, and the weights with the lowest validation error so far are
+ * kept. Training stops when patience evaluations in a row fail to improve on
+ * that error by more than the minimum improvement, or when the maximum number
+ * of epochs has been trained, and the brain is left with the best weights.
+ * Calling train again continues from those weights.<br/>
+ * <br/>
+ * When a checkpoint file is set the current weights, the best weights and the
+ * progress of training are written to it after every evaluation, so a run
+ * which is interrupted can be resumed with resume. Checkpoints use the binary
+ * snapshot format and are written to a temporary file which then replaces the
+ * previous checkpoint, so a crash while writing never loses the last one.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.SnapshotFormat
+ */
+public class EarlyStoppingTrainer
+{
+	private final AbstractFeedforwardBrain brain;
+	private final CompiledFeedforwardNetwork network;
+	private final CompiledFeedforwardNetwork bestNetwork;
+	private final int evaluationInterval;
+	private final int patience;
+	private final double minimumImprovement;
+	private final int workerCount;
+	private File checkpointFile = null;
+
+	private long samplesTrained = 0;
+	private long evaluationCount = 0;
+	private int evaluationsWithoutImprovement = 0;
+	private double bestValidationError = Double.POSITIVE_INFINITY;
+	private boolean stopped = false;
+	private final static Logger LOGGER = Logger.getLogger(EarlyStoppingTrainer.class);
+
+	private static class EvaluateShard implements Callable<Double>
+	{
+		private final CompiledFeedforwardNetwork network;
+		private final double[][] inputs;
+		private final double[][] desired;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(EvaluateShard.class);
+
+		public EvaluateShard(CompiledFeedforwardNetwork network, double[][] inputs, double[][] desired, int start, int end)
+		{
+			this.network = network;
+			this.inputs = inputs;
+			this.desired = desired;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Double call()
+		{
+			try
+			{
+				return Double.valueOf(this.network.squaredError(this.network.createWorkspace(), this.inputs, this.desired, this.start, this.end));
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in EvaluateShard", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in EvaluateShard", caught);
+			}
+		}
+	}
+
+	/**
+	 * Creates a trainer which evaluates the validation set with one worker
+	 * per processor. The brain is compiled for as long as the trainer is used.
+	 *
+	 * @param brain the brain to train.
+	 * @param evaluationInterval the number of training samples between
+	 * evaluations of the validation set.
+	 * @param patience the number of evaluations in a row without improvement
+	 * after which training stops.
+	 * @param minimumImprovement how much lower the validation error must be
+	 * than the best so far to count as an improvement.
+	 * @since 2.0
+	 */
+	public EarlyStoppingTrainer(final AbstractFeedforwardBrain brain, final int evaluationInterval, final int patience, final double minimumImprovement)
+	{
+		this(brain, evaluationInterval, patience, minimumImprovement, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a trainer. The brain is compiled for as long as the trainer is
+	 * used.
+	 *
+	 * @param brain the brain to train.
+	 * @param evaluationInterval the number of training samples between
+	 * evaluations of the validation set.
+	 * @param patience the number of evaluations in a row without improvement
+	 * after which training stops.
+	 * @param minimumImprovement how much lower the validation error must be
+	 * than the best so far to count as an improvement.
+	 * @param workerCount the number of threads the validation set is split
+	 * across.
+	 * @since 2.0
+	 */
+	public EarlyStoppingTrainer(final AbstractFeedforwardBrain brain, final int evaluationInterval, final int patience, final double minimumImprovement, final int workerCount)
+	{
+		if( brain == null )
+			throw new IllegalArgumentException("brain can not be null");
+		if( evaluationInterval <= 0 )
+			throw new IllegalArgumentException("evaluationInterval must be greater than 0");
+		if( patience <= 0 )
+			throw new IllegalArgumentException("patience must be greater than 0");
+		if( minimumImprovement < 0.0 )
+			throw new IllegalArgumentException("minimumImprovement can not be negative");
+		if( workerCount <= 0 )
+			throw new IllegalArgumentException("workerCount must be greater than 0");
+
+		this.brain = brain;
+		this.network = brain.compile();
+		this.bestNetwork = this.network.snapshot();
+		this.evaluationInterval = evaluationInterval;
+		this.patience = patience;
+		this.minimumImprovement = minimumImprovement;
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Gets the file checkpoints are written to.
+	 *
+	 * @return the checkpoint file, or null if no checkpoints are written.
+	 * @since 2.0
+	 */
+	public final File getCheckpointFile()
+	{
+		return this.checkpointFile;
+	}
+
+	/**
+	 * Sets the file checkpoints are written to after every evaluation.
+	 *
+	 * @param checkpointFile the checkpoint file, or null to write no
+	 * checkpoints.
+	 * @since 2.0
+	 */
+	public final void setCheckpointFile(final File checkpointFile)
+	{
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * Gets the total number of samples trained, including those trained
+	 * before the checkpoint this trainer resumed from.
+	 *
+	 * @return the total number of samples trained.
+	 * @since 2.0
+	 */
+	public final long getSamplesTrained()
+	{
+		return this.samplesTrained;
+	}
+
+	/**
+	 * Gets the number of times the validation set has been evaluated.
+	 *
+	 * @return the number of evaluations.
+	 * @since 2.0
+	 */
+	public final long getEvaluationCount()
+	{
+		return this.evaluationCount;
+	}
+
+	/**
+	 * Gets the lowest validation error seen so far.
+	 *
+	 * @return the lowest mean squared error of the validation set, or
+	 * positive infinity if it has not been evaluated.
+	 * @since 2.0
+	 */
+	public final double getBestValidationError()
+	{
+		return this.bestValidationError;
+	}
+
+	/**
+	 * Determines if training stopped early because the validation error
+	 * stopped improving. A stopped trainer does not train any further.
+	 *
+	 * @return true if training stopped early, false otherwise.
+	 * @since 2.0
+	 */
+	public final boolean isStopped()
+	{
+		return this.stopped;
+	}
+
+	/**
+	 * Trains the brain, holding out the last samples as the validation set.
+	 * Shuffle the samples first if they are ordered.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @param validationFraction the fraction of the samples to hold out.
+	 * @param maximumEpochs the number of epochs after which training stops
+	 * even if the validation error is still improving.
+	 * @return the lowest validation error.
+	 * @throws IOException if a checkpoint can not be written.
+	 * @since 2.0
+	 */
+	public final double train(final double[][] inputs, final double[][] desired, final double validationFraction, final int maximumEpochs) throws IOException
+	{
+		if( inputs.length != desired.length )
+			throw new IllegalArgumentException("inputs and desired must have the same number of samples");
+		if( (validationFraction <= 0.0) || (validationFraction >= 1.0) )
+			throw new IllegalArgumentException("validationFraction must be between 0 and 1");
+
+		final int validationCount = (int) Math.ceil(inputs.length * validationFraction);
+		final int trainingCount = inputs.length - validationCount;
+		return this.train(Arrays.copyOf(inputs, trainingCount), Arrays.copyOf(desired, trainingCount), Arrays.copyOfRange(inputs, trainingCount, inputs.length), Arrays.copyOfRange(desired, trainingCount, desired.length), maximumEpochs);
+	}
+
+	/**
+	 * Trains the brain. When resuming from a checkpoint training continues
+	 * from the sample after the last one trained, so the same samples must be
+	 * given in the same order.
+	 *
+	 * @param inputs the input values of each training sample.
+	 * @param desired the desired output values of each training sample.
+	 * @param validationInputs the input values of each validation sample.
+	 * @param validationDesired the desired output values of each validation
+	 * sample.
+	 * @param maximumEpochs the number of epochs, counting those trained
+	 * before resuming, after which training stops even if the validation
+	 * error is still improving.
+	 * @return the lowest validation error.
+	 * @throws IOException if a checkpoint can not be written.
+	 * @since 2.0
+	 */
+	public final double train(final double[][] inputs, final double[][] desired, final double[][] validationInputs, final double[][] validationDesired, final int maximumEpochs) throws IOException
+	{
+		if( (inputs.length != desired.length) || (validationInputs.length != validationDesired.length) )
+			throw new IllegalArgumentException("inputs and desired must have the same number of samples");
+		if( (inputs.length <= 0) || (validationInputs.length <= 0) )
+			throw new IllegalArgumentException("there must be atleast one training and one validation sample");
+		if( maximumEpochs <= 0 )
+			throw new IllegalArgumentException("maximumEpochs must be greater than 0");
+
+		final long sampleLimit = (long) inputs.length * maximumEpochs;
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.workerCount, validationInputs.length));
+		try
+		{
+			if( this.evaluationCount == 0 )
+				this.evaluate(executor, validationInputs, validationDesired);
+
+			long samplesSinceEvaluation = 0;
+			while( !this.stopped && (this.samplesTrained < sampleLimit) )
+			{
+				final int sampleIndex = (int) (this.samplesTrained % inputs.length);
+				this.network.propagate(inputs[sampleIndex]);
+				this.network.backPropagate(desired[sampleIndex]);
+				this.samplesTrained++;
+				samplesSinceEvaluation++;
+
+				if( (samplesSinceEvaluation == this.evaluationInterval) || (this.samplesTrained == sampleLimit) )
+				{
+					this.evaluate(executor, validationInputs, validationDesired);
+					samplesSinceEvaluation = 0;
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		//leave the brain with the best weights found, which is also where
+		//training continues from if train is called again
+		this.network.copyParameters(this.bestNetwork);
+		this.brain.synchronize();
+		if( this.checkpointFile != null )
+			this.writeCheckpoint(this.checkpointFile);
+		return this.bestValidationError;
+	}
+
+	private void evaluate(final ExecutorService executor, final double[][] inputs, final double[][] desired) throws IOException
+	{
+		final int shareCount = Math.min(this.workerCount, inputs.length);
+		final double squaredError;
+		if( shareCount <= 1 )
+			squaredError = this.network.squaredError(this.network.createWorkspace(), inputs, desired, 0, inputs.length);
+		else
+		{
+			final List<Future<Double>> futures = new ArrayList<Future<Double>>(shareCount);
+			for(int shareIndex = 0; shareIndex < shareCount; shareIndex++)
+			{
+				final int start = (int) (((long) inputs.length * shareIndex) / shareCount);
+				final int end = (int) (((long) inputs.length * (shareIndex + 1)) / shareCount);
+				futures.add(executor.submit(new EvaluateShard(this.network, inputs, desired, start, end)));
+			}
+
+			//shares are reduced in order so the error does not depend on
+			//which share finishes first
+			double total = 0.0;
+			try
+			{
+				for(Future<Double> future : futures)
+					total += future.get().doubleValue();
+			}
+			catch(InterruptedException caught)
+			{
+				LOGGER.error("EvaluateShard was unexpectidy interupted", caught);
+				throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+			}
+			catch(ExecutionException caught)
+			{
+				LOGGER.error("EvaluateShard had an unexcepted problem executing.", caught);
+				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+			}
+			squaredError = total;
+		}
+
+		final double validationError = squaredError / inputs.length;
+		this.evaluationCount++;
+		if( validationError < (this.bestValidationError - this.minimumImprovement) )
+		{
+			this.bestValidationError = validationError;
+			this.bestNetwork.copyParameters(this.network);
+			this.evaluationsWithoutImprovement = 0;
+		}
+		else if( ++this.evaluationsWithoutImprovement >= this.patience )
+			this.stopped = true;
+
+		if( this.checkpointFile != null )
+			this.writeCheckpoint(this.checkpointFile);
+	}
+
+	/**
+	 * Writes the current weights, the best weights and the progress of
+	 * training to a checkpoint file. After the common snapshot header the
+	 * body holds:
+	 * <ul>
+	 * <li>the number of samples trained as a long,</li>
+	 * <li>the number of evaluations as a long,</li>
+	 * <li>the best validation error as a double,</li>
+	 * <li>the number of evaluations without improvement as an int,</li>
+	 * <li>whether training stopped early as an int,</li>
+	 * <li>the body of a feedforward snapshot of the current weights,</li>
+	 * <li>the body of a feedforward snapshot of the best weights.</li>
+	 * </ul>
+	 *
+	 * @param file the checkpoint file to create or replace.
+	 * @throws IOException if the file can not be written.
+	 * @since 2.0
+	 */
+	public final void writeCheckpoint(final File file) throws IOException
+	{
+		final File temporaryFile = new File(file.getPath() + ".tmp");
+		final SnapshotFormat.Writer writer = new SnapshotFormat.Writer(temporaryFile, SnapshotFormat.KIND_FEEDFORWARD_CHECKPOINT);
+		try
+		{
+			writer.putLong(this.samplesTrained);
+			writer.putLong(this.evaluationCount);
+			writer.putDouble(this.bestValidationError);
+			writer.putInt(this.evaluationsWithoutImprovement);
+			writer.putInt(( this.stopped ? 1 : 0 ));
+			FeedforwardSnapshot.writeBody(writer, this.network);
+			FeedforwardSnapshot.writeBody(writer, this.bestNetwork);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		if( !temporaryFile.renameTo(file) )
+		{
+			//some platforms can not rename over an existing file
+			if( !file.delete() || !temporaryFile.renameTo(file) )
+				throw new IOException("could not replace checkpoint " + file);
+		}
+	}
+
+	/**
+	 * Restores the weights and progress of training from a checkpoint file
+	 * written by a trainer of a brain with the same layers.
+	 *
+	 * @param file the checkpoint file.
+	 * @throws IOException if the file can not be read, is not a checkpoint or
+	 * holds a network with different layers.
+	 * @since 2.0
+	 */
+	public final void resume(final File file) throws IOException
+	{
+		final ByteBuffer buffer = SnapshotFormat.map(file, SnapshotFormat.KIND_FEEDFORWARD_CHECKPOINT);
+		final long checkpointSamples = SnapshotFormat.readLong(buffer);
+		final long checkpointEvaluations = SnapshotFormat.readLong(buffer);
+		final double checkpointBestError = SnapshotFormat.readDouble(buffer);
+		final int checkpointWithoutImprovement = SnapshotFormat.readCount(buffer);
+		final int checkpointStopped = SnapshotFormat.readCount(buffer);
+		final CompiledFeedforwardNetwork current = FeedforwardSnapshot.readBody(buffer);
+		final CompiledFeedforwardNetwork best = FeedforwardSnapshot.readBody(buffer);
+		if( (checkpointSamples < 0) || (checkpointEvaluations < 0) )
+			throw new IOException("checkpoint is corrupt");
+		this.checkLayers(current);
+		this.checkLayers(best);
+
+		this.network.copyParameters(current);
+		this.bestNetwork.copyParameters(best);
+		this.brain.synchronize();
+		this.samplesTrained = checkpointSamples;
+		this.evaluationCount = checkpointEvaluations;
+		this.bestValidationError = checkpointBestError;
+		this.evaluationsWithoutImprovement = checkpointWithoutImprovement;
+		this.stopped = (checkpointStopped != 0);
+	}
+
+	private void checkLayers(final CompiledFeedforwardNetwork loaded) throws IOException
+	{
+		if( loaded.getLayerCount() != this.network.getLayerCount() )
+			throw new IOException("checkpoint has " + loaded.getLayerCount() + " layers but the brain has " + this.network.getLayerCount());
+		for(int layerIndex = 0; layerIndex < loaded.getLayerCount(); layerIndex++)
+			if( loaded.getLayerSize(layerIndex) != this.network.getLayerSize(layerIndex) )
+				throw new IOException("layer " + layerIndex + " of the checkpoint does not match the brain");
+	}
+}
@@ -0,0 +1,152 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.neural.SnapshotFormat;
+import com.syncleus.dann.neural.activation.ActivationFunction;
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes compiled feedforward networks in the binary snapshot
+ * format. After the common header the body holds:
+ * <ul>
+ * <li>the number of layers as an int,</li>
+ * <li>the size of each layer as an int,</li>
+ * <li>the activation function id of each layer as an int,</li>
+ * <li>padding to a multiple of 8 bytes,</li>
+ * <li>for each layer its weight matrix (empty for the input layer), bias
+ * weights and learning rates as packed doubles.</li>
+ * </ul>
+ * Snapshots are read through a memory mapped file and load as detached
+ * networks which can be used for propagate and infer right away.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.SnapshotFormat
+ */
+public final class FeedforwardSnapshot
+{
+	private FeedforwardSnapshot()
+	{
+	}
+
+	/**
+	 * Writes the current weights of a compiled network to a snapshot file.
+	 *
+	 * @param network the network to write, attached or not.
+	 * @param file the snapshot file to create or replace.
+	 * @throws IOException if the file can not be written.
+	 * @throws IllegalArgumentException if an activation function of the
+	 * network can not be stored in a snapshot.
+	 * @since 2.0
+	 */
+	public static void write(final CompiledFeedforwardNetwork network, final File file) throws IOException
+	{
+		final SnapshotFormat.Writer writer = new SnapshotFormat.Writer(file, SnapshotFormat.KIND_FEEDFORWARD);
+		try
+		{
+			writeBody(writer, network);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the body of a feedforward snapshot holding the given network.
+	 *
+	 * @since 2.0
+	 */
+	static void writeBody(final SnapshotFormat.Writer writer, final CompiledFeedforwardNetwork network) throws IOException
+	{
+		final int layerCount = network.getLayerCount();
+		final int[] activationFunctionIds = new int[layerCount];
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+			activationFunctionIds[layerIndex] = SnapshotFormat.getActivationFunctionId(network.getActivationFunction(layerIndex));
+
+		writer.putInt(layerCount);
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+			writer.putInt(network.getLayerSize(layerIndex));
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+			writer.putInt(activationFunctionIds[layerIndex]);
+		writer.align();
+
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+		{
+			writer.putDoubles(network.getLayerWeights(layerIndex));
+			writer.putDoubles(network.getLayerBiases(layerIndex));
+			writer.putDoubles(network.getLayerLearningRates(layerIndex));
+		}
+	}
+
+	/**
+	 * Reads a compiled network from a snapshot file.
+	 *
+	 * @param file the snapshot file.
+	 * @return a detached network holding the weights of the snapshot.
+	 * @throws IOException if the file can not be read or is not a valid
+	 * feedforward snapshot.
+	 * @since 2.0
+	 */
+	public static CompiledFeedforwardNetwork read(final File file) throws IOException
+	{
+		return readBody(SnapshotFormat.map(file, SnapshotFormat.KIND_FEEDFORWARD));
+	}
+
+	/**
+	 * Reads the body of a feedforward snapshot from the current position of
+	 * the buffer.
+	 *
+	 * @since 2.0
+	 */
+	static CompiledFeedforwardNetwork readBody(final ByteBuffer buffer) throws IOException
+	{
+		final int layerCount = SnapshotFormat.readCount(buffer);
+		if( layerCount < 2 )
+			throw new IOException("snapshot is corrupt");
+		final int[] layerSizes = new int[layerCount];
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+		{
+			layerSizes[layerIndex] = SnapshotFormat.readCount(buffer);
+			if( layerSizes[layerIndex] == 0 )
+				throw new IOException("snapshot is corrupt");
+		}
+		final ActivationFunction[] activationFunctions = new ActivationFunction[layerCount];
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+			activationFunctions[layerIndex] = SnapshotFormat.createActivationFunction(SnapshotFormat.readCount(buffer));
+		SnapshotFormat.align(buffer);
+
+		final double[][] weights = new double[layerCount][];
+		final double[][] biases = new double[layerCount][];
+		final double[][] learningRates = new double[layerCount][];
+		for(int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+		{
+			final long weightCount = ( layerIndex == 0 ? 0L : (long) layerSizes[layerIndex] * layerSizes[layerIndex - 1] );
+			if( weightCount > Integer.MAX_VALUE )
+				throw new IOException("snapshot is corrupt");
+			weights[layerIndex] = SnapshotFormat.readDoubles(buffer, (int) weightCount);
+			biases[layerIndex] = SnapshotFormat.readDoubles(buffer, layerSizes[layerIndex]);
+			learningRates[layerIndex] = SnapshotFormat.readDoubles(buffer, layerSizes[layerIndex]);
+		}
+
+		return new CompiledFeedforwardNetwork(layerSizes, activationFunctions, weights, biases, learningRates);
+	}
+}
@@ -0,0 +1,211 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.neural.activation.ActivationFunction;
+import java.io.Serializable;
+
+/**
+ * A compiled feedforward network whose weights are stored in single
+ * precision. Propagating a large network is limited by how fast its weights
+ * can be read from memory, so halving their size roughly doubles the speed of
+ * inference. Only the storage is single precision: the weights are widened
+ * as they are read and activities are summed in double precision, so the
+ * only error introduced is the rounding of each weight to the nearest float.
+ * That is a relative error of at most 2<sup>-24</sup> per weight, which
+ * bounds the error of each activity by 2<sup>-24</sup> times the sum of the
+ * magnitudes of its weighted inputs.<br/>
+ * <br/>
+ * These networks can only propagate; training is done on the compiled
+ * network in double precision, which is converted again with toFloat when
+ * the weights are to be used.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.backprop.brain.CompiledFeedforwardNetwork#toFloat
+ */
+public class FloatFeedforwardNetwork implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int[] layerSizes;
+	private final ActivationFunction[] activationFunctions;
+	private final float[][] weights;
+	private final float[][] biases;
+	private final double[][] activities;
+	private final double[][] outputs;
+
+	/**
+	 * Creates a single precision copy of the given weights.
+	 *
+	 * @param layerSizes the number of neurons in each layer.
+	 * @param activationFunctions the activation function of each layer.
+	 * @param weights the row-major weight matrix of each layer.
+	 * @param biases the bias weights of each layer.
+	 * @since 2.0
+	 */
+	FloatFeedforwardNetwork(final int[] layerSizes, final ActivationFunction[] activationFunctions, final double[][] weights, final double[][] biases)
+	{
+		this.layerSizes = layerSizes;
+		this.activationFunctions = activationFunctions;
+		this.weights = new float[layerSizes.length][];
+		this.biases = new float[layerSizes.length][];
+		for(int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++)
+		{
+			this.weights[layerIndex] = toFloats(weights[layerIndex]);
+			this.biases[layerIndex] = toFloats(biases[layerIndex]);
+		}
+		this.activities = createBuffers(layerSizes);
+		this.outputs = createBuffers(layerSizes);
+	}
+
+	private static float[] toFloats(final double[] values)
+	{
+		final float[] floats = new float[values.length];
+		for(int index = 0; index < values.length; index++)
+			floats[index] = (float) values[index];
+		return floats;
+	}
+
+	private static double[][] createBuffers(final int[] layerSizes)
+	{
+		final double[][] buffers = new double[layerSizes.length][];
+		for(int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++)
+			buffers[layerIndex] = new double[layerSizes[layerIndex]];
+		return buffers;
+	}
+
+	/**
+	 * Gets the number of layers, including the input and output layers.
+	 *
+	 * @return the number of layers.
+	 * @since 2.0
+	 */
+	public final int getLayerCount()
+	{
+		return this.layerSizes.length;
+	}
+
+	/**
+	 * Gets the number of neurons in the specified layer.
+	 *
+	 * @param layer index of the layer, 0 is the input layer.
+	 * @return the number of neurons in the layer.
+	 * @since 2.0
+	 */
+	public final int getLayerSize(final int layer)
+	{
+		return this.layerSizes[layer];
+	}
+
+	/**
+	 * Gets the weight of the synapse connecting the specified source neuron
+	 * of the previous layer to the specified destination neuron.
+	 *
+	 * @param layer index of the destination layer, must be atleast 1.
+	 * @param destination index of the neuron in the destination layer.
+	 * @param source index of the neuron in the previous layer.
+	 * @return the weight of the synapse as stored.
+	 * @since 2.0
+	 */
+	public final float getWeight(final int layer, final int destination, final int source)
+	{
+		return this.weights[layer][(destination * this.layerSizes[layer - 1]) + source];
+	}
+
+	/**
+	 * Gets the bias weight of a neuron.
+	 *
+	 * @param layer index of the layer.
+	 * @param neuron index of the neuron in the layer.
+	 * @return the bias weight of the neuron as stored.
+	 * @since 2.0
+	 */
+	public final float getBiasWeight(final int layer, final int neuron)
+	{
+		return this.biases[layer][neuron];
+	}
+
+	/**
+	 * Propagates the given input values through the network.
+	 *
+	 * @param inputs one value for each neuron in the input layer.
+	 * @return a copy of the output of each neuron in the output layer.
+	 * @since 2.0
+	 */
+	public final double[] propagate(final double[] inputs)
+	{
+		this.propagate(this.activities, this.outputs, inputs);
+		return this.outputs[this.layerSizes.length - 1].clone();
+	}
+
+	/**
+	 * Propagates a batch of input vectors through the network. Each call uses
+	 * its own buffers, so any number of threads may infer against the same
+	 * network at once.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @return the output values of each sample.
+	 * @since 2.0
+	 */
+	public final double[][] infer(final double[][] inputs)
+	{
+		final int outputLayerIndex = this.layerSizes.length - 1;
+		final double[][] passActivities = createBuffers(this.layerSizes);
+		final double[][] passOutputs = createBuffers(this.layerSizes);
+		final double[][] results = new double[inputs.length][];
+		for(int sampleIndex = 0; sampleIndex < inputs.length; sampleIndex++)
+		{
+			this.propagate(passActivities, passOutputs, inputs[sampleIndex]);
+			results[sampleIndex] = passOutputs[outputLayerIndex].clone();
+		}
+		return results;
+	}
+
+	private void propagate(final double[][] passActivities, final double[][] passOutputs, final double[] inputs)
+	{
+		if( inputs.length != this.layerSizes[0] )
+			throw new IllegalArgumentException("inputs must have one value for each input neuron");
+
+		//input neurons pass their input through unchanged
+		System.arraycopy(inputs, 0, passOutputs[0], 0, inputs.length);
+
+		for(int layerIndex = 1; layerIndex < this.layerSizes.length; layerIndex++)
+		{
+			final double[] sourceOutputs = passOutputs[layerIndex - 1];
+			final float[] layerWeights = this.weights[layerIndex];
+			final float[] layerBiases = this.biases[layerIndex];
+			final double[] activities = passActivities[layerIndex];
+			final int sourceCount = sourceOutputs.length;
+
+			for(int neuronIndex = 0; neuronIndex < activities.length; neuronIndex++)
+			{
+				final int rowOffset = neuronIndex * sourceCount;
+				double activity = 0.0;
+				for(int sourceIndex = 0; sourceIndex < sourceCount; sourceIndex++)
+					activity += layerWeights[rowOffset + sourceIndex] * sourceOutputs[sourceIndex];
+				activity += layerBiases[neuronIndex];
+
+				activities[neuronIndex] = activity;
+			}
+
+			CompiledFeedforwardNetwork.activateLayer(this.activationFunctions[layerIndex], activities, passOutputs[layerIndex], null);
+		}
+	}
+}
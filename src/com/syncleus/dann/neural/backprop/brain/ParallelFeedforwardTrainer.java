@@ -0,0 +1,382 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.*;
+import com.syncleus.dann.metrics.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * Trains a compiled feedforward network with several worker threads at once.
+ * The samples are split into one contiguous shard per worker and every worker
+ * trains online, one sample at a time, against its own shard. Two strategies
+ * are available:
+ * <ul>
+ * <li>SHARED: every worker updates the weights of the network directly and
+ * without locking (Hogwild). Updates from different workers may overwrite
+ * each other, which in practice costs little accuracy for sparse or small
+ * updates and scales with the number of workers.</li>
+ * <li>AVERAGED_REPLICAS: every worker trains its own copy of the network and
+ * the copies are averaged into the network every averaging interval samples.
+ * The result does not depend on thread scheduling.</li>
+ * </ul>
+ * Train the network of a brain with <code>new
+ * ParallelFeedforwardTrainer(brain.compile(), ...)</code> and call the brain's
+ * synchronize or decompile afterwards to write the weights back into it.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class ParallelFeedforwardTrainer
+{
+	/**
+	 * How the workers of a trainer share the weights of the network.
+	 *
+	 * @since 2.0
+	 */
+	public enum Strategy
+	{
+		SHARED, AVERAGED_REPLICAS
+	}
+
+	private final CompiledFeedforwardNetwork network;
+	private final int workerCount;
+	private final Strategy strategy;
+	private final int averagingInterval;
+	private long samplesTrained = 0;
+	private double samplesPerSecond = 0.0;
+	private volatile MetricsListener metricsListener = null;
+	private final static Logger LOGGER = Logger.getLogger(ParallelFeedforwardTrainer.class);
+
+	private static class TrainShard implements Callable<Double>
+	{
+		private final CompiledFeedforwardNetwork network;
+		private final CompiledFeedforwardNetwork.Workspace workspace;
+		private final double[][] inputs;
+		private final double[][] desired;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(TrainShard.class);
+
+		public TrainShard(CompiledFeedforwardNetwork network, CompiledFeedforwardNetwork.Workspace workspace, double[][] inputs, double[][] desired, int start, int end)
+		{
+			this.network = network;
+			this.workspace = workspace;
+			this.inputs = inputs;
+			this.desired = desired;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Double call()
+		{
+			try
+			{
+				final double[] outputs = this.workspace.outputs[this.workspace.outputs.length - 1];
+				double squaredError = 0.0;
+				for(int sampleIndex = this.start; sampleIndex < this.end; sampleIndex++)
+				{
+					final double[] sampleDesired = this.desired[sampleIndex];
+					this.network.propagate(this.workspace, this.inputs[sampleIndex], true);
+					for(int outputIndex = 0; outputIndex < outputs.length; outputIndex++)
+					{
+						final double error = sampleDesired[outputIndex] - outputs[outputIndex];
+						squaredError += error * error;
+					}
+					this.network.backPropagate(this.workspace, sampleDesired);
+				}
+				return Double.valueOf(squaredError);
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in TrainShard", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in TrainShard", caught);
+			}
+		}
+	}
+
+	/**
+	 * Creates a trainer using one worker per processor which shares the
+	 * weights of the network between all workers.
+	 *
+	 * @param network the network to train.
+	 * @since 2.0
+	 */
+	public ParallelFeedforwardTrainer(final CompiledFeedforwardNetwork network)
+	{
+		this(network, Runtime.getRuntime().availableProcessors(), Strategy.SHARED, 1);
+	}
+
+	/**
+	 * Creates a trainer.
+	 *
+	 * @param network the network to train.
+	 * @param workerCount the number of worker threads.
+	 * @param strategy how the workers share the weights of the network.
+	 * @param averagingInterval the number of samples each worker trains
+	 * between averages when using AVERAGED_REPLICAS; ignored by SHARED.
+	 * @since 2.0
+	 */
+	public ParallelFeedforwardTrainer(final CompiledFeedforwardNetwork network, final int workerCount, final Strategy strategy, final int averagingInterval)
+	{
+		if( network == null )
+			throw new IllegalArgumentException("network can not be null");
+		if( strategy == null )
+			throw new IllegalArgumentException("strategy can not be null");
+		if( workerCount <= 0 )
+			throw new IllegalArgumentException("workerCount must be greater than 0");
+		if( averagingInterval <= 0 )
+			throw new IllegalArgumentException("averagingInterval must be greater than 0");
+
+		this.network = network;
+		this.workerCount = workerCount;
+		this.strategy = strategy;
+		this.averagingInterval = averagingInterval;
+	}
+
+	/**
+	 * Gets the network this trainer trains.
+	 *
+	 * @return the network this trainer trains.
+	 * @since 2.0
+	 */
+	public final CompiledFeedforwardNetwork getNetwork()
+	{
+		return this.network;
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 *
+	 * @return the number of worker threads.
+	 * @since 2.0
+	 */
+	public final int getWorkerCount()
+	{
+		return this.workerCount;
+	}
+
+	/**
+	 * Gets how the workers share the weights of the network.
+	 *
+	 * @return the strategy of this trainer.
+	 * @since 2.0
+	 */
+	public final Strategy getStrategy()
+	{
+		return this.strategy;
+	}
+
+	/**
+	 * Gets the total number of samples trained by this trainer.
+	 *
+	 * @return the total number of samples trained.
+	 * @since 2.0
+	 */
+	public final long getSamplesTrained()
+	{
+		return this.samplesTrained;
+	}
+
+	/**
+	 * Gets the throughput of the last call to train.
+	 *
+	 * @return the number of samples trained per second by the last call to
+	 * train, or 0 if train has not been called.
+	 * @since 2.0
+	 */
+	public final double getSamplesPerSecond()
+	{
+		return this.samplesPerSecond;
+	}
+
+	/**
+	 * Sets the listener the loss and duration of each epoch are reported to.
+	 *
+	 * @param metricsListener the listener, or null to report nothing.
+	 * @since 2.0
+	 */
+	public final void setMetricsListener(final MetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Gets the listener the loss and duration of each epoch are reported to.
+	 *
+	 * @return the listener, or null if nothing is reported.
+	 * @since 2.0
+	 */
+	public final MetricsListener getMetricsListener()
+	{
+		return this.metricsListener;
+	}
+
+	/**
+	 * Trains the network for a number of epochs over the given samples.
+	 *
+	 * @param inputs the input values of each sample.
+	 * @param desired the desired output values of each sample.
+	 * @param epochs the number of times to train over every sample.
+	 * @return the mean squared error of the last epoch, measured as each
+	 * sample was trained.
+	 * @throws IllegalArgumentException if a row of inputs or desired does not
+	 * match the size of the input or output layer.
+	 * @since 2.0
+	 */
+	public final double train(final double[][] inputs, final double[][] desired, final int epochs)
+	{
+		if( inputs.length != desired.length )
+			throw new IllegalArgumentException("inputs and desired must have the same number of samples");
+		if( inputs.length <= 0 )
+			throw new IllegalArgumentException("there must be atleast one sample");
+		if( epochs <= 0 )
+			throw new IllegalArgumentException("epochs must be greater than 0");
+		//checked here since a bad row would otherwise fail inside a worker
+		final int inputCount = this.network.getLayerSize(0);
+		final int outputCount = this.network.getLayerSize(this.network.getLayerCount() - 1);
+		for(int sampleIndex = 0; sampleIndex < inputs.length; sampleIndex++)
+		{
+			if( inputs[sampleIndex].length != inputCount )
+				throw new IllegalArgumentException("inputs must have one value for each input neuron");
+			if( desired[sampleIndex].length != outputCount )
+				throw new IllegalArgumentException("desired must have one value for each output neuron");
+		}
+
+		final int shardCount = Math.min(this.workerCount, inputs.length);
+		final int[] shardStarts = new int[shardCount + 1];
+		for(int shardIndex = 0; shardIndex <= shardCount; shardIndex++)
+			shardStarts[shardIndex] = (int) (((long) inputs.length * shardIndex) / shardCount);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(shardCount);
+		try
+		{
+			final long startTime = System.nanoTime();
+			double squaredError = 0.0;
+			final MetricsListener listener = this.metricsListener;
+			for(int epoch = 0; epoch < epochs; epoch++)
+			{
+				final long epochStartTime = ( listener == null ? 0L : System.nanoTime() );
+				if( this.strategy == Strategy.SHARED )
+					squaredError = this.trainShared(executor, inputs, desired, shardStarts);
+				else
+					squaredError = this.trainReplicas(executor, inputs, desired, shardStarts);
+				if( listener != null )
+					listener.epochCompleted(this, inputs.length, squaredError / inputs.length, System.nanoTime() - epochStartTime);
+			}
+			final long elapsed = Math.max(1L, System.nanoTime() - startTime);
+
+			final long samples = (long) inputs.length * epochs;
+			this.samplesTrained += samples;
+			this.samplesPerSecond = samples / (elapsed / 1000000000.0);
+			return squaredError / inputs.length;
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private double trainShared(final ExecutorService executor, final double[][] inputs, final double[][] desired, final int[] shardStarts)
+	{
+		final List<Callable<Double>> shards = new ArrayList<Callable<Double>>(shardStarts.length - 1);
+		for(int shardIndex = 0; shardIndex < (shardStarts.length - 1); shardIndex++)
+			shards.add(new TrainShard(this.network, this.network.createWorkspace(), inputs, desired, shardStarts[shardIndex], shardStarts[shardIndex + 1]));
+		return sum(invokeAll(executor, shards));
+	}
+
+	private double trainReplicas(final ExecutorService executor, final double[][] inputs, final double[][] desired, final int[] shardStarts)
+	{
+		final int shardCount = shardStarts.length - 1;
+		final List<CompiledFeedforwardNetwork> replicas = new ArrayList<CompiledFeedforwardNetwork>(shardCount);
+		final List<CompiledFeedforwardNetwork.Workspace> workspaces = new ArrayList<CompiledFeedforwardNetwork.Workspace>(shardCount);
+		for(int shardIndex = 0; shardIndex < shardCount; shardIndex++)
+		{
+			final CompiledFeedforwardNetwork replica = this.network.snapshot();
+			replicas.add(replica);
+			workspaces.add(replica.createWorkspace());
+		}
+
+		//every round each replica trains the next interval of its shard, then
+		//all the replicas are averaged into the network and reset to it
+		double squaredError = 0.0;
+		final int[] positions = new int[shardCount];
+		System.arraycopy(shardStarts, 0, positions, 0, shardCount);
+		boolean remaining = true;
+		while( remaining )
+		{
+			final List<Callable<Double>> rounds = new ArrayList<Callable<Double>>(shardCount);
+			final List<CompiledFeedforwardNetwork> trained = new ArrayList<CompiledFeedforwardNetwork>(shardCount);
+			remaining = false;
+			for(int shardIndex = 0; shardIndex < shardCount; shardIndex++)
+			{
+				final int start = positions[shardIndex];
+				final int end = Math.min(shardStarts[shardIndex + 1], start + this.averagingInterval);
+				if( start >= end )
+					continue;
+				rounds.add(new TrainShard(replicas.get(shardIndex), workspaces.get(shardIndex), inputs, desired, start, end));
+				trained.add(replicas.get(shardIndex));
+				positions[shardIndex] = end;
+				remaining |= (end < shardStarts[shardIndex + 1]);
+			}
+
+			squaredError += sum(invokeAll(executor, rounds));
+			this.network.average(trained);
+			for(CompiledFeedforwardNetwork replica : replicas)
+				replica.copyParameters(this.network);
+		}
+		return squaredError;
+	}
+
+	private static List<Double> invokeAll(final ExecutorService executor, final List<Callable<Double>> tasks)
+	{
+		try
+		{
+			final List<Double> results = new ArrayList<Double>(tasks.size());
+			for(Future<Double> future : executor.invokeAll(tasks))
+				results.add(future.get());
+			return results;
+		}
+		catch(InterruptedException caught)
+		{
+			LOGGER.error("TrainShard was unexpectidy interupted", caught);
+			throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+		}
+		catch(ExecutionException caught)
+		{
+			LOGGER.error("TrainShard had an unexcepted problem executing.", caught);
+			throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+		}
+	}
+
+	private static double sum(final List<Double> values)
+	{
+		double total = 0.0;
+		for(Double value : values)
+			total += value.doubleValue();
+		return total;
+	}
+}
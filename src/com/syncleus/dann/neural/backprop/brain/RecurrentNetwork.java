@@ -0,0 +1,508 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.neural.activation.ActivationFunction;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A recurrent network with a single hidden layer whose outputs are fed back
+ * into itself on the next time step, trained with truncated back propagation
+ * through time (BPTT). Sequences are streamed through the network one time
+ * step at a time and the network keeps the history of the most recent steps
+ * in ring buffers allocated when it is created, so stepping and training
+ * never allocate.<br/>
+ * <br/>
+ * Training is controlled by two lengths:
+ * <ul>
+ * <li>the window, which is how many time steps the error is propagated back
+ * through, and</li>
+ * <li>the interval, which is how many time steps pass between updates of
+ * the weights.</li>
+ * </ul>
+ * Each update propagates the errors of the steps since the previous update
+ * back through the whole window, with the hidden state before the window
+ * treated as a constant. When the interval equals the window every step is
+ * unrolled exactly once; a shorter interval trains more often at a higher
+ * cost per step.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class RecurrentNetwork implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int inputCount;
+	private final int hiddenCount;
+	private final int outputCount;
+	private final int window;
+	private final int interval;
+	private final ActivationFunction hiddenActivationFunction;
+	private final ActivationFunction outputActivationFunction;
+	private final double learningRate;
+
+	//row-major, one row per destination neuron
+	private final double[] inputWeights;
+	private final double[] recurrentWeights;
+	private final double[] outputWeights;
+	private final double[] hiddenBiases;
+	private final double[] outputBiases;
+
+	//ring buffers with one slot per time step of the window plus one for the
+	//hidden state the window starts from
+	private final int capacity;
+	private final double[][] inputHistory;
+	private final double[][] hiddenActivityHistory;
+	private final double[][] hiddenOutputHistory;
+	private final double[][] outputActivityHistory;
+	private final double[][] outputHistory;
+	private final double[][] desiredHistory;
+	private final boolean[] desiredKnown;
+	private int head = 0;
+	private int stored = 0;
+	private int sinceUpdate = 0;
+
+	//gradients and deltas reused by every update
+	private final double[] inputGradients;
+	private final double[] recurrentGradients;
+	private final double[] outputGradients;
+	private final double[] hiddenBiasGradients;
+	private final double[] outputBiasGradients;
+	private final double[] hiddenDeltas;
+	private final double[] nextHiddenDeltas;
+	private final double[] zeroHidden;
+
+	/**
+	 * Creates a recurrent network with small random weights.
+	 *
+	 * @param inputCount number of input neurons.
+	 * @param hiddenCount number of hidden neurons.
+	 * @param outputCount number of output neurons.
+	 * @param window number of time steps errors are propagated back through.
+	 * @param interval number of time steps between updates of the weights,
+	 * no more than the window.
+	 * @param hiddenActivationFunction activation function of the hidden
+	 * neurons.
+	 * @param outputActivationFunction activation function of the output
+	 * neurons.
+	 * @param learningRate learning rate of every weight.
+	 * @param random source of the initial weights.
+	 * @since 2.0
+	 */
+	public RecurrentNetwork(final int inputCount, final int hiddenCount, final int outputCount, final int window, final int interval, final ActivationFunction hiddenActivationFunction, final ActivationFunction outputActivationFunction, final double learningRate, final Random random)
+	{
+		if( (inputCount <= 0) || (hiddenCount <= 0) || (outputCount <= 0) )
+			throw new IllegalArgumentException("every layer must have atleast one neuron");
+		if( window <= 0 )
+			throw new IllegalArgumentException("window must be greater than 0");
+		if( (interval <= 0) || (interval > window) )
+			throw new IllegalArgumentException("interval must be greater than 0 and no more than window");
+		if( (hiddenActivationFunction == null) || (outputActivationFunction == null) )
+			throw new IllegalArgumentException("activation functions can not be null");
+
+		this.inputCount = inputCount;
+		this.hiddenCount = hiddenCount;
+		this.outputCount = outputCount;
+		this.window = window;
+		this.interval = interval;
+		this.hiddenActivationFunction = hiddenActivationFunction;
+		this.outputActivationFunction = outputActivationFunction;
+		this.learningRate = learningRate;
+
+		this.inputWeights = randomWeights(random, hiddenCount * inputCount, inputCount + hiddenCount);
+		this.recurrentWeights = randomWeights(random, hiddenCount * hiddenCount, inputCount + hiddenCount);
+		this.outputWeights = randomWeights(random, outputCount * hiddenCount, hiddenCount);
+		this.hiddenBiases = new double[hiddenCount];
+		this.outputBiases = new double[outputCount];
+		for(int hiddenIndex = 0; hiddenIndex < hiddenCount; hiddenIndex++)
+			this.hiddenBiases[hiddenIndex] = ((random.nextDouble() * 2.0) - 1.0) / 1000.0;
+		for(int outputIndex = 0; outputIndex < outputCount; outputIndex++)
+			this.outputBiases[outputIndex] = ((random.nextDouble() * 2.0) - 1.0) / 1000.0;
+
+		this.capacity = window + 1;
+		this.inputHistory = new double[this.capacity][inputCount];
+		this.hiddenActivityHistory = new double[this.capacity][hiddenCount];
+		this.hiddenOutputHistory = new double[this.capacity][hiddenCount];
+		this.outputActivityHistory = new double[this.capacity][outputCount];
+		this.outputHistory = new double[this.capacity][outputCount];
+		this.desiredHistory = new double[this.capacity][outputCount];
+		this.desiredKnown = new boolean[this.capacity];
+
+		this.inputGradients = new double[this.inputWeights.length];
+		this.recurrentGradients = new double[this.recurrentWeights.length];
+		this.outputGradients = new double[this.outputWeights.length];
+		this.hiddenBiasGradients = new double[hiddenCount];
+		this.outputBiasGradients = new double[outputCount];
+		this.hiddenDeltas = new double[hiddenCount];
+		this.nextHiddenDeltas = new double[hiddenCount];
+		this.zeroHidden = new double[hiddenCount];
+	}
+
+	private static double[] randomWeights(final Random random, final int count, final int fanIn)
+	{
+		final double scale = 1.0 / Math.sqrt(fanIn);
+		final double[] weights = new double[count];
+		for(int weightIndex = 0; weightIndex < count; weightIndex++)
+			weights[weightIndex] = ((random.nextDouble() * 2.0) - 1.0) * scale;
+		return weights;
+	}
+
+	/**
+	 * Gets the number of input neurons.
+	 *
+	 * @return the number of input neurons.
+	 * @since 2.0
+	 */
+	public final int getInputCount()
+	{
+		return this.inputCount;
+	}
+
+	/**
+	 * Gets the number of hidden neurons.
+	 *
+	 * @return the number of hidden neurons.
+	 * @since 2.0
+	 */
+	public final int getHiddenCount()
+	{
+		return this.hiddenCount;
+	}
+
+	/**
+	 * Gets the number of output neurons.
+	 *
+	 * @return the number of output neurons.
+	 * @since 2.0
+	 */
+	public final int getOutputCount()
+	{
+		return this.outputCount;
+	}
+
+	/**
+	 * Gets the number of time steps errors are propagated back through.
+	 *
+	 * @return the length of the window.
+	 * @since 2.0
+	 */
+	public final int getWindow()
+	{
+		return this.window;
+	}
+
+	/**
+	 * Gets the number of time steps between updates of the weights.
+	 *
+	 * @return the length of the interval.
+	 * @since 2.0
+	 */
+	public final int getInterval()
+	{
+		return this.interval;
+	}
+
+	/**
+	 * Gets the weight connecting an input neuron to a hidden neuron.
+	 *
+	 * @param hidden index of the hidden neuron.
+	 * @param input index of the input neuron.
+	 * @return the weight.
+	 * @since 2.0
+	 */
+	public final double getInputWeight(final int hidden, final int input)
+	{
+		return this.inputWeights[(hidden * this.inputCount) + input];
+	}
+
+	/**
+	 * Sets the weight connecting an input neuron to a hidden neuron.
+	 *
+	 * @param hidden index of the hidden neuron.
+	 * @param input index of the input neuron.
+	 * @param weight the new weight.
+	 * @since 2.0
+	 */
+	public final void setInputWeight(final int hidden, final int input, final double weight)
+	{
+		this.inputWeights[(hidden * this.inputCount) + input] = weight;
+	}
+
+	/**
+	 * Gets the weight connecting the previous output of a hidden neuron to a
+	 * hidden neuron.
+	 *
+	 * @param hidden index of the destination hidden neuron.
+	 * @param source index of the source hidden neuron.
+	 * @return the weight.
+	 * @since 2.0
+	 */
+	public final double getRecurrentWeight(final int hidden, final int source)
+	{
+		return this.recurrentWeights[(hidden * this.hiddenCount) + source];
+	}
+
+	/**
+	 * Sets the weight connecting the previous output of a hidden neuron to a
+	 * hidden neuron.
+	 *
+	 * @param hidden index of the destination hidden neuron.
+	 * @param source index of the source hidden neuron.
+	 * @param weight the new weight.
+	 * @since 2.0
+	 */
+	public final void setRecurrentWeight(final int hidden, final int source, final double weight)
+	{
+		this.recurrentWeights[(hidden * this.hiddenCount) + source] = weight;
+	}
+
+	/**
+	 * Gets the weight connecting a hidden neuron to an output neuron.
+	 *
+	 * @param output index of the output neuron.
+	 * @param hidden index of the hidden neuron.
+	 * @return the weight.
+	 * @since 2.0
+	 */
+	public final double getOutputWeight(final int output, final int hidden)
+	{
+		return this.outputWeights[(output * this.hiddenCount) + hidden];
+	}
+
+	/**
+	 * Sets the weight connecting a hidden neuron to an output neuron.
+	 *
+	 * @param output index of the output neuron.
+	 * @param hidden index of the hidden neuron.
+	 * @param weight the new weight.
+	 * @since 2.0
+	 */
+	public final void setOutputWeight(final int output, final int hidden, final double weight)
+	{
+		this.outputWeights[(output * this.hiddenCount) + hidden] = weight;
+	}
+
+	/**
+	 * Clears the hidden state and the history, such as at the start of a new
+	 * sequence. Errors of steps which have not been trained yet are
+	 * discarded, so call flush first to keep them.
+	 *
+	 * @since 2.0
+	 */
+	public final void reset()
+	{
+		this.head = 0;
+		this.stored = 0;
+		this.sinceUpdate = 0;
+	}
+
+	/**
+	 * Advances the network one time step without training it.
+	 *
+	 * @param inputs one value for each input neuron.
+	 * @param outputs receives one value for each output neuron.
+	 * @return the outputs array.
+	 * @since 2.0
+	 */
+	public final double[] propagate(final double[] inputs, final double[] outputs)
+	{
+		final int slot = this.step(inputs);
+		this.desiredKnown[slot] = false;
+		System.arraycopy(this.outputHistory[slot], 0, outputs, 0, this.outputCount);
+		return outputs;
+	}
+
+	/**
+	 * Advances the network one time step and records the desired outputs of
+	 * that step. The weights are updated with BPTT once every interval steps.
+	 *
+	 * @param inputs one value for each input neuron.
+	 * @param desired one desired value for each output neuron.
+	 * @param outputs receives the value of each output neuron before the
+	 * weights are updated.
+	 * @return the outputs array.
+	 * @since 2.0
+	 */
+	public final double[] train(final double[] inputs, final double[] desired, final double[] outputs)
+	{
+		if( desired.length != this.outputCount )
+			throw new IllegalArgumentException("desired must have one value for each output neuron");
+
+		final int slot = this.step(inputs);
+		System.arraycopy(desired, 0, this.desiredHistory[slot], 0, this.outputCount);
+		this.desiredKnown[slot] = true;
+		System.arraycopy(this.outputHistory[slot], 0, outputs, 0, this.outputCount);
+
+		if( this.sinceUpdate >= this.interval )
+			this.backPropagateThroughTime();
+		return outputs;
+	}
+
+	/**
+	 * Updates the weights with the errors of any steps trained since the
+	 * last update without waiting for the interval to pass.
+	 *
+	 * @since 2.0
+	 */
+	public final void flush()
+	{
+		if( this.sinceUpdate > 0 )
+			this.backPropagateThroughTime();
+	}
+
+	private int previousSlot(final int slot)
+	{
+		return ( slot == 0 ? this.capacity - 1 : slot - 1 );
+	}
+
+	/**
+	 * Propagates a single time step into the next slot of the ring buffers.
+	 *
+	 * @return the slot the step was stored in.
+	 */
+	private int step(final double[] inputs)
+	{
+		if( inputs.length != this.inputCount )
+			throw new IllegalArgumentException("inputs must have one value for each input neuron");
+
+		final int slot = this.head;
+		final double[] previousHidden = ( this.stored == 0 ? this.zeroHidden : this.hiddenOutputHistory[this.previousSlot(slot)] );
+		System.arraycopy(inputs, 0, this.inputHistory[slot], 0, this.inputCount);
+
+		final double[] hiddenActivities = this.hiddenActivityHistory[slot];
+		final double[] hiddenOutputs = this.hiddenOutputHistory[slot];
+		for(int hiddenIndex = 0; hiddenIndex < this.hiddenCount; hiddenIndex++)
+		{
+			double activity = this.hiddenBiases[hiddenIndex];
+			final int inputOffset = hiddenIndex * this.inputCount;
+			for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+				activity += this.inputWeights[inputOffset + inputIndex] * inputs[inputIndex];
+			final int recurrentOffset = hiddenIndex * this.hiddenCount;
+			for(int sourceIndex = 0; sourceIndex < this.hiddenCount; sourceIndex++)
+				activity += this.recurrentWeights[recurrentOffset + sourceIndex] * previousHidden[sourceIndex];
+			hiddenActivities[hiddenIndex] = activity;
+			hiddenOutputs[hiddenIndex] = this.hiddenActivationFunction.activate(activity);
+		}
+
+		final double[] outputActivities = this.outputActivityHistory[slot];
+		final double[] outputs = this.outputHistory[slot];
+		for(int outputIndex = 0; outputIndex < this.outputCount; outputIndex++)
+		{
+			double activity = this.outputBiases[outputIndex];
+			final int outputOffset = outputIndex * this.hiddenCount;
+			for(int hiddenIndex = 0; hiddenIndex < this.hiddenCount; hiddenIndex++)
+				activity += this.outputWeights[outputOffset + hiddenIndex] * hiddenOutputs[hiddenIndex];
+			outputActivities[outputIndex] = activity;
+			outputs[outputIndex] = this.outputActivationFunction.activate(activity);
+		}
+
+		this.head = ( slot + 1 == this.capacity ? 0 : slot + 1 );
+		if( this.stored < this.capacity )
+			this.stored++;
+		this.sinceUpdate++;
+		return slot;
+	}
+
+	/**
+	 * Unrolls the network back through the window, accumulating the gradient
+	 * of the errors of the steps since the last update, then applies it.
+	 * Deltas follow the convention of the backprop neurons: the difference
+	 * between the desired and actual outputs, so weights are increased by the
+	 * learning rate times the gradient.
+	 */
+	private void backPropagateThroughTime()
+	{
+		Arrays.fill(this.inputGradients, 0.0);
+		Arrays.fill(this.recurrentGradients, 0.0);
+		Arrays.fill(this.outputGradients, 0.0);
+		Arrays.fill(this.hiddenBiasGradients, 0.0);
+		Arrays.fill(this.outputBiasGradients, 0.0);
+		Arrays.fill(this.nextHiddenDeltas, 0.0);
+
+		final int depth = Math.min(this.window, this.stored);
+		final int erroneousSteps = Math.min(this.sinceUpdate, depth);
+		int slot = this.head;
+		for(int stepIndex = 0; stepIndex < depth; stepIndex++)
+		{
+			slot = this.previousSlot(slot);
+			final double[] hiddenOutputs = this.hiddenOutputHistory[slot];
+
+			//the delta of each hidden neuron is what flows back from the next
+			//step plus what flows back from this step's outputs
+			System.arraycopy(this.nextHiddenDeltas, 0, this.hiddenDeltas, 0, this.hiddenCount);
+			if( (stepIndex < erroneousSteps) && this.desiredKnown[slot] )
+			{
+				final double[] outputActivities = this.outputActivityHistory[slot];
+				final double[] outputs = this.outputHistory[slot];
+				final double[] desired = this.desiredHistory[slot];
+				for(int outputIndex = 0; outputIndex < this.outputCount; outputIndex++)
+				{
+					final double delta = (desired[outputIndex] - outputs[outputIndex]) * this.outputActivationFunction.activateDerivative(outputActivities[outputIndex]);
+					this.outputBiasGradients[outputIndex] += delta;
+					final int outputOffset = outputIndex * this.hiddenCount;
+					for(int hiddenIndex = 0; hiddenIndex < this.hiddenCount; hiddenIndex++)
+					{
+						this.outputGradients[outputOffset + hiddenIndex] += delta * hiddenOutputs[hiddenIndex];
+						this.hiddenDeltas[hiddenIndex] += delta * this.outputWeights[outputOffset + hiddenIndex];
+					}
+				}
+			}
+
+			final double[] hiddenActivities = this.hiddenActivityHistory[slot];
+			for(int hiddenIndex = 0; hiddenIndex < this.hiddenCount; hiddenIndex++)
+				this.hiddenDeltas[hiddenIndex] *= this.hiddenActivationFunction.activateDerivative(hiddenActivities[hiddenIndex]);
+
+			//the hidden state before the oldest stored step is zero
+			final double[] inputs = this.inputHistory[slot];
+			final double[] previousHidden = ( stepIndex + 1 < this.stored ? this.hiddenOutputHistory[this.previousSlot(slot)] : this.zeroHidden );
+			Arrays.fill(this.nextHiddenDeltas, 0.0);
+			for(int hiddenIndex = 0; hiddenIndex < this.hiddenCount; hiddenIndex++)
+			{
+				final double delta = this.hiddenDeltas[hiddenIndex];
+				if( delta == 0.0 )
+					continue;
+				this.hiddenBiasGradients[hiddenIndex] += delta;
+				final int inputOffset = hiddenIndex * this.inputCount;
+				for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+					this.inputGradients[inputOffset + inputIndex] += delta * inputs[inputIndex];
+				final int recurrentOffset = hiddenIndex * this.hiddenCount;
+				for(int sourceIndex = 0; sourceIndex < this.hiddenCount; sourceIndex++)
+				{
+					this.recurrentGradients[recurrentOffset + sourceIndex] += delta * previousHidden[sourceIndex];
+					this.nextHiddenDeltas[sourceIndex] += delta * this.recurrentWeights[recurrentOffset + sourceIndex];
+				}
+			}
+		}
+
+		applyGradients(this.inputWeights, this.inputGradients, this.learningRate);
+		applyGradients(this.recurrentWeights, this.recurrentGradients, this.learningRate);
+		applyGradients(this.outputWeights, this.outputGradients, this.learningRate);
+		applyGradients(this.hiddenBiases, this.hiddenBiasGradients, this.learningRate);
+		applyGradients(this.outputBiases, this.outputBiasGradients, this.learningRate);
+		this.sinceUpdate = 0;
+	}
+
+	private static void applyGradients(final double[] weights, final double[] gradients, final double learningRate)
+	{
+		for(int weightIndex = 0; weightIndex < weights.length; weightIndex++)
+			weights[weightIndex] += learningRate * gradients[weightIndex];
+	}
+}
@@ -0,0 +1,542 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.backprop.brain;
+
+import com.syncleus.dann.neural.activation.ActivationFunction;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A feedforward network with arbitrary sparse connectivity whose connections
+ * are stored in compressed sparse row arrays rather than as synapse objects.
+ * The neurons are numbered in topological order: the input neurons first and
+ * the output neurons last, and every connection runs from a lower numbered
+ * neuron to a higher numbered one. The connections into each neuron are
+ * stored as one row of three arrays:
+ * <ul>
+ * <li>the offset of each neuron's row in the other arrays,</li>
+ * <li>the source neuron of each connection, sorted within each row,</li>
+ * <li>the weight of each connection.</li>
+ * </ul>
+ * A connection costs 12 bytes, so networks with many millions of
+ * connections fit in memory.<br/>
+ * <br/>
+ * Propagation and back propagation calculate the same values as a layered
+ * brain of backprop neurons with the same connections would. The arrays are
+ * never resized while training; connections are added with connect and
+ * removed with disconnect or prune, and the changes take effect together when
+ * rebuild is called.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+public class SparseFeedforwardNetwork implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int neuronCount;
+	private final int inputCount;
+	private final int outputCount;
+	private final ActivationFunction activationFunction;
+	private final double learningRate;
+
+	private int[] rowOffsets;
+	private int[] sources;
+	private double[] weights;
+	private final double[] biases;
+
+	private final double[] activities;
+	private final double[] outputs;
+	private final double[] deltas;
+
+	private int[] addedSources = new int[0];
+	private int[] addedDestinations = new int[0];
+	private double[] addedWeights = new double[0];
+	private int addedCount = 0;
+	private final Set<Long> removed = new HashSet<Long>();
+	private double pruneThreshold = 0.0;
+
+	/**
+	 * Creates a network with the given connections. Bias weights start at 0.
+	 *
+	 * @param neuronCount the total number of neurons.
+	 * @param inputCount the number of input neurons, numbered from 0.
+	 * @param outputCount the number of output neurons, numbered up to
+	 * neuronCount - 1.
+	 * @param activationFunction the activation function of every neuron which
+	 * is not an input neuron.
+	 * @param learningRate the learning rate of every neuron.
+	 * @param sources the source neuron of each connection.
+	 * @param destinations the destination neuron of each connection.
+	 * @param weights the initial weight of each connection.
+	 * @throws IllegalArgumentException if a connection does not run forward,
+	 * ends at an input neuron or starts at an output neuron.
+	 * @since 2.0
+	 */
+	public SparseFeedforwardNetwork(final int neuronCount, final int inputCount, final int outputCount, final ActivationFunction activationFunction, final double learningRate, final int[] sources, final int[] destinations, final double[] weights)
+	{
+		if( (inputCount <= 0) || (outputCount <= 0) || ((inputCount + outputCount) > neuronCount) )
+			throw new IllegalArgumentException("there must be atleast one input and one output neuron and they can not overlap");
+		if( activationFunction == null )
+			throw new IllegalArgumentException("activationFunction can not be null");
+		if( (sources.length != destinations.length) || (sources.length != weights.length) )
+			throw new IllegalArgumentException("sources, destinations and weights must have the same length");
+
+		this.neuronCount = neuronCount;
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		this.activationFunction = activationFunction;
+		this.learningRate = learningRate;
+
+		this.biases = new double[neuronCount];
+		this.activities = new double[neuronCount];
+		this.outputs = new double[neuronCount];
+		this.deltas = new double[neuronCount];
+
+		for(int connectionIndex = 0; connectionIndex < sources.length; connectionIndex++)
+			this.checkConnection(sources[connectionIndex], destinations[connectionIndex]);
+		this.buildRows(sources, destinations, weights, sources.length);
+	}
+
+	private void checkConnection(final int source, final int destination)
+	{
+		if( (destination < this.inputCount) || (destination >= this.neuronCount) )
+			throw new IllegalArgumentException("destination " + destination + " is not a hidden or output neuron");
+		if( (source < 0) || (source >= (this.neuronCount - this.outputCount)) )
+			throw new IllegalArgumentException("source " + source + " is not an input or hidden neuron");
+		if( source >= destination )
+			throw new IllegalArgumentException("connection from " + source + " to " + destination + " does not run forward");
+	}
+
+	private static long connectionKey(final int source, final int destination)
+	{
+		return (((long) source) << 32) | (destination & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Lays out the given connections as rows. Connections are counting sorted
+	 * by destination and then sorted by source within each row; when a pair
+	 * of neurons appears more than once the last occurrence wins.
+	 */
+	private void buildRows(final int[] connectionSources, final int[] connectionDestinations, final double[] connectionWeights, final int count)
+	{
+		final int[] offsets = new int[this.neuronCount + 1];
+		for(int connectionIndex = 0; connectionIndex < count; connectionIndex++)
+			offsets[connectionDestinations[connectionIndex] + 1]++;
+		for(int neuronIndex = 0; neuronIndex < this.neuronCount; neuronIndex++)
+			offsets[neuronIndex + 1] += offsets[neuronIndex];
+
+		final int[] rowSources = new int[count];
+		final double[] rowWeights = new double[count];
+		final int[] fill = new int[this.neuronCount];
+		for(int connectionIndex = 0; connectionIndex < count; connectionIndex++)
+		{
+			final int destination = connectionDestinations[connectionIndex];
+			final int position = offsets[destination] + fill[destination]++;
+			rowSources[position] = connectionSources[connectionIndex];
+			rowWeights[position] = connectionWeights[connectionIndex];
+		}
+
+		//sort each row by source, keyed by the order within the row to keep
+		//the sort stable, and compact away duplicate sources
+		final int[] newOffsets = new int[this.neuronCount + 1];
+		int written = 0;
+		long[] keys = new long[0];
+		final double[] sortedWeights = new double[count];
+		for(int neuronIndex = 0; neuronIndex < this.neuronCount; neuronIndex++)
+		{
+			final int start = offsets[neuronIndex];
+			final int length = offsets[neuronIndex + 1] - start;
+			if( keys.length < length )
+				keys = new long[length];
+			for(int entry = 0; entry < length; entry++)
+				keys[entry] = (((long) rowSources[start + entry]) << 32) | entry;
+			Arrays.sort(keys, 0, length);
+
+			newOffsets[neuronIndex] = written;
+			for(int entry = 0; entry < length; entry++)
+			{
+				final int source = (int) (keys[entry] >>> 32);
+				final double weight = rowWeights[start + (int) (keys[entry] & 0xFFFFFFFFL)];
+				if( (entry + 1 < length) && ((int) (keys[entry + 1] >>> 32) == source) )
+					continue;
+				rowSources[written] = source;
+				sortedWeights[written] = weight;
+				written++;
+			}
+		}
+		newOffsets[this.neuronCount] = written;
+
+		this.rowOffsets = newOffsets;
+		this.sources = Arrays.copyOf(rowSources, written);
+		this.weights = Arrays.copyOf(sortedWeights, written);
+	}
+
+	/**
+	 * Gets the total number of neurons.
+	 *
+	 * @return the total number of neurons.
+	 * @since 2.0
+	 */
+	public final int getNeuronCount()
+	{
+		return this.neuronCount;
+	}
+
+	/**
+	 * Gets the number of input neurons.
+	 *
+	 * @return the number of input neurons.
+	 * @since 2.0
+	 */
+	public final int getInputCount()
+	{
+		return this.inputCount;
+	}
+
+	/**
+	 * Gets the number of output neurons.
+	 *
+	 * @return the number of output neurons.
+	 * @since 2.0
+	 */
+	public final int getOutputCount()
+	{
+		return this.outputCount;
+	}
+
+	/**
+	 * Gets the number of connections as of the last rebuild.
+	 *
+	 * @return the number of connections.
+	 * @since 2.0
+	 */
+	public final int getConnectionCount()
+	{
+		return this.sources.length;
+	}
+
+	/**
+	 * Gets the number of connections into a neuron.
+	 *
+	 * @param neuron the index of the neuron.
+	 * @return the number of connections into the neuron.
+	 * @since 2.0
+	 */
+	public final int getIndegree(final int neuron)
+	{
+		return this.rowOffsets[neuron + 1] - this.rowOffsets[neuron];
+	}
+
+	private int findConnection(final int source, final int destination)
+	{
+		if( (destination < 0) || (destination >= this.neuronCount) )
+			return -1;
+		final int index = Arrays.binarySearch(this.sources, this.rowOffsets[destination], this.rowOffsets[destination + 1], source);
+		return ( index < 0 ? -1 : index );
+	}
+
+	/**
+	 * Determines if two neurons are connected as of the last rebuild.
+	 *
+	 * @param source the index of the source neuron.
+	 * @param destination the index of the destination neuron.
+	 * @return true if the neurons are connected, false otherwise.
+	 * @since 2.0
+	 */
+	public final boolean isConnected(final int source, final int destination)
+	{
+		return (this.findConnection(source, destination) >= 0);
+	}
+
+	/**
+	 * Gets the weight of a connection.
+	 *
+	 * @param source the index of the source neuron.
+	 * @param destination the index of the destination neuron.
+	 * @return the weight of the connection.
+	 * @throws IllegalArgumentException if the neurons are not connected.
+	 * @since 2.0
+	 */
+	public final double getWeight(final int source, final int destination)
+	{
+		final int index = this.findConnection(source, destination);
+		if( index < 0 )
+			throw new IllegalArgumentException(source + " is not connected to " + destination);
+		return this.weights[index];
+	}
+
+	/**
+	 * Sets the weight of a connection.
+	 *
+	 * @param source the index of the source neuron.
+	 * @param destination the index of the destination neuron.
+	 * @param weight the new weight of the connection.
+	 * @throws IllegalArgumentException if the neurons are not connected.
+	 * @since 2.0
+	 */
+	public final void setWeight(final int source, final int destination, final double weight)
+	{
+		final int index = this.findConnection(source, destination);
+		if( index < 0 )
+			throw new IllegalArgumentException(source + " is not connected to " + destination);
+		this.weights[index] = weight;
+	}
+
+	/**
+	 * Gets the bias weight of a neuron.
+	 *
+	 * @param neuron the index of the neuron.
+	 * @return the bias weight of the neuron.
+	 * @since 2.0
+	 */
+	public final double getBiasWeight(final int neuron)
+	{
+		return this.biases[neuron];
+	}
+
+	/**
+	 * Sets the bias weight of a neuron.
+	 *
+	 * @param neuron the index of the neuron.
+	 * @param biasWeight the new bias weight of the neuron.
+	 * @since 2.0
+	 */
+	public final void setBiasWeight(final int neuron, final double biasWeight)
+	{
+		this.biases[neuron] = biasWeight;
+	}
+
+	/**
+	 * Gets the output of a neuron as of the last propagation.
+	 *
+	 * @param neuron the index of the neuron.
+	 * @return the output of the neuron.
+	 * @since 2.0
+	 */
+	public final double getOutput(final int neuron)
+	{
+		return this.outputs[neuron];
+	}
+
+	/**
+	 * Propagates the given input values through the network.
+	 *
+	 * @param inputs one value for each input neuron.
+	 * @return a copy of the output of each output neuron.
+	 * @since 2.0
+	 */
+	public final double[] propagate(final double[] inputs)
+	{
+		if( inputs.length != this.inputCount )
+			throw new IllegalArgumentException("inputs must have one value for each input neuron");
+
+		//input neurons pass their input through unchanged
+		System.arraycopy(inputs, 0, this.outputs, 0, this.inputCount);
+
+		//every source comes before its destination so one pass in order
+		//visits each neuron after all of its inputs are known
+		for(int neuronIndex = this.inputCount; neuronIndex < this.neuronCount; neuronIndex++)
+		{
+			double activity = this.biases[neuronIndex];
+			final int rowEnd = this.rowOffsets[neuronIndex + 1];
+			for(int connectionIndex = this.rowOffsets[neuronIndex]; connectionIndex < rowEnd; connectionIndex++)
+				activity += this.weights[connectionIndex] * this.outputs[this.sources[connectionIndex]];
+			this.activities[neuronIndex] = activity;
+			this.outputs[neuronIndex] = this.activationFunction.activate(activity);
+		}
+
+		return Arrays.copyOfRange(this.outputs, this.neuronCount - this.outputCount, this.neuronCount);
+	}
+
+	/**
+	 * Back propagates the given desired output values through the network
+	 * and adjusts the weights accordingly. This uses the state left by the
+	 * last call to propagate. The neurons are visited in reverse order, each
+	 * learning the weights into it and then passing its delta back to its
+	 * sources through the weights just learned, so the delta of a neuron is
+	 * complete by the time it is visited.
+	 *
+	 * @param desired one desired value for each output neuron.
+	 * @since 2.0
+	 */
+	public final void backPropagate(final double[] desired)
+	{
+		if( desired.length != this.outputCount )
+			throw new IllegalArgumentException("desired must have one value for each output neuron");
+
+		final int firstOutput = this.neuronCount - this.outputCount;
+		Arrays.fill(this.deltas, 0, firstOutput, 0.0);
+		for(int outputIndex = 0; outputIndex < this.outputCount; outputIndex++)
+			this.deltas[firstOutput + outputIndex] = desired[outputIndex] - this.outputs[firstOutput + outputIndex];
+
+		for(int neuronIndex = this.neuronCount - 1; neuronIndex >= this.inputCount; neuronIndex--)
+		{
+			//deltas hold the weighted sum of the destination deltas until the
+			//neuron is visited
+			final double delta = this.deltas[neuronIndex] * this.activationFunction.activateDerivative(this.activities[neuronIndex]);
+			this.deltas[neuronIndex] = delta;
+
+			final double step = delta * this.learningRate;
+			final int rowEnd = this.rowOffsets[neuronIndex + 1];
+			for(int connectionIndex = this.rowOffsets[neuronIndex]; connectionIndex < rowEnd; connectionIndex++)
+			{
+				final int source = this.sources[connectionIndex];
+				final double weight = this.weights[connectionIndex] + (step * this.outputs[source]);
+				this.weights[connectionIndex] = weight;
+				this.deltas[source] += weight * delta;
+			}
+			this.biases[neuronIndex] += step;
+		}
+	}
+
+	/**
+	 * Adds a connection when rebuild is next called. If the neurons are
+	 * already connected the weight of the connection is replaced.
+	 *
+	 * @param source the index of the source neuron.
+	 * @param destination the index of the destination neuron.
+	 * @param weight the initial weight of the connection.
+	 * @throws IllegalArgumentException if the connection does not run
+	 * forward, ends at an input neuron or starts at an output neuron.
+	 * @since 2.0
+	 */
+	public final void connect(final int source, final int destination, final double weight)
+	{
+		this.checkConnection(source, destination);
+		if( this.addedCount == this.addedSources.length )
+		{
+			final int capacity = Math.max(16, this.addedCount * 2);
+			this.addedSources = Arrays.copyOf(this.addedSources, capacity);
+			this.addedDestinations = Arrays.copyOf(this.addedDestinations, capacity);
+			this.addedWeights = Arrays.copyOf(this.addedWeights, capacity);
+		}
+		this.addedSources[this.addedCount] = source;
+		this.addedDestinations[this.addedCount] = destination;
+		this.addedWeights[this.addedCount] = weight;
+		this.addedCount++;
+		this.removed.remove(Long.valueOf(connectionKey(source, destination)));
+	}
+
+	/**
+	 * Removes a connection when rebuild is next called. Connections added
+	 * since the last rebuild are removed as well.
+	 *
+	 * @param source the index of the source neuron.
+	 * @param destination the index of the destination neuron.
+	 * @since 2.0
+	 */
+	public final void disconnect(final int source, final int destination)
+	{
+		this.removed.add(Long.valueOf(connectionKey(source, destination)));
+		int kept = 0;
+		for(int addedIndex = 0; addedIndex < this.addedCount; addedIndex++)
+		{
+			if( (this.addedSources[addedIndex] == source) && (this.addedDestinations[addedIndex] == destination) )
+				continue;
+			this.addedSources[kept] = this.addedSources[addedIndex];
+			this.addedDestinations[kept] = this.addedDestinations[addedIndex];
+			this.addedWeights[kept] = this.addedWeights[addedIndex];
+			kept++;
+		}
+		this.addedCount = kept;
+	}
+
+	/**
+	 * Removes every connection whose weight is smaller in magnitude than the
+	 * threshold when rebuild is next called. The weights are compared as they
+	 * are at the time of the rebuild; connections added since the last
+	 * rebuild are never pruned.
+	 *
+	 * @param threshold the smallest magnitude of weight to keep.
+	 * @since 2.0
+	 */
+	public final void prune(final double threshold)
+	{
+		if( threshold < 0.0 )
+			throw new IllegalArgumentException("threshold can not be negative");
+		this.pruneThreshold = Math.max(this.pruneThreshold, threshold);
+	}
+
+	/**
+	 * Determines if there are changes to the connections waiting for a
+	 * rebuild.
+	 *
+	 * @return true if rebuild would change the connections, false otherwise.
+	 * @since 2.0
+	 */
+	public final boolean hasPendingChanges()
+	{
+		return (this.addedCount > 0) || !this.removed.isEmpty() || (this.pruneThreshold > 0.0);
+	}
+
+	/**
+	 * Applies every connection added, disconnected or pruned since the last
+	 * rebuild by laying out the rows again. The weights of the connections
+	 * which are kept are unchanged.
+	 *
+	 * @return the number of connections after the rebuild.
+	 * @since 2.0
+	 */
+	public final int rebuild()
+	{
+		if( !this.hasPendingChanges() )
+			return this.getConnectionCount();
+
+		final int capacity = this.sources.length + this.addedCount;
+		final int[] newSources = new int[capacity];
+		final int[] newDestinations = new int[capacity];
+		final double[] newWeights = new double[capacity];
+		int count = 0;
+		for(int neuronIndex = this.inputCount; neuronIndex < this.neuronCount; neuronIndex++)
+		{
+			final int rowEnd = this.rowOffsets[neuronIndex + 1];
+			for(int connectionIndex = this.rowOffsets[neuronIndex]; connectionIndex < rowEnd; connectionIndex++)
+			{
+				final int source = this.sources[connectionIndex];
+				final double weight = this.weights[connectionIndex];
+				if( Math.abs(weight) < this.pruneThreshold )
+					continue;
+				if( !this.removed.isEmpty() && this.removed.contains(Long.valueOf(connectionKey(source, neuronIndex))) )
+					continue;
+				newSources[count] = source;
+				newDestinations[count] = neuronIndex;
+				newWeights[count] = weight;
+				count++;
+			}
+		}
+
+		//additions come last so they replace the weight of an existing
+		//connection between the same neurons
+		System.arraycopy(this.addedSources, 0, newSources, count, this.addedCount);
+		System.arraycopy(this.addedDestinations, 0, newDestinations, count, this.addedCount);
+		System.arraycopy(this.addedWeights, 0, newWeights, count, this.addedCount);
+		count += this.addedCount;
+
+		this.buildRows(newSources, newDestinations, newWeights, count);
+
+		this.addedSources = new int[0];
+		this.addedDestinations = new int[0];
+		this.addedWeights = new double[0];
+		this.addedCount = 0;
+		this.removed.clear();
+		this.pruneThreshold = 0.0;
+		return this.getConnectionCount();
+	}
+}
@@ -65,7 +65,10 @@ public class SomNeuron extends AbstractNeuron implements OutputNeuron
         //calculate the current input activity
         activity = 0;
         for (Synapse currentSynapse : this.getBrain().getInEdges(this))
-            activity += Math.pow(currentSynapse.getInput() - currentSynapse.getWeight(), 2.0);
+		{
+			final double difference = currentSynapse.getInput() - currentSynapse.getWeight();
+            activity += difference * difference;
+		}
         //Add the bias to the activity
         super.activity = activity;
 
@@ -20,6 +20,9 @@ package com.syncleus.dann.neural.som.brain;
 
 import com.syncleus.dann.neural.som.*;
 import com.syncleus.dann.neural.*;
+import com.syncleus.dann.dataprocessing.sample.*;
+import com.syncleus.dann.metrics.*;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.Map.Entry;
@@ -46,6 +49,12 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	private Vector lowerBounds;
 	private final List<SomInputNeuron> inputs = new ArrayList<SomInputNeuron>();
 	private final Hashtable<Vector, SomNeuron> outputs = new Hashtable<Vector, SomNeuron>();
+	private SomCodebook codebook = null;
+	private transient SomNeuron[] latticeNeurons = null;
+	private transient Map<Vector, Integer> latticeUnits = null;
+	private transient SomLatticeIndex latticeIndex = null;
+	private transient int[] neighborhoodUnits = null;
+	private transient double[] neighborhoodDistances = null;
 	private final static Logger LOGGER = Logger.getLogger(AbstractSomBrain.class);
 
 
@@ -82,17 +91,13 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	private class TrainNeuron implements Runnable
 	{
 		private final SomNeuron neuron;
-		private final Vector neuronPoint;
-		private final Vector bestMatchPoint;
-		private final double neighborhoodRadius;
+		private final double currentDistance;
 		private final double learningRate;
 
-		public TrainNeuron(SomNeuron neuron, Vector neuronPoint, Vector bestMatchPoint, double neighborhoodRadius, double learningRate)
+		public TrainNeuron(SomNeuron neuron, double currentDistance, double learningRate)
 		{
 			this.neuron = neuron;
-			this.neuronPoint = neuronPoint;
-			this.bestMatchPoint = bestMatchPoint;
-			this.neighborhoodRadius = neighborhoodRadius;
+			this.currentDistance = currentDistance;
 			this.learningRate = learningRate;
 		}
 
@@ -100,12 +105,8 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 		{
 			try
 			{
-				final double currentDistance = this.neuronPoint.calculateRelativeTo(this.bestMatchPoint).getDistance();
-				if( currentDistance < this.neighborhoodRadius)
-				{
-					final double neighborhoodAdjustment = neighborhoodFunction(currentDistance);
-					this.neuron.train(this.learningRate, neighborhoodAdjustment);
-				}
+				final double neighborhoodAdjustment = neighborhoodFunction(this.currentDistance);
+				this.neuron.train(this.learningRate, neighborhoodAdjustment);
 			}
 			catch(Exception caught)
 			{
@@ -130,6 +131,30 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	 * @since 2.0
 	 */
 	protected AbstractSomBrain(int inputCount, int dimentionality)
+	{
+		super();
+		this.initalizeInputs(inputCount, dimentionality);
+	}
+
+	/**
+	 * Called by chidren classes to instantiate a basic SomBrain with the given
+	 * number of inputs and with an output lattice of the given number of
+	 * dimensions, using the given threadExecutor for executing tasks. Batch
+	 * training splits each batch into no more shares than the executor has
+	 * threads.
+	 *
+	 * @param inputCount The number of inputs
+	 * @param dimentionality The number of dimensions of the output lattice
+	 * @param threadExecutor executor to use for executing tasks.
+	 * @since 2.0
+	 */
+	protected AbstractSomBrain(int inputCount, int dimentionality, ThreadPoolExecutor threadExecutor)
+	{
+		super(threadExecutor);
+		this.initalizeInputs(inputCount, dimentionality);
+	}
+
+	private void initalizeInputs(final int inputCount, final int dimentionality)
 	{
 		if( inputCount <= 0 )
 			throw new IllegalArgumentException("input count must be greater than 0");
@@ -174,6 +199,9 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 		if(position.getDimensions() != this.getUpperBounds().getDimensions())
 			throw new IllegalArgumentException("Dimentionality mismatch");
 
+		if( this.codebook != null )
+			throw new IllegalStateException("outputs can not be created while the brain is compiled");
+
 		final Vector positionCopy = new Vector(position);
 
 		//increase the upper bounds if needed
@@ -182,6 +210,7 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 		//create and add the new output neuron
 		final SomNeuron outputNeuron = new SomNeuron(this);
 		this.outputs.put(positionCopy, outputNeuron);
+		this.latticeIndex = null;
 		this.add(outputNeuron);
 
 		//connect all inputs to the new neuron
@@ -224,6 +253,9 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	 */
 	public final double getOutput(final Vector position)
 	{
+		if( this.codebook != null )
+			return this.codebook.getOutput(this.codebook.getUnit(position), this.getInputs());
+
 		final SomNeuron outputNeuron = this.outputs.get(position);
 		outputNeuron.propagate();
 		return outputNeuron.getOutput();
@@ -255,6 +287,26 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 		if( this.outputs.size() <= 0)
 			throw new IllegalStateException("Must have atleast one output");
 
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		if( this.codebook != null )
+		{
+			final double[] currentInputs = this.getInputs();
+			final int bestUnit = this.codebook.getBestMatchingUnit(currentInputs, this.getThreadExecutor());
+			final long searchedTime = ( listener == null ? 0L : System.nanoTime() );
+			if( listener != null )
+				listener.phaseCompleted(this, TrainingPhase.BEST_MATCHING_UNIT, searchedTime - startTime);
+			if(train)
+			{
+				this.codebook.train(bestUnit, currentInputs, this.neighborhoodRadiusFunction(), this.learningRateFunction(), this);
+				this.iterationsTrained++;
+				if( listener != null )
+					listener.phaseCompleted(this, TrainingPhase.NEIGHBORHOOD, System.nanoTime() - searchedTime);
+			}
+			return this.codebook.getPosition(bestUnit);
+		}
+
 		//stick all the neurons in the queue to propogate
 		final HashMap<Vector, Future<Double>> futureOutput = new HashMap<Vector, Future<Double>>();
 		for(Entry<Vector, SomNeuron> entry : this.outputs.entrySet())
@@ -284,17 +336,23 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
 			}
 
-			if(bestMatchingUnit == null)
-				bestMatchingUnit = entry.getKey();
-			else if(currentError < bestError)
+			if( (bestMatchingUnit == null) || (currentError < bestError) )
 			{
 				bestMatchingUnit = entry.getKey();
 				bestError = currentError;
 			}
 		}
 
+		final long searchedTime = ( listener == null ? 0L : System.nanoTime() );
+		if( listener != null )
+			listener.phaseCompleted(this, TrainingPhase.BEST_MATCHING_UNIT, searchedTime - startTime);
+
 		if(train)
+		{
 			this.train(bestMatchingUnit);
+			if( listener != null )
+				listener.phaseCompleted(this, TrainingPhase.NEIGHBORHOOD, System.nanoTime() - searchedTime);
+		}
 
 		return bestMatchingUnit;
 	}
@@ -304,11 +362,16 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 		final double neighborhoodRadius = this.neighborhoodRadiusFunction();
 		final double learningRate = this.learningRateFunction();
 
+		//only the neurons inside the neighborhood are trained
+		final SomLatticeIndex index = this.getLatticeIndex();
+		final int bestUnit = this.latticeUnits.get(bestMatchingUnit).intValue();
+		final int neighborhoodSize = index.findNeighborhood(bestUnit, neighborhoodRadius, this.neighborhoodUnits, this.neighborhoodDistances);
+
 		//add all the neuron trainingevents to the thread queue
-		final ArrayList<Future> futures = new ArrayList<Future>();
-		for(Entry<Vector, SomNeuron> entry : this.outputs.entrySet())
+		final ArrayList<Future> futures = new ArrayList<Future>(neighborhoodSize);
+		for(int neighborIndex = 0; neighborIndex < neighborhoodSize; neighborIndex++)
 		{
-			final TrainNeuron runnable = new TrainNeuron(entry.getValue(), entry.getKey(), bestMatchingUnit, neighborhoodRadius, learningRate);
+			final TrainNeuron runnable = new TrainNeuron(this.latticeNeurons[this.neighborhoodUnits[neighborIndex]], this.neighborhoodDistances[neighborIndex], learningRate);
 			futures.add(this.getThreadExecutor().submit(runnable));
 		}
 
@@ -333,6 +396,171 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	}
 
 
+	/**
+	 * Trains the brain for one epoch against an entire batch of samples using
+	 * the batch SOM algorithm. The BMUs of all the samples are found in
+	 * parallel against the current weights, then every weight vector is
+	 * replaced by the neighborhood weighted mean of the samples whose BMU is
+	 * within the current neighborhood radius of it. Unlike training through
+	 * getBestMatchingUnit the learning rate is not used, and the result does
+	 * not depend on the order of the samples. Counts as a single training
+	 * iteration. If the brain is not already compiled it is compiled for the
+	 * duration of the batch and then decompiled.
+	 *
+	 * @param samples The input vectors of the batch, one per sample.
+	 * @return the mean distance between each sample and its BMU before the
+	 * update.
+	 * @since 2.0
+	 */
+	public final double trainBatch(final double[][] samples)
+	{
+		if( this.outputs.size() <= 0)
+			throw new IllegalStateException("Must have atleast one output");
+
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		final boolean wasCompiled = this.isCompiled();
+		try
+		{
+			final double quantizationError = this.compile().trainBatch(samples, this.neighborhoodRadiusFunction(), this, this.getThreadExecutor());
+			this.iterationsTrained++;
+			if( listener != null )
+				listener.epochCompleted(this, samples.length, quantizationError, System.nanoTime() - startTime);
+			return quantizationError;
+		}
+		finally
+		{
+			if( !wasCompiled )
+				this.decompile();
+		}
+	}
+
+	/**
+	 * Trains the brain against every remaining row of the current epoch of a
+	 * sample source, one row at a time, as if the features of each row were
+	 * set as the inputs and getBestMatchingUnit(true) called. The labels of
+	 * the rows are ignored. Each row counts as a training iteration.
+	 *
+	 * @param source the source of the rows.
+	 * @return the number of rows trained.
+	 * @throws IOException if a row can not be read.
+	 * @since 2.0
+	 * @see com.syncleus.dann.dataprocessing.sample.BlockSampleSource
+	 */
+	public final long train(final SampleSource source) throws IOException
+	{
+		if( source.getFeatureCount() != this.getInputCount() )
+			throw new IllegalArgumentException("source must have one feature per input");
+
+		final MetricsListener listener = this.getMetricsListener();
+		final long startTime = ( listener == null ? 0L : System.nanoTime() );
+
+		long rowCount = 0;
+		while( source.next() )
+		{
+			final SampleRow row = source.getRow();
+			for(int inputIndex = 0; inputIndex < this.getInputCount(); inputIndex++)
+				this.setInput(inputIndex, row.getFeature(inputIndex));
+			this.getBestMatchingUnit(true);
+			rowCount++;
+		}
+
+		if( listener != null )
+			listener.epochCompleted(this, rowCount, Double.NaN, System.nanoTime() - startTime);
+		return rowCount;
+	}
+
+	/**
+	 * Compiles the output lattice into a SomCodebook which holds every weight
+	 * vector in a single contiguous array. While compiled, getBestMatchingUnit
+	 * searches and trains the codebook instead of the neurons; the weights of
+	 * the synapses are written back when synchronize or decompile is called.
+	 * Outputs can not be created while the brain is compiled.
+	 *
+	 * @return the codebook now backing this brain.
+	 * @since 2.0
+	 */
+	public final SomCodebook compile()
+	{
+		if( this.codebook == null )
+			this.codebook = new SomCodebook(this, this.inputs, this.outputs);
+		return this.codebook;
+	}
+
+	/**
+	 * Determines if this brain is currently backed by a codebook.
+	 *
+	 * @return true if the brain is compiled, false otherwise.
+	 * @since 2.0
+	 */
+	public final boolean isCompiled()
+	{
+		return (this.codebook != null);
+	}
+
+	/**
+	 * Writes the weights of the codebook back into the synapses of this brain.
+	 * The brain remains compiled.
+	 *
+	 * @throws IllegalStateException if the brain is not compiled.
+	 * @since 2.0
+	 */
+	public final void synchronize()
+	{
+		if( this.codebook == null )
+			throw new IllegalStateException("brain is not compiled");
+		this.codebook.synchronize();
+	}
+
+	/**
+	 * Synchronizes the codebook back into this brain and returns to training
+	 * the neurons directly. Does nothing if the brain is not compiled.
+	 *
+	 * @since 2.0
+	 */
+	public final void decompile()
+	{
+		if( this.codebook == null )
+			return;
+		this.codebook.synchronize();
+		this.codebook = null;
+	}
+
+	private SomLatticeIndex getLatticeIndex()
+	{
+		if( this.latticeIndex == null )
+		{
+			final int unitCount = this.outputs.size();
+			final int dimensions = this.upperBounds.getDimensions();
+			this.latticeNeurons = new SomNeuron[unitCount];
+			this.latticeUnits = new HashMap<Vector, Integer>(unitCount * 2);
+			final double[] positions = new double[unitCount * dimensions];
+			int unit = 0;
+			for(Entry<Vector, SomNeuron> entry : this.outputs.entrySet())
+			{
+				this.latticeNeurons[unit] = entry.getValue();
+				this.latticeUnits.put(entry.getKey(), Integer.valueOf(unit));
+				for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+					positions[(unit * dimensions) + dimensionIndex] = entry.getKey().getCoordinate(dimensionIndex + 1);
+				unit++;
+			}
+
+			this.neighborhoodUnits = new int[unitCount];
+			this.neighborhoodDistances = new double[unitCount];
+			this.latticeIndex = new SomLatticeIndex(positions, dimensions);
+		}
+		return this.latticeIndex;
+	}
+
+	private double[] getInputs()
+	{
+		final double[] currentInputs = new double[this.inputs.size()];
+		for(int inputIndex = 0; inputIndex < currentInputs.length; inputIndex++)
+			currentInputs[inputIndex] = this.inputs.get(inputIndex).getInput();
+		return currentInputs;
+	}
+
 	/**
 	 * The number of iterations trained so far.
 	 *
@@ -418,6 +646,14 @@ public abstract class AbstractSomBrain extends AbstractLocalBrain
 	 */
 	public final Map<Vector, double[]> getOutputWeightVectors()
 	{
+		if( this.codebook != null )
+		{
+			final HashMap<Vector, double[]> weightVectors = new HashMap<Vector, double[]>();
+			for(int unit = 0; unit < this.codebook.getUnitCount(); unit++)
+				weightVectors.put(this.codebook.getPosition(unit), this.codebook.getWeightVector(unit));
+			return Collections.unmodifiableMap(weightVectors);
+		}
+
 		//iterate through the output lattice
 		final HashMap<Vector, double[]> weightVectors = new HashMap<Vector, double[]>();
 		for(Entry<Vector,SomNeuron> output : this.outputs.entrySet())
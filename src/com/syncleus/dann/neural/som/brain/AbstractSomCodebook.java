@@ -0,0 +1,243 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.som.brain;
+
+import com.syncleus.dann.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * The Best Matching Unit (BMU) search shared by the codebooks. A codebook only
+ * has to calculate the squared distance between one of its units and an input
+ * vector; splitting the codebook into ranges, scanning them and reducing the
+ * results is done here the same way for every codebook.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+abstract class AbstractSomCodebook
+{
+	/**
+	 * The minimum number of units scanned by each share of a parallel BMU
+	 * search. Smaller codebooks are scanned on the calling thread.
+	 *
+	 * @since 2.0
+	 */
+	public static final int MIN_UNITS_PER_SHARE = 1024;
+
+	private final static Logger LOGGER = Logger.getLogger(AbstractSomCodebook.class);
+
+	/**
+	 * The best unit found within a range of the codebook.
+	 *
+	 * @since 2.0
+	 */
+	private static final class BestMatch
+	{
+		private final int unit;
+		private final double squaredDistance;
+
+		public BestMatch(final int unit, final double squaredDistance)
+		{
+			this.unit = unit;
+			this.squaredDistance = squaredDistance;
+		}
+	}
+
+	private static class SearchRange implements Callable<BestMatch>
+	{
+		private final AbstractSomCodebook codebook;
+		private final double[] inputs;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(SearchRange.class);
+
+		public SearchRange(AbstractSomCodebook codebook, double[] inputs, int start, int end)
+		{
+			this.codebook = codebook;
+			this.inputs = inputs;
+			this.start = start;
+			this.end = end;
+		}
+
+		public BestMatch call()
+		{
+			try
+			{
+				return this.codebook.searchRange(this.inputs, this.start, this.end);
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in SearchRange", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in SearchRange", caught);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of inputs, which is the length of each weight vector.
+	 *
+	 * @return the number of inputs.
+	 * @since 2.0
+	 */
+	public abstract int getInputCount();
+
+	/**
+	 * Gets the number of units in the output lattice.
+	 *
+	 * @return the number of units.
+	 * @since 2.0
+	 */
+	public abstract int getUnitCount();
+
+	/**
+	 * Calculates the squared euclidean distance between the weight vector of
+	 * a unit and the given input vector. The distance may stop being
+	 * accumulated once it is no longer less than the limit, in which case any
+	 * value not less than the limit is returned.
+	 *
+	 * @param unit index of the unit.
+	 * @param inputs the input vector.
+	 * @param limit the distance beyond which the exact value is not needed.
+	 * @return the squared distance between the unit and the inputs.
+	 * @since 2.0
+	 */
+	abstract double squaredDistance(int unit, double[] inputs, double limit);
+
+	/**
+	 * Finds the Best Matching Unit (BMU) for the given input vector on the
+	 * calling thread. When several units are equally close the one with the
+	 * lowest index is returned.
+	 *
+	 * @param inputs the input vector.
+	 * @return the index of the BMU.
+	 * @since 2.0
+	 */
+	public final int getBestMatchingUnit(final double[] inputs)
+	{
+		return this.getBestMatchingUnit(inputs, null);
+	}
+
+	/**
+	 * Finds the Best Matching Unit (BMU) for the given input vector. Codebooks
+	 * with enough units are split into ranges which are scanned concurrently
+	 * by the executor. The result does not depend on how the codebook was
+	 * split; when several units are equally close the one with the lowest
+	 * index is returned.
+	 *
+	 * @param inputs the input vector.
+	 * @param executor executor used to scan the ranges of the codebook, or
+	 * null to scan the whole codebook on the calling thread.
+	 * @return the index of the BMU.
+	 * @since 2.0
+	 */
+	public final int getBestMatchingUnit(final double[] inputs, final ExecutorService executor)
+	{
+		this.checkInputs(inputs);
+
+		final int unitCount = this.getUnitCount();
+		final int shareCount = Math.min(getMaximumShares(executor), unitCount / MIN_UNITS_PER_SHARE);
+		if( shareCount <= 1 )
+			return this.searchRange(inputs, 0, unitCount).unit;
+
+		final List<Future<BestMatch>> futures = new ArrayList<Future<BestMatch>>(shareCount);
+		for(int shareIndex = 0; shareIndex < shareCount; shareIndex++)
+		{
+			final int start = (int) (((long) unitCount * shareIndex) / shareCount);
+			final int end = (int) (((long) unitCount * (shareIndex + 1)) / shareCount);
+			futures.add(executor.submit(new SearchRange(this, inputs, start, end)));
+		}
+
+		//ranges are reduced in order so ties resolve to the lowest index
+		BestMatch best = null;
+		try
+		{
+			for(Future<BestMatch> future : futures)
+			{
+				final BestMatch current = future.get();
+				if( (best == null) || (current.squaredDistance < best.squaredDistance) )
+					best = current;
+			}
+		}
+		catch(InterruptedException caught)
+		{
+			LOGGER.error("SearchRange was unexpectidy interupted", caught);
+			throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+		}
+		catch(ExecutionException caught)
+		{
+			LOGGER.error("SearchRange had an unexcepted problem executing.", caught);
+			throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+		}
+
+		return best.unit;
+	}
+
+	/**
+	 * Gets the most shares worth handing to an executor at once: one per
+	 * thread it can run, and never more than there are processors. More
+	 * shares than that only queue behind each other.
+	 *
+	 * @param executor the executor the shares are submitted to, or null.
+	 * @return the maximum number of shares, 1 if the executor is null.
+	 * @since 2.0
+	 */
+	static int getMaximumShares(final ExecutorService executor)
+	{
+		if( executor == null )
+			return 1;
+		final int processors = Runtime.getRuntime().availableProcessors();
+		if( executor instanceof ThreadPoolExecutor )
+			return Math.min(processors, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+		return processors;
+	}
+
+	/**
+	 * Scans a range of units for the one closest to the inputs. The distance
+	 * of a unit stops being accumulated as soon as it can no longer beat the
+	 * best unit found so far.
+	 */
+	private BestMatch searchRange(final double[] inputs, final int start, final int end)
+	{
+		int bestUnit = start;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for(int unit = start; unit < end; unit++)
+		{
+			final double squaredDistance = this.squaredDistance(unit, inputs, bestDistance);
+			if( squaredDistance < bestDistance )
+			{
+				bestUnit = unit;
+				bestDistance = squaredDistance;
+			}
+		}
+		return new BestMatch(bestUnit, bestDistance);
+	}
+
+	final void checkInputs(final double[] inputs)
+	{
+		if( inputs.length != this.getInputCount() )
+			throw new IllegalArgumentException("inputs must have one value for each input neuron");
+	}
+}
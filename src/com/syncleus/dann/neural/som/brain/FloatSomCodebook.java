@@ -0,0 +1,170 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.som.brain;
+
+import com.syncleus.dann.math.Vector;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * A SOM codebook whose weight vectors are stored in single precision. A BMU
+ * search reads every weight of the codebook, so halving their size roughly
+ * doubles the speed of searching large codebooks. Only the storage is single
+ * precision: squared distances are accumulated in double precision from the
+ * widened weights, so the only error introduced is the rounding of each
+ * weight to the nearest float, a relative error of at most 2<sup>-24</sup>.
+ * The BMU found can only differ from the one the double precision codebook
+ * finds when the two units are closer to each other than that rounding.<br/>
+ * <br/>
+ * These codebooks can only be searched; training is done on the compiled
+ * codebook in double precision, which is converted again with toFloat when
+ * the weights are to be used.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.som.brain.SomCodebook#toFloat
+ */
+public class FloatSomCodebook extends AbstractSomCodebook implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int inputCount;
+	private final int unitCount;
+	private final int dimensions;
+	private final float[] weights;
+	private final Vector[] positionVectors;
+	private final Map<Vector, Integer> unitIndexes;
+
+	/**
+	 * Creates a single precision copy of the given weights. The positions are
+	 * shared with the codebook being copied since they never change.
+	 *
+	 * @since 2.0
+	 */
+	FloatSomCodebook(final int inputCount, final int dimensions, final Vector[] positionVectors, final Map<Vector, Integer> unitIndexes, final double[] weights)
+	{
+		this.inputCount = inputCount;
+		this.dimensions = dimensions;
+		this.unitCount = positionVectors.length;
+		this.positionVectors = positionVectors;
+		this.unitIndexes = unitIndexes;
+		this.weights = new float[weights.length];
+		for(int weightIndex = 0; weightIndex < weights.length; weightIndex++)
+			this.weights[weightIndex] = (float) weights[weightIndex];
+	}
+
+	/**
+	 * Gets the number of inputs, which is the length of each weight vector.
+	 *
+	 * @return the number of inputs.
+	 * @since 2.0
+	 */
+	public final int getInputCount()
+	{
+		return this.inputCount;
+	}
+
+	/**
+	 * Gets the number of units in the output lattice.
+	 *
+	 * @return the number of units.
+	 * @since 2.0
+	 */
+	public final int getUnitCount()
+	{
+		return this.unitCount;
+	}
+
+	/**
+	 * Gets the dimensionality of the output lattice.
+	 *
+	 * @return the number of dimensions of the output lattice.
+	 * @since 2.0
+	 */
+	public final int getDimensions()
+	{
+		return this.dimensions;
+	}
+
+	/**
+	 * Gets the position of a unit in the output lattice.
+	 *
+	 * @param unit index of the unit.
+	 * @return a copy of the position of the unit.
+	 * @since 2.0
+	 */
+	public final Vector getPosition(final int unit)
+	{
+		return new Vector(this.positionVectors[unit]);
+	}
+
+	/**
+	 * Gets the index of the unit at the given position in the output lattice.
+	 *
+	 * @param position position of the unit.
+	 * @return the index of the unit, or -1 if there is no unit at the position.
+	 * @since 2.0
+	 */
+	public final int getUnit(final Vector position)
+	{
+		final Integer unit = this.unitIndexes.get(position);
+		return ( unit == null ? -1 : unit.intValue() );
+	}
+
+	/**
+	 * Gets a single element of the weight vector of a unit.
+	 *
+	 * @param unit index of the unit.
+	 * @param input index of the input.
+	 * @return the weight connecting the input to the unit as stored.
+	 * @since 2.0
+	 */
+	public final float getWeight(final int unit, final int input)
+	{
+		return this.weights[(unit * this.inputCount) + input];
+	}
+
+	/**
+	 * Calculates the euclidean distance between the weight vector of a unit
+	 * and the given input vector.
+	 *
+	 * @param unit index of the unit.
+	 * @param inputs the input vector.
+	 * @return the distance between the unit and the inputs.
+	 * @since 2.0
+	 */
+	public final double getOutput(final int unit, final double[] inputs)
+	{
+		this.checkInputs(inputs);
+		return Math.sqrt(this.squaredDistance(unit, inputs, Double.POSITIVE_INFINITY));
+	}
+
+	@Override
+	final double squaredDistance(final int unit, final double[] inputs, final double limit)
+	{
+		final int offset = unit * this.inputCount;
+		double squaredDistance = 0.0;
+		for(int inputIndex = 0; (inputIndex < this.inputCount) && (squaredDistance < limit); inputIndex++)
+		{
+			final double difference = inputs[inputIndex] - this.weights[offset + inputIndex];
+			squaredDistance += difference * difference;
+		}
+		return squaredDistance;
+	}
+}
@@ -0,0 +1,584 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.som.brain;
+
+import com.syncleus.dann.*;
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.*;
+import com.syncleus.dann.neural.som.*;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.log4j.Logger;
+
+/**
+ * The output lattice of a SOM frozen into contiguous arrays. The weight
+ * vectors of all the units are stored one after another in a single array,
+ * as are their positions in the output lattice, so finding the Best Matching
+ * Unit (BMU) is a single scan of squared distances. Large codebooks are
+ * scanned in ranges split across an executor.<br/>
+ * <br/>
+ * A codebook remembers the neurons and synapses it was compiled from so its
+ * weights can be written back into the brain with synchronize. A snapshot of
+ * a codebook is detached from the brain and only holds a copy of the weights.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.som.brain.AbstractSomBrain#compile
+ */
+public class SomCodebook extends AbstractSomCodebook implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int inputCount;
+	private final int unitCount;
+	private final int dimensions;
+	private final double[] weights;
+	private final double[] positions;
+	private final Vector[] positionVectors;
+	private final Map<Vector, Integer> unitIndexes;
+	private final SomLatticeIndex latticeIndex;
+	private transient int[] neighborhoodUnits;
+	private transient double[] neighborhoodDistances;
+	private transient List<Accumulator> accumulators;
+
+	private final SomNeuron[] neurons;
+	private final Synapse[] synapses;
+
+	private final static Logger LOGGER = Logger.getLogger(SomCodebook.class);
+
+	/**
+	 * Accumulates the neighborhood weighted sums of a share of a batch. Each
+	 * worker of a batch uses its own accumulator so no synchronization is
+	 * needed until the accumulators are reduced.
+	 *
+	 * @since 2.0
+	 */
+	static final class Accumulator
+	{
+		final double[] numerators;
+		final double[] denominators;
+		final int[] neighborhoodUnits;
+		final double[] neighborhoodDistances;
+		double quantizationError;
+
+		Accumulator(final int unitCount, final int inputCount)
+		{
+			this.numerators = new double[unitCount * inputCount];
+			this.denominators = new double[unitCount];
+			this.neighborhoodUnits = new int[unitCount];
+			this.neighborhoodDistances = new double[unitCount];
+		}
+
+		void clear()
+		{
+			Arrays.fill(this.numerators, 0.0);
+			Arrays.fill(this.denominators, 0.0);
+			this.quantizationError = 0.0;
+		}
+	}
+
+	private static class AccumulateBatch implements Callable<Accumulator>
+	{
+		private final SomCodebook codebook;
+		private final Accumulator accumulator;
+		private final double[][] samples;
+		private final double neighborhoodRadius;
+		private final AbstractSomBrain brain;
+		private final int start;
+		private final int end;
+		private final static Logger LOGGER = Logger.getLogger(AccumulateBatch.class);
+
+		public AccumulateBatch(SomCodebook codebook, Accumulator accumulator, double[][] samples, double neighborhoodRadius, AbstractSomBrain brain, int start, int end)
+		{
+			this.codebook = codebook;
+			this.accumulator = accumulator;
+			this.samples = samples;
+			this.neighborhoodRadius = neighborhoodRadius;
+			this.brain = brain;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Accumulator call()
+		{
+			try
+			{
+				this.accumulator.clear();
+				for(int sampleIndex = this.start; sampleIndex < this.end; sampleIndex++)
+					this.codebook.accumulate(this.accumulator, this.samples[sampleIndex], this.neighborhoodRadius, this.brain);
+				return this.accumulator;
+			}
+			catch(Exception caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new DannRuntimeException("Throwable exception caught in AccumulateBatch", caught);
+			}
+			catch(Error caught)
+			{
+				LOGGER.error("Throwable caught!", caught);
+				throw new Error("Throwable exception caught in AccumulateBatch", caught);
+			}
+		}
+	}
+
+	/**
+	 * Compiles the given output neurons of a SOM. Every unit must be connected
+	 * to every input neuron, and only to the input neurons.
+	 *
+	 * @param brain The brain which contains the neurons.
+	 * @param inputNeurons The input neurons in the order of the input vector.
+	 * @param outputs The output neurons keyed by their position in the output
+	 * lattice.
+	 * @since 2.0
+	 */
+	SomCodebook(final Brain brain, final List<SomInputNeuron> inputNeurons, final Map<Vector, SomNeuron> outputs)
+	{
+		if( outputs.isEmpty() )
+			throw new IllegalStateException("Must have atleast one output");
+
+		this.inputCount = inputNeurons.size();
+		this.unitCount = outputs.size();
+		this.dimensions = outputs.keySet().iterator().next().getDimensions();
+		this.weights = new double[this.unitCount * this.inputCount];
+		this.positions = new double[this.unitCount * this.dimensions];
+		this.positionVectors = new Vector[this.unitCount];
+		this.unitIndexes = new HashMap<Vector, Integer>(this.unitCount * 2);
+		this.neurons = new SomNeuron[this.unitCount];
+		this.synapses = new Synapse[this.unitCount * this.inputCount];
+
+		final Map<Neuron, Integer> inputIndexes = new HashMap<Neuron, Integer>();
+		for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+			inputIndexes.put(inputNeurons.get(inputIndex), Integer.valueOf(inputIndex));
+
+		int unit = 0;
+		for(Map.Entry<Vector, SomNeuron> output : outputs.entrySet())
+		{
+			final Vector position = new Vector(output.getKey());
+			this.positionVectors[unit] = position;
+			this.unitIndexes.put(position, Integer.valueOf(unit));
+			for(int dimensionIndex = 0; dimensionIndex < this.dimensions; dimensionIndex++)
+				this.positions[(unit * this.dimensions) + dimensionIndex] = position.getCoordinate(dimensionIndex + 1);
+
+			final SomNeuron neuron = output.getValue();
+			this.neurons[unit] = neuron;
+			final List<Synapse> inSynapses = brain.getInEdges(neuron);
+			if( inSynapses.size() != this.inputCount )
+				throw new IllegalStateException("output at " + position + " is not connected to every input");
+			for(Synapse inSynapse : inSynapses)
+			{
+				final Integer inputIndex = inputIndexes.get(inSynapse.getSourceNode());
+				if( inputIndex == null )
+					throw new IllegalStateException("output at " + position + " is connected to a neuron which is not an input");
+
+				final int weightIndex = (unit * this.inputCount) + inputIndex.intValue();
+				this.weights[weightIndex] = inSynapse.getWeight();
+				this.synapses[weightIndex] = inSynapse;
+			}
+
+			unit++;
+		}
+
+		this.latticeIndex = new SomLatticeIndex(this.positions, this.dimensions);
+	}
+
+	/**
+	 * Creates a detached codebook directly from its arrays, such as when it is
+	 * read from a snapshot. The arrays are used as is rather than copied.
+	 *
+	 * @param inputCount the length of each weight vector.
+	 * @param dimensions the dimensionality of the output lattice.
+	 * @param positions the position of each unit, one after another.
+	 * @param weights the weight vector of each unit, one after another.
+	 * @since 2.0
+	 */
+	SomCodebook(final int inputCount, final int dimensions, final double[] positions, final double[] weights)
+	{
+		if( (inputCount <= 0) || (dimensions <= 0) )
+			throw new IllegalArgumentException("inputCount and dimensions must be greater than 0");
+		if( (positions.length == 0) || ((positions.length % dimensions) != 0) )
+			throw new IllegalArgumentException("positions must hold atleast one whole position");
+
+		this.inputCount = inputCount;
+		this.dimensions = dimensions;
+		this.unitCount = positions.length / dimensions;
+		if( weights.length != (this.unitCount * inputCount) )
+			throw new IllegalArgumentException("weights must hold one weight vector for each position");
+
+		this.weights = weights;
+		this.positions = positions;
+		this.positionVectors = new Vector[this.unitCount];
+		this.unitIndexes = new HashMap<Vector, Integer>(this.unitCount * 2);
+		for(int unit = 0; unit < this.unitCount; unit++)
+		{
+			final double[] coordinates = new double[dimensions];
+			System.arraycopy(positions, unit * dimensions, coordinates, 0, dimensions);
+			this.positionVectors[unit] = new Vector(coordinates);
+			this.unitIndexes.put(this.positionVectors[unit], Integer.valueOf(unit));
+		}
+		this.latticeIndex = new SomLatticeIndex(this.positions, this.dimensions);
+		this.neurons = null;
+		this.synapses = null;
+	}
+
+	/**
+	 * Creates a detached copy of the weights of the given codebook.
+	 *
+	 * @param copy the codebook to copy.
+	 * @since 2.0
+	 */
+	private SomCodebook(final SomCodebook copy)
+	{
+		this.inputCount = copy.inputCount;
+		this.unitCount = copy.unitCount;
+		this.dimensions = copy.dimensions;
+		this.weights = copy.weights.clone();
+		this.positions = copy.positions;
+		this.positionVectors = copy.positionVectors;
+		this.unitIndexes = copy.unitIndexes;
+		this.latticeIndex = copy.latticeIndex;
+		this.neurons = null;
+		this.synapses = null;
+	}
+
+	/**
+	 * Creates a copy of the current weights of this codebook which is
+	 * detached from the brain. The snapshot can not be synchronized and
+	 * changes to either codebook do not affect the other.
+	 *
+	 * @return a detached copy of this codebook.
+	 * @since 2.0
+	 */
+	public final SomCodebook snapshot()
+	{
+		return new SomCodebook(this);
+	}
+
+	/**
+	 * Creates a copy of the current weights of this codebook stored in single
+	 * precision, for BMU searches which are limited by memory bandwidth. The
+	 * copy takes half the memory of the weights of this codebook and can not
+	 * be trained.
+	 *
+	 * @return a single precision copy of this codebook.
+	 * @since 2.0
+	 * @see com.syncleus.dann.neural.som.brain.FloatSomCodebook
+	 */
+	public final FloatSomCodebook toFloat()
+	{
+		return new FloatSomCodebook(this.inputCount, this.dimensions, this.positionVectors, this.unitIndexes, this.weights);
+	}
+
+	/**
+	 * Determines if this codebook is attached to the neurons of a brain.
+	 *
+	 * @return true if the codebook can be synchronized with a brain, false if
+	 * it is a detached snapshot.
+	 * @since 2.0
+	 */
+	public final boolean isAttached()
+	{
+		return (this.neurons != null);
+	}
+
+	/**
+	 * Gets the number of inputs, which is the length of each weight vector.
+	 *
+	 * @return the number of inputs.
+	 * @since 2.0
+	 */
+	public final int getInputCount()
+	{
+		return this.inputCount;
+	}
+
+	/**
+	 * Gets the number of units in the output lattice.
+	 *
+	 * @return the number of units.
+	 * @since 2.0
+	 */
+	public final int getUnitCount()
+	{
+		return this.unitCount;
+	}
+
+	/**
+	 * Gets the dimensionality of the output lattice.
+	 *
+	 * @return the number of dimensions of the output lattice.
+	 * @since 2.0
+	 */
+	public final int getDimensions()
+	{
+		return this.dimensions;
+	}
+
+	/**
+	 * Gets the position of a unit in the output lattice.
+	 *
+	 * @param unit index of the unit.
+	 * @return a copy of the position of the unit.
+	 * @since 2.0
+	 */
+	public final Vector getPosition(final int unit)
+	{
+		return new Vector(this.positionVectors[unit]);
+	}
+
+	/**
+	 * Gets the index of the unit at the given position in the output lattice.
+	 *
+	 * @param position position of the unit.
+	 * @return the index of the unit, or -1 if there is no unit at the position.
+	 * @since 2.0
+	 */
+	public final int getUnit(final Vector position)
+	{
+		final Integer unit = this.unitIndexes.get(position);
+		return ( unit == null ? -1 : unit.intValue() );
+	}
+
+	/**
+	 * Gets a single element of the weight vector of a unit.
+	 *
+	 * @param unit index of the unit.
+	 * @param input index of the input.
+	 * @return the weight connecting the input to the unit.
+	 * @since 2.0
+	 */
+	public final double getWeight(final int unit, final int input)
+	{
+		return this.weights[(unit * this.inputCount) + input];
+	}
+
+	/**
+	 * Sets a single element of the weight vector of a unit.
+	 *
+	 * @param unit index of the unit.
+	 * @param input index of the input.
+	 * @param weight the new weight connecting the input to the unit.
+	 * @since 2.0
+	 */
+	public final void setWeight(final int unit, final int input, final double weight)
+	{
+		this.weights[(unit * this.inputCount) + input] = weight;
+	}
+
+	/**
+	 * Gets a copy of the weight vector of a unit.
+	 *
+	 * @param unit index of the unit.
+	 * @return a copy of the weight vector of the unit.
+	 * @since 2.0
+	 */
+	public final double[] getWeightVector(final int unit)
+	{
+		final double[] weightVector = new double[this.inputCount];
+		System.arraycopy(this.weights, unit * this.inputCount, weightVector, 0, this.inputCount);
+		return weightVector;
+	}
+
+	/**
+	 * Calculates the euclidean distance between the weight vector of a unit
+	 * and the given input vector. This is the output a SomNeuron would have.
+	 *
+	 * @param unit index of the unit.
+	 * @param inputs the input vector.
+	 * @return the distance between the unit and the inputs.
+	 * @since 2.0
+	 */
+	public final double getOutput(final int unit, final double[] inputs)
+	{
+		this.checkInputs(inputs);
+		return Math.sqrt(this.squaredDistance(unit, inputs, Double.POSITIVE_INFINITY));
+	}
+
+	/**
+	 * Writes the weights of this codebook back into the synapses it was
+	 * compiled from.
+	 *
+	 * @since 2.0
+	 */
+	public final void synchronize()
+	{
+		if( this.synapses == null )
+			throw new IllegalStateException("codebook is a snapshot which is not attached to a brain");
+		for(int weightIndex = 0; weightIndex < this.weights.length; weightIndex++)
+			this.synapses[weightIndex].setWeight(this.weights[weightIndex]);
+	}
+
+	@Override
+	final double squaredDistance(final int unit, final double[] inputs, final double limit)
+	{
+		final int offset = unit * this.inputCount;
+		double squaredDistance = 0.0;
+		for(int inputIndex = 0; (inputIndex < this.inputCount) && (squaredDistance < limit); inputIndex++)
+		{
+			final double difference = inputs[inputIndex] - this.weights[offset + inputIndex];
+			squaredDistance += difference * difference;
+		}
+		return squaredDistance;
+	}
+
+	/**
+	 * Moves the weight vectors of every unit within the neighborhood of the
+	 * BMU closer to the inputs, exactly as SomNeuron.train would. Only the
+	 * units the lattice index places inside the neighborhood are visited.
+	 *
+	 * @since 2.0
+	 */
+	final void train(final int bestMatchingUnit, final double[] inputs, final double neighborhoodRadius, final double learningRate, final AbstractSomBrain brain)
+	{
+		if( this.neighborhoodUnits == null )
+		{
+			this.neighborhoodUnits = new int[this.unitCount];
+			this.neighborhoodDistances = new double[this.unitCount];
+		}
+
+		final int neighborhoodSize = this.latticeIndex.findNeighborhood(bestMatchingUnit, neighborhoodRadius, this.neighborhoodUnits, this.neighborhoodDistances);
+		for(int neighborIndex = 0; neighborIndex < neighborhoodSize; neighborIndex++)
+			this.trainUnit(this.neighborhoodUnits[neighborIndex], inputs, learningRate * brain.neighborhoodFunction(this.neighborhoodDistances[neighborIndex]));
+	}
+
+	/**
+	 * Trains the codebook against an entire batch of samples with the batch
+	 * SOM algorithm. The BMU of every sample is found against the weights as
+	 * they were before the batch, then each weight vector is replaced by the
+	 * neighborhood weighted mean of the samples whose BMU lies within the
+	 * radius of it. Units with no samples in their neighborhood keep their
+	 * weights. The batch is split into one share per thread of the executor,
+	 * up to one per processor, each accumulated by the executor into its own
+	 * buffers, and the shares are reduced in a fixed order.
+	 *
+	 * @return the mean distance between each sample and its BMU before the
+	 * update.
+	 * @since 2.0
+	 */
+	final double trainBatch(final double[][] samples, final double neighborhoodRadius, final AbstractSomBrain brain, final ExecutorService executor)
+	{
+		if( samples.length <= 0 )
+			throw new IllegalArgumentException("batch must contain atleast one sample");
+		for(double[] sample : samples)
+			this.checkInputs(sample);
+
+		final int shareCount = Math.min(samples.length, getMaximumShares(executor));
+		if( this.accumulators == null )
+			this.accumulators = new ArrayList<Accumulator>();
+		while( this.accumulators.size() < shareCount )
+			this.accumulators.add(new Accumulator(this.unitCount, this.inputCount));
+
+		final List<Accumulator> shares = new ArrayList<Accumulator>(shareCount);
+		if( shareCount == 1 )
+		{
+			shares.add(new AccumulateBatch(this, this.accumulators.get(0), samples, neighborhoodRadius, brain, 0, samples.length).call());
+		}
+		else
+		{
+			final List<Future<Accumulator>> futures = new ArrayList<Future<Accumulator>>(shareCount);
+			for(int shareIndex = 0; shareIndex < shareCount; shareIndex++)
+			{
+				final int start = (int) (((long) samples.length * shareIndex) / shareCount);
+				final int end = (int) (((long) samples.length * (shareIndex + 1)) / shareCount);
+				futures.add(executor.submit(new AccumulateBatch(this, this.accumulators.get(shareIndex), samples, neighborhoodRadius, brain, start, end)));
+			}
+
+			try
+			{
+				for(Future<Accumulator> future : futures)
+					shares.add(future.get());
+			}
+			catch(InterruptedException caught)
+			{
+				LOGGER.error("AccumulateBatch was unexpectidy interupted", caught);
+				throw new InterruptedDannRuntimeException("Unexpected interuption. Get should block indefinately", caught);
+			}
+			catch(ExecutionException caught)
+			{
+				LOGGER.error("AccumulateBatch had an unexcepted problem executing.", caught);
+				throw new UnexpectedDannError("Unexpected execution exception. Get should block indefinately", caught);
+			}
+		}
+
+		//reduce the shares into the first accumulator
+		final Accumulator total = shares.get(0);
+		for(int shareIndex = 1; shareIndex < shares.size(); shareIndex++)
+		{
+			final Accumulator share = shares.get(shareIndex);
+			for(int weightIndex = 0; weightIndex < total.numerators.length; weightIndex++)
+				total.numerators[weightIndex] += share.numerators[weightIndex];
+			for(int unit = 0; unit < this.unitCount; unit++)
+				total.denominators[unit] += share.denominators[unit];
+			total.quantizationError += share.quantizationError;
+		}
+
+		//replace each weight vector with its neighborhood weighted mean
+		for(int unit = 0; unit < this.unitCount; unit++)
+		{
+			final double denominator = total.denominators[unit];
+			if( denominator <= 0.0 )
+				continue;
+			final int offset = unit * this.inputCount;
+			for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+				this.weights[offset + inputIndex] = total.numerators[offset + inputIndex] / denominator;
+		}
+
+		return total.quantizationError / samples.length;
+	}
+
+	/**
+	 * Adds a single sample to the neighborhood weighted sums of every unit
+	 * within the radius of its BMU.
+	 *
+	 * @since 2.0
+	 */
+	final void accumulate(final Accumulator accumulator, final double[] sample, final double neighborhoodRadius, final AbstractSomBrain brain)
+	{
+		final int bestUnit = this.getBestMatchingUnit(sample);
+		accumulator.quantizationError += Math.sqrt(this.squaredDistance(bestUnit, sample, Double.POSITIVE_INFINITY));
+
+		final int neighborhoodSize = this.latticeIndex.findNeighborhood(bestUnit, neighborhoodRadius, accumulator.neighborhoodUnits, accumulator.neighborhoodDistances);
+		for(int neighborIndex = 0; neighborIndex < neighborhoodSize; neighborIndex++)
+		{
+			final int unit = accumulator.neighborhoodUnits[neighborIndex];
+			final double influence = brain.neighborhoodFunction(accumulator.neighborhoodDistances[neighborIndex]);
+			final int offset = unit * this.inputCount;
+			for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+				accumulator.numerators[offset + inputIndex] += influence * sample[inputIndex];
+			accumulator.denominators[unit] += influence;
+		}
+	}
+
+	final double[] getPositions()
+	{
+		return this.positions;
+	}
+
+	final double[] getWeights()
+	{
+		return this.weights;
+	}
+
+	final void trainUnit(final int unit, final double[] inputs, final double rate)
+	{
+		final int offset = unit * this.inputCount;
+		for(int inputIndex = 0; inputIndex < this.inputCount; inputIndex++)
+			this.weights[offset + inputIndex] += rate * (inputs[inputIndex] - this.weights[offset + inputIndex]);
+	}
+}
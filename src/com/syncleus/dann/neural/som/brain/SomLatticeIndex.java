@@ -0,0 +1,195 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.som.brain;
+
+import java.io.Serializable;
+
+/**
+ * A uniform grid over the positions of the units of an output lattice. Each
+ * cell lists the units whose position falls inside it, so the units within a
+ * radius of a point are found by visiting only the cells the radius overlaps
+ * instead of every unit of the lattice.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ */
+final class SomLatticeIndex implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int dimensions;
+	private final double[] positions;
+	private final double[] lowerBounds;
+	private final int[] cellCounts;
+	private final double cellSize;
+	private final int[] cellStarts;
+	private final int[] cellUnits;
+
+	/**
+	 * Indexes the given positions.
+	 *
+	 * @param positions the position of each unit, one after another.
+	 * @param dimensions the dimensionality of each position.
+	 * @since 2.0
+	 */
+	SomLatticeIndex(final double[] positions, final int dimensions)
+	{
+		this.dimensions = dimensions;
+		this.positions = positions;
+		final int unitCount = positions.length / dimensions;
+
+		this.lowerBounds = new double[dimensions];
+		final double[] upperBounds = new double[dimensions];
+		for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+		{
+			this.lowerBounds[dimensionIndex] = Double.POSITIVE_INFINITY;
+			upperBounds[dimensionIndex] = Double.NEGATIVE_INFINITY;
+		}
+		for(int unit = 0; unit < unitCount; unit++)
+			for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+			{
+				final double coordinate = positions[(unit * dimensions) + dimensionIndex];
+				this.lowerBounds[dimensionIndex] = Math.min(this.lowerBounds[dimensionIndex], coordinate);
+				upperBounds[dimensionIndex] = Math.max(upperBounds[dimensionIndex], coordinate);
+			}
+
+		//size the cells so there is roughly one unit per cell
+		double maxExtent = 0.0;
+		for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+			maxExtent = Math.max(maxExtent, upperBounds[dimensionIndex] - this.lowerBounds[dimensionIndex]);
+		final double cellsPerDimension = Math.max(1.0, Math.ceil(Math.pow(unitCount, 1.0 / dimensions)));
+		this.cellSize = ( maxExtent > 0.0 ? maxExtent / cellsPerDimension : 1.0 );
+
+		this.cellCounts = new int[dimensions];
+		int totalCells = 1;
+		for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+		{
+			this.cellCounts[dimensionIndex] = ((int) ((upperBounds[dimensionIndex] - this.lowerBounds[dimensionIndex]) / this.cellSize)) + 1;
+			totalCells *= this.cellCounts[dimensionIndex];
+		}
+
+		//bucket the units into their cells
+		final int[] unitCells = new int[unitCount];
+		this.cellStarts = new int[totalCells + 1];
+		for(int unit = 0; unit < unitCount; unit++)
+		{
+			int cell = 0;
+			for(int dimensionIndex = 0; dimensionIndex < dimensions; dimensionIndex++)
+				cell = (cell * this.cellCounts[dimensionIndex]) + this.getCell(positions[(unit * dimensions) + dimensionIndex], dimensionIndex);
+			unitCells[unit] = cell;
+			this.cellStarts[cell + 1]++;
+		}
+		for(int cell = 0; cell < totalCells; cell++)
+			this.cellStarts[cell + 1] += this.cellStarts[cell];
+
+		final int[] cellFill = new int[totalCells];
+		this.cellUnits = new int[unitCount];
+		for(int unit = 0; unit < unitCount; unit++)
+		{
+			final int cell = unitCells[unit];
+			this.cellUnits[this.cellStarts[cell] + cellFill[cell]++] = unit;
+		}
+	}
+
+	private int getCell(final double coordinate, final int dimensionIndex)
+	{
+		final int cell = (int) Math.floor((coordinate - this.lowerBounds[dimensionIndex]) / this.cellSize);
+		return Math.max(0, Math.min(this.cellCounts[dimensionIndex] - 1, cell));
+	}
+
+	/**
+	 * Gets the number of units indexed.
+	 *
+	 * @return the number of units indexed.
+	 * @since 2.0
+	 */
+	int getUnitCount()
+	{
+		return this.cellUnits.length;
+	}
+
+	/**
+	 * Finds every unit whose distance from the given unit is less than the
+	 * radius. The units are written to the units array and their distances to
+	 * the distances array, both of which must be able to hold every unit.
+	 *
+	 * @param centerUnit the unit at the center of the neighborhood.
+	 * @param radius the radius of the neighborhood.
+	 * @param units receives the units in the neighborhood.
+	 * @param distances receives the distance of each unit from the center.
+	 * @return the number of units in the neighborhood.
+	 * @since 2.0
+	 */
+	int findNeighborhood(final int centerUnit, final double radius, final int[] units, final double[] distances)
+	{
+		if( !(radius > 0.0) )
+			return 0;
+
+		final int centerOffset = centerUnit * this.dimensions;
+		final int[] lowCells = new int[this.dimensions];
+		final int[] highCells = new int[this.dimensions];
+		for(int dimensionIndex = 0; dimensionIndex < this.dimensions; dimensionIndex++)
+		{
+			final double center = this.positions[centerOffset + dimensionIndex];
+			lowCells[dimensionIndex] = this.getCell(center - radius, dimensionIndex);
+			highCells[dimensionIndex] = this.getCell(center + radius, dimensionIndex);
+		}
+
+		//walk every cell overlapped by the neighborhood's bounding box
+		int found = 0;
+		final int[] currentCells = lowCells.clone();
+		while(true)
+		{
+			int cell = 0;
+			for(int dimensionIndex = 0; dimensionIndex < this.dimensions; dimensionIndex++)
+				cell = (cell * this.cellCounts[dimensionIndex]) + currentCells[dimensionIndex];
+
+			for(int cellIndex = this.cellStarts[cell]; cellIndex < this.cellStarts[cell + 1]; cellIndex++)
+			{
+				final int unit = this.cellUnits[cellIndex];
+				final int unitOffset = unit * this.dimensions;
+				double squaredDistance = 0.0;
+				for(int dimensionIndex = 0; dimensionIndex < this.dimensions; dimensionIndex++)
+				{
+					final double difference = this.positions[unitOffset + dimensionIndex] - this.positions[centerOffset + dimensionIndex];
+					squaredDistance += difference * difference;
+				}
+
+				final double distance = Math.sqrt(squaredDistance);
+				if( distance < radius )
+				{
+					units[found] = unit;
+					distances[found] = distance;
+					found++;
+				}
+			}
+
+			//advance to the next cell, last dimension fastest
+			int dimensionIndex = this.dimensions - 1;
+			while( (dimensionIndex >= 0) && (currentCells[dimensionIndex] == highCells[dimensionIndex]) )
+			{
+				currentCells[dimensionIndex] = lowCells[dimensionIndex];
+				dimensionIndex--;
+			}
+			if( dimensionIndex < 0 )
+				return found;
+			currentCells[dimensionIndex]++;
+		}
+	}
+}
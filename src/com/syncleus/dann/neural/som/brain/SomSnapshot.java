@@ -0,0 +1,101 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.dann.neural.som.brain;
+
+import com.syncleus.dann.neural.SnapshotFormat;
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes SOM codebooks in the binary snapshot format. After the
+ * common header the body holds:
+ * <ul>
+ * <li>the number of inputs as an int,</li>
+ * <li>the number of units as an int,</li>
+ * <li>the dimensionality of the output lattice as an int,</li>
+ * <li>padding to a multiple of 8 bytes,</li>
+ * <li>the lattice position of every unit as packed doubles,</li>
+ * <li>the weight vector of every unit as packed doubles.</li>
+ * </ul>
+ * Snapshots are read through a memory mapped file and load as detached
+ * codebooks which can search for Best Matching Units right away.
+ *
+ * @author Syncleus, Inc.
+ * @since 2.0
+ * @see com.syncleus.dann.neural.SnapshotFormat
+ */
+public final class SomSnapshot
+{
+	private SomSnapshot()
+	{
+	}
+
+	/**
+	 * Writes the current weights of a codebook to a snapshot file.
+	 *
+	 * @param codebook the codebook to write, attached or not.
+	 * @param file the snapshot file to create or replace.
+	 * @throws IOException if the file can not be written.
+	 * @since 2.0
+	 */
+	public static void write(final SomCodebook codebook, final File file) throws IOException
+	{
+		final SnapshotFormat.Writer writer = new SnapshotFormat.Writer(file, SnapshotFormat.KIND_SOM);
+		try
+		{
+			writer.putInt(codebook.getInputCount());
+			writer.putInt(codebook.getUnitCount());
+			writer.putInt(codebook.getDimensions());
+			writer.align();
+			writer.putDoubles(codebook.getPositions());
+			writer.putDoubles(codebook.getWeights());
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads a codebook from a snapshot file.
+	 *
+	 * @param file the snapshot file.
+	 * @return a detached codebook holding the weights of the snapshot.
+	 * @throws IOException if the file can not be read or is not a valid SOM
+	 * snapshot.
+	 * @since 2.0
+	 */
+	public static SomCodebook read(final File file) throws IOException
+	{
+		final ByteBuffer buffer = SnapshotFormat.map(file, SnapshotFormat.KIND_SOM);
+
+		final int inputCount = SnapshotFormat.readCount(buffer);
+		final int unitCount = SnapshotFormat.readCount(buffer);
+		final int dimensions = SnapshotFormat.readCount(buffer);
+		if( (inputCount == 0) || (unitCount == 0) || (dimensions == 0) )
+			throw new IOException("snapshot is corrupt");
+		if( (((long) unitCount * dimensions) > Integer.MAX_VALUE) || (((long) unitCount * inputCount) > Integer.MAX_VALUE) )
+			throw new IOException("snapshot is corrupt");
+		SnapshotFormat.align(buffer);
+
+		final double[] positions = SnapshotFormat.readDoubles(buffer, unitCount * dimensions);
+		final double[] weights = SnapshotFormat.readDoubles(buffer, unitCount * inputCount);
+		return new SomCodebook(inputCount, dimensions, positions, weights);
+	}
+}
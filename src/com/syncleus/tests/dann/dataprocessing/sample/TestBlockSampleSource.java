@@ -0,0 +1,164 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.dataprocessing.sample;
+
+import com.syncleus.dann.dataprocessing.sample.*;
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.FullyConnectedFeedforwardBrain;
+import com.syncleus.dann.neural.som.brain.ExponentialDecaySomBrain;
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+public class TestBlockSampleSource
+{
+	private static final int FEATURE_COUNT = 3;
+	private static final int ROW_COUNT = 1000;
+	private static final int BLOCK_ROWS = 64;
+
+	//the label of every row is its index so rows can be told apart
+	private static SampleFile createSampleFile() throws IOException
+	{
+		final File file = File.createTempFile("dann-samples", ".bin");
+		file.deleteOnExit();
+
+		final double[][] features = new double[ROW_COUNT][FEATURE_COUNT];
+		final double[] labels = new double[ROW_COUNT];
+		for(int rowIndex = 0; rowIndex < ROW_COUNT; rowIndex++)
+		{
+			for(int featureIndex = 0; featureIndex < FEATURE_COUNT; featureIndex++)
+				features[rowIndex][featureIndex] = rowIndex * 10.0 + featureIndex;
+			labels[rowIndex] = rowIndex;
+		}
+		return SampleFile.write(file, features, labels);
+	}
+
+	private static List<Integer> readEpoch(final SampleSource source) throws IOException
+	{
+		final List<Integer> rows = new ArrayList<Integer>();
+		final double[] features = new double[FEATURE_COUNT];
+		while( source.next() )
+		{
+			final SampleRow row = source.getRow();
+			final int rowIndex = (int) row.getLabel();
+			row.copyFeatures(features);
+			for(int featureIndex = 0; featureIndex < FEATURE_COUNT; featureIndex++)
+				Assert.assertEquals("row has the wrong features", rowIndex * 10.0 + featureIndex, features[featureIndex], 0.0);
+			rows.add(Integer.valueOf(rowIndex));
+		}
+		return rows;
+	}
+
+	@Test
+	public void testSequentialRead() throws IOException
+	{
+		final SampleFile file = createSampleFile();
+		Assert.assertEquals(FEATURE_COUNT, file.getFeatureCount());
+		Assert.assertEquals(ROW_COUNT, file.getRowCount());
+
+		final BlockSampleSource source = new BlockSampleSource(file, BLOCK_ROWS, null);
+		try
+		{
+			final List<Integer> rows = readEpoch(source);
+			Assert.assertEquals(ROW_COUNT, rows.size());
+			for(int rowIndex = 0; rowIndex < ROW_COUNT; rowIndex++)
+				Assert.assertEquals("rows were not read in order", rowIndex, rows.get(rowIndex).intValue());
+			Assert.assertFalse("epoch did not stay finished", source.next());
+		}
+		finally
+		{
+			source.close();
+		}
+	}
+
+	@Test
+	public void testShuffledEpochsVisitEveryRowOnce() throws IOException
+	{
+		final BlockSampleSource source = new BlockSampleSource(createSampleFile(), BLOCK_ROWS, new Random(0));
+		try
+		{
+			final List<Integer> first = readEpoch(source);
+			source.rewind();
+			//abandon an epoch part way through
+			for(int rowIndex = 0; rowIndex < 100; rowIndex++)
+				Assert.assertTrue(source.next());
+			source.rewind();
+			final List<Integer> second = readEpoch(source);
+
+			Assert.assertFalse("epochs were not shuffled", first.equals(second));
+			for(List<Integer> epoch : Arrays.asList(first, second))
+			{
+				Assert.assertEquals(ROW_COUNT, epoch.size());
+				Assert.assertEquals("a row was missed or repeated", ROW_COUNT, new HashSet<Integer>(epoch).size());
+			}
+		}
+		finally
+		{
+			source.close();
+		}
+	}
+
+	@Test
+	public void testTrainingBrains() throws IOException
+	{
+		final File file = File.createTempFile("dann-samples", ".bin");
+		file.deleteOnExit();
+		final Random random = new Random(1);
+		final SampleFile.Writer writer = new SampleFile.Writer(file, 2);
+		try
+		{
+			for(int rowIndex = 0; rowIndex < 400; rowIndex++)
+			{
+				final double[] features = {random.nextDouble() * 2.0 - 1.0, random.nextDouble() * 2.0 - 1.0};
+				writer.write(features, ( features[0] * features[1] > 0.0 ? 0.8 : -0.8 ));
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		final BlockSampleSource source = new BlockSampleSource(new SampleFile(file), 50, random);
+		try
+		{
+			final FullyConnectedFeedforwardBrain network = new FullyConnectedFeedforwardBrain(new int[]{2, 6, 1}, 0.01, new HyperbolicTangentActivationFunction());
+			final double firstError = network.trainBatches(source, 10);
+			double lastError = firstError;
+			for(int epoch = 0; epoch < 200; epoch++)
+			{
+				source.rewind();
+				lastError = network.trainBatches(source, 10);
+			}
+			Assert.assertFalse("brain was left compiled", network.isCompiled());
+			Assert.assertTrue("training did not reduce the error: " + firstError + " -> " + lastError, lastError < firstError);
+
+			final ExponentialDecaySomBrain som = new ExponentialDecaySomBrain(2, 1, 400, 0.1);
+			for(double position = 0; position < 5; position++)
+				som.createOutput(new Vector(new double[]{position}));
+			source.rewind();
+			Assert.assertEquals(400, som.train(source));
+			Assert.assertEquals(400, som.getIterationsTrained());
+		}
+		finally
+		{
+			source.close();
+		}
+	}
+}
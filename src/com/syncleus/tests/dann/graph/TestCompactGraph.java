@@ -0,0 +1,139 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.graph;
+
+import com.syncleus.dann.graph.*;
+import com.syncleus.dann.graph.search.pathfinding.DijkstraPathFinder;
+import com.syncleus.tests.dann.graph.search.*;
+import java.util.*;
+import org.junit.*;
+
+public class TestCompactGraph
+{
+	private static final double[][] GRID =
+	{
+		{1.0,	2.0,	3.0,	1.0},
+		{4.0,	1.0,	1.0,	5.0},
+		{1.0,	6.0,	1.0,	1.0}
+	};
+
+	@Test
+	public void testEntriesMatchGraph()
+	{
+		final WeightedDirectedGrid grid = new WeightedDirectedGrid(GRID);
+		final CompactGraph<GridNode, WeightedDirectedEdge<GridNode>> compact = new CompactGraph<GridNode, WeightedDirectedEdge<GridNode>>(grid);
+		Assert.assertEquals(grid.getNodes().size(), compact.getNodeCount());
+		Assert.assertEquals(grid.getEdges().size(), compact.getEntryCount());
+
+		for(GridNode node : grid.getNodes())
+		{
+			final int id = compact.getId(node);
+			Assert.assertEquals(node, compact.getNode(id));
+			Assert.assertEquals(node.getWeight(), compact.getNodeWeight(id, 0.0), 0.0);
+
+			final Set<WeightedDirectedEdge<GridNode>> outEdges = new HashSet<WeightedDirectedEdge<GridNode>>();
+			for(int entry = compact.getOutStart(id); entry < compact.getOutEnd(id); entry++)
+			{
+				final WeightedDirectedEdge<GridNode> edge = compact.getEdge(entry);
+				Assert.assertEquals(id, compact.getSource(entry));
+				Assert.assertEquals(edge.getDestinationNode(), compact.getNode(compact.getTarget(entry)));
+				Assert.assertEquals(edge.getWeight(), compact.getEdgeWeight(entry, 1.0), 0.0);
+				outEdges.add(edge);
+			}
+			Assert.assertEquals(new HashSet<WeightedDirectedEdge<GridNode>>(grid.getOutEdges(node)), outEdges);
+
+			final Set<WeightedDirectedEdge<GridNode>> inEdges = new HashSet<WeightedDirectedEdge<GridNode>>();
+			for(int position = compact.getInStart(id); position < compact.getInEnd(id); position++)
+			{
+				final int entry = compact.getInEntry(position);
+				Assert.assertEquals(id, compact.getTarget(entry));
+				inEdges.add(compact.getEdge(entry));
+			}
+			Assert.assertEquals(new HashSet<WeightedDirectedEdge<GridNode>>(grid.getInEdges(node)), inEdges);
+		}
+		Assert.assertEquals(-1, compact.getId(new GridNode(10, 10, 1.0)));
+	}
+
+	@Test
+	public void testAdapter()
+	{
+		final WeightedDirectedGrid grid = new WeightedDirectedGrid(GRID);
+		final CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>> adapter = new CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>>(grid);
+		Assert.assertEquals(grid.getNodes(), adapter.getNodes());
+		Assert.assertEquals(new HashSet<WeightedDirectedEdge<GridNode>>(grid.getEdges()), new HashSet<WeightedDirectedEdge<GridNode>>(adapter.getEdges()));
+
+		for(GridNode node : grid.getNodes())
+		{
+			Assert.assertEquals(grid.getOutdegree(node), adapter.getOutdegree(node));
+			Assert.assertEquals(grid.getIndegree(node), adapter.getIndegree(node));
+			Assert.assertEquals(new HashSet<WeightedDirectedEdge<GridNode>>(grid.getTraversableEdges(node)), new HashSet<WeightedDirectedEdge<GridNode>>(adapter.getTraversableEdges(node)));
+			Assert.assertEquals(new HashSet<WeightedDirectedEdge<GridNode>>(grid.getInEdges(node)), new HashSet<WeightedDirectedEdge<GridNode>>(adapter.getInEdges(node)));
+			Assert.assertEquals(new HashSet<GridNode>(grid.getTraversableNeighbors(node)), new HashSet<GridNode>(adapter.getTraversableNeighbors(node)));
+			Assert.assertEquals(new HashSet<GridNode>(grid.getNeighbors(node)), new HashSet<GridNode>(adapter.getNeighbors(node)));
+			for(GridNode neighbor : grid.getTraversableNeighbors(node))
+				Assert.assertTrue(adapter.isConnected(node, neighbor));
+		}
+
+		final GridNode begin = grid.getNode(0, 0);
+		final GridNode end = grid.getNode(3, 2);
+		final WeightedWalk<GridNode, WeightedDirectedEdge<GridNode>> expected = new DijkstraPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid).getBestPath(begin, end);
+		final WeightedWalk<GridNode, WeightedDirectedEdge<GridNode>> actual = new DijkstraPathFinder<CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>>, GridNode, WeightedDirectedEdge<GridNode>>(adapter).getBestPath(begin, end);
+		Assert.assertEquals(expected.getWeight(), actual.getWeight(), 0.0);
+	}
+
+	@Test
+	public void testUndirectedAdapter()
+	{
+		final Grid grid = new Grid(GRID);
+		final CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>> adapter = new CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>>(grid);
+
+		for(GridNode node : grid.getNodes())
+		{
+			//undirected edges are stored in both directions but must only
+			//be listed once
+			final List<BidirectedEdge<GridNode>> edges = adapter.getEdges(node);
+			final List<GridNode> neighbors = adapter.getNeighbors(node);
+			Assert.assertEquals(grid.getEdges(node).size(), edges.size());
+			Assert.assertEquals(grid.getEdges(node).size(), adapter.getDegree(node));
+			Assert.assertEquals(grid.getNeighbors(node).size(), neighbors.size());
+			Assert.assertEquals(new HashSet<BidirectedEdge<GridNode>>(grid.getEdges(node)), new HashSet<BidirectedEdge<GridNode>>(edges));
+			Assert.assertEquals(new HashSet<GridNode>(grid.getNeighbors(node)), new HashSet<GridNode>(neighbors));
+			Assert.assertEquals(grid.getTraversableNeighbors(node).size(), adapter.getTraversableNeighbors(node).size());
+		}
+
+		//directed edges are only ever stored once so nothing is skipped
+		final WeightedDirectedGrid directedGrid = new WeightedDirectedGrid(GRID);
+		final CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>> directedAdapter = new CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>>(directedGrid);
+		for(GridNode node : directedGrid.getNodes())
+		{
+			final int degree = directedGrid.getIndegree(node) + directedGrid.getOutdegree(node);
+			Assert.assertEquals(degree, directedAdapter.getDegree(node));
+			Assert.assertEquals(degree, directedAdapter.getEdges(node).size());
+			Assert.assertEquals(degree, directedAdapter.getNeighbors(node).size());
+		}
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testViewsAreReadOnly()
+	{
+		final WeightedDirectedGrid grid = new WeightedDirectedGrid(GRID);
+		final CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>> adapter = new CompactBidirectedGraph<GridNode, WeightedDirectedEdge<GridNode>, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>>(grid);
+		adapter.getTraversableEdges(grid.getNode(0, 0)).clear();
+	}
+}
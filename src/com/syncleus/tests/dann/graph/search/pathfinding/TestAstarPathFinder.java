@@ -24,6 +24,9 @@ import com.syncleus.dann.graph.BidirectedEdge;
 import com.syncleus.dann.graph.WeightedWalk;
 import com.syncleus.dann.graph.search.pathfinding.HeuristicPathCost;
 import com.syncleus.dann.graph.search.pathfinding.AstarPathFinder;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -140,4 +143,69 @@ public class TestAstarPathFinder
 
 		Assert.assertTrue("incorrect path found!", checkSolution(path, EASY_GRID_SOLUTION));
 	}
+
+	@Test
+	public void testBidirectionalHardGrid()
+	{
+		Grid hardGrid = new Grid(HARD_GRID);
+		AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>> pathFinder = new AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(hardGrid, new DistanceHeuristic(), true);
+
+		GridNode startNode = hardGrid.getNode(HARD_GRID_START[0], HARD_GRID_START[1]);
+		GridNode endNode = hardGrid.getNode(HARD_GRID_END[0], HARD_GRID_END[1]);
+
+		WeightedWalk<GridNode, BidirectedEdge<GridNode>> path = pathFinder.getBestPath(startNode, endNode);
+		WeightedWalk<GridNode, BidirectedEdge<GridNode>> unidirectionalPath = new AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(hardGrid, new DistanceHeuristic()).getBestPath(startNode, endNode);
+
+		Assert.assertTrue("incorrect path found!", checkSolution(path, HARD_GRID_SOLUTION));
+		Assert.assertEquals("bidirectional path weight differs", unidirectionalPath.getWeight(), path.getWeight(), 0.0);
+	}
+
+	@Test
+	public void testBestPathsFrom()
+	{
+		Grid hardGrid = new Grid(HARD_GRID);
+		AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>> pathFinder = new AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(hardGrid, new DistanceHeuristic());
+
+		GridNode startNode = hardGrid.getNode(HARD_GRID_START[0], HARD_GRID_START[1]);
+		Set<GridNode> endNodes = new HashSet<GridNode>();
+		endNodes.add(startNode);
+		endNodes.add(hardGrid.getNode(7, 7));
+		endNodes.add(hardGrid.getNode(0, 7));
+		endNodes.add(hardGrid.getNode(5, 3));
+		endNodes.add(hardGrid.getNode(7, 0));
+
+		Map<GridNode, WeightedWalk<GridNode, BidirectedEdge<GridNode>>> paths = pathFinder.getBestPathsFrom(startNode, endNodes);
+
+		Assert.assertEquals("the start node should be left out", endNodes.size() - 1, paths.size());
+		for(Map.Entry<GridNode, WeightedWalk<GridNode, BidirectedEdge<GridNode>>> path : paths.entrySet())
+		{
+			Assert.assertEquals(startNode, path.getValue().getFirstNode());
+			Assert.assertEquals(path.getKey(), path.getValue().getLastNode());
+			Assert.assertEquals("incorrect path weight!", pathFinder.getBestPath(startNode, path.getKey()).getWeight(), path.getValue().getWeight(), 0.0);
+		}
+	}
+
+	@Test
+	public void testBestPathsTo()
+	{
+		Grid hardGrid = new Grid(HARD_GRID);
+		AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>> pathFinder = new AstarPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(hardGrid, new DistanceHeuristic());
+
+		GridNode endNode = hardGrid.getNode(HARD_GRID_END[0], HARD_GRID_END[1]);
+		Set<GridNode> startNodes = new HashSet<GridNode>();
+		startNodes.add(hardGrid.getNode(1, 0));
+		startNodes.add(hardGrid.getNode(0, 3));
+		startNodes.add(hardGrid.getNode(2, 0));
+		startNodes.add(hardGrid.getNode(6, 4));
+
+		Map<GridNode, WeightedWalk<GridNode, BidirectedEdge<GridNode>>> paths = pathFinder.getBestPathsTo(startNodes, endNode);
+
+		Assert.assertEquals(startNodes.size(), paths.size());
+		for(Map.Entry<GridNode, WeightedWalk<GridNode, BidirectedEdge<GridNode>>> path : paths.entrySet())
+		{
+			Assert.assertEquals(path.getKey(), path.getValue().getFirstNode());
+			Assert.assertEquals(endNode, path.getValue().getLastNode());
+			Assert.assertEquals("incorrect path weight!", pathFinder.getBestPath(path.getKey(), endNode).getWeight(), path.getValue().getWeight(), 0.0);
+		}
+	}
 }
@@ -20,10 +20,15 @@ package com.syncleus.tests.dann.graph.search.pathfinding;
 
 import com.syncleus.tests.dann.graph.search.DirectedGrid;
 import com.syncleus.tests.dann.graph.search.GridNode;
+import com.syncleus.tests.dann.graph.search.WeightedDirectedGrid;
 import com.syncleus.dann.graph.BidirectedEdge;
 import com.syncleus.dann.graph.DirectedEdge;
 import com.syncleus.dann.graph.WeightedBidirectedWalk;
+import com.syncleus.dann.graph.WeightedDirectedEdge;
 import com.syncleus.dann.graph.search.pathfinding.BellmanFordPathFinder;
+import com.syncleus.dann.graph.search.pathfinding.NegativeWeightCycleException;
+import java.util.Map;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -122,4 +127,82 @@ public class TestBellmanFordPathFinder
 
 		Assert.assertTrue("incorrect path found!", checkSolution(path, EASY_GRID_SOLUTION));
 	}
+
+	/**
+	 * Creates a grid where stepping to a node costs twice its weight, with
+	 * negative nodes never next to each other so there is no negative-weight
+	 * cycle.
+	 */
+	private static WeightedDirectedGrid createNegativeGrid(Random random)
+	{
+		double[][] weights = new double[9][11];
+		for(int y = 0; y < weights.length; y++)
+			for(int x = 0; x < weights[0].length; x++)
+			{
+				boolean besideNegative = ((x > 0)&&(weights[y][x-1] < 0.0)) || ((y > 0)&&(weights[y-1][x] < 0.0));
+				weights[y][x] = ( (!besideNegative)&&(random.nextInt(4) == 0) ? -1.0 : 1.0 + random.nextInt(9) );
+			}
+		return new WeightedDirectedGrid(weights);
+	}
+
+	@Test
+	public void testStrategiesAgree()
+	{
+		Random random = new Random(0);
+		WeightedDirectedGrid grid = createNegativeGrid(random);
+		BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> passes = new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid);
+		BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> queue = new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid, BellmanFordPathFinder.Strategy.QUEUE);
+		BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> parallel = new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid, BellmanFordPathFinder.Strategy.PARALLEL, 3);
+
+		for(int sample = 0; sample < 3; sample++)
+		{
+			GridNode begin = grid.getNode(random.nextInt(11), random.nextInt(9));
+			passes.calculateSteps(begin);
+			queue.calculateSteps(begin);
+			parallel.calculateSteps(begin);
+			Map<GridNode, WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>>> backwardPaths = passes.getBestPathsTo(grid.getNodes(), begin);
+
+			for(GridNode end : grid.getNodes())
+			{
+				if( end.equals(begin) )
+					continue;
+
+				WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>> path = passes.getBestPath(begin, end, false);
+				Assert.assertEquals(begin, path.getFirstNode());
+				Assert.assertEquals(end, path.getLastNode());
+				double stepWeights = 0.0;
+				for(WeightedDirectedEdge<GridNode> step : path.getSteps())
+					stepWeights += step.getWeight() + step.getDestinationNode().getWeight();
+				Assert.assertEquals("steps do not add up to the path weight", path.getWeight(), stepWeights, 0.0);
+
+				Assert.assertEquals("queue strategy differs", path.getWeight(), queue.getBestPath(begin, end, false).getWeight(), 0.0);
+				Assert.assertEquals("parallel strategy differs", path.getWeight(), parallel.getBestPath(begin, end, false).getWeight(), 0.0);
+
+				WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>> backwardPath = backwardPaths.get(end);
+				Assert.assertEquals(end, backwardPath.getFirstNode());
+				Assert.assertEquals(begin, backwardPath.getLastNode());
+				Assert.assertEquals("backward search differs", passes.getBestPath(end, begin).getWeight(), backwardPath.getWeight(), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testNegativeWeightCycle()
+	{
+		double[][] weights = {{1.0, -1.0, -1.0, 1.0}};
+		WeightedDirectedGrid grid = new WeightedDirectedGrid(weights);
+
+		for(BellmanFordPathFinder.Strategy strategy : BellmanFordPathFinder.Strategy.values())
+		{
+			BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> pathFinder = new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid, strategy, 2);
+			try
+			{
+				pathFinder.calculateSteps(grid.getNode(0, 0));
+				Assert.fail(strategy + " did not find the negative-weight cycle");
+			}
+			catch(NegativeWeightCycleException caught)
+			{
+			}
+		}
+	}
 }
@@ -21,6 +21,8 @@ package com.syncleus.tests.dann.graph.search.pathfinding;
 import com.syncleus.tests.dann.graph.search.Grid;
 import com.syncleus.tests.dann.graph.search.GridNode;
 import com.syncleus.dann.graph.BidirectedEdge;
+import com.syncleus.dann.graph.BidirectedWalk;
+import com.syncleus.dann.graph.CompactBidirectedGraph;
 import com.syncleus.dann.graph.WeightedWalk;
 import com.syncleus.dann.graph.search.pathfinding.DijkstraPathFinder;
 import org.junit.Assert;
@@ -121,5 +123,30 @@ public class TestDijkstraPathFinder
 
 		Assert.assertTrue("incorrect path found!", checkSolution(path, EASY_GRID_SOLUTION));
 	}
-}
 
+	@Test
+	public void testCompactHardGrid()
+	{
+		Grid hardGrid = new Grid(HARD_GRID);
+		CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>> compactGrid = new CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>>(hardGrid);
+		DijkstraPathFinder<CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>>, GridNode, BidirectedEdge<GridNode>> pathFinder = new DijkstraPathFinder<CompactBidirectedGraph<GridNode, BidirectedEdge<GridNode>, BidirectedWalk<GridNode, BidirectedEdge<GridNode>>>, GridNode, BidirectedEdge<GridNode>>(compactGrid);
+
+		GridNode startNode = hardGrid.getNode(HARD_GRID_START[0], HARD_GRID_START[1]);
+		GridNode endNode = hardGrid.getNode(HARD_GRID_END[0], HARD_GRID_END[1]);
+
+		WeightedWalk<GridNode, BidirectedEdge<GridNode>> path = pathFinder.getBestPath(startNode, endNode);
+		WeightedWalk<GridNode, BidirectedEdge<GridNode>> uncompactedPath = new DijkstraPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(hardGrid).getBestPath(startNode, endNode);
+
+		Assert.assertTrue("incorrect path found!", checkSolution(path, HARD_GRID_SOLUTION));
+		Assert.assertEquals("compact path weight differs", uncompactedPath.getWeight(), path.getWeight(), 0.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeNodeWeight()
+	{
+		Grid negativeGrid = new Grid(new double[][]{{1.0, -1.0, 1.0}});
+		DijkstraPathFinder<Grid, GridNode, BidirectedEdge<GridNode>> pathFinder = new DijkstraPathFinder<Grid, GridNode, BidirectedEdge<GridNode>>(negativeGrid);
+
+		pathFinder.getBestPath(negativeGrid.getNode(0, 0), negativeGrid.getNode(2, 0));
+	}
+}
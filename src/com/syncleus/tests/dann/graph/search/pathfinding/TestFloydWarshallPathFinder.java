@@ -24,6 +24,8 @@ import com.syncleus.dann.graph.BidirectedEdge;
 import com.syncleus.dann.graph.DirectedEdge;
 import com.syncleus.dann.graph.WeightedWalk;
 import com.syncleus.dann.graph.search.pathfinding.FloydWarshallPathFinder;
+import java.util.Arrays;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -123,4 +125,67 @@ public class TestFloydWarshallPathFinder
 
 		Assert.assertTrue("incorrect path found!", checkSolution(path, EASY_GRID_SOLUTION));
 	}
+
+	@Test
+	public void testBlockedMatchesPlainLoop()
+	{
+		//large enough to be split into several tiles
+		final int width = 11;
+		final int height = 9;
+		final int size = width * height;
+		final Random random = new Random(0);
+		final double[][] weights = new double[height][width];
+		for(int y = 0; y < height; y++)
+			for(int x = 0; x < width; x++)
+				weights[y][x] = ( random.nextInt(10) == 0 ? INF : 1.0 + random.nextInt(9) );
+		DirectedGrid grid = new DirectedGrid(weights);
+		FloydWarshallPathFinder<DirectedGrid, GridNode, DirectedEdge<GridNode>> pathFinder = new FloydWarshallPathFinder<DirectedGrid, GridNode, DirectedEdge<GridNode>>(grid, 3);
+
+		//every step weighs 1 for the unweighted edge plus the node stepped to
+		final double[][] expected = new double[size][size];
+		for(int from = 0; from < size; from++)
+		{
+			Arrays.fill(expected[from], INF);
+			expected[from][from] = 0.0;
+			final int x = from % width;
+			final int y = from / width;
+			if( x > 0 )
+				expected[from][from - 1] = 1.0 + weights[y][x - 1];
+			if( x < width - 1 )
+				expected[from][from + 1] = 1.0 + weights[y][x + 1];
+			if( y > 0 )
+				expected[from][from - width] = 1.0 + weights[y - 1][x];
+			if( y < height - 1 )
+				expected[from][from + width] = 1.0 + weights[y + 1][x];
+		}
+		for(int k = 0; k < size; k++)
+			for(int i = 0; i < size; i++)
+				for(int j = 0; j < size; j++)
+					expected[i][j] = Math.min(expected[i][j], expected[i][k] + expected[k][j]);
+
+		for(int from = 0; from < size; from++)
+			for(int to = 0; to < size; to++)
+			{
+				if( from == to )
+					continue;
+				GridNode begin = grid.getNode(from % width, from / width);
+				GridNode end = grid.getNode(to % width, to / width);
+				WeightedWalk<GridNode, DirectedEdge<GridNode>> path = pathFinder.getBestPath(begin, end);
+				if( Double.isInfinite(expected[from][to]) )
+				{
+					Assert.assertNull("path found to an unreachable node", path);
+					continue;
+				}
+
+				Assert.assertNotNull("no path found", path);
+				Assert.assertEquals(begin, path.getFirstNode());
+				Assert.assertEquals(end, path.getLastNode());
+				Assert.assertEquals("incorrect path weight!", expected[from][to], path.getWeight(), 0.0);
+
+				double stepWeights = 0.0;
+				for(DirectedEdge<GridNode> step : path.getSteps())
+					stepWeights += 1.0 + step.getDestinationNode().getWeight();
+				Assert.assertEquals("steps do not add up to the path weight", path.getWeight(), stepWeights, 0.0);
+			}
+	}
 }
@@ -22,7 +22,12 @@ import com.syncleus.tests.dann.graph.search.GridNode;
 import com.syncleus.dann.graph.BidirectedEdge;
 import com.syncleus.dann.graph.DirectedEdge;
 import com.syncleus.dann.graph.WeightedBidirectedWalk;
+import com.syncleus.dann.graph.WeightedDirectedEdge;
+import com.syncleus.dann.graph.search.pathfinding.BellmanFordPathFinder;
 import com.syncleus.dann.graph.search.pathfinding.JohnsonPathFinder;
+import com.syncleus.dann.graph.search.pathfinding.NegativeWeightCycleException;
+import java.util.Collections;
+import java.util.Random;
 import com.syncleus.tests.dann.graph.search.WeightedDirectedGrid;
 import org.junit.Assert;
 import org.junit.Test;
@@ -123,4 +128,66 @@ public class TestJohnsonPathFinder
 
 		Assert.assertTrue("incorrect path found!", checkSolution(path, EASY_GRID_SOLUTION));
 	}
+
+	@Test
+	public void testNegativeWeightsMatchBellmanFord()
+	{
+		//stepping to a node costs twice its weight and negative nodes are
+		//never next to each other, so there is no negative-weight cycle
+		Random random = new Random(0);
+		double[][] weights = new double[7][9];
+		for(int y = 0; y < weights.length; y++)
+			for(int x = 0; x < weights[0].length; x++)
+			{
+				boolean besideNegative = ((x > 0)&&(weights[y][x-1] < 0.0)) || ((y > 0)&&(weights[y-1][x] < 0.0));
+				weights[y][x] = ( (!besideNegative)&&(random.nextInt(4) == 0) ? -1.0 : 1.0 + random.nextInt(9) );
+			}
+		WeightedDirectedGrid grid = new WeightedDirectedGrid(weights);
+
+		JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> pathFinder = new JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid, 3);
+		BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> bellmanFord = new BellmanFordPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid);
+
+		for(GridNode begin : grid.getNodes())
+		{
+			bellmanFord.calculateSteps(begin);
+			for(GridNode end : grid.getNodes())
+			{
+				if( begin.equals(end) )
+					continue;
+
+				WeightedBidirectedWalk<GridNode, WeightedDirectedEdge<GridNode>> path = pathFinder.getBestPath(begin, end);
+				Assert.assertEquals(begin, path.getFirstNode());
+				Assert.assertEquals(end, path.getLastNode());
+				Assert.assertEquals("incorrect path weight!", bellmanFord.getBestPath(begin, end, false).getWeight(), path.getWeight(), 1e-9);
+
+				double stepWeights = 0.0;
+				for(WeightedDirectedEdge<GridNode> step : path.getSteps())
+					stepWeights += step.getWeight() + step.getDestinationNode().getWeight();
+				Assert.assertEquals("steps do not add up to the path weight", path.getWeight(), stepWeights, 1e-9);
+			}
+		}
+	}
+
+	@Test(expected=NegativeWeightCycleException.class)
+	public void testNegativeWeightCycle()
+	{
+		WeightedDirectedGrid grid = new WeightedDirectedGrid(new double[][]{{1.0, -1.0, -1.0, 1.0}});
+		new JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullBeginFrom()
+	{
+		WeightedDirectedGrid grid = new WeightedDirectedGrid(EASY_GRID);
+		JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> pathFinder = new JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid);
+		pathFinder.getBestPathsFrom(null, Collections.singleton(grid.getNode(EASY_GRID_END[0], EASY_GRID_END[1])));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullEndTo()
+	{
+		WeightedDirectedGrid grid = new WeightedDirectedGrid(EASY_GRID);
+		JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>> pathFinder = new JohnsonPathFinder<WeightedDirectedGrid, GridNode, WeightedDirectedEdge<GridNode>>(grid);
+		pathFinder.getBestPathsTo(Collections.singleton(grid.getNode(EASY_GRID_START[0], EASY_GRID_START[1])), null);
+	}
 }
@@ -0,0 +1,163 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.metrics;
+
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.metrics.*;
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.FullyConnectedFeedforwardBrain;
+import com.syncleus.dann.neural.som.brain.ExponentialDecaySomBrain;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.*;
+import javax.management.*;
+import org.junit.*;
+
+public class TestMetrics
+{
+	@Test
+	public void testHistogram()
+	{
+		final Histogram histogram = new Histogram();
+		Assert.assertEquals(0L, histogram.getPercentile(50.0));
+		for(long value = 1; value <= 1000; value++)
+			histogram.record(value);
+
+		Assert.assertEquals(1000L, histogram.getCount());
+		Assert.assertEquals(500500L, histogram.getTotal());
+		Assert.assertEquals(1000L, histogram.getMaximum());
+		Assert.assertEquals(500.5, histogram.getMean(), 0.0);
+
+		//percentiles are bounded within a factor of two
+		final long median = histogram.getPercentile(50.0);
+		Assert.assertTrue("median bound is wrong: " + median, (median >= 500L) && (median <= 1000L));
+		Assert.assertEquals(1000L, histogram.getPercentile(100.0));
+
+		histogram.reset();
+		Assert.assertEquals(0L, histogram.getCount());
+		Assert.assertEquals(0L, histogram.getMaximum());
+	}
+
+	@Test
+	public void testFeedforwardMetrics() throws Exception
+	{
+		final SimpleMetrics metrics = new SimpleMetrics();
+		final MeteredThreadPoolExecutor executor = new MeteredThreadPoolExecutor(2, 2, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), metrics);
+		try
+		{
+			final FullyConnectedFeedforwardBrain brain = new FullyConnectedFeedforwardBrain(new int[]{2, 3, 1}, executor, 0.01, new HyperbolicTangentActivationFunction());
+			brain.setMetricsListener(metrics);
+
+			brain.propagate();
+			brain.backPropagate();
+			Assert.assertEquals(1L, metrics.getPhase(TrainingPhase.PROPAGATE).getCount());
+			Assert.assertEquals(1L, metrics.getPhase(TrainingPhase.BACKPROPAGATE).getCount());
+
+			final double[][] inputs = {{0.0, 0.0}, {0.0, 1.0}, {1.0, 0.0}, {1.0, 1.0}};
+			final double[][] desired = {{-0.5}, {0.5}, {0.5}, {-0.5}};
+			final double error = brain.trainBatch(inputs, desired);
+			Assert.assertEquals(1L, metrics.getPhase(TrainingPhase.BATCH).getCount());
+			Assert.assertEquals(1L, metrics.getEpochCount());
+			Assert.assertEquals(4L, metrics.getSampleCount());
+			Assert.assertEquals(error, metrics.getLastLoss(), 0.0);
+
+			final long queueWaits = metrics.getQueueWait().getCount();
+			executor.submit(new Runnable()
+			{
+				public void run()
+				{
+				}
+			}).get();
+			Assert.assertEquals("task did not report its queue wait", queueWaits + 1, metrics.getQueueWait().getCount());
+
+			brain.setMetricsListener(null);
+			brain.propagate();
+			Assert.assertEquals("metrics were reported after the listener was removed", 1L, metrics.getPhase(TrainingPhase.PROPAGATE).getCount());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDefaultExecutorMetrics()
+	{
+		final SimpleMetrics metrics = new SimpleMetrics();
+		final FullyConnectedFeedforwardBrain brain = new FullyConnectedFeedforwardBrain(new int[]{2, 3, 1}, 0.01, new HyperbolicTangentActivationFunction());
+		brain.setThreadCount(2);
+		brain.setMetricsListener(metrics);
+
+		final double[][] inputs = {{0.0, 0.0}, {0.0, 1.0}, {1.0, 0.0}, {1.0, 1.0}};
+		final double[][] desired = {{-0.5}, {0.5}, {0.5}, {-0.5}};
+		brain.trainBatch(inputs, desired);
+		Assert.assertTrue("default executor did not report queue waits", metrics.getQueueWait().getCount() > 0L);
+
+		final long queueWaits = metrics.getQueueWait().getCount();
+		brain.setMetricsListener(null);
+		brain.trainBatch(inputs, desired);
+		Assert.assertEquals("queue waits were reported after the listener was removed", queueWaits, metrics.getQueueWait().getCount());
+	}
+
+	@Test
+	public void testSomMetrics()
+	{
+		final SimpleMetrics metrics = new SimpleMetrics();
+		final ExponentialDecaySomBrain brain = new ExponentialDecaySomBrain(2, 1, 100, 0.1);
+		for(double position = 0; position < 5; position++)
+			brain.createOutput(new Vector(new double[]{position}));
+		brain.setMetricsListener(metrics);
+
+		brain.getBestMatchingUnit(false);
+		Assert.assertEquals(1L, metrics.getPhase(TrainingPhase.BEST_MATCHING_UNIT).getCount());
+		Assert.assertEquals(0L, metrics.getPhase(TrainingPhase.NEIGHBORHOOD).getCount());
+
+		brain.compile();
+		brain.getBestMatchingUnit(true);
+		Assert.assertEquals(2L, metrics.getPhase(TrainingPhase.BEST_MATCHING_UNIT).getCount());
+		Assert.assertEquals(1L, metrics.getPhase(TrainingPhase.NEIGHBORHOOD).getCount());
+
+		brain.trainBatch(new double[][]{{0.1, 0.2}, {0.3, 0.4}, {0.5, 0.6}});
+		Assert.assertEquals(1L, metrics.getEpochCount());
+		Assert.assertEquals(3L, metrics.getSampleCount());
+	}
+
+	@Test
+	public void testJmxRegistration() throws JMException
+	{
+		final JmxMetrics metrics = new JmxMetrics();
+		final ObjectName name = metrics.register("TestMetrics");
+		try
+		{
+			metrics.epochCompleted(this, 10, 0.25, 1000000L);
+			metrics.phaseCompleted(this, TrainingPhase.FITNESS, 500L);
+
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			Assert.assertEquals(Long.valueOf(1L), server.getAttribute(name, "EpochCount"));
+			Assert.assertEquals(Double.valueOf(0.25), server.getAttribute(name, "LastLoss"));
+			Assert.assertEquals(Long.valueOf(1L), metrics.getPhaseCounts().get(TrainingPhase.FITNESS.name()));
+			Assert.assertNotNull(server.getAttribute(name, "PhaseMeans"));
+		}
+		finally
+		{
+			metrics.unregister();
+		}
+		Assert.assertNull(metrics.getObjectName());
+		Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
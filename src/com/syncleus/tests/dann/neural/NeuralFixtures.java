@@ -0,0 +1,56 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural;
+
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.som.brain.ExponentialDecaySomBrain;
+import java.util.Random;
+
+/**
+ * Fixtures shared by the neural network tests.
+ */
+public final class NeuralFixtures
+{
+	private static final int SOM_TRAIN_ITERATIONS = 500;
+	private static final double SOM_LEARNING_RATE = 0.1;
+
+	private NeuralFixtures()
+	{
+	}
+
+	public static double[] randomVector(final Random random, final int size)
+	{
+		final double[] vector = new double[size];
+		for(int index = 0; index < size; index++)
+			vector[index] = (random.nextDouble() * 2.0) - 1.0;
+		return vector;
+	}
+
+	/**
+	 * Creates a SOM brain with a width by height lattice of output units.
+	 */
+	public static ExponentialDecaySomBrain createSomBrain(final int inputCount, final int width, final int height)
+	{
+		final ExponentialDecaySomBrain brain = new ExponentialDecaySomBrain(inputCount, 2, SOM_TRAIN_ITERATIONS, SOM_LEARNING_RATE);
+		for(double x = 0; x < width; x++)
+			for(double y = 0; y < height; y++)
+				brain.createOutput(new Vector(new double[]{x, y}));
+		return brain;
+	}
+}
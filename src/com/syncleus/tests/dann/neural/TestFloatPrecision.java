@@ -0,0 +1,115 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import com.syncleus.dann.neural.som.brain.*;
+import java.util.*;
+import org.junit.*;
+
+/**
+ * Documents how far single precision networks and codebooks drift from the
+ * double precision ones they were converted from.
+ */
+public class TestFloatPrecision
+{
+	private static final int[] TOPOLOGY = {16, 64, 32, 4};
+	private static final int SAMPLES = 200;
+	//rounding each weight to a float is a relative error of at most 2^-24
+	private static final double FLOAT_ROUNDING = 1.0 / (1 << 24);
+	//tanh outputs are bounded so the drift through a few layers stays tiny
+	private static final double OUTPUT_TOLERANCE = 0.00001;
+
+	@Test
+	public void testFeedforwardWeightRounding()
+	{
+		final CompiledFeedforwardNetwork network = new FullyConnectedFeedforwardBrain(TOPOLOGY, 0.05, new HyperbolicTangentActivationFunction()).compile();
+		final FloatFeedforwardNetwork floatNetwork = network.toFloat();
+		Assert.assertEquals(network.getLayerCount(), floatNetwork.getLayerCount());
+
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+			{
+				final double bias = network.getBiasWeight(layer, neuron);
+				Assert.assertEquals(bias, floatNetwork.getBiasWeight(layer, neuron), Math.abs(bias) * FLOAT_ROUNDING);
+				for(int source = 0; source < TOPOLOGY[layer - 1]; source++)
+				{
+					final double weight = network.getWeight(layer, neuron, source);
+					Assert.assertEquals(weight, floatNetwork.getWeight(layer, neuron, source), Math.abs(weight) * FLOAT_ROUNDING);
+				}
+			}
+	}
+
+	@Test
+	public void testFeedforwardDrift()
+	{
+		final Random random = new Random(0);
+		final CompiledFeedforwardNetwork network = new FullyConnectedFeedforwardBrain(TOPOLOGY, 0.05, new HyperbolicTangentActivationFunction()).compile();
+
+		//train a little so the weights are not just their initial values
+		final double[][] inputs = new double[SAMPLES][];
+		final double[][] desired = new double[SAMPLES][];
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			desired[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[TOPOLOGY.length - 1]);
+		}
+		for(int epoch = 0; epoch < 5; epoch++)
+			network.trainBatch(inputs, desired);
+
+		final FloatFeedforwardNetwork floatNetwork = network.toFloat();
+		final double[][] floatOutputs = floatNetwork.infer(inputs);
+		double maximumDrift = 0.0;
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			final double[] outputs = network.propagate(inputs[sample]);
+			Assert.assertTrue("infer and propagate differ", Arrays.equals(floatOutputs[sample], floatNetwork.propagate(inputs[sample])));
+			for(int index = 0; index < outputs.length; index++)
+				maximumDrift = Math.max(maximumDrift, Math.abs(outputs[index] - floatOutputs[sample][index]));
+		}
+		Assert.assertTrue("single precision outputs drifted by " + maximumDrift, maximumDrift < OUTPUT_TOLERANCE);
+	}
+
+	@Test
+	public void testSomDrift()
+	{
+		final Random random = new Random(1);
+		final SomCodebook codebook = NeuralFixtures.createSomBrain(8, 30, 30).compile();
+		final FloatSomCodebook floatCodebook = codebook.toFloat();
+		Assert.assertEquals(codebook.getUnitCount(), floatCodebook.getUnitCount());
+
+		int agreements = 0;
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			final double[] inputs = NeuralFixtures.randomVector(random, codebook.getInputCount());
+			final int unit = codebook.getBestMatchingUnit(inputs);
+			final int floatUnit = floatCodebook.getBestMatchingUnit(inputs);
+			Assert.assertEquals(codebook.getPosition(floatUnit), floatCodebook.getPosition(floatUnit));
+
+			final double distance = codebook.getOutput(unit, inputs);
+			Assert.assertEquals(distance, floatCodebook.getOutput(unit, inputs), distance * FLOAT_ROUNDING * 4.0);
+			//when the units differ they must have been within rounding of a tie
+			Assert.assertEquals("single precision BMU is not nearly as close", distance, codebook.getOutput(floatUnit, inputs), distance * FLOAT_ROUNDING * 8.0);
+			if( unit == floatUnit )
+				agreements++;
+		}
+		Assert.assertTrue("single precision BMU agreed " + agreements + " times out of " + SAMPLES, agreements >= (SAMPLES * 99) / 100);
+	}
+}
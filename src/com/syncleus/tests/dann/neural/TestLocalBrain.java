@@ -0,0 +1,153 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural;
+
+import com.syncleus.dann.neural.*;
+import com.syncleus.dann.neural.backprop.*;
+import java.util.*;
+import org.junit.*;
+
+public class TestLocalBrain
+{
+	private class TestBrain extends AbstractLocalBrain
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean add(Neuron newNeuron)
+		{
+			return super.add(newNeuron);
+		}
+
+		@Override
+		public boolean add(Collection<? extends Neuron> newNeurons)
+		{
+			return super.add(newNeurons);
+		}
+
+		@Override
+		public boolean connect(Neuron source, Neuron destination)
+		{
+			return super.connect(source, destination);
+		}
+
+		@Override
+		public boolean remove(Neuron removeNeuron)
+		{
+			return super.remove(removeNeuron);
+		}
+	}
+
+	@Test
+	public void testRemoveNeuronDisconnects()
+	{
+		final TestBrain brain = new TestBrain();
+		final InputBackpropNeuron input = new InputBackpropNeuron(brain);
+		final BackpropNeuron hidden = new BackpropNeuron(brain);
+		final OutputBackpropNeuron output = new OutputBackpropNeuron(brain);
+		brain.add(input);
+		brain.add(hidden);
+		brain.add(output);
+		brain.connect(input, hidden);
+		brain.connect(hidden, output);
+		brain.connect(input, output);
+		Assert.assertEquals(3, brain.getEdges().size());
+
+		Assert.assertTrue(brain.remove(hidden));
+		Assert.assertFalse(brain.getNodes().contains(hidden));
+		Assert.assertEquals(1, brain.getEdges().size());
+		for(Synapse synapse : brain.getEdges())
+			Assert.assertFalse("a synapse of the removed neuron remains", synapse.getNodes().contains(hidden));
+
+		//both ends of every removed synapse must forget it
+		Assert.assertEquals(1, brain.getOutdegree(input));
+		Assert.assertEquals(output, brain.getOutEdges(input).get(0).getDestinationNode());
+		Assert.assertEquals(1, brain.getIndegree(output));
+		Assert.assertEquals(input, brain.getInEdges(output).get(0).getSourceNode());
+		Assert.assertFalse(brain.isConnected(input, hidden));
+		Assert.assertFalse(brain.getNeighbors(output).contains(hidden));
+		Assert.assertTrue(brain.getEdges(hidden).isEmpty());
+		Assert.assertEquals(0, brain.getDegree(hidden));
+
+		Assert.assertFalse(brain.remove(hidden));
+	}
+
+	@Test
+	public void testRemoveInputAndOutputNeurons()
+	{
+		final TestBrain brain = new TestBrain();
+		final InputBackpropNeuron input = new InputBackpropNeuron(brain);
+		final OutputBackpropNeuron output = new OutputBackpropNeuron(brain);
+		brain.add(input);
+		brain.add(output);
+		brain.connect(input, output);
+
+		Assert.assertTrue(brain.remove(output));
+		Assert.assertTrue(brain.getOutputNeurons().isEmpty());
+		Assert.assertTrue(brain.getOutEdges(input).isEmpty());
+		Assert.assertTrue(brain.remove(input));
+		Assert.assertTrue(brain.getInputNeurons().isEmpty());
+		Assert.assertTrue(brain.getEdges().isEmpty());
+	}
+
+	@Test
+	public void testAddCollectionMatchesAdd()
+	{
+		final TestBrain collectionBrain = new TestBrain();
+		final TestBrain singleBrain = new TestBrain();
+		final List<Neuron> collectionNeurons = Arrays.<Neuron>asList(new InputBackpropNeuron(collectionBrain), new BackpropNeuron(collectionBrain), new OutputBackpropNeuron(collectionBrain));
+		final List<Neuron> singleNeurons = Arrays.<Neuron>asList(new InputBackpropNeuron(singleBrain), new BackpropNeuron(singleBrain), new OutputBackpropNeuron(singleBrain));
+
+		Assert.assertTrue(collectionBrain.add(collectionNeurons));
+		for(Neuron neuron : singleNeurons)
+			Assert.assertTrue(singleBrain.add(neuron));
+
+		Assert.assertEquals(singleBrain.getNodes().size(), collectionBrain.getNodes().size());
+		Assert.assertEquals(singleBrain.getInputNeurons().size(), collectionBrain.getInputNeurons().size());
+		Assert.assertEquals(singleBrain.getOutputNeurons().size(), collectionBrain.getOutputNeurons().size());
+		Assert.assertTrue(collectionBrain.getNodes().containsAll(collectionNeurons));
+		Assert.assertTrue(collectionBrain.getInputNeurons().contains(collectionNeurons.get(0)));
+		Assert.assertTrue(collectionBrain.getOutputNeurons().contains(collectionNeurons.get(2)));
+
+		//neurons added as a collection must be connectable like any other
+		for(int index = 1; index < collectionNeurons.size(); index++)
+		{
+			Assert.assertTrue(collectionBrain.connect(collectionNeurons.get(index - 1), collectionNeurons.get(index)));
+			Assert.assertTrue(singleBrain.connect(singleNeurons.get(index - 1), singleNeurons.get(index)));
+		}
+		for(int index = 0; index < collectionNeurons.size(); index++)
+		{
+			Assert.assertEquals(singleBrain.getIndegree(singleNeurons.get(index)), collectionBrain.getIndegree(collectionNeurons.get(index)));
+			Assert.assertEquals(singleBrain.getOutdegree(singleNeurons.get(index)), collectionBrain.getOutdegree(collectionNeurons.get(index)));
+		}
+
+		//adding neurons already in the brain changes nothing
+		Assert.assertFalse(collectionBrain.add(collectionNeurons));
+		Assert.assertFalse(collectionBrain.add(new ArrayList<Neuron>()));
+		Assert.assertEquals(2, collectionBrain.getEdges().size());
+		Assert.assertEquals(1, collectionBrain.getOutdegree(collectionNeurons.get(0)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testAddCollectionRejectsNull()
+	{
+		final TestBrain brain = new TestBrain();
+		brain.add(Arrays.<Neuron>asList(new BackpropNeuron(brain), null));
+	}
+}
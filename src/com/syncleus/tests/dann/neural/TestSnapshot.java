@@ -0,0 +1,105 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural;
+
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import com.syncleus.dann.neural.som.brain.*;
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+public class TestSnapshot
+{
+	private static File createSnapshotFile() throws IOException
+	{
+		final File file = File.createTempFile("dann-snapshot", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testFeedforwardRoundTrip() throws IOException
+	{
+		final Random random = new Random(0);
+		final FullyConnectedFeedforwardBrain brain = new FullyConnectedFeedforwardBrain(new int[]{3, 5, 2}, 0.05, new HyperbolicTangentActivationFunction());
+		final CompiledFeedforwardNetwork network = brain.compile();
+
+		final File file = createSnapshotFile();
+		FeedforwardSnapshot.write(network, file);
+		final CompiledFeedforwardNetwork loaded = FeedforwardSnapshot.read(file);
+		Assert.assertFalse("loaded networks must be detached", loaded.isAttached());
+		Assert.assertEquals(network.getLayerCount(), loaded.getLayerCount());
+
+		for(int layer = 0; layer < network.getLayerCount(); layer++)
+		{
+			Assert.assertEquals(network.getLayerSize(layer), loaded.getLayerSize(layer));
+			for(int neuron = 0; neuron < network.getLayerSize(layer); neuron++)
+				Assert.assertEquals(network.getBiasWeight(layer, neuron), loaded.getBiasWeight(layer, neuron), 0.0);
+		}
+
+		for(int sample = 0; sample < 10; sample++)
+		{
+			final double[] inputs = {random.nextDouble(), random.nextDouble(), random.nextDouble()};
+			Assert.assertTrue("loaded network propagates differently", Arrays.equals(network.propagate(inputs), loaded.propagate(inputs)));
+		}
+	}
+
+	@Test
+	public void testSomRoundTrip() throws IOException
+	{
+		final Random random = new Random(1);
+		final ExponentialDecaySomBrain brain = new ExponentialDecaySomBrain(3, 2, 100, 0.1);
+		for(double x = 0; x < 7; x++)
+			for(double y = 0; y < 5; y++)
+				brain.createOutput(new Vector(new double[]{x, y}));
+		final SomCodebook codebook = brain.compile();
+
+		final File file = createSnapshotFile();
+		SomSnapshot.write(codebook, file);
+		final SomCodebook loaded = SomSnapshot.read(file);
+		Assert.assertFalse("loaded codebooks must be detached", loaded.isAttached());
+		Assert.assertEquals(codebook.getUnitCount(), loaded.getUnitCount());
+		Assert.assertEquals(codebook.getInputCount(), loaded.getInputCount());
+
+		for(int unit = 0; unit < codebook.getUnitCount(); unit++)
+		{
+			Assert.assertEquals(codebook.getPosition(unit), loaded.getPosition(unit));
+			Assert.assertTrue("loaded weights differ", Arrays.equals(codebook.getWeightVector(unit), loaded.getWeightVector(unit)));
+		}
+
+		for(int sample = 0; sample < 10; sample++)
+		{
+			final double[] inputs = {random.nextDouble(), random.nextDouble(), random.nextDouble()};
+			Assert.assertEquals("loaded codebook found a different BMU", codebook.getBestMatchingUnit(inputs), loaded.getBestMatchingUnit(inputs));
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testWrongKindRejected() throws IOException
+	{
+		final ExponentialDecaySomBrain brain = new ExponentialDecaySomBrain(2, 1, 100, 0.1);
+		brain.createOutput(new Vector(new double[]{0.0}));
+
+		final File file = createSnapshotFile();
+		SomSnapshot.write(brain.compile(), file);
+		FeedforwardSnapshot.read(file);
+	}
+}
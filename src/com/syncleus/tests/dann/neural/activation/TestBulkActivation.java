@@ -0,0 +1,81 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.activation;
+
+import com.syncleus.dann.neural.activation.*;
+import java.util.Random;
+import org.junit.*;
+
+public class TestBulkActivation
+{
+	private static final int SAMPLES = 10000;
+	private static final double RANGE = 20.0;
+	private static final double FAST_OUTPUT_ERROR = 0.000002;
+	private static final double FAST_DERIVATIVE_ERROR = 0.000004;
+
+	private static double[] randomActivities(final Random random)
+	{
+		final double[] activities = new double[SAMPLES];
+		for(int index = 0; index < SAMPLES; index++)
+			activities[index] = ((random.nextDouble() * 2.0) - 1.0) * RANGE;
+		return activities;
+	}
+
+	private static void checkBulkMatchesScalar(final BulkActivationFunction activationFunction, final double[] activities)
+	{
+		final double[] outputs = new double[activities.length];
+		final double[] fusedOutputs = new double[activities.length];
+		final double[] derivatives = new double[activities.length];
+		activationFunction.activate(activities, outputs);
+		activationFunction.activateWithDerivative(activities, fusedOutputs, derivatives);
+		for(int index = 0; index < activities.length; index++)
+		{
+			Assert.assertEquals("bulk output differs from scalar output", activationFunction.activate(activities[index]), outputs[index], 0.0);
+			Assert.assertEquals("fused output differs from scalar output", activationFunction.activate(activities[index]), fusedOutputs[index], 0.0);
+			Assert.assertEquals("fused derivative differs from scalar derivative", activationFunction.activateDerivative(activities[index]), derivatives[index], 0.0);
+		}
+	}
+
+	@Test
+	public void testBulkMatchesScalar()
+	{
+		final double[] activities = randomActivities(new Random(0));
+		checkBulkMatchesScalar(new HyperbolicTangentActivationFunction(), activities);
+		checkBulkMatchesScalar(new IdentityActivationFunction(), activities);
+		checkBulkMatchesScalar(new FastHyperbolicTangentActivationFunction(), activities);
+	}
+
+	@Test
+	public void testFastTangentErrorBound()
+	{
+		final FastHyperbolicTangentActivationFunction fastFunction = new FastHyperbolicTangentActivationFunction();
+		final HyperbolicTangentActivationFunction exactFunction = new HyperbolicTangentActivationFunction();
+
+		//sweep finely through the table and well past both of its ends
+		for(double activity = -RANGE; activity <= RANGE; activity += 0.0001)
+		{
+			Assert.assertEquals("fast tanh exceeds its error bound at " + activity, exactFunction.activate(activity), fastFunction.activate(activity), FAST_OUTPUT_ERROR);
+			Assert.assertEquals("fast tanh derivative exceeds its error bound at " + activity, exactFunction.activateDerivative(activity), fastFunction.activateDerivative(activity), FAST_DERIVATIVE_ERROR);
+		}
+
+		Assert.assertEquals(1.0, fastFunction.activate(Double.POSITIVE_INFINITY), 0.0);
+		Assert.assertEquals(-1.0, fastFunction.activate(Double.NEGATIVE_INFINITY), 0.0);
+		Assert.assertTrue(Double.isNaN(fastFunction.activate(Double.NaN)));
+	}
+}
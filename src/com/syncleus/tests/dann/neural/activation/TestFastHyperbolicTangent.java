@@ -0,0 +1,65 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.activation;
+
+import com.syncleus.dann.neural.activation.*;
+import java.util.Random;
+import org.junit.*;
+
+public class TestFastHyperbolicTangent
+{
+	private static final double UPPER_TEST_VALUE = 1000000000.0;
+	private static final double TEST_INCREMENT = 10.0;
+	private static final int RANDOM_TEST_ITERATIONS = 10000;
+	private static final double RANDOM_TEST_RANGE = 1000.0;
+	private static final double SYMMETRY_ERROR = 0.000000000001;
+
+	private static void checkBounds(final ActivationFunction activationFunction, final double activity)
+	{
+		final double result = activationFunction.activate(activity);
+		final double derivative = activationFunction.activateDerivative(activity);
+		Assert.assertTrue("Transfer out of bounds. In: " + activity + ", result: " + result, (result <= 1.0)&&(result >= -1.0));
+		Assert.assertTrue("Derivative out of bounds. In: " + activity + ", result: " + derivative, (derivative <= 1.0)&&(derivative >= 0.0));
+	}
+
+	@Test
+	public void testBounds()
+	{
+		final FastHyperbolicTangentActivationFunction fastFunction = new FastHyperbolicTangentActivationFunction();
+
+		for(double activity = UPPER_TEST_VALUE; activity >= 1.0; activity /= TEST_INCREMENT)
+		{
+			checkBounds(fastFunction, activity);
+			checkBounds(fastFunction, -activity);
+		}
+
+		final Random random = new Random(0);
+		for(int count = 0; count < RANDOM_TEST_ITERATIONS; count++)
+			checkBounds(fastFunction, ((random.nextDouble()*2.0)-1.0) * RANDOM_TEST_RANGE);
+	}
+
+	@Test
+	public void testSymmetry()
+	{
+		final FastHyperbolicTangentActivationFunction fastFunction = new FastHyperbolicTangentActivationFunction();
+		for(double activity = 0.0; activity <= 20.0; activity += 0.001)
+			Assert.assertEquals("fast tanh is not odd at " + activity, -fastFunction.activate(activity), fastFunction.activate(-activity), SYMMETRY_ERROR);
+		Assert.assertEquals(0.0, fastFunction.activate(0.0), SYMMETRY_ERROR);
+	}
+}
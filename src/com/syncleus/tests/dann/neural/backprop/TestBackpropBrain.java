@@ -0,0 +1,96 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.*;
+import com.syncleus.dann.neural.backprop.brain.AbstractBackpropBrain;
+import org.junit.*;
+
+public class TestBackpropBrain
+{
+	private static final double LEARNING_RATE = 0.1;
+	private static final double TOLERANCE = 0.0000001;
+
+	/**
+	 * A brain which only relies on the default trainBatch.
+	 */
+	private static class PerceptronBrain extends AbstractBackpropBrain
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final InputBackpropNeuron input;
+		private final OutputBackpropNeuron output;
+
+		public PerceptronBrain()
+		{
+			this.input = new InputBackpropNeuron(this);
+			this.output = new OutputBackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+			this.output.setBiasWeight(0.25);
+			this.add(this.input);
+			this.add(this.output);
+			this.connect(this.input, this.output, 0.5);
+		}
+
+		public void propagate()
+		{
+			this.input.propagate();
+			this.output.propagate();
+		}
+
+		public void backPropagate()
+		{
+			this.output.backPropagate();
+			this.input.backPropagate();
+		}
+	}
+
+	@Test
+	public void testDefaultTrainBatch()
+	{
+		final double[][] inputs = {{-1.0}, {-0.5}, {0.5}, {1.0}};
+		final double[][] desired = {{1.0}, {0.5}, {-0.5}, {-1.0}};
+
+		final PerceptronBrain batchBrain = new PerceptronBrain();
+		final PerceptronBrain sampleBrain = new PerceptronBrain();
+		double firstError = 0.0;
+		double lastError = 0.0;
+		for(int epoch = 0; epoch < 100; epoch++)
+		{
+			lastError = batchBrain.trainBatch(inputs, desired);
+			if( epoch == 0 )
+				firstError = lastError;
+
+			//the default must behave as training one sample at a time
+			double squaredError = 0.0;
+			for(int sample = 0; sample < inputs.length; sample++)
+			{
+				sampleBrain.input.setInput(inputs[sample][0]);
+				sampleBrain.propagate();
+				final double error = desired[sample][0] - sampleBrain.output.getOutput();
+				squaredError += error * error;
+				sampleBrain.output.setDesired(desired[sample][0]);
+				sampleBrain.backPropagate();
+			}
+			Assert.assertEquals("default batch differs from per sample training", squaredError / inputs.length, lastError, TOLERANCE);
+		}
+		Assert.assertTrue("batch training did not reduce the error: " + firstError + " -> " + lastError, lastError < firstError);
+		Assert.assertEquals(sampleBrain.output.getBiasWeight(), batchBrain.output.getBiasWeight(), TOLERANCE);
+	}
+}
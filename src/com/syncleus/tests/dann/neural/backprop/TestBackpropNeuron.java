@@ -0,0 +1,121 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.*;
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.*;
+import com.syncleus.dann.neural.backprop.brain.AbstractBackpropBrain;
+import org.junit.*;
+
+public class TestBackpropNeuron
+{
+	private static final double LEARNING_RATE = 0.1;
+	private static final double TOLERANCE = 0.000000000001;
+
+	/**
+	 * Two inputs, two hidden neurons and one output with fixed weights.
+	 */
+	private static class SmallBrain extends AbstractBackpropBrain
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final InputBackpropNeuron firstInput = new InputBackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+		private final InputBackpropNeuron secondInput = new InputBackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+		private final BackpropNeuron firstHidden = new BackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+		private final BackpropNeuron secondHidden = new BackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+		private final OutputBackpropNeuron output = new OutputBackpropNeuron(this, new HyperbolicTangentActivationFunction(), LEARNING_RATE);
+
+		public SmallBrain()
+		{
+			this.firstInput.setBiasWeight(0.0);
+			this.secondInput.setBiasWeight(0.0);
+			this.firstHidden.setBiasWeight(0.1);
+			this.secondHidden.setBiasWeight(-0.2);
+			this.output.setBiasWeight(0.05);
+			this.add(this.firstInput);
+			this.add(this.secondInput);
+			this.add(this.firstHidden);
+			this.add(this.secondHidden);
+			this.add(this.output);
+			this.connect(this.firstInput, this.firstHidden, 0.3);
+			this.connect(this.firstInput, this.secondHidden, -0.6);
+			this.connect(this.secondInput, this.firstHidden, 0.8);
+			this.connect(this.secondInput, this.secondHidden, 0.4);
+			this.connect(this.firstHidden, this.output, 0.7);
+			this.connect(this.secondHidden, this.output, -0.5);
+		}
+
+		public void propagate()
+		{
+			this.firstInput.propagate();
+			this.secondInput.propagate();
+			this.firstHidden.propagate();
+			this.secondHidden.propagate();
+			this.output.propagate();
+		}
+
+		public void backPropagate()
+		{
+			this.output.backPropagate();
+			this.firstHidden.backPropagate();
+			this.secondHidden.backPropagate();
+			this.firstInput.backPropagate();
+			this.secondInput.backPropagate();
+		}
+
+		private double getWeight(final Neuron source, final Neuron destination)
+		{
+			for(Synapse synapse : this.getOutEdges(source))
+				if( synapse.getDestinationNode() == destination )
+					return synapse.getWeight();
+			throw new AssertionError("neurons are not connected");
+		}
+	}
+
+	@Test
+	public void testBackPropagateStep()
+	{
+		final SmallBrain brain = new SmallBrain();
+		brain.firstInput.setInput(0.5);
+		brain.secondInput.setInput(-0.25);
+		brain.propagate();
+		brain.output.setDesired(0.9);
+		brain.backPropagate();
+
+		//expected values were recorded from the implementation which copied
+		//each destination's delta train into a Hashtable of its sources
+		Assert.assertEquals(0.495932046768026, brain.output.getDeltaTrain(), TOLERANCE);
+		Assert.assertEquals(0.34751164860512845, brain.firstHidden.getDeltaTrain(), TOLERANCE);
+		Assert.assertEquals(-0.18584609588296977, brain.secondHidden.getDeltaTrain(), TOLERANCE);
+		Assert.assertEquals(0.2235263079748802, brain.firstInput.getDeltaTrain(), TOLERANCE);
+		Assert.assertEquals(0.19978830259913494, brain.secondInput.getDeltaTrain(), TOLERANCE);
+
+		Assert.assertEquals(0.0995932046768026, brain.output.getBiasWeight(), TOLERANCE);
+		Assert.assertEquals(0.13475116486051286, brain.firstHidden.getBiasWeight(), TOLERANCE);
+		Assert.assertEquals(-0.21858460958829698, brain.secondHidden.getBiasWeight(), TOLERANCE);
+
+		Assert.assertEquals(0.31737558243025643, brain.getWeight(brain.firstInput, brain.firstHidden), TOLERANCE);
+		Assert.assertEquals(-0.6092923047941484, brain.getWeight(brain.firstInput, brain.secondHidden), TOLERANCE);
+		Assert.assertEquals(0.7913122087848719, brain.getWeight(brain.secondInput, brain.firstHidden), TOLERANCE);
+		Assert.assertEquals(0.40464615239707424, brain.getWeight(brain.secondInput, brain.secondHidden), TOLERANCE);
+		Assert.assertEquals(0.7024775959146066, brain.getWeight(brain.firstHidden, brain.output), TOLERANCE);
+		Assert.assertEquals(-0.5266340090977217, brain.getWeight(brain.secondHidden, brain.output), TOLERANCE);
+	}
+}
@@ -0,0 +1,366 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.*;
+import com.syncleus.dann.neural.backprop.brain.*;
+import com.syncleus.tests.dann.neural.NeuralFixtures;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.*;
+
+public class TestCompiledFeedforwardNetwork
+{
+	private static final int[] TOPOLOGY = {4, 6, 5, 2};
+	private static final double LEARNING_RATE = 0.05;
+	private static final int TRAINING_CYCLES = 200;
+	private static final double TOLERANCE = 0.0000001;
+
+	private static FullyConnectedFeedforwardBrain createBrain()
+	{
+		return new FullyConnectedFeedforwardBrain(TOPOLOGY, LEARNING_RATE, new HyperbolicTangentActivationFunction());
+	}
+
+	private static void copyWeights(final CompiledFeedforwardNetwork from, final CompiledFeedforwardNetwork to)
+	{
+		for(int layer = 0; layer < from.getLayerCount(); layer++)
+			for(int neuron = 0; neuron < from.getLayerSize(layer); neuron++)
+			{
+				to.setBiasWeight(layer, neuron, from.getBiasWeight(layer, neuron));
+				if( layer > 0 )
+					for(int source = 0; source < from.getLayerSize(layer - 1); source++)
+						to.setWeight(layer, neuron, source, from.getWeight(layer, neuron, source));
+			}
+	}
+
+	private static void setInputs(final List<BackpropNeuron> inputNeurons, final double[] inputs)
+	{
+		for(int index = 0; index < inputs.length; index++)
+			((InputBackpropNeuron)inputNeurons.get(index)).setInput(inputs[index]);
+	}
+
+	private static void setDesired(final List<BackpropNeuron> outputNeurons, final double[] desired)
+	{
+		for(int index = 0; index < desired.length; index++)
+			((OutputBackpropNeuron)outputNeurons.get(index)).setDesired(desired[index]);
+	}
+
+	@Test
+	public void testPropagateMatchesGraph()
+	{
+		final Random random = new Random(0);
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		final CompiledFeedforwardNetwork network = brain.compile();
+		final List<BackpropNeuron> inputNeurons = network.getNeurons(0);
+		final List<BackpropNeuron> outputNeurons = network.getNeurons(TOPOLOGY.length - 1);
+
+		final double[][] inputs = new double[10][];
+		final double[][] compiledOutputs = new double[inputs.length][];
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			compiledOutputs[sample] = network.propagate(inputs[sample]);
+		}
+
+		brain.decompile();
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			setInputs(inputNeurons, inputs[sample]);
+			brain.propagate();
+			for(int index = 0; index < outputNeurons.size(); index++)
+				Assert.assertEquals("compiled output differs from graph output", ((OutputBackpropNeuron)outputNeurons.get(index)).getOutput(), compiledOutputs[sample][index], TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testTrainingMatchesGraph()
+	{
+		final Random random = new Random(1);
+		final FullyConnectedFeedforwardBrain compiledBrain = createBrain();
+		final FullyConnectedFeedforwardBrain graphBrain = createBrain();
+
+		//give both brains identical weights
+		final CompiledFeedforwardNetwork compiledNetwork = compiledBrain.compile();
+		final CompiledFeedforwardNetwork graphNetwork = graphBrain.compile();
+		copyWeights(compiledNetwork, graphNetwork);
+		graphBrain.decompile();
+		Assert.assertFalse(graphBrain.isCompiled());
+		Assert.assertTrue(compiledBrain.isCompiled());
+
+		final double[][] inputs = new double[8][];
+		final double[][] desired = new double[8][];
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			desired[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[TOPOLOGY.length - 1]);
+		}
+
+		final int outputLayer = TOPOLOGY.length - 1;
+		for(int cycle = 0; cycle < TRAINING_CYCLES; cycle++)
+			for(int sample = 0; sample < inputs.length; sample++)
+			{
+				setInputs(compiledNetwork.getNeurons(0), inputs[sample]);
+				compiledBrain.propagate();
+				setDesired(compiledNetwork.getNeurons(outputLayer), desired[sample]);
+				compiledBrain.backPropagate();
+
+				setInputs(graphNetwork.getNeurons(0), inputs[sample]);
+				graphBrain.propagate();
+				setDesired(graphNetwork.getNeurons(outputLayer), desired[sample]);
+				graphBrain.backPropagate();
+
+				for(int index = 0; index < TOPOLOGY[outputLayer]; index++)
+				{
+					final OutputBackpropNeuron compiledOutput = (OutputBackpropNeuron) compiledNetwork.getNeurons(outputLayer).get(index);
+					final OutputBackpropNeuron graphOutput = (OutputBackpropNeuron) graphNetwork.getNeurons(outputLayer).get(index);
+					Assert.assertEquals("compiled output differs from graph output", graphOutput.getOutput(), compiledOutput.getOutput(), TOLERANCE);
+					Assert.assertEquals("compiled delta train differs from graph delta train", graphOutput.getDeltaTrain(), compiledOutput.getDeltaTrain(), TOLERANCE);
+				}
+			}
+
+		//once synchronized the neurons must behave like the ones trained
+		//through the graph
+		compiledBrain.decompile();
+		Assert.assertFalse(compiledBrain.isCompiled());
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+				Assert.assertEquals("bias weights were not synchronized", graphNetwork.getNeurons(layer).get(neuron).getBiasWeight(), compiledNetwork.getNeurons(layer).get(neuron).getBiasWeight(), TOLERANCE);
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			setInputs(compiledNetwork.getNeurons(0), inputs[sample]);
+			compiledBrain.propagate();
+			setInputs(graphNetwork.getNeurons(0), inputs[sample]);
+			graphBrain.propagate();
+			for(int index = 0; index < TOPOLOGY[outputLayer]; index++)
+				Assert.assertEquals("weights were not synchronized", ((OutputBackpropNeuron) graphNetwork.getNeurons(outputLayer).get(index)).getOutput(), ((OutputBackpropNeuron) compiledNetwork.getNeurons(outputLayer).get(index)).getOutput(), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testScheduledLayersMatchCompiled()
+	{
+		final Random random = new Random(3);
+		final FullyConnectedFeedforwardBrain brain = new FullyConnectedFeedforwardBrain(new int[]{40, 60, 3}, LEARNING_RATE, new HyperbolicTangentActivationFunction());
+		brain.setThreadCount(4);
+		brain.setGrainSize(50);
+		brain.setInlineThreshold(0);
+
+		final CompiledFeedforwardNetwork network = brain.compile();
+		final double[] inputs = NeuralFixtures.randomVector(random, 40);
+		final double[] compiledOutputs = network.propagate(inputs);
+		brain.decompile();
+
+		setInputs(network.getNeurons(0), inputs);
+		brain.propagate();
+		for(int index = 0; index < compiledOutputs.length; index++)
+			Assert.assertEquals("scheduled output differs from compiled output", compiledOutputs[index], ((OutputBackpropNeuron)network.getNeurons(2).get(index)).getOutput(), TOLERANCE);
+	}
+
+	/**
+	 * Records the order its neurons are created in.
+	 */
+	private static class RecordingBrain extends FullyConnectedFeedforwardBrain
+	{
+		private static final long serialVersionUID = 1L;
+
+		private List<List<BackpropNeuron>> createdLayers;
+
+		public RecordingBrain()
+		{
+			super(TOPOLOGY, LEARNING_RATE, new HyperbolicTangentActivationFunction());
+		}
+
+		@Override
+		protected BackpropNeuron createNeuron(final int layer, final int index)
+		{
+			//called while the superclass is constructed
+			if( this.createdLayers == null )
+				this.createdLayers = new ArrayList<List<BackpropNeuron>>();
+			if( layer == this.createdLayers.size() )
+				this.createdLayers.add(new ArrayList<BackpropNeuron>());
+			final BackpropNeuron neuron = super.createNeuron(layer, index);
+			this.createdLayers.get(layer).add(neuron);
+			return neuron;
+		}
+	}
+
+	@Test
+	public void testLayersKeepCreationOrder()
+	{
+		final RecordingBrain brain = new RecordingBrain();
+		final CompiledFeedforwardNetwork network = brain.compile();
+		for(int layer = 0; layer < TOPOLOGY.length; layer++)
+			Assert.assertEquals("layer " + layer + " is not in creation order", brain.createdLayers.get(layer), network.getNeurons(layer));
+	}
+
+	@Test
+	public void testExecutorSizesThreadCount()
+	{
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		try
+		{
+			final FullyConnectedFeedforwardBrain brain = new FullyConnectedFeedforwardBrain(TOPOLOGY, executor, LEARNING_RATE, new HyperbolicTangentActivationFunction());
+			Assert.assertEquals("a single threaded executor did not limit propagation", 1, brain.getThreadCount());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		Assert.assertEquals(Runtime.getRuntime().availableProcessors(), createBrain().getThreadCount());
+	}
+
+	@Test
+	public void testConcurrentInference() throws Exception
+	{
+		final Random random = new Random(4);
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		final double[][] inputs = new double[32][];
+		for(int sample = 0; sample < inputs.length; sample++)
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+
+		final CompiledFeedforwardNetwork network = brain.compile();
+		final double[][] expected = new double[inputs.length][];
+		for(int sample = 0; sample < inputs.length; sample++)
+			expected[sample] = network.propagate(inputs[sample]);
+		brain.decompile();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			final List<Future<double[][]>> futures = new ArrayList<Future<double[][]>>();
+			for(int request = 0; request < 16; request++)
+				futures.add(executor.submit(new Callable<double[][]>()
+				{
+					public double[][] call()
+					{
+						return brain.infer(inputs);
+					}
+				}));
+
+			for(Future<double[][]> future : futures)
+			{
+				final double[][] outputs = future.get();
+				for(int sample = 0; sample < inputs.length; sample++)
+					for(int index = 0; index < expected[sample].length; index++)
+						Assert.assertEquals("inferred output differs from propagated output", expected[sample][index], outputs[sample][index], TOLERANCE);
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		//training must refresh the snapshot used for inference
+		final double[] before = brain.infer(new double[][]{inputs[0]})[0];
+		brain.trainBatch(new double[][]{inputs[0]}, new double[][]{new double[]{1.0, -1.0}});
+		final double[] after = brain.infer(new double[][]{inputs[0]})[0];
+		Assert.assertTrue("inference did not see the trained weights", (before[0] != after[0]) || (before[1] != after[1]));
+	}
+
+	@Test
+	public void testInferenceDuringTraining() throws Exception
+	{
+		final Random random = new Random(5);
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		final CompiledFeedforwardNetwork network = brain.compile();
+		final double[][] inputs = new double[16][];
+		final double[][] desired = new double[inputs.length][];
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			desired[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[TOPOLOGY.length - 1]);
+		}
+
+		final AtomicBoolean training = new AtomicBoolean(true);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for(int reader = 0; reader < 3; reader++)
+				futures.add(executor.submit(new Callable<Integer>()
+				{
+					public Integer call()
+					{
+						int inferences = 0;
+						while( training.get() )
+						{
+							brain.infer(inputs);
+							inferences++;
+						}
+						return inferences;
+					}
+				}));
+
+			for(int epoch = 0; epoch < TRAINING_CYCLES; epoch++)
+				brain.trainBatch(inputs, desired);
+			training.set(false);
+			for(Future<Integer> future : futures)
+				future.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		//whatever was cached while training must match the final weights
+		final double[][] expected = network.snapshot().infer(inputs);
+		final double[][] inferred = brain.infer(inputs);
+		for(int sample = 0; sample < inputs.length; sample++)
+			for(int index = 0; index < expected[sample].length; index++)
+				Assert.assertEquals("inference served weights from before training finished", expected[sample][index], inferred[sample][index], 0.0);
+	}
+
+	@Test
+	public void testBatchTraining()
+	{
+		final Random random = new Random(2);
+		final FullyConnectedFeedforwardBrain parallelBrain = createBrain();
+		final FullyConnectedFeedforwardBrain serialBrain = createBrain();
+		final CompiledFeedforwardNetwork parallelNetwork = parallelBrain.compile();
+		final CompiledFeedforwardNetwork serialNetwork = serialBrain.compile();
+		copyWeights(parallelNetwork, serialNetwork);
+
+		final double[][] inputs = new double[64][];
+		final double[][] desired = new double[inputs.length][];
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			desired[sample] = new double[]{inputs[sample][0] * inputs[sample][1], -inputs[sample][2]};
+		}
+
+		double firstError = 0.0;
+		double lastError = 0.0;
+		for(int epoch = 0; epoch < TRAINING_CYCLES; epoch++)
+		{
+			lastError = parallelBrain.trainBatch(inputs, desired);
+			final double serialError = serialNetwork.trainBatch(inputs, desired);
+			Assert.assertEquals("parallel batch differs from serial batch", serialError, lastError, TOLERANCE);
+			if( epoch == 0 )
+				firstError = lastError;
+		}
+		Assert.assertTrue("batch training did not reduce the error: " + firstError + " -> " + lastError, lastError < firstError);
+
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+				for(int source = 0; source < TOPOLOGY[layer - 1]; source++)
+					Assert.assertEquals("parallel batch differs from serial batch", serialNetwork.getWeight(layer, neuron, source), parallelNetwork.getWeight(layer, neuron, source), TOLERANCE);
+	}
+}
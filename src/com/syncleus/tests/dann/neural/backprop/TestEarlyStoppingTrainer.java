@@ -0,0 +1,160 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+public class TestEarlyStoppingTrainer
+{
+	private static final int[] TOPOLOGY = {3, 6, 1};
+	private static final int SAMPLES = 100;
+
+	private static FullyConnectedFeedforwardBrain createBrain()
+	{
+		return new FullyConnectedFeedforwardBrain(TOPOLOGY, 0.05, new HyperbolicTangentActivationFunction());
+	}
+
+	//brains start with tiny weights which take many epochs to grow, so the
+	//weights are spread out first to keep the tests short
+	private static void randomizeWeights(final FullyConnectedFeedforwardBrain brain, final Random random)
+	{
+		final CompiledFeedforwardNetwork network = brain.compile();
+		for(int layer = 1; layer < network.getLayerCount(); layer++)
+			for(int neuron = 0; neuron < network.getLayerSize(layer); neuron++)
+				for(int source = 0; source < network.getLayerSize(layer - 1); source++)
+					network.setWeight(layer, neuron, source, (random.nextDouble() * 2.0) - 1.0);
+		brain.synchronize();
+	}
+
+	private static double[][] randomSamples(final Random random, final int count, final int size)
+	{
+		final double[][] samples = new double[count][size];
+		for(int sample = 0; sample < count; sample++)
+			for(int index = 0; index < size; index++)
+				samples[sample][index] = (random.nextDouble() * 2.0) - 1.0;
+		return samples;
+	}
+
+	private static double[][] learnableDesired(final double[][] inputs)
+	{
+		final double[][] desired = new double[inputs.length][1];
+		for(int sample = 0; sample < inputs.length; sample++)
+			desired[sample][0] = 0.5 * Math.tanh(inputs[sample][0] - inputs[sample][1] + (0.5 * inputs[sample][2]));
+		return desired;
+	}
+
+	private static double meanSquaredError(final double[][] outputs, final double[][] desired)
+	{
+		double squaredError = 0.0;
+		for(int sample = 0; sample < outputs.length; sample++)
+			squaredError += (desired[sample][0] - outputs[sample][0]) * (desired[sample][0] - outputs[sample][0]);
+		return squaredError / outputs.length;
+	}
+
+	@Test
+	public void testStopsOnNoise() throws IOException
+	{
+		final Random random = new Random(0);
+		final double[][] inputs = randomSamples(random, SAMPLES, TOPOLOGY[0]);
+		final double[][] desired = randomSamples(random, SAMPLES, 1);
+		final double[][] validationInputs = randomSamples(random, SAMPLES, TOPOLOGY[0]);
+		final double[][] validationDesired = randomSamples(random, SAMPLES, 1);
+
+		//noise can not be learned so the validation error soon stops improving
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		final EarlyStoppingTrainer trainer = new EarlyStoppingTrainer(brain, SAMPLES, 3, 0.0001, 2);
+		final int maximumEpochs = 1000;
+		final double bestError = trainer.train(inputs, desired, validationInputs, validationDesired, maximumEpochs);
+		Assert.assertTrue("trainer did not stop early", trainer.isStopped());
+		Assert.assertTrue("trainer trained every epoch", trainer.getSamplesTrained() < ((long) SAMPLES * maximumEpochs));
+		Assert.assertEquals("brain was not left with the best weights", bestError, meanSquaredError(brain.infer(validationInputs), validationDesired), 0.0000001);
+	}
+
+	@Test
+	public void testLearnsWithValidationSplit() throws IOException
+	{
+		final Random random = new Random(1);
+		final double[][] inputs = randomSamples(random, SAMPLES * 2, TOPOLOGY[0]);
+		final double[][] desired = learnableDesired(inputs);
+
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		randomizeWeights(brain, random);
+		final EarlyStoppingTrainer trainer = new EarlyStoppingTrainer(brain, SAMPLES, 5, 0.0);
+		final double bestError = trainer.train(inputs, desired, 0.25, 50);
+		Assert.assertTrue("validation error did not fall far enough: " + bestError, bestError < 0.01);
+		Assert.assertTrue(trainer.getEvaluationCount() > 1);
+	}
+
+	@Test
+	public void testResumeFromCheckpoint() throws IOException
+	{
+		final Random random = new Random(2);
+		final double[][] inputs = randomSamples(random, SAMPLES, TOPOLOGY[0]);
+		final double[][] desired = learnableDesired(inputs);
+		final double[][] validationInputs = randomSamples(random, SAMPLES / 2, TOPOLOGY[0]);
+		final double[][] validationDesired = learnableDesired(validationInputs);
+
+		final File checkpoint = File.createTempFile("dann-checkpoint", ".bin");
+		checkpoint.deleteOnExit();
+
+		final FullyConnectedFeedforwardBrain brain = createBrain();
+		randomizeWeights(brain, random);
+		final EarlyStoppingTrainer trainer = new EarlyStoppingTrainer(brain, SAMPLES / 4, 1000, 0.0);
+		trainer.setCheckpointFile(checkpoint);
+		trainer.train(inputs, desired, validationInputs, validationDesired, 2);
+
+		//a new brain resumed from the checkpoint must continue exactly as the
+		//trainer which wrote it
+		final FullyConnectedFeedforwardBrain resumedBrain = createBrain();
+		final EarlyStoppingTrainer resumedTrainer = new EarlyStoppingTrainer(resumedBrain, SAMPLES / 4, 1000, 0.0);
+		resumedBrain.infer(validationInputs);
+		resumedTrainer.resume(checkpoint);
+		Assert.assertEquals(trainer.getSamplesTrained(), resumedTrainer.getSamplesTrained());
+		Assert.assertEquals(trainer.getEvaluationCount(), resumedTrainer.getEvaluationCount());
+
+		//the resumed weights must replace those already used for inference
+		final double[][] checkpointOutputs = brain.infer(validationInputs);
+		final double[][] resumedCheckpointOutputs = resumedBrain.infer(validationInputs);
+		for(int sample = 0; sample < checkpointOutputs.length; sample++)
+			Assert.assertTrue("resumed weights were not synchronized into the brain", Arrays.equals(checkpointOutputs[sample], resumedCheckpointOutputs[sample]));
+
+		final double bestError = trainer.train(inputs, desired, validationInputs, validationDesired, 4);
+		final double resumedBestError = resumedTrainer.train(inputs, desired, validationInputs, validationDesired, 4);
+		Assert.assertEquals(bestError, resumedBestError, 0.0);
+		Assert.assertEquals(SAMPLES * 4, resumedTrainer.getSamplesTrained());
+
+		final double[][] outputs = brain.infer(validationInputs);
+		final double[][] resumedOutputs = resumedBrain.infer(validationInputs);
+		for(int sample = 0; sample < outputs.length; sample++)
+			Assert.assertTrue("resumed brain trained differently", Arrays.equals(outputs[sample], resumedOutputs[sample]));
+	}
+
+	@Test(expected=IOException.class)
+	public void testMismatchedCheckpointRejected() throws IOException
+	{
+		final File checkpoint = File.createTempFile("dann-checkpoint", ".bin");
+		checkpoint.deleteOnExit();
+		new EarlyStoppingTrainer(createBrain(), 10, 1, 0.0).writeCheckpoint(checkpoint);
+		new EarlyStoppingTrainer(new FullyConnectedFeedforwardBrain(new int[]{3, 4, 1}, 0.05, new HyperbolicTangentActivationFunction()), 10, 1, 0.0).resume(checkpoint);
+	}
+}
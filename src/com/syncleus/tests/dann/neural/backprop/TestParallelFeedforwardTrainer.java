@@ -0,0 +1,118 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import com.syncleus.tests.dann.neural.NeuralFixtures;
+import java.util.Random;
+import org.junit.*;
+
+public class TestParallelFeedforwardTrainer
+{
+	private static final int[] TOPOLOGY = {4, 6, 2};
+	private static final double LEARNING_RATE = 0.05;
+	private static final int SAMPLES = 200;
+	private static final int EPOCHS = 20;
+	private static final double TOLERANCE = 0.0000001;
+
+	private static CompiledFeedforwardNetwork createNetwork()
+	{
+		return new FullyConnectedFeedforwardBrain(TOPOLOGY, LEARNING_RATE, new HyperbolicTangentActivationFunction()).compile();
+	}
+
+	private static void assertSameWeights(final CompiledFeedforwardNetwork expected, final CompiledFeedforwardNetwork actual)
+	{
+		for(int layer = 1; layer < expected.getLayerCount(); layer++)
+			for(int neuron = 0; neuron < expected.getLayerSize(layer); neuron++)
+			{
+				Assert.assertEquals("bias weights differ", expected.getBiasWeight(layer, neuron), actual.getBiasWeight(layer, neuron), TOLERANCE);
+				for(int source = 0; source < expected.getLayerSize(layer - 1); source++)
+					Assert.assertEquals("weights differ", expected.getWeight(layer, neuron, source), actual.getWeight(layer, neuron, source), TOLERANCE);
+			}
+	}
+
+	private static double[][][] createSamples(final Random random)
+	{
+		final double[][] inputs = new double[SAMPLES][];
+		final double[][] desired = new double[SAMPLES][];
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			inputs[sample] = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			desired[sample] = new double[]{inputs[sample][0] * inputs[sample][1], -inputs[sample][2]};
+		}
+		return new double[][][]{inputs, desired};
+	}
+
+	@Test
+	public void testSingleReplicaMatchesOnlineTraining()
+	{
+		final double[][][] samples = createSamples(new Random(0));
+		final CompiledFeedforwardNetwork network = createNetwork();
+		final CompiledFeedforwardNetwork online = network.snapshot();
+
+		new ParallelFeedforwardTrainer(network, 1, ParallelFeedforwardTrainer.Strategy.AVERAGED_REPLICAS, 7).train(samples[0], samples[1], EPOCHS);
+		for(int epoch = 0; epoch < EPOCHS; epoch++)
+			for(int sample = 0; sample < SAMPLES; sample++)
+			{
+				online.propagate(samples[0][sample]);
+				online.backPropagate(samples[1][sample]);
+			}
+
+		assertSameWeights(online, network);
+	}
+
+	@Test
+	public void testReplicasAreDeterministic()
+	{
+		final double[][][] samples = createSamples(new Random(1));
+		final CompiledFeedforwardNetwork first = createNetwork();
+		final CompiledFeedforwardNetwork second = first.snapshot();
+
+		final ParallelFeedforwardTrainer firstTrainer = new ParallelFeedforwardTrainer(first, 4, ParallelFeedforwardTrainer.Strategy.AVERAGED_REPLICAS, 10);
+		final ParallelFeedforwardTrainer secondTrainer = new ParallelFeedforwardTrainer(second, 4, ParallelFeedforwardTrainer.Strategy.AVERAGED_REPLICAS, 10);
+		final double firstError = firstTrainer.train(samples[0], samples[1], 1);
+		final double lastError = firstTrainer.train(samples[0], samples[1], EPOCHS);
+		secondTrainer.train(samples[0], samples[1], EPOCHS + 1);
+
+		assertSameWeights(first, second);
+		Assert.assertTrue("replica training did not reduce the error: " + firstError + " -> " + lastError, lastError < firstError);
+		Assert.assertEquals((long) SAMPLES * (EPOCHS + 1), firstTrainer.getSamplesTrained());
+		Assert.assertTrue(firstTrainer.getSamplesPerSecond() > 0.0);
+	}
+
+	@Test
+	public void testSharedTraining()
+	{
+		final double[][][] samples = createSamples(new Random(2));
+		final ParallelFeedforwardTrainer trainer = new ParallelFeedforwardTrainer(createNetwork(), 4, ParallelFeedforwardTrainer.Strategy.SHARED, 1);
+		final double firstError = trainer.train(samples[0], samples[1], 1);
+		final double lastError = trainer.train(samples[0], samples[1], EPOCHS);
+		Assert.assertTrue("shared training did not reduce the error: " + firstError + " -> " + lastError, lastError < firstError);
+		Assert.assertTrue(trainer.getSamplesPerSecond() > 0.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testShortDesiredRowRejected()
+	{
+		final double[][][] samples = createSamples(new Random(3));
+		samples[1][SAMPLES / 2] = new double[]{0.5};
+		new ParallelFeedforwardTrainer(createNetwork(), 4, ParallelFeedforwardTrainer.Strategy.SHARED, 1).train(samples[0], samples[1], 1);
+	}
+}
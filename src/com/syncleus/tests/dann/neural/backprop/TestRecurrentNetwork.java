@@ -0,0 +1,125 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.*;
+import com.syncleus.dann.neural.backprop.brain.RecurrentNetwork;
+import java.util.*;
+import org.junit.*;
+
+public class TestRecurrentNetwork
+{
+	private static final int WINDOW = 5;
+	private static final double EPSILON = 0.000001;
+
+	private static double sequenceError(final RecurrentNetwork network, final double[][] inputs, final double[][] desired)
+	{
+		network.reset();
+		final double[] outputs = new double[network.getOutputCount()];
+		double error = 0.0;
+		for(int step = 0; step < inputs.length; step++)
+		{
+			network.propagate(inputs[step], outputs);
+			for(int outputIndex = 0; outputIndex < outputs.length; outputIndex++)
+				error += 0.5 * (desired[step][outputIndex] - outputs[outputIndex]) * (desired[step][outputIndex] - outputs[outputIndex]);
+		}
+		network.reset();
+		return error;
+	}
+
+	@Test
+	public void testGradientMatchesFiniteDifference()
+	{
+		final Random random = new Random(0);
+		final double learningRate = 0.001;
+		final RecurrentNetwork network = new RecurrentNetwork(2, 3, 2, WINDOW, WINDOW, new HyperbolicTangentActivationFunction(), new IdentityActivationFunction(), learningRate, random);
+		final double[][] inputs = new double[WINDOW][2];
+		final double[][] desired = new double[WINDOW][2];
+		for(int step = 0; step < WINDOW; step++)
+			for(int index = 0; index < 2; index++)
+			{
+				inputs[step][index] = (random.nextDouble() * 2.0) - 1.0;
+				desired[step][index] = (random.nextDouble() * 2.0) - 1.0;
+			}
+
+		//numerical gradients of the error against the weights before training
+		final double recurrentWeight = network.getRecurrentWeight(1, 2);
+		network.setRecurrentWeight(1, 2, recurrentWeight + EPSILON);
+		final double recurrentPlus = sequenceError(network, inputs, desired);
+		network.setRecurrentWeight(1, 2, recurrentWeight - EPSILON);
+		final double recurrentMinus = sequenceError(network, inputs, desired);
+		network.setRecurrentWeight(1, 2, recurrentWeight);
+
+		final double inputWeight = network.getInputWeight(0, 1);
+		network.setInputWeight(0, 1, inputWeight + EPSILON);
+		final double inputPlus = sequenceError(network, inputs, desired);
+		network.setInputWeight(0, 1, inputWeight - EPSILON);
+		final double inputMinus = sequenceError(network, inputs, desired);
+		network.setInputWeight(0, 1, inputWeight);
+
+		final double outputWeight = network.getOutputWeight(1, 0);
+		network.setOutputWeight(1, 0, outputWeight + EPSILON);
+		final double outputPlus = sequenceError(network, inputs, desired);
+		network.setOutputWeight(1, 0, outputWeight - EPSILON);
+		final double outputMinus = sequenceError(network, inputs, desired);
+		network.setOutputWeight(1, 0, outputWeight);
+
+		//a single update over the whole window
+		final double[] outputs = new double[2];
+		for(int step = 0; step < WINDOW; step++)
+			network.train(inputs[step], desired[step], outputs);
+
+		Assert.assertEquals("recurrent weight moved against the gradient", -(recurrentPlus - recurrentMinus) / (2.0 * EPSILON), (network.getRecurrentWeight(1, 2) - recurrentWeight) / learningRate, 0.00001);
+		Assert.assertEquals("input weight moved against the gradient", -(inputPlus - inputMinus) / (2.0 * EPSILON), (network.getInputWeight(0, 1) - inputWeight) / learningRate, 0.00001);
+		Assert.assertEquals("output weight moved against the gradient", -(outputPlus - outputMinus) / (2.0 * EPSILON), (network.getOutputWeight(1, 0) - outputWeight) / learningRate, 0.00001);
+	}
+
+	@Test
+	public void testLearnsDelayedEcho()
+	{
+		final Random random = new Random(1);
+		final RecurrentNetwork network = new RecurrentNetwork(1, 6, 1, 4, 2, new HyperbolicTangentActivationFunction(), new IdentityActivationFunction(), 0.05, random);
+		final double[] inputs = new double[1];
+		final double[] desired = new double[1];
+		final double[] outputs = new double[1];
+
+		//the output should repeat the input of the previous step, which can
+		//only be learned through the recurrent weights
+		double previous = 0.0;
+		double lateError = 0.0;
+		final int steps = 6000;
+		for(int step = 0; step < steps; step++)
+		{
+			inputs[0] = ( random.nextBoolean() ? 0.5 : -0.5 );
+			desired[0] = previous;
+			network.train(inputs, desired, outputs);
+			if( step >= (steps - 500) )
+				lateError += (desired[0] - outputs[0]) * (desired[0] - outputs[0]);
+			previous = inputs[0];
+		}
+		lateError /= 500;
+		Assert.assertTrue("recurrent network did not learn to echo, mean squared error " + lateError, lateError < 0.01);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testIntervalLongerThanWindowRejected()
+	{
+		new RecurrentNetwork(1, 2, 1, 3, 4, new HyperbolicTangentActivationFunction(), new IdentityActivationFunction(), 0.05, new Random(0));
+	}
+}
@@ -0,0 +1,140 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.backprop;
+
+import com.syncleus.dann.neural.activation.HyperbolicTangentActivationFunction;
+import com.syncleus.dann.neural.backprop.brain.*;
+import com.syncleus.tests.dann.neural.NeuralFixtures;
+import java.util.*;
+import org.junit.*;
+
+public class TestSparseFeedforwardNetwork
+{
+	private static final int[] TOPOLOGY = {4, 6, 5, 2};
+	private static final double LEARNING_RATE = 0.05;
+	private static final int TRAINING_CYCLES = 200;
+	private static final double TOLERANCE = 0.0000001;
+
+	private static int firstNeuron(final int layer)
+	{
+		int first = 0;
+		for(int layerIndex = 0; layerIndex < layer; layerIndex++)
+			first += TOPOLOGY[layerIndex];
+		return first;
+	}
+
+	private static SparseFeedforwardNetwork createSparse(final CompiledFeedforwardNetwork dense)
+	{
+		final List<int[]> connections = new ArrayList<int[]>();
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+				for(int source = 0; source < TOPOLOGY[layer - 1]; source++)
+					connections.add(new int[]{layer, neuron, source});
+
+		//shuffled so the rows have to be sorted when they are laid out
+		Collections.shuffle(connections, new Random(0));
+		final int[] sources = new int[connections.size()];
+		final int[] destinations = new int[connections.size()];
+		final double[] weights = new double[connections.size()];
+		for(int index = 0; index < connections.size(); index++)
+		{
+			final int[] connection = connections.get(index);
+			sources[index] = firstNeuron(connection[0] - 1) + connection[2];
+			destinations[index] = firstNeuron(connection[0]) + connection[1];
+			weights[index] = dense.getWeight(connection[0], connection[1], connection[2]);
+		}
+
+		final int neuronCount = firstNeuron(TOPOLOGY.length);
+		final SparseFeedforwardNetwork sparse = new SparseFeedforwardNetwork(neuronCount, TOPOLOGY[0], TOPOLOGY[TOPOLOGY.length - 1], new HyperbolicTangentActivationFunction(), LEARNING_RATE, sources, destinations, weights);
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+				sparse.setBiasWeight(firstNeuron(layer) + neuron, dense.getBiasWeight(layer, neuron));
+		return sparse;
+	}
+
+	@Test
+	public void testMatchesDenseNetwork()
+	{
+		final Random random = new Random(1);
+		final CompiledFeedforwardNetwork dense = new FullyConnectedFeedforwardBrain(TOPOLOGY, LEARNING_RATE, new HyperbolicTangentActivationFunction()).compile().snapshot();
+		final SparseFeedforwardNetwork sparse = createSparse(dense);
+
+		for(int cycle = 0; cycle < TRAINING_CYCLES; cycle++)
+		{
+			final double[] inputs = NeuralFixtures.randomVector(random, TOPOLOGY[0]);
+			final double[] desired = NeuralFixtures.randomVector(random, TOPOLOGY[TOPOLOGY.length - 1]);
+
+			final double[] denseOutputs = dense.propagate(inputs);
+			final double[] sparseOutputs = sparse.propagate(inputs);
+			for(int index = 0; index < denseOutputs.length; index++)
+				Assert.assertEquals("sparse network propagated differently", denseOutputs[index], sparseOutputs[index], TOLERANCE);
+
+			dense.backPropagate(desired);
+			sparse.backPropagate(desired);
+		}
+
+		for(int layer = 1; layer < TOPOLOGY.length; layer++)
+			for(int neuron = 0; neuron < TOPOLOGY[layer]; neuron++)
+			{
+				final int destination = firstNeuron(layer) + neuron;
+				Assert.assertEquals("sparse network learned a different bias", dense.getBiasWeight(layer, neuron), sparse.getBiasWeight(destination), TOLERANCE);
+				for(int source = 0; source < TOPOLOGY[layer - 1]; source++)
+					Assert.assertEquals("sparse network learned a different weight", dense.getWeight(layer, neuron, source), sparse.getWeight(firstNeuron(layer - 1) + source, destination), TOLERANCE);
+			}
+	}
+
+	@Test
+	public void testRebuild()
+	{
+		final SparseFeedforwardNetwork network = new SparseFeedforwardNetwork(5, 2, 1, new HyperbolicTangentActivationFunction(), LEARNING_RATE, new int[]{0, 1, 0, 2, 3}, new int[]{2, 2, 3, 4, 4}, new double[]{0.5, 0.001, -0.7, 0.3, -0.002});
+		Assert.assertEquals(5, network.getConnectionCount());
+		Assert.assertFalse(network.hasPendingChanges());
+
+		network.connect(1, 3, 0.25);
+		network.connect(0, 4, 0.1);
+		network.connect(0, 2, 0.9);
+		network.disconnect(2, 4);
+		network.prune(0.01);
+		Assert.assertTrue(network.hasPendingChanges());
+		Assert.assertEquals("changes must wait for a rebuild", 5, network.getConnectionCount());
+		Assert.assertFalse(network.isConnected(1, 3));
+
+		Assert.assertEquals(4, network.rebuild());
+		Assert.assertFalse(network.hasPendingChanges());
+		Assert.assertEquals(0.9, network.getWeight(0, 2), 0.0);
+		Assert.assertFalse("small weight was not pruned", network.isConnected(1, 2));
+		Assert.assertEquals(-0.7, network.getWeight(0, 3), 0.0);
+		Assert.assertEquals(0.25, network.getWeight(1, 3), 0.0);
+		Assert.assertFalse("disconnected synapse remained", network.isConnected(2, 4));
+		Assert.assertFalse("small weight was not pruned", network.isConnected(3, 4));
+		Assert.assertEquals(0.1, network.getWeight(0, 4), 0.0);
+		Assert.assertEquals(1, network.getIndegree(4));
+
+		final double[] outputs = network.propagate(new double[]{0.5, -0.5});
+		Assert.assertEquals(1, outputs.length);
+		Assert.assertEquals(Math.tanh(0.05), outputs[0], TOLERANCE);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testBackwardConnectionRejected()
+	{
+		final SparseFeedforwardNetwork network = new SparseFeedforwardNetwork(4, 2, 1, new HyperbolicTangentActivationFunction(), LEARNING_RATE, new int[]{0}, new int[]{2}, new double[]{1.0});
+		network.connect(2, 2, 1.0);
+	}
+}
@@ -0,0 +1,321 @@
+/******************************************************************************
+ *                                                                             *
+ *  Copyright: (c) Syncleus, Inc.                                              *
+ *                                                                             *
+ *  You may redistribute and modify this source code under the terms and       *
+ *  conditions of the Open Source Community License - Type C version 1.0       *
+ *  or any later version as published by Syncleus, Inc. at www.syncleus.com.   *
+ *  There should be a copy of the license included with this file. If a copy   *
+ *  of the license is not included you are granted no right to distribute or   *
+ *  otherwise use this file except through a legal and valid license. You      *
+ *  should also contact Syncleus, Inc. at the information below if you cannot  *
+ *  find a license:                                                            *
+ *                                                                             *
+ *  Syncleus, Inc.                                                             *
+ *  2604 South 12th Street                                                     *
+ *  Philadelphia, PA 19148                                                     *
+ *                                                                             *
+ ******************************************************************************/
+package com.syncleus.tests.dann.neural.som;
+
+import com.syncleus.dann.math.Vector;
+import com.syncleus.dann.neural.som.brain.*;
+import com.syncleus.tests.dann.neural.NeuralFixtures;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.*;
+
+public class TestSomCodebook
+{
+	private static final int INPUT_DIMENSIONS = 3;
+	private static final int OUTPUT_WIDTH = 10;
+	private static final int OUTPUT_HEIGHT = 10;
+	private static final int TRAIN_ITERATIONS = 500;
+	private static final double LEARNING_RATE = 0.1;
+	private static final double TOLERANCE = 0.0000001;
+
+	private static class FixedNeighborhoodSomBrain extends AbstractSomBrain
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final double radius;
+		private final double learningRate;
+
+		public FixedNeighborhoodSomBrain(final int inputCount, final int dimentionality, final double radius, final double learningRate)
+		{
+			super(inputCount, dimentionality);
+			this.radius = radius;
+			this.learningRate = learningRate;
+		}
+
+		public FixedNeighborhoodSomBrain(final int inputCount, final int dimentionality, final double radius, final double learningRate, final ThreadPoolExecutor threadExecutor)
+		{
+			super(inputCount, dimentionality, threadExecutor);
+			this.radius = radius;
+			this.learningRate = learningRate;
+		}
+
+		@Override
+		protected double neighborhoodFunction(final double distanceFromBest)
+		{
+			return 1.0;
+		}
+
+		@Override
+		protected double neighborhoodRadiusFunction()
+		{
+			return this.radius;
+		}
+
+		@Override
+		protected double learningRateFunction()
+		{
+			return this.learningRate;
+		}
+	}
+
+	private static void copyWeights(final SomCodebook from, final SomCodebook to)
+	{
+		for(int unit = 0; unit < from.getUnitCount(); unit++)
+		{
+			final int toUnit = to.getUnit(from.getPosition(unit));
+			for(int input = 0; input < from.getInputCount(); input++)
+				to.setWeight(toUnit, input, from.getWeight(unit, input));
+		}
+	}
+
+	private static void setInputs(final AbstractSomBrain brain, final double[] inputs)
+	{
+		for(int index = 0; index < inputs.length; index++)
+			brain.setInput(index, inputs[index]);
+	}
+
+	private static double[] randomVector(final Random random, final int size)
+	{
+		final double[] vector = new double[size];
+		for(int index = 0; index < size; index++)
+			vector[index] = random.nextDouble();
+		return vector;
+	}
+
+	@Test
+	public void testBestMatchingUnitMatchesGraph()
+	{
+		final Random random = new Random(0);
+		final ExponentialDecaySomBrain brain = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, OUTPUT_WIDTH, OUTPUT_HEIGHT);
+		brain.compile();
+
+		final double[][] inputs = new double[20][];
+		final Vector[] compiledUnits = new Vector[inputs.length];
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			inputs[sample] = randomVector(random, INPUT_DIMENSIONS);
+			setInputs(brain, inputs[sample]);
+			compiledUnits[sample] = brain.getBestMatchingUnit(false);
+		}
+
+		brain.decompile();
+		for(int sample = 0; sample < inputs.length; sample++)
+		{
+			setInputs(brain, inputs[sample]);
+			Assert.assertEquals("compiled BMU differs from graph BMU", brain.getBestMatchingUnit(false), compiledUnits[sample]);
+		}
+	}
+
+	@Test
+	public void testTrainingMatchesGraph()
+	{
+		final Random random = new Random(1);
+		final ExponentialDecaySomBrain compiledBrain = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, OUTPUT_WIDTH, OUTPUT_HEIGHT);
+		final ExponentialDecaySomBrain graphBrain = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, OUTPUT_WIDTH, OUTPUT_HEIGHT);
+		copyWeights(compiledBrain.compile(), graphBrain.compile());
+		graphBrain.decompile();
+
+		for(int iteration = 0; iteration < TRAIN_ITERATIONS; iteration++)
+		{
+			final double[] inputs = randomVector(random, INPUT_DIMENSIONS);
+			setInputs(compiledBrain, inputs);
+			setInputs(graphBrain, inputs);
+			Assert.assertEquals("compiled BMU differs from graph BMU", graphBrain.getBestMatchingUnit(true), compiledBrain.getBestMatchingUnit(true));
+		}
+		Assert.assertEquals(graphBrain.getIterationsTrained(), compiledBrain.getIterationsTrained());
+
+		compiledBrain.decompile();
+		final Map<Vector, double[]> graphWeights = graphBrain.getOutputWeightVectors();
+		for(Map.Entry<Vector, double[]> compiledWeight : compiledBrain.getOutputWeightVectors().entrySet())
+			for(int input = 0; input < INPUT_DIMENSIONS; input++)
+				Assert.assertEquals("weights were not synchronized", graphWeights.get(compiledWeight.getKey())[input], compiledWeight.getValue()[input], TOLERANCE);
+	}
+
+	@Test
+	public void testParallelSearchMatchesSerial()
+	{
+		final Random random = new Random(2);
+		final SomCodebook codebook = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, 80, 80).compile();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			for(int sample = 0; sample < 50; sample++)
+			{
+				final double[] inputs = randomVector(random, INPUT_DIMENSIONS);
+				final int serialUnit = codebook.getBestMatchingUnit(inputs);
+				Assert.assertEquals("parallel BMU differs from serial BMU", serialUnit, codebook.getBestMatchingUnit(inputs, executor));
+
+				//no unit may be closer than the BMU
+				final double bestOutput = codebook.getOutput(serialUnit, inputs);
+				for(int unit = 0; unit < codebook.getUnitCount(); unit++)
+					Assert.assertTrue("BMU is not the closest unit", bestOutput <= codebook.getOutput(unit, inputs));
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSingleThreadExecutorSearchesInline()
+	{
+		final Random random = new Random(6);
+		final SomCodebook codebook = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, 80, 80).compile();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		try
+		{
+			final double[] inputs = randomVector(random, INPUT_DIMENSIONS);
+			Assert.assertEquals(codebook.getBestMatchingUnit(inputs), codebook.getBestMatchingUnit(inputs, executor));
+			Assert.assertEquals("shares were queued behind a single thread", 0L, executor.getTaskCount());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testTrainingOnlyTouchesNeighborhood()
+	{
+		final Random random = new Random(3);
+		final double radius = 2.5;
+		final double learningRate = 0.5;
+		for(int mode = 0; mode < 2; mode++)
+		{
+			//an irregular three dimensional lattice
+			final FixedNeighborhoodSomBrain brain = new FixedNeighborhoodSomBrain(INPUT_DIMENSIONS, 3, radius, learningRate);
+			for(int unit = 0; unit < 300; unit++)
+				brain.createOutput(new Vector(new double[]{random.nextDouble() * 10.0, random.nextDouble() * 10.0, random.nextDouble() * 3.0}));
+			if( mode == 1 )
+				brain.compile();
+
+			for(int iteration = 0; iteration < 20; iteration++)
+			{
+				final double[] inputs = randomVector(random, INPUT_DIMENSIONS);
+				setInputs(brain, inputs);
+				final Map<Vector, double[]> before = brain.getOutputWeightVectors();
+				final Vector bestMatchingUnit = brain.getBestMatchingUnit(true);
+				final Map<Vector, double[]> after = brain.getOutputWeightVectors();
+
+				for(Map.Entry<Vector, double[]> weightVector : before.entrySet())
+				{
+					final Vector position = weightVector.getKey();
+					final boolean inside = position.calculateRelativeTo(bestMatchingUnit).getDistance() < radius;
+					for(int input = 0; input < INPUT_DIMENSIONS; input++)
+					{
+						final double oldWeight = weightVector.getValue()[input];
+						final double expected = ( inside ? oldWeight + (learningRate * (inputs[input] - oldWeight)) : oldWeight );
+						Assert.assertEquals("unit trained incorrectly for its distance from the BMU", expected, after.get(position)[input], TOLERANCE);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBatchTrainingMovesUnitsToMeans()
+	{
+		final Random random = new Random(4);
+		//with a radius below the lattice spacing only the BMU is updated
+		final FixedNeighborhoodSomBrain brain = new FixedNeighborhoodSomBrain(INPUT_DIMENSIONS, 2, 0.5, LEARNING_RATE);
+		for(double x = 0; x < OUTPUT_WIDTH; x++)
+			for(double y = 0; y < OUTPUT_HEIGHT; y++)
+				brain.createOutput(new Vector(new double[]{x, y}));
+
+		final double[][] samples = new double[500][];
+		for(int sample = 0; sample < samples.length; sample++)
+			samples[sample] = randomVector(random, INPUT_DIMENSIONS);
+
+		final SomCodebook before = brain.compile().snapshot();
+		final double[][] sums = new double[before.getUnitCount()][INPUT_DIMENSIONS];
+		final int[] counts = new int[before.getUnitCount()];
+		for(double[] sample : samples)
+		{
+			final int unit = before.getBestMatchingUnit(sample);
+			counts[unit]++;
+			for(int input = 0; input < INPUT_DIMENSIONS; input++)
+				sums[unit][input] += sample[input];
+		}
+
+		brain.trainBatch(samples);
+		Assert.assertEquals(1, brain.getIterationsTrained());
+		final SomCodebook after = brain.compile();
+		for(int unit = 0; unit < before.getUnitCount(); unit++)
+			for(int input = 0; input < INPUT_DIMENSIONS; input++)
+			{
+				final double expected = ( counts[unit] == 0 ? before.getWeight(unit, input) : sums[unit][input] / counts[unit] );
+				Assert.assertEquals("unit did not move to the mean of its samples", expected, after.getWeight(unit, input), TOLERANCE);
+			}
+	}
+
+	@Test
+	public void testSingleThreadExecutorTrainsInline()
+	{
+		final Random random = new Random(7);
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		try
+		{
+			final FixedNeighborhoodSomBrain brain = new FixedNeighborhoodSomBrain(INPUT_DIMENSIONS, 2, 1.5, LEARNING_RATE, executor);
+			for(double x = 0; x < OUTPUT_WIDTH; x++)
+				for(double y = 0; y < OUTPUT_HEIGHT; y++)
+					brain.createOutput(new Vector(new double[]{x, y}));
+
+			final double[][] samples = new double[100][];
+			for(int sample = 0; sample < samples.length; sample++)
+				samples[sample] = randomVector(random, INPUT_DIMENSIONS);
+			brain.trainBatch(samples);
+			Assert.assertEquals("shares were queued behind a single thread", 0L, executor.getTaskCount());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testBatchTrainingIsOrderIndependent()
+	{
+		final Random random = new Random(5);
+		final ExponentialDecaySomBrain brain = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, OUTPUT_WIDTH, OUTPUT_HEIGHT);
+		final ExponentialDecaySomBrain shuffledBrain = NeuralFixtures.createSomBrain(INPUT_DIMENSIONS, OUTPUT_WIDTH, OUTPUT_HEIGHT);
+		copyWeights(brain.compile(), shuffledBrain.compile());
+
+		final double[][] samples = new double[400][];
+		for(int sample = 0; sample < samples.length; sample++)
+			samples[sample] = randomVector(random, INPUT_DIMENSIONS);
+		final List<double[]> shuffled = new ArrayList<double[]>(Arrays.asList(samples));
+		Collections.shuffle(shuffled, random);
+
+		final double error = brain.trainBatch(samples);
+		Assert.assertEquals("batch training depends on sample order", error, shuffledBrain.trainBatch(shuffled.toArray(new double[samples.length][])), TOLERANCE);
+
+		final SomCodebook codebook = brain.compile();
+		final SomCodebook shuffledCodebook = shuffledBrain.compile();
+		for(int unit = 0; unit < codebook.getUnitCount(); unit++)
+			for(int input = 0; input < INPUT_DIMENSIONS; input++)
+				Assert.assertEquals("batch training depends on sample order", codebook.getWeight(unit, input), shuffledCodebook.getWeight(shuffledCodebook.getUnit(codebook.getPosition(unit)), input), TOLERANCE);
+
+		//further epochs must keep the map closer to the samples
+		double lastError = error;
+		for(int epoch = 1; epoch < 20; epoch++)
+			lastError = brain.trainBatch(samples);
+		Assert.assertTrue("batch training did not reduce the error: " + error + " -> " + lastError, lastError < error);
+	}
+}